@@ -11,6 +11,7 @@ import io.getstream.webrtc.flutter.utils.EglUtils;
 import java.util.List;
 
 import org.webrtc.EglBase;
+import org.webrtc.EglBase14;
 import org.webrtc.MediaStream;
 import org.webrtc.RendererCommon.RendererEvents;
 import org.webrtc.VideoTrack;
@@ -90,7 +91,7 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
         };
     }
 
-    private final SurfaceTextureRenderer surfaceTextureRenderer;
+    private final VideoTextureRenderer surfaceTextureRenderer;
 
     /**
      * The {@code VideoTrack}, if any, rendered by this {@code FlutterRTCVideoRenderer}.
@@ -100,11 +101,34 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
     EventChannel eventChannel;
     EventChannel.EventSink eventSink;
 
+    /** Render fps cap, 0 for none. Reapplied whenever the renderer is re-initialized. */
+    private float maxFrameRate = 0f;
+
     public FlutterRTCVideoRenderer(TextureRegistry.SurfaceProducer producer) {
-        this.surfaceTextureRenderer = new SurfaceTextureRenderer("");
+        this(producer, false);
+    }
+
+    /**
+     * @param pooled draw on the shared {@link RenderThreadPool} instead of a
+     *               render thread and EGL context of this renderer's own; ignored
+     *               when the root EGL context is not an EGL14 one
+     */
+    public FlutterRTCVideoRenderer(TextureRegistry.SurfaceProducer producer, boolean pooled) {
+        this.surfaceTextureRenderer = createRenderer(pooled);
         listenRendererEvents();
         surfaceTextureRenderer.init(EglUtils.getRootEglBaseContext(), rendererEvents);
         surfaceTextureRenderer.surfaceCreated(producer);
+        surfaceTextureRenderer.setSurfaceSizeListener((width, height) -> {
+            EventChannel.EventSink sink = eventSink;
+            if (sink != null) {
+                ConstraintsMap params = new ConstraintsMap();
+                params.putString("event", "didTextureChangeRenderSize");
+                params.putInt("id", id);
+                params.putInt("width", width);
+                params.putInt("height", height);
+                sink.success(params.toMap());
+            }
+        });
 
         this.eventSink = null;
         this.producer = producer;
@@ -119,6 +143,45 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
         this.id = id;
     }
 
+    /**
+     * Size of the widget showing this renderer, in physical pixels. Frames are
+     * drawn into a surface scaled down to it; 0 renders at full resolution.
+     */
+    public void setLayoutSize(int width, int height) {
+        surfaceTextureRenderer.setLayoutSize(width, height);
+    }
+
+    /** Caps the render frame rate, e.g. for thumbnails or off-screen tiles; 0 removes the cap. */
+    public void setMaxFrameRate(float fps) {
+        maxFrameRate = Math.max(0f, fps);
+        applyMaxFrameRate();
+    }
+
+    private static VideoTextureRenderer createRenderer(boolean pooled) {
+        if (pooled) {
+            // The pool's contexts are created from the EGL14 root context.
+            if (EglUtils.getRootEglBaseContext() instanceof EglBase14.Context) {
+                return new PooledSurfaceRenderer();
+            }
+            Log.w(TAG, "Pooled rendering needs an EGL14 root context, using a dedicated renderer");
+        }
+        return new SurfaceTextureRenderer("");
+    }
+
+    private void applyMaxFrameRate() {
+        if (maxFrameRate > 0f) {
+            surfaceTextureRenderer.setFpsReduction(maxFrameRate);
+        } else {
+            surfaceTextureRenderer.disableFpsReduction();
+        }
+    }
+
+    public ConstraintsMap getStats() {
+        ConstraintsMap stats = surfaceTextureRenderer.getTimingStats();
+        stats.putLong("surfaceRecreations", surfaceTextureRenderer.getSurfaceRecreateCount());
+        return stats;
+    }
+
     @Override
     public void onListen(Object o, EventChannel.EventSink sink) {
         eventSink = new AnyThreadSink(sink);
@@ -269,6 +332,7 @@ public class FlutterRTCVideoRenderer implements EventChannel.StreamHandler {
             listenRendererEvents();
             surfaceTextureRenderer.init(sharedContext, rendererEvents);
             surfaceTextureRenderer.surfaceCreated(producer);
+            applyMaxFrameRate();
 
             videoTrack.addSink(surfaceTextureRenderer);
         }
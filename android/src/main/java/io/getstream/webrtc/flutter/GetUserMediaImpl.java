@@ -43,8 +43,11 @@ import io.getstream.webrtc.flutter.audio.ScreenAudioCapturer;
 import java.nio.ByteBuffer;
 import io.getstream.webrtc.flutter.record.AudioChannel;
 import io.getstream.webrtc.flutter.record.AudioSamplesInterceptor;
+import io.getstream.webrtc.flutter.record.CompositeRecorder;
+import io.getstream.webrtc.flutter.record.ConversationAudioInterceptor;
 import io.getstream.webrtc.flutter.record.MediaRecorderImpl;
 import io.getstream.webrtc.flutter.record.OutputAudioSamplesInterceptor;
+import io.getstream.webrtc.flutter.record.RecordingOptions;
 import io.getstream.webrtc.flutter.utils.Callback;
 import io.getstream.webrtc.flutter.utils.ConstraintsArray;
 import io.getstream.webrtc.flutter.utils.ConstraintsMap;
@@ -102,6 +105,7 @@ public class GetUserMediaImpl {
     private static final int DEFAULT_FPS = 30;
 
     private static final String EVENT_DISPLAY_MEDIA_STOPPED = "screenSharingStopped";
+    private static final String EVENT_RECORDER_SEGMENT_COMPLETED = "onRecorderSegmentCompleted";
     private static final String PERMISSION_AUDIO = Manifest.permission.RECORD_AUDIO;
     private static final String PERMISSION_VIDEO = Manifest.permission.CAMERA;
     private static final String PERMISSION_SCREEN = "android.permission.MediaProjection";
@@ -126,9 +130,13 @@ public class GetUserMediaImpl {
     static final int minAPILevel = Build.VERSION_CODES.LOLLIPOP;
 
     final AudioSamplesInterceptor inputSamplesInterceptor = new AudioSamplesInterceptor();
-    private OutputAudioSamplesInterceptor outputSamplesInterceptor = null;
+    /** Playback tap; set with the audio device module. */
+    OutputAudioSamplesInterceptor outputSamplesInterceptor;
+    /** Microphone with playback mixed in; set with the audio device module. */
+    ConversationAudioInterceptor conversationSamplesInterceptor;
     JavaAudioDeviceModule audioDeviceModule;
     private final SparseArray<MediaRecorderImpl> mediaRecorders = new SparseArray<>();
+    private final SparseArray<CompositeRecorder> compositeRecorders = new SparseArray<>();
     private AudioDeviceInfo preferredInput = null;
     private boolean isTorchOn;
     private Intent mediaProjectionData = null;
@@ -773,15 +781,16 @@ public class GetUserMediaImpl {
     }
 
     /**
-     * Gets screen audio bytes for mixing with microphone audio.
+     * Gets screen audio bytes for mixing with microphone audio, converted to the
+     * given sample rate and channel count.
      * Returns null if screen audio capture is not active.
      */
-    public ByteBuffer getScreenAudioBytes(int bytesRequested) {
+    public ByteBuffer getScreenAudioBytes(int bytesRequested, int sampleRate, int channelCount) {
         if (!isScreenAudioEnabled()) {
             return null;
         }
         
-        return screenAudioCapturer.getScreenAudioBytes(bytesRequested);
+        return screenAudioCapturer.getScreenAudioBytes(bytesRequested, sampleRate, channelCount);
     }
 
     /**
@@ -1090,7 +1099,8 @@ public class GetUserMediaImpl {
 
     /** Returns true if this impl owns the recorder. */
     public boolean ownsRecorder(int recorderId) {
-        return mediaRecorders.get(recorderId) != null;
+        return mediaRecorders.get(recorderId) != null
+                || compositeRecorders.get(recorderId) != null;
     }
 
     void removeVideoCapturer(String id) {
@@ -1246,26 +1256,100 @@ public class GetUserMediaImpl {
      *
      * @param path         to the file for record
      * @param videoTrack   to record or null if only audio needed
-     * @param audioChannel channel for recording or null
+     * @param audioChannel channel for recording or null; with
+     *                     {@link RecordingOptions#conversationAudio} both channels are mixed
+     * @param options      encoder options
      * @throws Exception lot of different exceptions, pass back to dart layer to print them at least
      */
     void startRecordingToFile(
-            String path, Integer id, @Nullable VideoTrack videoTrack, @Nullable AudioChannel audioChannel)
+            String path, Integer id, @Nullable VideoTrack videoTrack, @Nullable AudioChannel audioChannel,
+            RecordingOptions options)
             throws Exception {
         AudioSamplesInterceptor interceptor = null;
-        if (audioChannel == AudioChannel.INPUT) {
+        if (audioChannel != null && options.conversationAudio) {
+            if (conversationSamplesInterceptor == null) {
+                throw new Exception("Conversation recording needs an audio device module");
+            }
+            interceptor = conversationSamplesInterceptor;
+        } else if (audioChannel == AudioChannel.INPUT) {
             interceptor = inputSamplesInterceptor;
         } else if (audioChannel == AudioChannel.OUTPUT) {
             if (outputSamplesInterceptor == null) {
-                outputSamplesInterceptor = new OutputAudioSamplesInterceptor(audioDeviceModule);
+                throw new Exception("Output recording needs an audio device module");
             }
             interceptor = outputSamplesInterceptor;
         }
-        MediaRecorderImpl mediaRecorder = new MediaRecorderImpl(id, videoTrack, interceptor);
+        MediaRecorderImpl mediaRecorder = new MediaRecorderImpl(id, videoTrack, interceptor, options,
+                segmentEventListener);
         mediaRecorder.startRecording(new File(path));
         mediaRecorders.append(id, mediaRecorder);
     }
 
+    /**
+     * Starts a recording that tiles several video tracks and mixes several
+     * audio tracks into one file.
+     *
+     * @param recorder a {@link CompositeRecorder} with its tracks added
+     */
+    void startCompositeRecordingToFile(String path, Integer id, CompositeRecorder recorder)
+            throws Exception {
+        recorder.startRecording(new File(path));
+        compositeRecorders.append(id, recorder);
+    }
+
+    /** Forwards finished segments of any recorder to Dart. */
+    final MediaRecorderImpl.SegmentListener segmentEventListener =
+            (recorderId, segmentPath, index, durationUs, sizeBytes) -> {
+                ConstraintsMap params = new ConstraintsMap();
+                params.putString("event", EVENT_RECORDER_SEGMENT_COMPLETED);
+                params.putInt("recorderId", recorderId);
+                params.putString("path", segmentPath);
+                params.putInt("index", index);
+                params.putLong("durationMs", durationUs / 1000);
+                params.putLong("sizeBytes", sizeBytes);
+                FlutterWebRTCPlugin.sharedSingleton.sendEvent(params.toMap());
+            };
+
+    @Nullable
+    ConstraintsMap getRecorderStats(Integer id) {
+        MediaRecorderImpl mediaRecorder = mediaRecorders.get(id);
+        if (mediaRecorder != null) {
+            return mediaRecorder.getStats();
+        }
+        CompositeRecorder compositeRecorder = compositeRecorders.get(id);
+        return compositeRecorder != null ? compositeRecorder.getStats() : null;
+    }
+
+    /** @return false if no recorder is registered under {@code id} */
+    boolean pauseRecording(Integer id) {
+        MediaRecorderImpl mediaRecorder = mediaRecorders.get(id);
+        if (mediaRecorder != null) {
+            mediaRecorder.pauseRecording();
+            return true;
+        }
+        CompositeRecorder compositeRecorder = compositeRecorders.get(id);
+        if (compositeRecorder != null) {
+            compositeRecorder.pauseRecording();
+            return true;
+        }
+        return false;
+    }
+
+    /** @return false if no recorder is registered under {@code id} */
+    boolean resumeRecording(Integer id) {
+        MediaRecorderImpl mediaRecorder = mediaRecorders.get(id);
+        if (mediaRecorder != null) {
+            mediaRecorder.resumeRecording();
+            return true;
+        }
+        CompositeRecorder compositeRecorder = compositeRecorders.get(id);
+        if (compositeRecorder != null) {
+            compositeRecorder.resumeRecording();
+            return true;
+        }
+        return false;
+    }
+
     void stopRecording(Integer id, String albumName,  Runnable onFinished) {
        MediaRecorderImpl mediaRecorder = mediaRecorders.get(id);
        if (mediaRecorder != null) {
@@ -1273,6 +1357,14 @@ public class GetUserMediaImpl {
                 mediaRecorders.remove(id);
                 onFinished.run();
             });
+            return;
+        }
+        CompositeRecorder compositeRecorder = compositeRecorders.get(id);
+        if (compositeRecorder != null) {
+            compositeRecorder.stopRecording(() -> {
+                compositeRecorders.remove(id);
+                onFinished.run();
+            });
         }
     }
 
@@ -21,7 +21,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
+import io.getstream.webrtc.flutter.audio.AudioBufferMixer;
 import io.getstream.webrtc.flutter.audio.AudioDeviceKind;
+import io.getstream.webrtc.flutter.audio.AudioLevelMonitor;
 import io.getstream.webrtc.flutter.audio.AudioProcessingFactoryProvider;
 import io.getstream.webrtc.flutter.audio.AudioProcessingController;
 import io.getstream.webrtc.flutter.audio.AudioSwitchManager;
@@ -29,7 +31,12 @@ import io.getstream.webrtc.flutter.audio.AudioFocusManager;
 import io.getstream.webrtc.flutter.audio.AudioUtils;
 import io.getstream.webrtc.flutter.audio.LocalAudioTrack;
 import io.getstream.webrtc.flutter.record.AudioChannel;
+import io.getstream.webrtc.flutter.record.CompositeRecorder;
+import io.getstream.webrtc.flutter.record.EncodedFrameTap;
 import io.getstream.webrtc.flutter.record.FrameCapturer;
+import io.getstream.webrtc.flutter.record.FrameSampler;
+import io.getstream.webrtc.flutter.record.RecordingOptions;
+import io.getstream.webrtc.flutter.stats.StatsAggregator;
 import io.getstream.webrtc.flutter.utils.AnyThreadResult;
 import io.getstream.webrtc.flutter.utils.Callback;
 import io.getstream.webrtc.flutter.utils.ConstraintsArray;
@@ -81,6 +88,7 @@ import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -108,6 +116,8 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
   private final ConcurrentHashMap<String, MediaStream> localStreams = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, LocalTrack> localTracks = new ConcurrentHashMap<>();
   private final LongSparseArray<FlutterRTCVideoRenderer> renders = new LongSparseArray<>();
+  private final ConcurrentHashMap<String, FrameSampler> frameSamplers = new ConcurrentHashMap<>();
+  private final AudioLevelMonitor audioLevelMonitor;
 
   private CameraUtils cameraUtils;
 
@@ -144,6 +154,7 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
     this.context = context;
     this.textures = textureRegistry;
     this.messenger = messenger;
+    this.audioLevelMonitor = new AudioLevelMonitor(messenger);
   }
 
   static private void resultError(String method, String error, Result result) {
@@ -159,6 +170,7 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
    * otherwise libwebrtc native state crashes when the factory's ADM is already disposed.
    */
   void dispose() {
+    audioLevelMonitor.dispose();
     if (AudioSwitchManager.instance != null) {
       AudioSwitchManager.instance.setAudioFocusChangeListener(null);
     }
@@ -167,6 +179,11 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
       audioFocusManager = null;
     }
 
+    for (final FrameSampler sampler : frameSamplers.values()) {
+      sampler.release();
+    }
+    frameSamplers.clear();
+
     try {
       for (final PeerConnectionObserver connection : mPeerConnectionObservers.values()) {
         peerConnectionDispose(connection);
@@ -361,6 +378,30 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
       audioOutputSampleRate = options.getInt("audioOutputSampleRate");
     }
 
+    ConstraintsMap speechActivityOptions = null;
+    if (options.hasKey("speechActivity")
+        && options.getType("speechActivity") == ObjectType.Map) {
+      speechActivityOptions = options.getMap("speechActivity");
+    }
+
+    AudioBufferMixer.ClipMode screenAudioClipMode = null;
+    if (options.hasKey("screenAudioClipMode")
+        && options.getType("screenAudioClipMode") == ObjectType.String) {
+      switch (options.getString("screenAudioClipMode")) {
+        case "softClip":
+          screenAudioClipMode = AudioBufferMixer.ClipMode.SOFT_CLIP;
+          break;
+        case "limiter":
+          screenAudioClipMode = AudioBufferMixer.ClipMode.LIMITER;
+          break;
+        case "hardClip":
+          screenAudioClipMode = AudioBufferMixer.ClipMode.HARD_CLIP;
+          break;
+        default:
+          Log.w(TAG, "Unknown screenAudioClipMode, using hardClip");
+      }
+    }
+
     // TODO: Audio switch manager is global and the latest configuration is applied to all factories. Check if can be handled better.
     if (androidAudioConfiguration != null && AudioSwitchManager.instance != null) {
       AudioSwitchManager.instance.setAudioConfiguration(
@@ -377,6 +418,8 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
     ctx.audioSampleRate = audioSampleRate;
     ctx.audioOutputSampleRate = audioOutputSampleRate;
     ctx.audioProcessingFactoryProvider = audioProcessingFactoryProvider;
+    ctx.speechActivityOptions = speechActivityOptions;
+    ctx.screenAudioClipMode = screenAudioClipMode;
     ctx.stateProvider = this;
     ctx.isMicrophoneMutedSupplier = this::isMicrophoneMuted;
     ctx.localTracksSupplier = () -> localTracks.values();
@@ -398,6 +441,7 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
       Log.w(TAG, "[disposePeerConnectionFactory] unknown factoryId: " + factoryId);
       return;
     }
+    audioLevelMonitor.removePlayout(factoryId);
 
     Log.i(TAG, "[disposePeerConnectionFactory] disposing id: " + factoryId
         + ", ownedPcs: " + nf.ownedPcIds.size()
@@ -905,7 +949,54 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
       case "getStats": {
         String peerConnectionId = call.argument("peerConnectionId");
         String trackId = call.argument("trackId");
-        peerConnectionGetStats(trackId, peerConnectionId, result);
+        boolean binary = "binary".equals(call.argument("encoding"));
+        peerConnectionGetStats(trackId, peerConnectionId, binary, result);
+        break;
+      }
+      case "setStatsSampling": {
+        String peerConnectionId = call.argument("peerConnectionId");
+        PeerConnectionObserver pco = mPeerConnectionObservers.get(peerConnectionId);
+        if (pco == null || pco.getPeerConnection() == null) {
+          resultError("setStatsSampling", "peerConnection is null", result);
+          break;
+        }
+        Integer intervalMs = call.argument("intervalMs");
+        List<String> types = call.argument("types");
+        pco.setStatsSampling(intervalMs == null ? 0 : intervalMs, types);
+        result.success(null);
+        break;
+      }
+      case "setStatsAggregation": {
+        String peerConnectionId = call.argument("peerConnectionId");
+        PeerConnectionObserver pco = mPeerConnectionObservers.get(peerConnectionId);
+        if (pco == null || pco.getPeerConnection() == null) {
+          resultError("setStatsAggregation", "peerConnection is null", result);
+          break;
+        }
+        Integer intervalMs = call.argument("intervalMs");
+        Integer capacity = call.argument("capacity");
+        pco.setStatsAggregation(intervalMs == null ? 0 : intervalMs,
+            capacity == null ? StatsAggregator.DEFAULT_CAPACITY : capacity);
+        result.success(null);
+        break;
+      }
+      case "getStatsAggregates": {
+        String peerConnectionId = call.argument("peerConnectionId");
+        PeerConnectionObserver pco = mPeerConnectionObservers.get(peerConnectionId);
+        if (pco == null || pco.getPeerConnection() == null) {
+          resultError("getStatsAggregates", "peerConnection is null", result);
+          break;
+        }
+        StatsAggregator aggregator = pco.getStatsAggregator();
+        if (aggregator == null) {
+          resultError("getStatsAggregates", "stats aggregation is not enabled", result);
+          break;
+        }
+        Integer windowMs = call.argument("windowMs");
+        ConstraintsMap params = new ConstraintsMap();
+        params.putArray("streams",
+            aggregator.getAggregates(windowMs == null ? 0 : windowMs).toArrayList());
+        result.success(params.toMap());
         break;
       }
       case "createDataChannel": {
@@ -1020,7 +1111,8 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
       }
       case "createVideoRenderer": {
         TextureRegistry.SurfaceProducer producer = textures.createSurfaceProducer();
-        FlutterRTCVideoRenderer render = new FlutterRTCVideoRenderer(producer);
+        boolean pooled = Boolean.TRUE.equals(call.argument("pooled"));
+        FlutterRTCVideoRenderer render = new FlutterRTCVideoRenderer(producer, pooled);
         renders.put(producer.id(), render);
 
         EventChannel eventChannel =
@@ -1049,6 +1141,41 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         result.success(null);
         break;
       }
+      case "videoRendererSetLayoutSize": {
+        int textureId = call.argument("textureId");
+        Integer width = call.argument("width");
+        Integer height = call.argument("height");
+        FlutterRTCVideoRenderer render = renders.get(textureId);
+        if (render == null) {
+          resultError("videoRendererSetLayoutSize", "render [" + textureId + "] not found !", result);
+          return;
+        }
+        render.setLayoutSize(width != null ? width : 0, height != null ? height : 0);
+        result.success(null);
+        break;
+      }
+      case "videoRendererSetMaxFrameRate": {
+        int textureId = call.argument("textureId");
+        Double fps = call.argument("fps");
+        FlutterRTCVideoRenderer render = renders.get(textureId);
+        if (render == null) {
+          resultError("videoRendererSetMaxFrameRate", "render [" + textureId + "] not found !", result);
+          return;
+        }
+        render.setMaxFrameRate(fps != null ? fps.floatValue() : 0f);
+        result.success(null);
+        break;
+      }
+      case "videoRendererGetStats": {
+        int textureId = call.argument("textureId");
+        FlutterRTCVideoRenderer render = renders.get(textureId);
+        if (render == null) {
+          resultError("videoRendererGetStats", "render [" + textureId + "] not found !", result);
+          return;
+        }
+        result.success(render.getStats().toMap());
+        break;
+      }
       case "videoRendererSetSrcObject": {
         int textureId = call.argument("textureId");
         String streamId = call.argument("streamId");
@@ -1238,6 +1365,19 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
             audioChannel = AudioChannel.values()[(Integer) call.argument("audioChannel")];
           }
           Integer recorderId = call.argument("recorderId");
+          Map<String, Object> options = call.argument("options");
+          RecordingOptions recordingOptions =
+              RecordingOptions.fromMap(options != null ? new ConstraintsMap(options) : null);
+          if (recordingOptions.passthrough && videoTrack != null
+              && !localTracks.containsKey(videoTrack.id())
+              && !EncodedFrameTap.hasTappedDecoders()) {
+            resultError("startRecordToFile",
+                "Pass-through recording of a remote track needs a hardware decoder without "
+                    + "software fallback; this stream is decoded natively. Record without "
+                    + "passthrough instead.",
+                result);
+            break;
+          }
           if (videoTrack != null || audioChannel != null) {
             // For audio-only recording with no video track, the recorder
             // can't be tied to a specific call. 
@@ -1251,7 +1391,8 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
                   result);
               break;
             }
-            nf.getUserMediaImpl.startRecordingToFile(path, recorderId, videoTrack, audioChannel);
+            nf.getUserMediaImpl.startRecordingToFile(
+                path, recorderId, videoTrack, audioChannel, recordingOptions);
             result.success(null);
           } else {
             resultError("startRecordToFile", "No tracks", result);
@@ -1260,6 +1401,77 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
           resultError("startRecordToFile", e.getMessage(), result);
         }
         break;
+      case "startCompositeRecordToFile":
+        try {
+          String path = call.argument("path");
+          Integer recorderId = call.argument("recorderId");
+          String peerConnectionId = call.argument("peerConnectionId");
+          List<String> videoTrackIds = call.argument("videoTrackIds");
+          List<String> audioTrackIds = call.argument("audioTrackIds");
+          Integer width = call.argument("width");
+          Integer height = call.argument("height");
+          List<List<Number>> rects = call.argument("rects");
+          Map<String, Object> options = call.argument("options");
+          RecordingOptions recordingOptions =
+              RecordingOptions.fromMap(options != null ? new ConstraintsMap(options) : null);
+          float[][] layout = null;
+          if (rects != null) {
+            layout = new float[rects.size()][];
+            for (int i = 0; i < rects.size(); i++) {
+              List<Number> rect = rects.get(i);
+              layout[i] = new float[] {rect.get(0).floatValue(), rect.get(1).floatValue(),
+                  rect.get(2).floatValue(), rect.get(3).floatValue()};
+            }
+          }
+          NativePeerConnectionFactory nf = null;
+          if (videoTrackIds != null) {
+            for (String trackId : videoTrackIds) {
+              nf = resolveFactoryForTrack(trackId);
+              if (nf != null) break;
+            }
+          }
+          if (nf == null && peerConnectionId != null) {
+            // Only remote tracks: record under the factory of their connection.
+            nf = resolveFactory(pcFactoryId.get(peerConnectionId));
+          }
+          if (nf == null) {
+            resultError("startCompositeRecordToFile",
+                "No factory owns the requested tracks; pass a local track or peerConnectionId.",
+                result);
+            break;
+          }
+          CompositeRecorder recorder = new CompositeRecorder(recorderId,
+              width != null ? width : 1280, height != null ? height : 720, layout,
+              recordingOptions, nf.getUserMediaImpl.segmentEventListener);
+          if (videoTrackIds != null) {
+            for (String trackId : videoTrackIds) {
+              MediaStreamTrack track = getTrackForId(trackId, peerConnectionId);
+              if (!(track instanceof VideoTrack)) {
+                throw new Exception("No video track for id " + trackId);
+              }
+              recorder.addVideoTrack((VideoTrack) track);
+            }
+          }
+          if (audioTrackIds != null) {
+            for (String trackId : audioTrackIds) {
+              LocalTrack local = localTracks.get(trackId);
+              if (local instanceof LocalAudioTrack) {
+                recorder.addAudioTrack((LocalAudioTrack) local);
+                continue;
+              }
+              MediaStreamTrack remote = getTrackForId(trackId, peerConnectionId);
+              if (!(remote instanceof AudioTrack)) {
+                throw new Exception("No audio track for id " + trackId);
+              }
+              recorder.addAudioTrack((AudioTrack) remote);
+            }
+          }
+          nf.getUserMediaImpl.startCompositeRecordingToFile(path, recorderId, recorder);
+          result.success(null);
+        } catch (Exception e) {
+          resultError("startCompositeRecordToFile", e.getMessage(), result);
+        }
+        break;
       case "stopRecordToFile":
         Integer recorderId = call.argument("recorderId");
         String albumName = call.argument("albumName");
@@ -1273,6 +1485,41 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         _recFactory.getUserMediaImpl
             .stopRecording(recorderId, albumName, () -> result.success(null));
         break;
+      case "pauseRecordToFile": {
+        Integer pauseRecorderId = call.argument("recorderId");
+        final NativePeerConnectionFactory nf = resolveFactoryForRecorder(pauseRecorderId);
+        try {
+          if (nf == null || !nf.getUserMediaImpl.pauseRecording(pauseRecorderId)) {
+            resultError("pauseRecordToFile", "No recorder with id: " + pauseRecorderId, result);
+            break;
+          }
+          result.success(null);
+        } catch (IllegalStateException e) {
+          resultError("pauseRecordToFile", e.getMessage(), result);
+        }
+        break;
+      }
+      case "resumeRecordToFile": {
+        Integer resumeRecorderId = call.argument("recorderId");
+        final NativePeerConnectionFactory nf = resolveFactoryForRecorder(resumeRecorderId);
+        if (nf == null || !nf.getUserMediaImpl.resumeRecording(resumeRecorderId)) {
+          resultError("resumeRecordToFile", "No recorder with id: " + resumeRecorderId, result);
+          break;
+        }
+        result.success(null);
+        break;
+      }
+      case "getRecorderStats": {
+        Integer statsRecorderId = call.argument("recorderId");
+        final NativePeerConnectionFactory nf = resolveFactoryForRecorder(statsRecorderId);
+        ConstraintsMap stats = nf != null ? nf.getUserMediaImpl.getRecorderStats(statsRecorderId) : null;
+        if (stats == null) {
+          resultError("getRecorderStats", "No recorder with id: " + statsRecorderId, result);
+          break;
+        }
+        result.success(stats.toMap());
+        break;
+      }
       case "captureFrame": {
         String path = call.argument("path");
         String videoTrackId = call.argument("trackId");
@@ -1280,7 +1527,21 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         if (videoTrackId != null) {
           MediaStreamTrack track = getTrackForId(videoTrackId, peerConnectionId);
           if (track instanceof VideoTrack) {
-            new FrameCapturer((VideoTrack) track, new File(path), result);
+            FrameCapturer.Format format;
+            try {
+              format = FrameCapturer.Format.fromString(call.argument("format"));
+            } catch (IllegalArgumentException e) {
+              resultError("captureFrame", "Unknown format: " + call.argument("format"), result);
+              break;
+            }
+            Integer quality = call.argument("quality");
+            Integer maxWidth = call.argument("maxWidth");
+            Integer maxHeight = call.argument("maxHeight");
+            new FrameCapturer((VideoTrack) track, new File(path), format,
+                quality != null ? quality : 100,
+                maxWidth != null ? maxWidth : 0,
+                maxHeight != null ? maxHeight : 0,
+                result);
           } else {
             resultError("captureFrame", "It's not video track", result);
           }
@@ -1289,6 +1550,58 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         }
         break;
       }
+      case "startFrameSampling": {
+        String samplerId = call.argument("samplerId");
+        String videoTrackId = call.argument("trackId");
+        String peerConnectionId = call.argument("peerConnectionId");
+        MediaStreamTrack track = videoTrackId != null ? getTrackForId(videoTrackId, peerConnectionId) : null;
+        if (!(track instanceof VideoTrack)) {
+          resultError("startFrameSampling", "It's not video track", result);
+          break;
+        }
+        if (samplerId == null || frameSamplers.containsKey(samplerId)) {
+          resultError("startFrameSampling", "Invalid sampler id: " + samplerId, result);
+          break;
+        }
+        FrameCapturer.Format format;
+        try {
+          format = FrameCapturer.Format.fromString(call.argument("format"));
+        } catch (IllegalArgumentException e) {
+          resultError("startFrameSampling", "Unknown format: " + call.argument("format"), result);
+          break;
+        }
+        Integer intervalMs = call.argument("intervalMs");
+        Integer maxWidth = call.argument("maxWidth");
+        Integer maxHeight = call.argument("maxHeight");
+        Integer quality = call.argument("quality");
+        frameSamplers.put(samplerId, new FrameSampler(samplerId, (VideoTrack) track,
+            intervalMs != null ? intervalMs : 1000,
+            maxWidth != null ? maxWidth : 0,
+            maxHeight != null ? maxHeight : 0,
+            format,
+            quality != null ? quality : 80,
+            (id, data, width, height, timestampNs) -> {
+              ConstraintsMap params = new ConstraintsMap();
+              params.putString("event", "onFrameSampled");
+              params.putString("samplerId", id);
+              params.putByte("data", data);
+              params.putInt("width", width);
+              params.putInt("height", height);
+              params.putLong("timestampUs", timestampNs / 1000);
+              FlutterWebRTCPlugin.sharedSingleton.sendEvent(params.toMap());
+            }));
+        result.success(null);
+        break;
+      }
+      case "stopFrameSampling": {
+        String samplerId = call.argument("samplerId");
+        FrameSampler sampler = samplerId != null ? frameSamplers.remove(samplerId) : null;
+        if (sampler != null) {
+          sampler.release();
+        }
+        result.success(null);
+        break;
+      }
       case "getLocalDescription": {
         String peerConnectionId = call.argument("peerConnectionId");
         PeerConnection peerConnection = getPeerConnection(peerConnectionId);
@@ -1582,6 +1895,27 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
         });
         break;
       }
+      case "getAudioCallbackStats": {
+        final String factoryId = call.argument("factoryId");
+        final NativePeerConnectionFactory nf = resolveFactory(factoryId);
+        if (nf == null) {
+          resultError("getAudioCallbackStats", "unknown factoryId " + factoryId, result);
+          break;
+        }
+        ConstraintsMap res = new ConstraintsMap();
+        res.putArray("record", nf.recordSamplesAdapter.getCallbackStats().toArrayList());
+        res.putArray("playback", nf.playbackSamplesAdapter.getCallbackStats().toArrayList());
+        result.success(res.toMap());
+        break;
+      }
+      case "setAudioLevelMonitoring": {
+        List<String> trackIds = call.argument("trackIds");
+        List<String> playoutFactoryIds = call.argument("playoutFactoryIds");
+        Integer intervalMs = call.argument("intervalMs");
+        setAudioLevelMonitoring(trackIds, playoutFactoryIds, intervalMs);
+        result.success(null);
+        break;
+      }
       case "setLogSeverity": {
         //now it's possible to setup logSeverity only via PeerConnectionFactory.initialize method
         //Log.d(TAG, "no implementation for 'setLogSeverity'");
@@ -2068,6 +2402,44 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
     return localTracks.get(trackId);
   }
 
+  /**
+   * Replaces the set of metered audio tracks. Track ids may refer to local or
+   * remote audio tracks; unknown ids are skipped. Empty lists stop metering.
+   * Tracks that stay metered keep their meters and the publishing thread.
+   */
+  private void setAudioLevelMonitoring(@Nullable List<String> trackIds,
+      @Nullable List<String> playoutFactoryIds, @Nullable Integer intervalMs) {
+    if (intervalMs != null) {
+      audioLevelMonitor.setIntervalMs(intervalMs);
+    }
+    if (trackIds != null) {
+      for (String trackId : trackIds) {
+        LocalTrack local = localTracks.get(trackId);
+        if (local instanceof LocalAudioTrack) {
+          audioLevelMonitor.addLocalTrack(trackId, (LocalAudioTrack) local);
+          continue;
+        }
+        MediaStreamTrack remote = getRemoteTrack(trackId);
+        if (remote instanceof AudioTrack) {
+          audioLevelMonitor.addRemoteTrack(trackId, (AudioTrack) remote);
+        } else {
+          Log.w(TAG, "setAudioLevelMonitoring: no audio track for id " + trackId);
+        }
+      }
+    }
+    if (playoutFactoryIds != null) {
+      for (String factoryId : playoutFactoryIds) {
+        NativePeerConnectionFactory nf = resolveFactory(factoryId);
+        if (nf != null) {
+          audioLevelMonitor.addPlayout(factoryId, nf.playbackSamplesAdapter);
+        }
+      }
+    }
+    audioLevelMonitor.retainOnly(
+        trackIds != null ? trackIds : Collections.<String>emptyList(),
+        playoutFactoryIds != null ? playoutFactoryIds : Collections.<String>emptyList());
+  }
+
   public MediaStreamTrack getRemoteTrack(String trackId) {
     for (Entry<String, PeerConnectionObserver> entry : mPeerConnectionObservers.entrySet()) {
       PeerConnectionObserver pco = entry.getValue();
@@ -2311,6 +2683,7 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
   }
 
   public void trackDispose(final String trackId) {
+    audioLevelMonitor.remove(trackId);
     LocalTrack track = localTracks.get(trackId);
     if (track == null) {
       Log.d(TAG, "trackDispose() track is null");
@@ -2677,15 +3050,15 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
     result.success(res);
   }
 
-  public void peerConnectionGetStats(String trackId, String id, final Result result) {
+  public void peerConnectionGetStats(String trackId, String id, boolean binary, final Result result) {
     PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
     if (pco == null || pco.getPeerConnection() == null) {
       resultError("peerConnectionGetStats", "peerConnection is null", result);
     } else {
       if(trackId == null || trackId.isEmpty()) {
-        pco.getStats(result);
+        pco.getStats(result, binary);
       } else {
-        pco.getStatsForTrack(trackId, result);
+        pco.getStatsForTrack(trackId, result, binary);
       }
     }
   }
@@ -2737,6 +3110,9 @@ public class MethodCallHandlerImpl implements MethodCallHandler, StateProvider {
     if (pco.getPeerConnection() == null) {
       Log.d(TAG, "peerConnectionDispose() peerConnection is null");
     } else {
+      for (String trackId : pco.remoteTracks.keySet()) {
+        audioLevelMonitor.remove(trackId);
+      }
       pco.dispose();
       return true;
     }
@@ -30,6 +30,8 @@ import io.getstream.webrtc.flutter.audio.LocalAudioTrack;
 import io.getstream.webrtc.flutter.audio.PlaybackSamplesReadyCallbackAdapter;
 import io.getstream.webrtc.flutter.audio.RecordSamplesReadyCallbackAdapter;
 import io.getstream.webrtc.flutter.audio.SpeechActivityDetector;
+import io.getstream.webrtc.flutter.record.ConversationAudioInterceptor;
+import io.getstream.webrtc.flutter.record.OutputAudioSamplesInterceptor;
 import io.getstream.webrtc.flutter.utils.ConstraintsMap;
 import io.getstream.webrtc.flutter.utils.EglUtils;
 import org.webrtc.video.CustomVideoDecoderFactory;
@@ -64,6 +66,12 @@ public class NativePeerConnectionFactory {
         public Integer audioOutputSampleRate;
         @Nullable
         public AudioProcessingFactoryProvider audioProcessingFactoryProvider;
+        /** Optional {@link SpeechActivityDetector.Config} overrides. */
+        @Nullable
+        public ConstraintsMap speechActivityOptions;
+        /** Clip mode of the microphone + screen-audio mix; hard clip when null. */
+        @Nullable
+        public AudioBufferMixer.ClipMode screenAudioClipMode;
         @NonNull
         public StateProvider stateProvider;
         /**
@@ -275,8 +283,9 @@ public class NativePeerConnectionFactory {
         admBuilder.setSamplesReadyCallback(recordSamplesAdapter);
         admBuilder.setPlaybackSamplesReadyCallback(playbackSamplesAdapter);
 
-        recordSamplesAdapter.addCallback(getUserMediaImpl.inputSamplesInterceptor);
-        recordSamplesAdapter.addCallback(audioSamples -> {
+        recordSamplesAdapter.addCallback("inputSamplesInterceptor",
+                getUserMediaImpl.inputSamplesInterceptor, false);
+        recordSamplesAdapter.addCallback("localAudioTracks", audioSamples -> {
             // only iterate tracks owned by THIS factory's getUserMediaImpl.
             for (LocalTrack track : ctx.localTracksSupplier.get()) {
                 if (!(track instanceof LocalAudioTrack)) continue;
@@ -294,9 +303,10 @@ public class NativePeerConnectionFactory {
                             + trackId + ": " + t);
                 }
             }
-        });
+        }, false);
 
-        // Speaking-while-muted detector. Posts onSpeechActivityChanged events through
+        // Speaking-while-muted detector. Posts onSpeechActivityChanged (and, when
+        // levelIntervalMs is configured, onAudioLevel) events through
         // FlutterWebRTCPlugin's eventSink.
         final SpeechActivityDetector speechDetector = new SpeechActivityDetector(speaking -> {
             FlutterWebRTCPlugin plugin = FlutterWebRTCPlugin.sharedSingleton;
@@ -305,10 +315,28 @@ public class NativePeerConnectionFactory {
             event.putString("event", "onSpeechActivityChanged");
             event.putString("type", speaking ? "started" : "ended");
             plugin.sendEvent(event.toMap());
-        });
-        recordSamplesAdapter.addCallback(speechDetector);
-
-        // Audio buffer callback for screen-audio mixing.
+        }, (levelDbfs, speaking) -> {
+            FlutterWebRTCPlugin plugin = FlutterWebRTCPlugin.sharedSingleton;
+            if (plugin == null) return;
+            ConstraintsMap event = new ConstraintsMap();
+            event.putString("event", "onAudioLevel");
+            event.putString("factoryId", id);
+            event.putDouble("level", levelDbfs);
+            event.putBoolean("speaking", speaking);
+            plugin.sendEvent(event.toMap());
+        }, SpeechActivityDetector.Config.fromMap(ctx.speechActivityOptions));
+        // Off the capture thread: the detector posts platform events.
+        recordSamplesAdapter.addCallback("speechActivityDetector", speechDetector, true);
+
+        // Audio buffer callback for screen-audio mixing. The mixer is owned by
+        // this factory's ADM capture thread and reuses its buffers across frames.
+        // Hard clip by default: it leaves the microphone untouched unless the
+        // sum actually overflows.
+        final AudioBufferMixer screenAudioMixer = new AudioBufferMixer(1,
+                ctx.screenAudioClipMode != null
+                        ? ctx.screenAudioClipMode
+                        : AudioBufferMixer.ClipMode.HARD_CLIP);
+        final int screenAudioSlot = screenAudioMixer.addInput(1f);
         admBuilder.setAudioBufferCallback(
                 (audioBuffer, audioFormat, channelCount, sampleRate, bytesRead, captureTimeNs) -> {
                     boolean micMuted = isMicrophoneMutedForFactory(getUserMediaImpl,
@@ -316,12 +344,11 @@ public class NativePeerConnectionFactory {
                     if (!micMuted && bytesRead > 0 && getUserMediaImpl.isScreenAudioEnabled()) {
                         try {
                             ByteBuffer screenAudioBuffer =
-                                    getUserMediaImpl.getScreenAudioBytes(bytesRead);
+                                    getUserMediaImpl.getScreenAudioBytes(
+                                            bytesRead, sampleRate, channelCount);
                             if (screenAudioBuffer != null && screenAudioBuffer.remaining() > 0) {
-                                AudioBufferMixer.mixScreenAudioWithMicrophone(
-                                        audioBuffer,
-                                        screenAudioBuffer,
-                                        bytesRead);
+                                screenAudioMixer.setInput(screenAudioSlot, screenAudioBuffer);
+                                screenAudioMixer.mix(audioBuffer, bytesRead);
                             }
                         } catch (Throwable t) {
                             Log.w(TAG, "[audioBufferCallback] screen-audio mix failed: " + t);
@@ -337,6 +364,10 @@ public class NativePeerConnectionFactory {
         }
 
         getUserMediaImpl.audioDeviceModule = adm;
+        getUserMediaImpl.outputSamplesInterceptor =
+                new OutputAudioSamplesInterceptor(playbackSamplesAdapter);
+        getUserMediaImpl.conversationSamplesInterceptor =
+                new ConversationAudioInterceptor(recordSamplesAdapter, playbackSamplesAdapter);
 
         EglBase.Context eglContext = EglUtils.getRootEglBaseContext();
 
@@ -428,6 +459,10 @@ public class NativePeerConnectionFactory {
         } catch (Throwable t) {
             Log.w(TAG, "[dispose] adm.release: " + t);
         }
+
+        // Stops the delivery threads of asynchronous subscribers.
+        recordSamplesAdapter.removeAllCallbacks();
+        playbackSamplesAdapter.removeAllCallbacks();
     }
 
     public boolean isDisposed() {
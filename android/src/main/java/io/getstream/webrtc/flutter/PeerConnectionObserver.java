@@ -5,6 +5,10 @@ import android.util.Log;
 import androidx.annotation.Nullable;
 
 import io.getstream.webrtc.flutter.audio.AudioSwitchManager;
+import io.getstream.webrtc.flutter.stats.StatsAggregator;
+import io.getstream.webrtc.flutter.stats.StatsBinaryEncoder;
+import io.getstream.webrtc.flutter.stats.StatsDeltaSampler;
+import io.getstream.webrtc.flutter.stats.StatsMaps;
 import io.getstream.webrtc.flutter.utils.AnyThreadSink;
 import io.getstream.webrtc.flutter.utils.ConstraintsArray;
 import io.getstream.webrtc.flutter.utils.ConstraintsMap;
@@ -15,7 +19,6 @@ import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel.Result;
 
 import java.lang.reflect.Field;
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -23,7 +26,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.UUID;
 
@@ -57,6 +59,13 @@ class PeerConnectionObserver implements PeerConnection.Observer, EventChannel.St
   private final StateProvider stateProvider;
   private final EventChannel eventChannel;
   private EventChannel.EventSink eventSink;
+  private StatsBinaryEncoder statsEncoder;
+  private StatsDeltaSampler statsSampler;
+  private int deltaIntervalMs = 0;
+  private List<String> deltaTypes;
+  private StatsAggregator statsAggregator;
+  private int statsAggregatorCapacity;
+  private int aggregationIntervalMs = 0;
 
   PeerConnectionObserver(PeerConnection.RTCConfiguration configuration, StateProvider stateProvider, BinaryMessenger messenger, String id) {
     this.configuration = configuration;
@@ -97,6 +106,9 @@ class PeerConnectionObserver implements PeerConnection.Observer, EventChannel.St
   }
 
   void close() {
+    if (statsSampler != null) {
+      statsSampler.stop();
+    }
     peerConnection.close();
     remoteStreams.clear();
     remoteTracks.clear();
@@ -213,7 +225,11 @@ class PeerConnectionObserver implements PeerConnection.Observer, EventChannel.St
     return null;
   }
 
-  void handleStatsReport(RTCStatsReport rtcStatsReport, Result result) {
+  void handleStatsReport(RTCStatsReport rtcStatsReport, Result result, boolean binary) {
+      if (binary) {
+        result.success(getStatsEncoder().encode(rtcStatsReport));
+        return;
+      }
       Map<String, RTCStats>    reports = rtcStatsReport.getStatsMap();
       ConstraintsMap params = new ConstraintsMap();
       ConstraintsArray stats = new ConstraintsArray();
@@ -227,49 +243,10 @@ class PeerConnectionObserver implements PeerConnection.Observer, EventChannel.St
 
           Map<String, Object> values = report.getMembers();
           ConstraintsMap v_map = new ConstraintsMap();
-          for (String key : values.keySet()) {
-              Object v = values.get(key);
-              if(v instanceof String) {
-                  v_map.putString(key, (String)v);
-              } else if(v instanceof String[]) {
-                  ConstraintsArray arr = new ConstraintsArray();
-                  for(String s : (String[])v) {
-                      arr.pushString(s);
-                  }
-                  v_map.putArray(key, arr.toArrayList());
-              } else if(v instanceof Integer) {
-                  v_map.putInt(key, (Integer)v);
-              } else if(v instanceof Long) {
-                  v_map.putLong(key, (Long)v);
-              } else if(v instanceof Double) {
-                  v_map.putDouble(key, (Double)v);
-              } else if(v instanceof Boolean) {
-                  v_map.putBoolean(key, (Boolean)v);
-              } else if(v instanceof BigInteger){
-                  v_map.putLong(key, ((BigInteger)v).longValue());
-              }  else if(v instanceof LinkedHashMap) {
-                    ConstraintsMap m = new ConstraintsMap();
-                    for(Map.Entry<String, Object> entry : ((LinkedHashMap<String, Object>)v).entrySet()) {
-                        Object value = entry.getValue();
-                        if(value instanceof String) {
-                            m.putString(entry.getKey(), (String)value);
-                        } else if(value instanceof Integer) {
-                            m.putInt(entry.getKey(), (Integer)value);
-                        } else if(value instanceof Long) {
-                            m.putLong(entry.getKey(), (Long)value);
-                        } else if(value instanceof Double) {
-                            m.putDouble(entry.getKey(), (Double)value);
-                        } else if(value instanceof Boolean) {
-                            m.putBoolean(entry.getKey(), (Boolean)value);
-                        } else if(value instanceof BigInteger) {
-                            m.putLong(entry.getKey(), ((BigInteger)value).longValue());
-                        } else {
-                            Log.d(TAG, "getStats() unknown type: " + value.getClass().getName() + " for [" + entry.getKey() + "] value: " + value);
-                        }
-                    }
-                    v_map.putMap(key, m.toMap());
-              } else {
-                  Log.d(TAG, "getStats() unknown type: " + v.getClass().getName() + " for [" + key + "] value: " + v);
+          for (Map.Entry<String, Object> entry : values.entrySet()) {
+              Object v = entry.getValue();
+              if (!StatsMaps.putValue(v_map, entry.getKey(), v)) {
+                  Log.d(TAG, "getStats() unknown type: " + v.getClass().getName() + " for [" + entry.getKey() + "] value: " + v);
               }
           }
       report_map.putMap("values", v_map.toMap());
@@ -280,7 +257,14 @@ class PeerConnectionObserver implements PeerConnection.Observer, EventChannel.St
     result.success(params.toMap());
   }
 
-  void getStatsForTrack(String trackId, Result result) {
+  private synchronized StatsBinaryEncoder getStatsEncoder() {
+    if (statsEncoder == null) {
+      statsEncoder = new StatsBinaryEncoder();
+    }
+    return statsEncoder;
+  }
+
+  void getStatsForTrack(String trackId, Result result, boolean binary) {
     if (trackId == null || trackId.isEmpty()) {
       resultError("peerConnectionGetStats", "MediaStreamTrack not found for id: " + trackId, result);
       return;
@@ -301,17 +285,74 @@ class PeerConnectionObserver implements PeerConnection.Observer, EventChannel.St
       }
     }
     if (sender != null) {
-      peerConnection.getStats(sender, rtcStatsReport -> handleStatsReport(rtcStatsReport, result));
+      peerConnection.getStats(sender, rtcStatsReport -> handleStatsReport(rtcStatsReport, result, binary));
     } else if (receiver != null) {
-      peerConnection.getStats(receiver, rtcStatsReport -> handleStatsReport(rtcStatsReport, result));
+      peerConnection.getStats(receiver, rtcStatsReport -> handleStatsReport(rtcStatsReport, result, binary));
     } else {
       resultError("peerConnectionGetStats", "MediaStreamTrack not found for id: " + trackId, result);
     }
   }
 
-  void getStats(final Result result) {
+  /**
+   * @param binary encode the report with {@link StatsBinaryEncoder} and return a
+   *               single byte[] instead of a list of maps
+   */
+  void getStats(final Result result, boolean binary) {
     peerConnection.getStats(
-        rtcStatsReport -> handleStatsReport(rtcStatsReport, result));
+        rtcStatsReport -> handleStatsReport(rtcStatsReport, result, binary));
+  }
+
+  /**
+   * Starts or stops streaming stats deltas as {@code onStatsDelta} events.
+   *
+   * @param intervalMs polling period; 0 or less stops sampling
+   * @param types      stats types to include, or null for all
+   */
+  synchronized void setStatsSampling(int intervalMs, @Nullable List<String> types) {
+    deltaIntervalMs = Math.max(0, intervalMs);
+    deltaTypes = types;
+    restartStatsSampler();
+  }
+
+  /**
+   * Starts or stops feeding polled stats into a {@link StatsAggregator}. The
+   * aggregator shares the delta sampler's polls; when both are enabled the
+   * shorter interval wins.
+   *
+   * @param intervalMs polling period; 0 or less stops aggregation and drops
+   *                   the collected series
+   * @param capacity   samples retained per metric and SSRC
+   */
+  synchronized void setStatsAggregation(int intervalMs, int capacity) {
+    aggregationIntervalMs = Math.max(0, intervalMs);
+    if (aggregationIntervalMs == 0) {
+      statsAggregator = null;
+    } else if (statsAggregator == null || statsAggregatorCapacity != capacity) {
+      statsAggregator = new StatsAggregator(capacity);
+      statsAggregatorCapacity = capacity;
+    }
+    restartStatsSampler();
+  }
+
+  @Nullable
+  synchronized StatsAggregator getStatsAggregator() {
+    return statsAggregator;
+  }
+
+  private void restartStatsSampler() {
+    if (deltaIntervalMs == 0 && aggregationIntervalMs == 0) {
+      if (statsSampler != null) {
+        statsSampler.stop();
+      }
+      return;
+    }
+    if (statsSampler == null) {
+      statsSampler = new StatsDeltaSampler(peerConnection, "StatsSampler-" + id, this::sendEvent);
+    }
+    int intervalMs = deltaIntervalMs == 0 ? aggregationIntervalMs
+        : aggregationIntervalMs == 0 ? deltaIntervalMs
+        : Math.min(deltaIntervalMs, aggregationIntervalMs);
+    statsSampler.start(intervalMs, deltaIntervalMs > 0, deltaTypes, statsAggregator);
   }
 
   @Override
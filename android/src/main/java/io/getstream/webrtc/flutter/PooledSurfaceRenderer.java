@@ -0,0 +1,315 @@
+package io.getstream.webrtc.flutter;
+
+import android.graphics.Matrix;
+import android.opengl.EGL14;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.util.Log;
+import android.view.Surface;
+
+import org.webrtc.EglBase;
+import org.webrtc.RendererCommon;
+import org.webrtc.ThreadUtils;
+import org.webrtc.VideoFrame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.view.TextureRegistry;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+/**
+ * Draws a video track into a Flutter texture on one of the shared
+ * {@link RenderThreadPool} threads instead of a render thread of its own.
+ *
+ * Only the latest frame is kept per texture: a frame arriving before the
+ * previous one was drawn replaces it, so a busy thread never builds a
+ * backlog for any of its textures. Surfaces are sized by a
+ * {@link SurfaceSizePolicy}. The shared context is always the root
+ * one, {@code sharedContext} passed to {@link #init} is ignored.
+ */
+public class PooledSurfaceRenderer implements VideoTextureRenderer {
+  private static final String TAG = "PooledSurfaceRenderer";
+
+  private final Object frameLock = new Object();
+  // Guarded by frameLock.
+  private VideoFrame pendingFrame;
+  private boolean renderScheduled;
+  private RenderThreadPool.RenderThread renderThread;
+
+  private volatile RendererCommon.RendererEvents rendererEvents;
+  private volatile SurfaceSizeListener surfaceSizeListener;
+  private volatile TextureRegistry.SurfaceProducer producer;
+  private volatile int layoutWidth;
+  private volatile int layoutHeight;
+  private volatile boolean isRenderingPaused;
+  // Delivery thread state for the fps cap, as in EglRenderer.
+  private volatile long minRenderPeriodNs = 0;
+  private long nextFrameTimeNs = 0;
+  // Written on the render thread.
+  private volatile long surfaceRecreateCount = 0;
+  private final RenderTimingStats timingStats = new RenderTimingStats();
+
+  // Render thread state.
+  private EGLSurface eglSurface = EGL14.EGL_NO_SURFACE;
+  private int surfaceWidth;
+  private int surfaceHeight;
+  private final SurfaceSizePolicy sizePolicy = new SurfaceSizePolicy();
+  private boolean isFirstFrameRendered;
+  private int rotatedFrameWidth;
+  private int rotatedFrameHeight;
+  private int frameRotation = -1;
+  private final Matrix drawMatrix = new Matrix();
+
+  private final Runnable renderRunnable = this::renderPendingFrame;
+
+  @Override
+  public void init(EglBase.Context sharedContext, RendererCommon.RendererEvents rendererEvents) {
+    ThreadUtils.checkIsOnMainThread();
+    this.rendererEvents = rendererEvents;
+    synchronized (frameLock) {
+      if (renderThread == null) {
+        renderThread = RenderThreadPool.acquire();
+      }
+    }
+    renderThread.handler.post(() -> {
+      isFirstFrameRendered = false;
+      rotatedFrameWidth = 0;
+      rotatedFrameHeight = 0;
+      frameRotation = -1;
+    });
+  }
+
+  @Override
+  public void surfaceCreated(TextureRegistry.SurfaceProducer producer) {
+    ThreadUtils.checkIsOnMainThread();
+    this.producer = producer;
+    producer.setCallback(
+        new TextureRegistry.SurfaceProducer.Callback() {
+          @Override
+          public void onSurfaceAvailable() {
+            // The surface is created again with the next frame.
+          }
+
+          @Override
+          public void onSurfaceCleanup() {
+            PooledSurfaceRenderer.this.onSurfaceCleanup();
+          }
+        });
+  }
+
+  /** Releases the EGL surface before the producer invalidates its Surface. */
+  public void onSurfaceCleanup() {
+    ThreadUtils.checkIsOnMainThread();
+    final RenderThreadPool.RenderThread thread;
+    synchronized (frameLock) {
+      thread = renderThread;
+    }
+    if (thread == null) {
+      return;
+    }
+    final CountDownLatch completionLatch = new CountDownLatch(1);
+    thread.handler.postAtFrontOfQueue(() -> {
+      releaseEglSurface(thread);
+      completionLatch.countDown();
+    });
+    ThreadUtils.awaitUninterruptibly(completionLatch);
+  }
+
+  @Override
+  public void release() {
+    ThreadUtils.checkIsOnMainThread();
+    final RenderThreadPool.RenderThread thread;
+    synchronized (frameLock) {
+      thread = renderThread;
+      renderThread = null;
+      if (pendingFrame != null) {
+        pendingFrame.release();
+        pendingFrame = null;
+      }
+      renderScheduled = false;
+    }
+    if (thread == null) {
+      return;
+    }
+    final CountDownLatch completionLatch = new CountDownLatch(1);
+    thread.handler.removeCallbacks(renderRunnable);
+    thread.handler.post(() -> {
+      releaseEglSurface(thread);
+      completionLatch.countDown();
+    });
+    ThreadUtils.awaitUninterruptibly(completionLatch);
+    RenderThreadPool.release(thread);
+  }
+
+  @Override
+  public void setLayoutSize(int width, int height) {
+    layoutWidth = Math.max(0, width);
+    layoutHeight = Math.max(0, height);
+  }
+
+  @Override
+  public void setSurfaceSizeListener(SurfaceSizeListener listener) {
+    surfaceSizeListener = listener;
+  }
+
+  @Override
+  public void setFpsReduction(float fps) {
+    isRenderingPaused = fps == 0f;
+    minRenderPeriodNs = fps <= 0f || Float.isInfinite(fps)
+        ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / fps);
+  }
+
+  @Override
+  public void disableFpsReduction() {
+    setFpsReduction(Float.POSITIVE_INFINITY);
+  }
+
+  @Override
+  public long getSurfaceRecreateCount() {
+    return surfaceRecreateCount;
+  }
+
+  @Override
+  public ConstraintsMap getTimingStats() {
+    final int framesInFlight;
+    synchronized (frameLock) {
+      framesInFlight = pendingFrame != null ? 1 : 0;
+    }
+    return timingStats.toMap(framesInFlight);
+  }
+
+  // VideoSink interface.
+  @Override
+  public void onFrame(VideoFrame frame) {
+    timingStats.onFrameReceived();
+    if (isRenderingPaused) {
+      return;
+    }
+    final long period = minRenderPeriodNs;
+    if (period > 0) {
+      final long now = System.nanoTime();
+      if (now < nextFrameTimeNs) {
+        return;
+      }
+      nextFrameTimeNs = Math.max(nextFrameTimeNs + period, now);
+    }
+    synchronized (frameLock) {
+      if (renderThread == null) {
+        return;
+      }
+      frame.retain();
+      if (pendingFrame != null) {
+        pendingFrame.release();
+      }
+      pendingFrame = frame;
+      if (!renderScheduled) {
+        renderScheduled = true;
+        renderThread.handler.post(renderRunnable);
+      }
+    }
+  }
+
+  /** Render thread. */
+  private void renderPendingFrame() {
+    final VideoFrame frame;
+    final RenderThreadPool.RenderThread thread;
+    synchronized (frameLock) {
+      frame = pendingFrame;
+      thread = renderThread;
+      pendingFrame = null;
+      renderScheduled = false;
+    }
+    if (frame == null || thread == null) {
+      if (frame != null) {
+        frame.release();
+      }
+      return;
+    }
+    try {
+      if (!ensureEglSurface(thread, frame)) {
+        return;
+      }
+      thread.makeCurrent(eglSurface);
+      GLES20.glViewport(0, 0, surfaceWidth, surfaceHeight);
+      GLES20.glClearColor(0, 0, 0, 0);
+      GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+      thread.frameDrawer.drawFrame(frame, thread.drawer, drawMatrix, 0, 0,
+          surfaceWidth, surfaceHeight);
+      thread.swapBuffers(eglSurface);
+      timingStats.onFrameRendered(frame);
+      updateFrameDimensionsAndReportEvents(frame);
+    } catch (RuntimeException e) {
+      Log.w(TAG, "Failed to render frame: " + e);
+      releaseEglSurface(thread);
+    } finally {
+      frame.release();
+    }
+  }
+
+  /** Render thread: creates or resizes the EGL surface for {@code frame}. */
+  private boolean ensureEglSurface(RenderThreadPool.RenderThread thread, VideoFrame frame) {
+    final TextureRegistry.SurfaceProducer producer = this.producer;
+    if (producer == null) {
+      return false;
+    }
+    final float scale = SurfaceSizePolicy.layoutScale(frame.getRotatedWidth(),
+        frame.getRotatedHeight(), layoutWidth, layoutHeight);
+    sizePolicy.offer(SurfaceSizePolicy.scaleDimension(frame.getRotatedWidth(), scale),
+        SurfaceSizePolicy.scaleDimension(frame.getRotatedHeight(), scale), System.nanoTime());
+    final int width = sizePolicy.getWidth();
+    final int height = sizePolicy.getHeight();
+    if (eglSurface != EGL14.EGL_NO_SURFACE) {
+      if (width == surfaceWidth && height == surfaceHeight) {
+        return true;
+      }
+      surfaceRecreateCount++;
+    }
+    // The producer's buffers are fixed-size, a new size needs a new Surface.
+    releaseEglSurface(thread);
+    producer.setSize(width, height);
+    Surface surface = producer.getSurface();
+    if (surface == null) {
+      return false;
+    }
+    eglSurface = thread.createWindowSurface(surface);
+    final boolean resized = width != surfaceWidth || height != surfaceHeight;
+    surfaceWidth = width;
+    surfaceHeight = height;
+    final SurfaceSizeListener listener = surfaceSizeListener;
+    if (resized && listener != null) {
+      listener.onSurfaceSizeChanged(width, height);
+    }
+    return true;
+  }
+
+  /** Render thread. */
+  private void releaseEglSurface(RenderThreadPool.RenderThread thread) {
+    if (eglSurface != EGL14.EGL_NO_SURFACE) {
+      thread.releaseSurface(eglSurface);
+      eglSurface = EGL14.EGL_NO_SURFACE;
+    }
+  }
+
+  /** Render thread: same events as {@link SurfaceTextureRenderer}. */
+  private void updateFrameDimensionsAndReportEvents(VideoFrame frame) {
+    final RendererCommon.RendererEvents rendererEvents = this.rendererEvents;
+    if (!isFirstFrameRendered) {
+      isFirstFrameRendered = true;
+      if (rendererEvents != null) {
+        rendererEvents.onFirstFrameRendered();
+      }
+    }
+    if (rotatedFrameWidth != frame.getRotatedWidth()
+        || rotatedFrameHeight != frame.getRotatedHeight()
+        || frameRotation != frame.getRotation()) {
+      if (rendererEvents != null) {
+        rendererEvents.onFrameResolutionChanged(
+            frame.getBuffer().getWidth(), frame.getBuffer().getHeight(), frame.getRotation());
+      }
+      rotatedFrameWidth = frame.getRotatedWidth();
+      rotatedFrameHeight = frame.getRotatedHeight();
+      frameRotation = frame.getRotation();
+    }
+  }
+}
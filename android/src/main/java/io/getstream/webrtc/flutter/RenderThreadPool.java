@@ -0,0 +1,183 @@
+package io.getstream.webrtc.flutter;
+
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import android.view.Surface;
+
+import org.webrtc.EglBase;
+import org.webrtc.EglBase14;
+import org.webrtc.GlRectDrawer;
+import org.webrtc.ThreadUtils;
+import org.webrtc.VideoFrameDrawer;
+
+import io.getstream.webrtc.flutter.utils.EglUtils;
+
+/**
+ * A small fixed set of GL threads shared by every {@link PooledSurfaceRenderer}.
+ *
+ * Each thread owns one EGL context, shared with {@link EglUtils#getRootEglBase()},
+ * and one window surface per texture it serves; switching textures is an
+ * eglMakeCurrent on the same context. Renderers are assigned to the thread
+ * serving the fewest textures. A thread starts with its first renderer and
+ * stops with its last.
+ */
+final class RenderThreadPool {
+  private static final String TAG = "RenderThreadPool";
+  static final int THREAD_COUNT =
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+  private static final RenderThread[] threads = new RenderThread[THREAD_COUNT];
+
+  private RenderThreadPool() {}
+
+  /** Assigns a renderer to the least loaded thread, starting it if needed. */
+  static synchronized RenderThread acquire() {
+    int best = 0;
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      if (threads[i] == null) {
+        best = i;
+        break;
+      }
+      if (threads[i].users < threads[best].users) {
+        best = i;
+      }
+    }
+    if (threads[best] == null) {
+      threads[best] = new RenderThread("PooledRenderer-" + best);
+    }
+    threads[best].users++;
+    return threads[best];
+  }
+
+  static synchronized void release(RenderThread thread) {
+    if (--thread.users > 0) {
+      return;
+    }
+    for (int i = 0; i < THREAD_COUNT; i++) {
+      if (threads[i] == thread) {
+        threads[i] = null;
+      }
+    }
+    thread.quit();
+  }
+
+  static final class RenderThread {
+    final Handler handler;
+    private final HandlerThread thread;
+    private int users = 0;
+
+    // GL thread state.
+    private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+    private EGLConfig config;
+    private EGLContext context = EGL14.EGL_NO_CONTEXT;
+    // Made current while no texture surface is, so the context outlives them all.
+    private EGLSurface idleSurface = EGL14.EGL_NO_SURFACE;
+    final GlRectDrawer drawer = new GlRectDrawer();
+    final VideoFrameDrawer frameDrawer = new VideoFrameDrawer();
+
+    private RenderThread(String name) {
+      thread = new HandlerThread(name, Process.THREAD_PRIORITY_DISPLAY);
+      thread.start();
+      handler = new Handler(thread.getLooper());
+      try {
+        ThreadUtils.invokeAtFrontUninterruptibly(handler, this::createContext);
+      } catch (RuntimeException e) {
+        quit();
+        throw e;
+      }
+    }
+
+    private void createContext() {
+      EglBase.Context root = EglUtils.getRootEglBaseContext();
+      if (!(root instanceof EglBase14.Context)) {
+        throw new IllegalStateException("Pooled rendering needs an EGL14 root context");
+      }
+      display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+      int[] version = new int[2];
+      if (!EGL14.eglInitialize(display, version, 0, version, 1)) {
+        throw new RuntimeException("eglInitialize failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+      }
+      int[] configAttributes = {
+          EGL14.EGL_RED_SIZE, 8,
+          EGL14.EGL_GREEN_SIZE, 8,
+          EGL14.EGL_BLUE_SIZE, 8,
+          EGL14.EGL_ALPHA_SIZE, 8,
+          EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+          EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT | EGL14.EGL_PBUFFER_BIT,
+          EGL14.EGL_NONE
+      };
+      EGLConfig[] configs = new EGLConfig[1];
+      int[] numConfigs = new int[1];
+      if (!EGL14.eglChooseConfig(display, configAttributes, 0, configs, 0, 1, numConfigs, 0)
+          || numConfigs[0] <= 0) {
+        throw new RuntimeException("eglChooseConfig failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+      }
+      config = configs[0];
+      int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+      context = EGL14.eglCreateContext(display, config,
+          ((EglBase14.Context) root).getRawContext(), contextAttributes, 0);
+      if (context == EGL14.EGL_NO_CONTEXT) {
+        throw new RuntimeException("eglCreateContext failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+      }
+      int[] pbufferAttributes = {EGL14.EGL_WIDTH, 1, EGL14.EGL_HEIGHT, 1, EGL14.EGL_NONE};
+      idleSurface = EGL14.eglCreatePbufferSurface(display, config, pbufferAttributes, 0);
+      EGL14.eglMakeCurrent(display, idleSurface, idleSurface, context);
+    }
+
+    /** GL thread. */
+    EGLSurface createWindowSurface(Surface surface) {
+      int[] attributes = {EGL14.EGL_NONE};
+      EGLSurface eglSurface = EGL14.eglCreateWindowSurface(display, config, surface, attributes, 0);
+      if (eglSurface == EGL14.EGL_NO_SURFACE) {
+        throw new RuntimeException("eglCreateWindowSurface failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+      }
+      return eglSurface;
+    }
+
+    /** GL thread. */
+    void makeCurrent(EGLSurface eglSurface) {
+      if (!EGL14.eglMakeCurrent(display, eglSurface, eglSurface, context)) {
+        throw new RuntimeException("eglMakeCurrent failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+      }
+    }
+
+    /** GL thread. */
+    void swapBuffers(EGLSurface eglSurface) {
+      EGL14.eglSwapBuffers(display, eglSurface);
+    }
+
+    /** GL thread. */
+    void releaseSurface(EGLSurface eglSurface) {
+      EGL14.eglMakeCurrent(display, idleSurface, idleSurface, context);
+      EGL14.eglDestroySurface(display, eglSurface);
+    }
+
+    private void quit() {
+      handler.post(() -> {
+        try {
+          drawer.release();
+          frameDrawer.release();
+        } catch (RuntimeException e) {
+          Log.w(TAG, "Failed to release drawers: " + e);
+        }
+        EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE,
+            EGL14.EGL_NO_CONTEXT);
+        if (idleSurface != EGL14.EGL_NO_SURFACE) {
+          EGL14.eglDestroySurface(display, idleSurface);
+        }
+        if (context != EGL14.EGL_NO_CONTEXT) {
+          EGL14.eglDestroyContext(display, context);
+        }
+        EGL14.eglReleaseThread();
+        thread.quit();
+      });
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package io.getstream.webrtc.flutter;
+
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+import org.webrtc.VideoFrame;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Frame counters and a capture-to-render latency histogram of one renderer.
+ *
+ * Received frames are counted on the delivery thread and rendered frames on
+ * the render thread; each field has a single writer, so the hot paths take no
+ * lock. Latency is the time between {@link VideoFrame#getTimestampNs()} and
+ * the draw call; frames whose timestamp is not on the monotonic clock (more
+ * than {@link #MAX_LATENCY_NS} off) are left out of the histogram.
+ */
+final class RenderTimingStats {
+  /** Upper bounds of the latency buckets; one more bucket holds the rest. */
+  static final int[] LATENCY_BUCKETS_MS = {5, 10, 20, 33, 50, 100, 200, 500};
+  private static final long MAX_LATENCY_NS = TimeUnit.SECONDS.toNanos(10);
+  private static final long FPS_WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final class FpsWindow {
+    private long startNs = 0;
+    private long frames = 0;
+    private volatile long lastFrameNs = 0;
+    private volatile float fps = 0f;
+
+    void onFrame(long nowNs) {
+      if (startNs == 0 || nowNs - lastFrameNs > FPS_WINDOW_NS) {
+        startNs = nowNs;
+        frames = 0;
+      }
+      frames++;
+      lastFrameNs = nowNs;
+      final long elapsed = nowNs - startNs;
+      if (elapsed >= FPS_WINDOW_NS) {
+        fps = frames * (float) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        startNs = nowNs;
+        frames = 0;
+      }
+    }
+
+    float get(long nowNs) {
+      // No frame for a whole window: the stream stalled.
+      return nowNs - lastFrameNs > 2 * FPS_WINDOW_NS ? 0f : fps;
+    }
+  }
+
+  // Delivery thread.
+  private volatile long framesReceived = 0;
+  private final FpsWindow receiveWindow = new FpsWindow();
+
+  // Render thread.
+  private volatile long framesRendered = 0;
+  private final FpsWindow renderWindow = new FpsWindow();
+  private final AtomicLongArray latencyHistogram =
+      new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+  private volatile long latencyCount = 0;
+  private volatile long latencySumNs = 0;
+  private volatile long latencyMaxNs = 0;
+
+  void onFrameReceived() {
+    framesReceived++;
+    receiveWindow.onFrame(System.nanoTime());
+  }
+
+  void onFrameRendered(VideoFrame frame) {
+    final long now = System.nanoTime();
+    framesRendered++;
+    renderWindow.onFrame(now);
+
+    final long latencyNs = now - frame.getTimestampNs();
+    if (latencyNs < -MAX_LATENCY_NS || latencyNs > MAX_LATENCY_NS) {
+      return;
+    }
+    // Frames scheduled for a render time slightly ahead count as immediate.
+    final long clampedNs = Math.max(0, latencyNs);
+    final long latencyMs = TimeUnit.NANOSECONDS.toMillis(clampedNs);
+    int bucket = 0;
+    while (bucket < LATENCY_BUCKETS_MS.length && latencyMs >= LATENCY_BUCKETS_MS[bucket]) {
+      bucket++;
+    }
+    latencyHistogram.lazySet(bucket, latencyHistogram.get(bucket) + 1);
+    latencyCount++;
+    latencySumNs += clampedNs;
+    if (clampedNs > latencyMaxNs) {
+      latencyMaxNs = clampedNs;
+    }
+  }
+
+  /**
+   * @param framesInFlight frames accepted but not drawn yet, or -1 when unknown;
+   *                       when unknown, the drop count may include one such frame
+   */
+  ConstraintsMap toMap(int framesInFlight) {
+    final long now = System.nanoTime();
+    final long received = framesReceived;
+    final long rendered = framesRendered;
+    ConstraintsMap map = new ConstraintsMap();
+    map.putLong("framesReceived", received);
+    map.putLong("framesRendered", rendered);
+    map.putLong("framesDropped", Math.max(0, received - rendered - Math.max(0, framesInFlight)));
+    map.putDouble("receiveFps", receiveWindow.get(now));
+    map.putDouble("renderFps", renderWindow.get(now));
+
+    ConstraintsArray buckets = new ConstraintsArray();
+    for (int bound : LATENCY_BUCKETS_MS) {
+      buckets.pushInt(bound);
+    }
+    ConstraintsArray histogram = new ConstraintsArray();
+    for (int i = 0; i < latencyHistogram.length(); i++) {
+      histogram.pushLong(latencyHistogram.get(i));
+    }
+    map.putArray("latencyBucketsMs", buckets.toArrayList());
+    map.putArray("latencyHistogram", histogram.toArrayList());
+    final long count = latencyCount;
+    map.putLong("averageLatencyUs", count == 0 ? 0 : latencySumNs / count / 1000);
+    map.putLong("maxLatencyUs", latencyMaxNs / 1000);
+    return map;
+  }
+}
@@ -1,5 +1,6 @@
 package io.getstream.webrtc.flutter
 
+import io.getstream.webrtc.flutter.record.EncodedFrameTap
 import org.webrtc.*
 import java.util.concurrent.Callable
 import java.util.concurrent.ExecutorService
@@ -204,7 +205,13 @@ internal class SimulcastVideoEncoderFactoryWrapper(
             if (encoder is WrappedNativeVideoEncoder) {
               return encoder
             }
-            return StreamEncoderWrapper(encoder)
+            if (encoder is StreamEncoderWrapper) {
+              // FallbackFactory hands back primary's encoder when there is no
+              // software one (H.264); it is already wrapped and tapped.
+              return encoder
+            }
+            // Innermost, so pass-through recorders see each layer as encoded.
+            return StreamEncoderWrapper(EncodedFrameTap.wrapEncoder(encoder, videoCodecInfo))
         }
 
         override fun getSupportedCodecs(): Array<VideoCodecInfo> {
@@ -0,0 +1,89 @@
+package io.getstream.webrtc.flutter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the size of a renderer's surface with hysteresis, so simulcast layer
+ * switches and rotations don't recreate the surface back and forth.
+ *
+ * The surface grows as soon as a frame needs more pixels on either axis, to
+ * the largest size seen on each axis. It shrinks only after every frame for
+ * {@link #SHRINK_DELAY_NS} was smaller, to the largest of those frames. A
+ * frame that flips between landscape and portrait is taken as-is right away,
+ * so a rotation costs one recreation rather than a square surface and a
+ * shrink. Frames are drawn scaled into whatever surface is current. Not
+ * thread safe.
+ */
+final class SurfaceSizePolicy {
+  static final long SHRINK_DELAY_NS = TimeUnit.SECONDS.toNanos(2);
+
+  private int width;
+  private int height;
+  private long smallerSinceNs = -1;
+  private int recentWidth;
+  private int recentHeight;
+
+  /**
+   * Factor that scales a frame down to cover the layout size, so neither axis is
+   * upscaled on screen; 1 when the layout size is unknown.
+   */
+  static float layoutScale(int frameWidth, int frameHeight, int layoutWidth, int layoutHeight) {
+    if (layoutWidth <= 0 || layoutHeight <= 0) {
+      return 1f;
+    }
+    return Math.min(1f, Math.max(
+        (float) layoutWidth / frameWidth, (float) layoutHeight / frameHeight));
+  }
+
+  static int scaleDimension(int size, float scale) {
+    return scale >= 1f ? size : Math.max(2, Math.round(size * scale) & ~1);
+  }
+
+  /** Accounts for a frame that needs a {@code frameWidth} x {@code frameHeight} surface. */
+  void offer(int frameWidth, int frameHeight, long nowNs) {
+    if (isOrientationFlip(frameWidth, frameHeight)) {
+      width = frameWidth;
+      height = frameHeight;
+      smallerSinceNs = -1;
+      return;
+    }
+    if (frameWidth > width || frameHeight > height) {
+      width = Math.max(width, frameWidth);
+      height = Math.max(height, frameHeight);
+      smallerSinceNs = -1;
+      return;
+    }
+    if (frameWidth == width && frameHeight == height) {
+      smallerSinceNs = -1;
+      return;
+    }
+    if (smallerSinceNs < 0) {
+      smallerSinceNs = nowNs;
+      recentWidth = frameWidth;
+      recentHeight = frameHeight;
+    } else {
+      recentWidth = Math.max(recentWidth, frameWidth);
+      recentHeight = Math.max(recentHeight, frameHeight);
+    }
+    if (nowNs - smallerSinceNs >= SHRINK_DELAY_NS) {
+      width = recentWidth;
+      height = recentHeight;
+      smallerSinceNs = -1;
+    }
+  }
+
+  private boolean isOrientationFlip(int frameWidth, int frameHeight) {
+    if (width == height || frameWidth == frameHeight) {
+      return false;
+    }
+    return (width > height) != (frameWidth > frameHeight);
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+}
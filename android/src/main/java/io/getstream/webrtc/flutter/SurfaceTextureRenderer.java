@@ -1,5 +1,6 @@
 package io.getstream.webrtc.flutter;
 
+import android.graphics.Matrix;
 import android.graphics.SurfaceTexture;
 import android.view.Surface;
 
@@ -9,10 +10,12 @@ import org.webrtc.GlRectDrawer;
 import org.webrtc.RendererCommon;
 import org.webrtc.ThreadUtils;
 import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
 
 import java.util.concurrent.CountDownLatch;
 
 import io.flutter.view.TextureRegistry;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
 
 /**
  * Display the video stream on a Surface.
@@ -22,7 +25,7 @@ import io.flutter.view.TextureRegistry;
  * Interaction from C++ rtc::VideoSinkInterface in renderFrame.
  * Interaction from SurfaceHolder lifecycle in surfaceCreated, surfaceChanged, and surfaceDestroyed.
  */
-public class SurfaceTextureRenderer extends EglRenderer {
+public class SurfaceTextureRenderer extends EglRenderer implements VideoTextureRenderer {
   // Callback for reporting renderer events. Read-only after initilization so no lock required.
   private RendererCommon.RendererEvents rendererEvents;
   private final Object layoutLock = new Object();
@@ -31,14 +34,43 @@ public class SurfaceTextureRenderer extends EglRenderer {
   private int rotatedFrameWidth;
   private int rotatedFrameHeight;
   private int frameRotation;
+  // Size of the widget in physical pixels, 0 when unknown. Kept across init()/release().
+  private volatile int layoutWidth;
+  private volatile int layoutHeight;
+  private volatile SurfaceSizeListener surfaceSizeListener;
+  private final RenderTimingStats timingStats;
+
+  /** Records every frame EglRenderer actually draws, on its render thread. */
+  private static final class TimingFrameDrawer extends VideoFrameDrawer {
+    private final RenderTimingStats timingStats;
+
+    TimingFrameDrawer(RenderTimingStats timingStats) {
+      this.timingStats = timingStats;
+    }
+
+    @Override
+    public void drawFrame(VideoFrame frame, RendererCommon.GlDrawer drawer,
+        Matrix additionalRenderMatrix, int viewportX, int viewportY, int viewportWidth,
+        int viewportHeight) {
+      super.drawFrame(frame, drawer, additionalRenderMatrix, viewportX, viewportY,
+          viewportWidth, viewportHeight);
+      timingStats.onFrameRendered(frame);
+    }
+  }
 
   /**
    * In order to render something, you must first call init().
    */
   public SurfaceTextureRenderer(String name) {
-    super(name);
+    this(name, new RenderTimingStats());
   }
 
+  private SurfaceTextureRenderer(String name, RenderTimingStats timingStats) {
+    super(name, new TimingFrameDrawer(timingStats));
+    this.timingStats = timingStats;
+  }
+
+  @Override
   public void init(final EglBase.Context sharedContext,
       RendererCommon.RendererEvents rendererEvents) {
     init(sharedContext, rendererEvents, EglBase.CONFIG_RGBA, new GlRectDrawer());
@@ -88,6 +120,22 @@ public class SurfaceTextureRenderer extends EglRenderer {
     }
     super.disableFpsReduction();
   }
+  /**
+   * Renders into a surface scaled down to cover |width| x |height| (physical pixels) instead
+   * of the frame's full resolution. Frames are never scaled up. Pass 0 to render at the
+   * frame's resolution. Takes effect with the next frame.
+   */
+  @Override
+  public void setLayoutSize(int width, int height) {
+    layoutWidth = Math.max(0, width);
+    layoutHeight = Math.max(0, height);
+  }
+
+  @Override
+  public void setSurfaceSizeListener(SurfaceSizeListener listener) {
+    surfaceSizeListener = listener;
+  }
+
   @Override
   public void pauseVideo() {
     synchronized (layoutLock) {
@@ -98,12 +146,29 @@ public class SurfaceTextureRenderer extends EglRenderer {
   // VideoSink interface.
   @Override
   public void onFrame(VideoFrame frame) {
+    timingStats.onFrameReceived();
+    final float scale = SurfaceSizePolicy.layoutScale(frame.getRotatedWidth(),
+        frame.getRotatedHeight(), layoutWidth, layoutHeight);
+    final int frameWidth = SurfaceSizePolicy.scaleDimension(frame.getRotatedWidth(), scale);
+    final int frameHeight = SurfaceSizePolicy.scaleDimension(frame.getRotatedHeight(), scale);
+    final long now = System.nanoTime();
+    boolean resized = false;
+    int width;
+    int height;
     synchronized (surfaceLock) {
+      if (surface == null || !isRenderingPaused()) {
+        sizePolicy.offer(frameWidth, frameHeight, now);
+      }
+      width = sizePolicy.getWidth();
+      height = sizePolicy.getHeight();
       if(surface == null) {
-        producer.setSize(frame.getRotatedWidth(),frame.getRotatedHeight());
+        producer.setSize(width, height);
         surface = producer.getSurface();
         createEglSurface(surface);
-      } else if (frameSizeChanged(frame)) {
+        resized = surfaceWidth != width || surfaceHeight != height;
+        surfaceWidth = width;
+        surfaceHeight = height;
+      } else if (surfaceWidth != width || surfaceHeight != height) {
         // The producer's backing buffers are fixed-size: setSize() only takes
         // effect for a Surface obtained afterwards. Without recreating the EGL
         // surface here, a simulcast layer upgrade keeps rendering into the old
@@ -113,20 +178,37 @@ public class SurfaceTextureRenderer extends EglRenderer {
         // next frame takes the surface == null path and recreates cleanly
         // rather than rendering into the already-released surface.
         surface = null;
-        producer.setSize(frame.getRotatedWidth(), frame.getRotatedHeight());
+        producer.setSize(width, height);
         surface = producer.getSurface();
         createEglSurface(surface);
+        surfaceRecreateCount++;
+        resized = true;
+        surfaceWidth = width;
+        surfaceHeight = height;
       }
     }
+    final SurfaceSizeListener listener = surfaceSizeListener;
+    if (resized && listener != null) {
+      listener.onSurfaceSizeChanged(width, height);
+    }
     updateFrameDimensionsAndReportEvents(frame);
     super.onFrame(frame);
   }
 
-  private boolean frameSizeChanged(VideoFrame frame) {
+  @Override
+  public long getSurfaceRecreateCount() {
+    return surfaceRecreateCount;
+  }
+
+  @Override
+  public ConstraintsMap getTimingStats() {
+    // EglRenderer does not expose its pending frame; see RenderTimingStats#toMap.
+    return timingStats.toMap(-1);
+  }
+
+  private boolean isRenderingPaused() {
     synchronized (layoutLock) {
-      return !isRenderingPaused
-          && (rotatedFrameWidth != frame.getRotatedWidth()
-              || rotatedFrameHeight != frame.getRotatedHeight());
+      return isRenderingPaused;
     }
   }
 
@@ -139,9 +221,15 @@ public class SurfaceTextureRenderer extends EglRenderer {
   // thread, which never acquires it, so the wait cannot deadlock.
   private final Object surfaceLock = new Object();
   private Surface surface = null;
+  private int surfaceWidth;
+  private int surfaceHeight;
+  private final SurfaceSizePolicy sizePolicy = new SurfaceSizePolicy();
+  // Surfaces recreated for a new size; written under surfaceLock.
+  private volatile long surfaceRecreateCount = 0;
 
   private TextureRegistry.SurfaceProducer producer;
 
+  @Override
   public void surfaceCreated(final TextureRegistry.SurfaceProducer producer) {
     ThreadUtils.checkIsOnMainThread();
     this.producer = producer;
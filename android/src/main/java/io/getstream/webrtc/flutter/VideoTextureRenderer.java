@@ -0,0 +1,44 @@
+package io.getstream.webrtc.flutter;
+
+import org.webrtc.EglBase;
+import org.webrtc.RendererCommon;
+import org.webrtc.VideoSink;
+
+import io.flutter.view.TextureRegistry;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+/**
+ * Draws the frames of a video track into a Flutter texture.
+ * See {@link SurfaceTextureRenderer} and {@link PooledSurfaceRenderer}.
+ */
+public interface VideoTextureRenderer extends VideoSink {
+
+  /** Reports the size of the surface frames are drawn into. */
+  interface SurfaceSizeListener {
+    void onSurfaceSizeChanged(int width, int height);
+  }
+
+  void init(EglBase.Context sharedContext, RendererCommon.RendererEvents rendererEvents);
+
+  void surfaceCreated(TextureRegistry.SurfaceProducer producer);
+
+  void release();
+
+  void setLayoutSize(int width, int height);
+
+  void setSurfaceSizeListener(SurfaceSizeListener listener);
+
+  /** Limits the render frame rate; 0 pauses rendering. */
+  void setFpsReduction(float fps);
+
+  void disableFpsReduction();
+
+  /** Times the surface was recreated because the frames needed a different size. */
+  long getSurfaceRecreateCount();
+
+  /**
+   * Frames received, rendered and dropped, render rates and the capture-to-render
+   * latency histogram; see {@link RenderTimingStats}.
+   */
+  ConstraintsMap getTimingStats();
+}
@@ -2,111 +2,257 @@ package io.getstream.webrtc.flutter.audio;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
 
 /**
- * AudioBufferMixer provides utilities for mixing audio buffers.
- * Used to combine microphone audio with screen audio during screen sharing.
+ * AudioBufferMixer mixes N 16-bit little-endian PCM inputs into a destination
+ * buffer in place. Used to combine microphone audio with screen audio during
+ * screen sharing.
+ *
+ * All per-frame state (ShortBuffer views, sample scratch and accumulator) is
+ * preallocated and reused, so steady-state mixing does not allocate. Views are
+ * only rebuilt when the caller hands in a different ByteBuffer instance or a
+ * larger frame than seen before.
+ *
+ * Usage from the capture thread:
+ * <pre>
+ *     mixer.setInput(screenSlot, screenBuffer);
+ *     mixer.mix(micBuffer, bytesRead);
+ * </pre>
+ *
+ * {@link #mix} and {@link #setInput} must be called from a single thread.
+ * Gains and the clip mode may be changed from any thread and take effect on
+ * the next frame.
  */
 public class AudioBufferMixer {
 
+    /** How the summed signal is brought back into the 16-bit range. */
+    public enum ClipMode {
+        /** Saturate at the 16-bit limits. Cheapest, audible on hot sources. */
+        HARD_CLIP,
+        /** Pass the signal linearly below a knee and compress it smoothly above it. */
+        SOFT_CLIP,
+        /** Apply a peak limiter with instant attack and exponential release. */
+        LIMITER
+    }
+
+    private static final float FULL_SCALE = 32767f;
+    private static final float SOFT_CLIP_KNEE = 0.75f * FULL_SCALE;
+    private static final float LIMITER_CEILING = 0.98f * FULL_SCALE;
+    /** Per-sample release coefficient; ~100 ms to recover at 48 kHz. */
+    private static final float LIMITER_RELEASE = 0.9998f;
+
+    private static final class Input {
+        volatile float gain = 1f;
+        ByteBuffer buffer;
+        ByteBuffer viewOwner;
+        ShortBuffer view;
+    }
+
+    private final Input[] inputs;
+    // Written under the lock, read lock-free by mix().
+    private volatile int inputCount = 0;
+
+    private volatile float destinationGain = 1f;
+    private volatile ClipMode clipMode;
+
+    private ByteBuffer destViewOwner;
+    private ShortBuffer destView;
+    private short[] scratch = new short[0];
+    private float[] accumulator = new float[0];
+    private float limiterGain = 1f;
+
+    /**
+     * @param maxInputs maximum number of inputs mixed on top of the destination
+     * @param clipMode  initial clip mode
+     */
+    public AudioBufferMixer(int maxInputs, ClipMode clipMode) {
+        this.inputs = new Input[maxInputs];
+        this.clipMode = clipMode;
+    }
+
+    /**
+     * Registers a new input and returns its slot index.
+     */
+    public synchronized int addInput(float gain) {
+        if (inputCount == inputs.length) {
+            throw new IllegalStateException("AudioBufferMixer supports at most "
+                    + inputs.length + " inputs");
+        }
+        Input input = new Input();
+        input.gain = gain;
+        final int slot = inputCount;
+        inputs[slot] = input;
+        // Publish the slot only once it is filled in.
+        inputCount = slot + 1;
+        return slot;
+    }
+
+    public void setInputGain(int slot, float gain) {
+        inputs[slot].gain = gain;
+    }
+
     /**
-     * Mixes two audio buffers by adding their samples together.
-     * The buffers are expected to be in PCM 16-bit little-endian format.
-     * 
-     * The mixing process:
-     * 1. Converts both buffers from ByteBuffer to short arrays
-     * 2. Adds corresponding samples together
-     * 3. Clips values to prevent overflow
-     * 4. Writes the result back into the destination buffer
+     * Sets the gain applied to the samples already present in the destination
+     * buffer (typically the microphone).
+     */
+    public void setDestinationGain(float gain) {
+        destinationGain = gain;
+    }
+
+    public void setClipMode(ClipMode mode) {
+        clipMode = mode;
+    }
+
+    /**
+     * Sets the buffer mixed into the next {@link #mix} call for the given slot.
+     * The samples between the buffer's position and limit are used. The
+     * reference is dropped after the mix, so a slot without fresh data for a
+     * frame contributes silence.
+     */
+    public void setInput(int slot, ByteBuffer buffer) {
+        inputs[slot].buffer = buffer;
+    }
+
+    /**
+     * Mixes all inputs set since the last call into {@code destBuffer} in place.
+     * The destination's position and limit are left untouched.
      *
      * @param destBuffer The destination buffer (modified in-place) - typically
      *                   microphone audio
-     * @param srcBuffer  The source buffer to mix in - typically screen audio
-     * @param bytesToMix The number of bytes to mix
+     * @param bytesToMix The number of bytes to mix, starting at offset 0
      */
-    public static void mixBuffers(ByteBuffer destBuffer, ByteBuffer srcBuffer, int bytesToMix) {
-        if (destBuffer == null || srcBuffer == null || bytesToMix <= 0) {
+    public void mix(ByteBuffer destBuffer, int bytesToMix) {
+        if (destBuffer == null || bytesToMix <= 0) {
             return;
         }
+        final int samples = Math.min(bytesToMix, destBuffer.capacity()) / 2;
+        ensureCapacity(samples);
 
-        int samplesToMix = bytesToMix / 2; // 16-bit = 2 bytes per sample
-
-        // Ensure correct byte order
-        destBuffer.order(ByteOrder.LITTLE_ENDIAN);
-        srcBuffer.order(ByteOrder.LITTLE_ENDIAN);
-
-        // Reset positions for reading
-        destBuffer.position(0);
-        srcBuffer.position(0);
-
-        // Create temporary arrays for mixing
-        short[] destSamples = new short[samplesToMix];
-        short[] srcSamples = new short[samplesToMix];
-
-        // Read samples
-        int destSamplesToRead = Math.min(samplesToMix, destBuffer.remaining() / 2);
-        int srcSamplesToRead = Math.min(samplesToMix, srcBuffer.remaining() / 2);
-
-        destBuffer.asShortBuffer().get(destSamples, 0, destSamplesToRead);
-        srcBuffer.asShortBuffer().get(srcSamples, 0, srcSamplesToRead);
-
-        // Mix samples with clipping
-        // Only mix up to the minimum of both buffers, then copy remaining samples
-        int mixableCount = Math.min(destSamplesToRead, srcSamplesToRead);
-
-        byte[] mixedBytes = new byte[bytesToMix];
-        for (int i = 0; i < samplesToMix; i++) {
-            int sum;
-            if (i < mixableCount) {
-                // Both buffers have valid data at this index - mix them
-                sum = destSamples[i] + srcSamples[i];
-            } else if (i < destSamplesToRead) {
-                // Only dest buffer has valid data at this index
-                sum = destSamples[i];
-            } else if (i < srcSamplesToRead) {
-                // Only src buffer has valid data at this index
-                sum = srcSamples[i];
-            } else {
-                // Neither buffer has valid data - output silence
-                sum = 0;
-            }
+        if (destBuffer != destViewOwner) {
+            destView = viewOf(destBuffer);
+            destViewOwner = destBuffer;
+        }
 
-            if (sum > Short.MAX_VALUE) {
-                sum = Short.MAX_VALUE;
-            } else if (sum < Short.MIN_VALUE) {
-                sum = Short.MIN_VALUE;
-            }
+        final float[] acc = accumulator;
+        final short[] tmp = scratch;
+
+        destView.position(0);
+        destView.get(tmp, 0, samples);
+        final float destGain = destinationGain;
+        for (int i = 0; i < samples; i++) {
+            acc[i] = tmp[i] * destGain;
+        }
+
+        boolean mixedAny = false;
+        final int count = inputCount;
+        for (int s = 0; s < count; s++) {
+            mixedAny |= accumulate(inputs[s], samples);
+        }
+        if (!mixedAny && destGain == 1f) {
+            // Nothing to add and nothing to scale: the destination is already correct.
+            return;
+        }
+
+        switch (clipMode) {
+            case SOFT_CLIP:
+                softClip(acc, tmp, samples);
+                break;
+            case LIMITER:
+                limit(acc, tmp, samples);
+                break;
+            case HARD_CLIP:
+            default:
+                hardClip(acc, tmp, samples);
+                break;
+        }
+
+        destView.position(0);
+        destView.put(tmp, 0, samples);
+    }
+
+    private boolean accumulate(Input input, int samples) {
+        final ByteBuffer src = input.buffer;
+        input.buffer = null;
+        if (src == null) {
+            return false;
+        }
+        final int srcSamples = Math.min(samples, src.remaining() / 2);
+        if (srcSamples <= 0) {
+            return false;
+        }
+        if (src != input.viewOwner) {
+            input.view = viewOf(src);
+            input.viewOwner = src;
+        }
+        final short[] tmp = scratch;
+        input.view.position(src.position() / 2);
+        input.view.get(tmp, 0, srcSamples);
 
-            int byteIndex = i * 2;
-            mixedBytes[byteIndex] = (byte) (sum & 0xFF);
-            mixedBytes[byteIndex + 1] = (byte) ((sum >> 8) & 0xFF);
+        final float[] acc = accumulator;
+        final float gain = input.gain;
+        for (int i = 0; i < srcSamples; i++) {
+            acc[i] += tmp[i] * gain;
         }
+        return true;
+    }
 
-        destBuffer.clear();
-        destBuffer.put(mixedBytes);
+    private static void hardClip(float[] acc, short[] out, int samples) {
+        for (int i = 0; i < samples; i++) {
+            float v = acc[i];
+            if (v > FULL_SCALE) {
+                v = FULL_SCALE;
+            } else if (v < -FULL_SCALE - 1f) {
+                v = -FULL_SCALE - 1f;
+            }
+            out[i] = (short) v;
+        }
     }
 
     /**
-     * Mixes screen audio into the microphone audio buffer.
-     *
-     * @param micBuffer    The microphone audio buffer (modified in-place)
-     * @param screenBuffer The screen audio buffer
-     * @param bytesToMix   The number of bytes to mix
+     * Linear below the knee, then a rational curve that approaches full scale
+     * asymptotically so the waveform never flattens abruptly.
      */
-    public static void mixScreenAudioWithMicrophone(
-            ByteBuffer micBuffer,
-            ByteBuffer screenBuffer,
-            int bytesToMix) {
+    private static void softClip(float[] acc, short[] out, int samples) {
+        final float range = FULL_SCALE - SOFT_CLIP_KNEE;
+        for (int i = 0; i < samples; i++) {
+            float v = acc[i];
+            float mag = v < 0 ? -v : v;
+            if (mag > SOFT_CLIP_KNEE) {
+                float over = (mag - SOFT_CLIP_KNEE) / range;
+                mag = SOFT_CLIP_KNEE + range * (over / (1f + over));
+                v = v < 0 ? -mag : mag;
+            }
+            out[i] = (short) v;
+        }
+    }
 
-        if (screenBuffer == null || bytesToMix <= 0) {
-            return;
+    private void limit(float[] acc, short[] out, int samples) {
+        float gain = limiterGain;
+        for (int i = 0; i < samples; i++) {
+            float v = acc[i];
+            float mag = v < 0 ? -v : v;
+            float target = mag * gain > LIMITER_CEILING ? LIMITER_CEILING / mag : 1f;
+            if (target < gain) {
+                gain = target;
+            } else {
+                gain = target - (target - gain) * LIMITER_RELEASE;
+            }
+            out[i] = (short) (v * gain);
         }
+        limiterGain = gain;
+    }
 
-        if (micBuffer == null) {
-            return;
+    private void ensureCapacity(int samples) {
+        if (scratch.length < samples) {
+            scratch = new short[samples];
+            accumulator = new float[samples];
         }
+    }
 
-        // Mix both audio sources
-        mixBuffers(micBuffer, screenBuffer, bytesToMix);
+    private static ShortBuffer viewOf(ByteBuffer buffer) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.clear();
+        return dup.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
     }
 }
@@ -0,0 +1,111 @@
+package io.getstream.webrtc.flutter.audio;
+
+import org.webrtc.AudioTrackSink;
+import org.webrtc.audio.JavaAudioDeviceModule;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates RMS and peak of a 16-bit PCM stream between two reads.
+ *
+ * Works as an {@link AudioTrackSink} (local and remote tracks) and as a
+ * playback samples callback (the mixed playout of a factory). The audio
+ * thread only sums the frame and folds it into atomics; {@link #read} is
+ * called at the reporting rate from another thread and resets the counters.
+ */
+public class AudioLevelMeter
+        implements AudioTrackSink, JavaAudioDeviceModule.PlaybackSamplesReadyCallback {
+
+    private static final double FULL_SCALE = 32768.0;
+
+    private final AtomicLong sumSquares = new AtomicLong();
+    private final AtomicInteger sampleCount = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    /** Levels accumulated since the previous read, normalized to 0..1. */
+    public static final class Levels {
+        public final double rms;
+        public final double peak;
+
+        Levels(double rms, double peak) {
+            this.rms = rms;
+            this.peak = peak;
+        }
+    }
+
+    @Override
+    public void onData(ByteBuffer audioData, int bitsPerSample, int sampleRate,
+            int numberOfChannels, int numberOfFrames, long absoluteCaptureTimestampMs) {
+        if (bitsPerSample != 16) {
+            return;
+        }
+        // Direct buffers from native code do not carry a meaningful byte order,
+        // so decode little-endian PCM explicitly with absolute reads.
+        final int start = audioData.position();
+        final int samples = Math.min(numberOfFrames * numberOfChannels,
+                audioData.remaining() / 2);
+        long sum = 0;
+        int max = 0;
+        for (int i = 0; i < samples; i++) {
+            final int index = start + i * 2;
+            final int s = (short) ((audioData.get(index + 1) << 8) | (audioData.get(index) & 0xff));
+            sum += (long) s * s;
+            final int abs = s < 0 ? -s : s;
+            if (abs > max) {
+                max = abs;
+            }
+        }
+        accumulate(sum, samples, max);
+    }
+
+    @Override
+    public void onWebRtcAudioTrackSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
+        final byte[] data = audioSamples.getData();
+        if (data == null) {
+            return;
+        }
+        final int samples = data.length / 2;
+        long sum = 0;
+        int max = 0;
+        for (int i = 0; i < samples; i++) {
+            final int s = (short) ((data[i * 2 + 1] << 8) | (data[i * 2] & 0xff));
+            sum += (long) s * s;
+            final int abs = s < 0 ? -s : s;
+            if (abs > max) {
+                max = abs;
+            }
+        }
+        accumulate(sum, samples, max);
+    }
+
+    private void accumulate(long sum, int samples, int max) {
+        if (samples <= 0) {
+            return;
+        }
+        sumSquares.addAndGet(sum);
+        sampleCount.addAndGet(samples);
+        int current;
+        while (max > (current = peak.get())) {
+            if (peak.compareAndSet(current, max)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the levels since the previous call and starts a new interval, or
+     * null when no audio arrived in between.
+     */
+    public Levels read() {
+        final int samples = sampleCount.getAndSet(0);
+        final long sum = sumSquares.getAndSet(0);
+        final int max = peak.getAndSet(0);
+        if (samples == 0) {
+            return null;
+        }
+        final double rms = Math.sqrt((double) sum / samples) / FULL_SCALE;
+        return new Levels(Math.min(1.0, rms), Math.min(1.0, max / FULL_SCALE));
+    }
+}
@@ -0,0 +1,244 @@
+package io.getstream.webrtc.flutter.audio;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import io.getstream.webrtc.flutter.utils.AnyThreadSink;
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+
+import org.webrtc.AudioTrack;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes compact RMS / peak levels for a set of audio tracks on the
+ * {@code FlutterWebRTC/audioLevels} event channel, so level meters do not
+ * have to poll and serialize full stats reports.
+ *
+ * Local tracks are metered through a {@link LocalAudioTrack} sink, remote
+ * tracks through a native {@link AudioTrack} sink, and a factory's mixed
+ * playout through its {@link PlaybackSamplesReadyCallbackAdapter}.
+ */
+public class AudioLevelMonitor implements EventChannel.StreamHandler {
+
+    private static final String TAG = "AudioLevelMonitor";
+    private static final int MIN_INTERVAL_MS = 20;
+
+    private static final class Attachment {
+        final String id;
+        final String kind;
+        /** Track or adapter the meter is attached to. */
+        final Object source;
+        final AudioLevelMeter meter = new AudioLevelMeter();
+        final Runnable detach;
+
+        Attachment(String id, String kind, Object source, Runnable detach) {
+            this.id = id;
+            this.kind = kind;
+            this.source = source;
+            this.detach = detach;
+        }
+    }
+
+    private final EventChannel eventChannel;
+    private volatile EventChannel.EventSink eventSink;
+    private final Map<String, Attachment> attachments = new ConcurrentHashMap<>();
+    private HandlerThread thread;
+    private Handler handler;
+    private volatile int intervalMs = 100;
+
+    private final Runnable publish = new Runnable() {
+        @Override
+        public void run() {
+            publishLevels();
+            Handler h = handler;
+            if (h != null) {
+                h.postDelayed(this, intervalMs);
+            }
+        }
+    };
+
+    public AudioLevelMonitor(BinaryMessenger messenger) {
+        eventChannel = new EventChannel(messenger, "FlutterWebRTC/audioLevels");
+        eventChannel.setStreamHandler(this);
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink sink) {
+        eventSink = new AnyThreadSink(sink);
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        eventSink = null;
+    }
+
+    public synchronized void setIntervalMs(int intervalMs) {
+        this.intervalMs = Math.max(MIN_INTERVAL_MS, intervalMs);
+    }
+
+    /** Meters {@code track}; a no-op if it is already metered under {@code trackId}. */
+    public synchronized void addLocalTrack(@NonNull String trackId, @NonNull LocalAudioTrack track) {
+        if (!replace(trackId, track)) {
+            return;
+        }
+        Attachment[] holder = new Attachment[1];
+        holder[0] = new Attachment(trackId, "local", track, () -> track.removeSink(holder[0].meter));
+        track.addSink(holder[0].meter);
+        add(holder[0]);
+    }
+
+    /** Meters {@code track}; a no-op if it is already metered under {@code trackId}. */
+    public synchronized void addRemoteTrack(@NonNull String trackId, @NonNull AudioTrack track) {
+        if (!replace(trackId, track)) {
+            return;
+        }
+        Attachment[] holder = new Attachment[1];
+        holder[0] = new Attachment(trackId, "remote", track, () -> track.removeSink(holder[0].meter));
+        track.addSink(holder[0].meter);
+        add(holder[0]);
+    }
+
+    /** Meters the mixed playout of the factory registered under {@code factoryId}. */
+    public synchronized void addPlayout(@NonNull String factoryId,
+            @NonNull PlaybackSamplesReadyCallbackAdapter adapter) {
+        final String id = playoutId(factoryId);
+        if (!replace(id, adapter)) {
+            return;
+        }
+        Attachment[] holder = new Attachment[1];
+        holder[0] = new Attachment(id, "playout", adapter,
+                () -> adapter.removeCallback(holder[0].meter));
+        adapter.addCallback("audioLevelMeter", holder[0].meter, false);
+        add(holder[0]);
+    }
+
+    public synchronized void removePlayout(@NonNull String factoryId) {
+        remove(playoutId(factoryId));
+    }
+
+    /** Stops metering {@code id}. Safe to call for ids that are not metered. */
+    public synchronized void remove(@NonNull String id) {
+        detach(id);
+        if (attachments.isEmpty()) {
+            stopPublishing();
+        }
+    }
+
+    /**
+     * Stops metering every track and playout not listed. Publishing keeps
+     * running as long as anything is still metered.
+     */
+    public synchronized void retainOnly(@NonNull Collection<String> trackIds,
+            @NonNull Collection<String> playoutFactoryIds) {
+        Set<String> keep = new HashSet<>(trackIds);
+        for (String factoryId : playoutFactoryIds) {
+            keep.add(playoutId(factoryId));
+        }
+        for (String id : attachments.keySet().toArray(new String[0])) {
+            if (!keep.contains(id)) {
+                detach(id);
+            }
+        }
+        if (attachments.isEmpty()) {
+            stopPublishing();
+        }
+    }
+
+    public synchronized void removeAll() {
+        for (String id : attachments.keySet().toArray(new String[0])) {
+            remove(id);
+        }
+    }
+
+    public void dispose() {
+        removeAll();
+        eventChannel.setStreamHandler(null);
+    }
+
+    private static String playoutId(String factoryId) {
+        return "playout:" + factoryId;
+    }
+
+    /**
+     * Detaches whatever {@code id} meters unless it is {@code source} itself.
+     *
+     * @return false if {@code source} is already metered under {@code id}
+     */
+    private boolean replace(String id, Object source) {
+        Attachment current = attachments.get(id);
+        if (current != null && current.source == source) {
+            return false;
+        }
+        detach(id);
+        return true;
+    }
+
+    private void detach(String id) {
+        Attachment attachment = attachments.remove(id);
+        if (attachment == null) {
+            return;
+        }
+        try {
+            attachment.detach.run();
+        } catch (Throwable t) {
+            // The native track may already be disposed.
+            Log.w(TAG, "detach " + id + " failed: " + t);
+        }
+    }
+
+    private void add(Attachment attachment) {
+        attachments.put(attachment.id, attachment);
+        if (thread == null) {
+            thread = new HandlerThread(TAG);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+            handler.postDelayed(publish, intervalMs);
+        }
+    }
+
+    private void stopPublishing() {
+        if (thread != null) {
+            handler.removeCallbacks(publish);
+            thread.quitSafely();
+            thread = null;
+            handler = null;
+        }
+    }
+
+    private void publishLevels() {
+        EventChannel.EventSink sink = eventSink;
+        ConstraintsArray levels = new ConstraintsArray();
+        for (Attachment attachment : attachments.values()) {
+            // Always read so each report covers exactly one interval.
+            AudioLevelMeter.Levels value = attachment.meter.read();
+            if (value == null) {
+                continue;
+            }
+            ConstraintsMap entry = new ConstraintsMap();
+            entry.putString("trackId", attachment.id);
+            entry.putString("kind", attachment.kind);
+            entry.putDouble("rms", value.rms);
+            entry.putDouble("peak", value.peak);
+            levels.pushMap(entry);
+        }
+        if (sink == null || levels.size() == 0) {
+            return;
+        }
+        ConstraintsMap event = new ConstraintsMap();
+        event.putString("event", "audioLevels");
+        event.putArray("levels", levels.toArrayList());
+        sink.success(event.toMap());
+    }
+}
@@ -0,0 +1,149 @@
+package io.getstream.webrtc.flutter.audio;
+
+/**
+ * Streaming sample-rate and channel-count converter for 16-bit interleaved PCM.
+ *
+ * Uses linear interpolation with the fractional read position and the last
+ * input frame carried across calls, so chunk boundaries are seamless. The step
+ * between output samples can be nudged with {@link #setDriftCorrection} to
+ * absorb clock drift between two nominally-matching devices without ever
+ * dropping or repeating whole frames.
+ *
+ * The work buffer is only reallocated when a chunk larger than any seen
+ * before is processed. Not thread-safe.
+ */
+public class AudioResampler {
+
+    /** Upper bound on carried-over input frames; linear interpolation needs at most two. */
+    private static final int MAX_HISTORY_FRAMES = 2;
+
+    private int inSampleRate;
+    private int inChannels;
+    private int outSampleRate;
+    private int outChannels;
+
+    private double nominalStep = 1.0;
+    private double step = 1.0;
+    // Read position, in frames, relative to the first frame of `work`.
+    private double position = 0.0;
+    // Input frames carried over from the previous call, at the start of `work`.
+    private int historyFrames = 0;
+    // [history | channel-mapped input], interleaved with outChannels.
+    private short[] work = new short[0];
+
+    /**
+     * Sets the input and output formats. Resets the stream state if any of
+     * them changed; otherwise a no-op.
+     */
+    public void configure(int inSampleRate, int inChannels, int outSampleRate, int outChannels) {
+        if (inSampleRate == this.inSampleRate && inChannels == this.inChannels
+                && outSampleRate == this.outSampleRate && outChannels == this.outChannels) {
+            return;
+        }
+        this.inSampleRate = inSampleRate;
+        this.inChannels = inChannels;
+        this.outSampleRate = outSampleRate;
+        this.outChannels = outChannels;
+        this.nominalStep = (double) inSampleRate / (double) outSampleRate;
+        reset();
+    }
+
+    /** Drops carried-over state and any drift correction. */
+    public void reset() {
+        step = nominalStep;
+        position = 0.0;
+        historyFrames = 0;
+    }
+
+    /**
+     * Adjusts the effective conversion ratio by {@code correction} (e.g. 0.001
+     * consumes input 0.1% faster than nominal).
+     */
+    public void setDriftCorrection(double correction) {
+        step = nominalStep * (1.0 + correction);
+    }
+
+    /** Number of new input frames required to produce {@code outFrames} output frames. */
+    public int inputFramesNeeded(int outFrames) {
+        if (outFrames <= 0) {
+            return 0;
+        }
+        double lastPosition = position + (outFrames - 1) * step;
+        return Math.max(0, (int) Math.ceil(lastPosition) + 1 - historyFrames);
+    }
+
+    /**
+     * Converts {@code inFrames} interleaved input frames into {@code out}.
+     *
+     * @return the number of output frames written, at most {@code maxOutFrames}
+     */
+    public int process(short[] in, int inFrames, short[] out, int maxOutFrames) {
+        final int ch = outChannels;
+        final int total = historyFrames + inFrames;
+        if (total == 0) {
+            return 0;
+        }
+        if (work.length < total * ch) {
+            short[] grown = new short[total * ch];
+            System.arraycopy(work, 0, grown, 0, historyFrames * ch);
+            work = grown;
+        }
+        final short[] w = work;
+        mapChannels(in, inFrames, w, historyFrames * ch);
+
+        final int lastIndex = total - 1;
+        final double s = step;
+        double t = position;
+        int produced = 0;
+        while (produced < maxOutFrames && t <= lastIndex) {
+            final int i = (int) t;
+            final float frac = (float) (t - i);
+            final int base = i * ch;
+            final int o = produced * ch;
+            if (frac == 0f) {
+                System.arraycopy(w, base, out, o, ch);
+            } else {
+                for (int c = 0; c < ch; c++) {
+                    final int s0 = w[base + c];
+                    final int s1 = w[base + ch + c];
+                    out[o + c] = (short) (s0 + frac * (s1 - s0));
+                }
+            }
+            produced++;
+            t += s;
+        }
+
+        // Carry the frames the next output position still depends on.
+        final int keep = Math.min(Math.max(total - (int) t, 0), MAX_HISTORY_FRAMES);
+        final int first = total - keep;
+        System.arraycopy(w, first * ch, w, 0, keep * ch);
+        historyFrames = keep;
+        position = Math.max(0.0, t - first);
+        return produced;
+    }
+
+    private void mapChannels(short[] in, int frames, short[] dst, int offset) {
+        final int inCh = inChannels;
+        final int outCh = outChannels;
+        if (inCh == outCh) {
+            System.arraycopy(in, 0, dst, offset, frames * outCh);
+        } else if (outCh == 1) {
+            for (int f = 0; f < frames; f++) {
+                int sum = 0;
+                final int base = f * inCh;
+                for (int c = 0; c < inCh; c++) {
+                    sum += in[base + c];
+                }
+                dst[offset + f] = (short) (sum / inCh);
+            }
+        } else {
+            for (int f = 0; f < frames; f++) {
+                final int base = f * inCh;
+                final int o = offset + f * outCh;
+                for (int c = 0; c < outCh; c++) {
+                    dst[o + c] = in[base + Math.min(c, inCh - 1)];
+                }
+            }
+        }
+    }
+}
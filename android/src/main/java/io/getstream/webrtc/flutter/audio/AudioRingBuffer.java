@@ -0,0 +1,185 @@
+package io.getstream.webrtc.flutter.audio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer / single-consumer lock-free ring buffer for PCM bytes.
+ *
+ * Capacity is expressed in whole 10 ms frames. The producer (a capture thread)
+ * calls {@link #write}; the consumer (the ADM capture callback) calls
+ * {@link #read}. Neither side ever blocks or takes a lock: indices are
+ * published with ordered stores, so each side only waits on memory, never on
+ * the other thread.
+ *
+ * What happens when the producer outruns the consumer, or the consumer finds
+ * too little data, is controlled by {@link OverrunPolicy} and
+ * {@link UnderrunPolicy}. Both events are counted so callers can surface them.
+ */
+public class AudioRingBuffer {
+
+    /** Behaviour when the producer has more data than the buffer can hold. */
+    public enum OverrunPolicy {
+        /** The incoming data that does not fit is discarded. */
+        DROP_NEWEST,
+        /**
+         * The consumer discards the oldest frames once the buffer is full, so
+         * the buffered latency drops back to half the capacity.
+         */
+        DROP_OLDEST
+    }
+
+    /** Behaviour when the consumer asks for more data than is buffered. */
+    public enum UnderrunPolicy {
+        /** Deliver what is available and pad the remainder with silence. */
+        FILL_SILENCE,
+        /** Deliver only what is available, possibly nothing. */
+        PARTIAL
+    }
+
+    private final byte[] storage;
+    private final int capacity;
+    private final int frameBytes;
+    private final OverrunPolicy overrunPolicy;
+    private final UnderrunPolicy underrunPolicy;
+
+    // Monotonic byte positions. writePosition is only advanced by the
+    // producer, readPosition only by the consumer.
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    // Single-writer counters: each is only incremented by one side.
+    private volatile long producerDroppedBytes = 0;
+    private volatile long producerOverruns = 0;
+    private volatile long consumerDroppedBytes = 0;
+    private volatile long consumerOverruns = 0;
+    private volatile long underruns = 0;
+
+    private final byte[] silence;
+
+    /**
+     * @param frameBytes     size of one 10 ms frame in bytes
+     * @param capacityFrames number of frames the buffer can hold
+     */
+    public AudioRingBuffer(int frameBytes, int capacityFrames,
+            OverrunPolicy overrunPolicy, UnderrunPolicy underrunPolicy) {
+        if (frameBytes <= 0 || capacityFrames <= 0) {
+            throw new IllegalArgumentException("frameBytes and capacityFrames must be positive");
+        }
+        this.frameBytes = frameBytes;
+        this.capacity = frameBytes * capacityFrames;
+        this.storage = new byte[capacity];
+        this.silence = new byte[frameBytes];
+        this.overrunPolicy = overrunPolicy;
+        this.underrunPolicy = underrunPolicy;
+    }
+
+    /**
+     * Producer side. Copies the bytes between {@code src}'s position and limit
+     * into the ring and advances {@code src}'s position past them.
+     *
+     * @return the number of bytes stored
+     */
+    public int write(ByteBuffer src) {
+        final int length = src.remaining();
+        final long write = writePosition.get();
+        final int free = capacity - (int) (write - readPosition.get());
+        final int toWrite = Math.min(length, free);
+        if (toWrite < length) {
+            producerOverruns++;
+            producerDroppedBytes += length - toWrite;
+        }
+        if (toWrite > 0) {
+            final int offset = (int) (write % capacity);
+            final int first = Math.min(toWrite, capacity - offset);
+            src.get(storage, offset, first);
+            if (first < toWrite) {
+                src.get(storage, 0, toWrite - first);
+            }
+            writePosition.lazySet(write + toWrite);
+        }
+        src.position(src.limit());
+        return toWrite;
+    }
+
+    /**
+     * Consumer side. Copies up to {@code bytes} bytes into {@code dst} starting
+     * at its position, and advances {@code dst}'s position past them.
+     *
+     * @return the number of bytes written to {@code dst}, including silence
+     *         padding under {@link UnderrunPolicy#FILL_SILENCE}
+     */
+    public int read(ByteBuffer dst, int bytes) {
+        bytes = Math.min(bytes, dst.remaining());
+        long read = readPosition.get();
+        int available = (int) (writePosition.get() - read);
+
+        if (overrunPolicy == OverrunPolicy.DROP_OLDEST && available > capacity - frameBytes) {
+            int drop = Math.max(0, available - capacity / 2);
+            drop -= drop % frameBytes;
+            read += drop;
+            available -= drop;
+            consumerOverruns++;
+            consumerDroppedBytes += drop;
+        }
+
+        final int toRead = Math.min(bytes, available);
+        if (toRead > 0) {
+            final int offset = (int) (read % capacity);
+            final int first = Math.min(toRead, capacity - offset);
+            dst.put(storage, offset, first);
+            if (first < toRead) {
+                dst.put(storage, 0, toRead - first);
+            }
+        }
+        readPosition.lazySet(read + toRead);
+
+        if (toRead == bytes) {
+            return toRead;
+        }
+        underruns++;
+        if (underrunPolicy == UnderrunPolicy.PARTIAL) {
+            return toRead;
+        }
+        for (int padded = toRead; padded < bytes; ) {
+            int chunk = Math.min(silence.length, bytes - padded);
+            dst.put(silence, 0, chunk);
+            padded += chunk;
+        }
+        return bytes;
+    }
+
+    /** Discards all buffered data. Must be called from the consumer side. */
+    public void clear() {
+        readPosition.lazySet(writePosition.get());
+    }
+
+    /** Number of buffered bytes. Safe to call from any thread. */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    /** Number of buffered 10 ms frames, rounded down. */
+    public int getFillLevelFrames() {
+        return available() / frameBytes;
+    }
+
+    public int getCapacityFrames() {
+        return capacity / frameBytes;
+    }
+
+    /** Number of times data was dropped because the buffer was full. */
+    public long getOverrunCount() {
+        return producerOverruns + consumerOverruns;
+    }
+
+    /** Total bytes discarded by the overrun policy. */
+    public long getDroppedBytes() {
+        return producerDroppedBytes + consumerDroppedBytes;
+    }
+
+    /** Number of reads that found less data than requested. */
+    public long getUnderrunCount() {
+        return underruns;
+    }
+}
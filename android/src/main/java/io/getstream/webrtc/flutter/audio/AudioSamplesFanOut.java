@@ -0,0 +1,297 @@
+package io.getstream.webrtc.flutter.audio;
+
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+import org.webrtc.audio.JavaAudioDeviceModule.AudioSamples;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Fans a single ADM samples callback out to any number of subscribers.
+ *
+ * Subscribers live in a copy-on-write array: adding or removing one builds a
+ * new array under a lock, while {@link #dispatch} only reads the current
+ * volatile snapshot, so the real-time audio thread never contends with
+ * registration.
+ *
+ * Heavyweight subscribers can be registered as asynchronous. They then get a
+ * copy of each frame, delivered on their own thread through a bounded queue;
+ * when the queue is full the frame is dropped for that subscriber only. The
+ * copies come from a fixed per-subscriber pool and are reused once the
+ * callback returns, so asynchronous subscribers that keep samples must copy
+ * them.
+ *
+ * Every subscriber has a {@link CallbackStats} with invocation count and
+ * cumulative / maximum callback time.
+ */
+public class AudioSamplesFanOut<T> {
+
+    private static final String TAG = "AudioSamplesFanOut";
+    /** Frames buffered per asynchronous subscriber (~100 ms at 10 ms per frame). */
+    private static final int ASYNC_QUEUE_CAPACITY = 10;
+    /** Pooled frames per asynchronous subscriber: a full queue plus the one in the callback. */
+    private static final int ASYNC_POOL_SIZE = ASYNC_QUEUE_CAPACITY + 1;
+
+    /** Invokes the subscriber's callback method. */
+    public interface Invoker<T> {
+        void invoke(T callback, AudioSamples samples);
+    }
+
+    /** Per-subscriber timing and drop counters. Each field has a single writer. */
+    public static final class CallbackStats {
+        public final String name;
+        public final boolean async;
+        volatile long invocations = 0;
+        volatile long totalNanos = 0;
+        volatile long maxNanos = 0;
+        volatile long droppedFrames = 0;
+        volatile long errors = 0;
+
+        CallbackStats(String name, boolean async) {
+            this.name = name;
+            this.async = async;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /** Frames an asynchronous subscriber missed because its queue was full. */
+        public long getDroppedFrames() {
+            return droppedFrames;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        void record(long nanos) {
+            invocations++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        public ConstraintsMap toMap() {
+            ConstraintsMap map = new ConstraintsMap();
+            map.putString("name", name);
+            map.putBoolean("async", async);
+            map.putLong("invocations", invocations);
+            map.putLong("totalNanos", totalNanos);
+            map.putLong("maxNanos", maxNanos);
+            map.putLong("droppedFrames", droppedFrames);
+            map.putLong("errors", errors);
+            return map;
+        }
+    }
+
+    private static final class Entry<T> {
+        final T callback;
+        final CallbackStats stats;
+        final AsyncDelivery<T> async;
+
+        Entry(T callback, CallbackStats stats, AsyncDelivery<T> async) {
+            this.callback = callback;
+            this.stats = stats;
+            this.async = async;
+        }
+    }
+
+    private static final class AsyncDelivery<T> implements Runnable {
+        private final T callback;
+        private final CallbackStats stats;
+        private final Invoker<T> invoker;
+        private final ArrayBlockingQueue<AudioSamples> pending =
+                new ArrayBlockingQueue<>(ASYNC_QUEUE_CAPACITY);
+        // Frames not queued or in the callback; filled on demand up to ASYNC_POOL_SIZE.
+        private final ArrayBlockingQueue<AudioSamples> free =
+                new ArrayBlockingQueue<>(ASYNC_POOL_SIZE);
+        // Audio thread only.
+        private int allocated = 0;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        AsyncDelivery(T callback, CallbackStats stats, Invoker<T> invoker) {
+            this.callback = callback;
+            this.stats = stats;
+            this.invoker = invoker;
+            this.thread = new Thread(this, "AudioSamples-" + stats.name);
+            this.thread.start();
+        }
+
+        /**
+         * Audio thread: copies the frame into a pooled buffer and queues it,
+         * never blocks. Counts a drop when every pooled buffer is in use. Only
+         * a change of frame format allocates once the pool is warm.
+         */
+        void offer(AudioSamples samples) {
+            AudioSamples copy = free.poll();
+            if (copy == null) {
+                if (allocated == ASYNC_POOL_SIZE) {
+                    stats.droppedFrames++;
+                    return;
+                }
+                allocated++;
+            }
+            byte[] src = samples.getData();
+            if (copy == null || copy.getData().length != src.length
+                    || copy.getAudioFormat() != samples.getAudioFormat()
+                    || copy.getChannelCount() != samples.getChannelCount()
+                    || copy.getSampleRate() != samples.getSampleRate()) {
+                copy = new AudioSamples(samples.getAudioFormat(), samples.getChannelCount(),
+                        samples.getSampleRate(), new byte[src.length]);
+            }
+            System.arraycopy(src, 0, copy.getData(), 0, src.length);
+            if (!pending.offer(copy)) {
+                stats.droppedFrames++;
+                free.offer(copy);
+            }
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+            while (running) {
+                AudioSamples samples;
+                try {
+                    samples = pending.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                final long start = System.nanoTime();
+                try {
+                    invoker.invoke(callback, samples);
+                } catch (Throwable t) {
+                    if (stats.errors++ == 0) {
+                        Log.w(TAG, "[" + stats.name + "] async callback threw: " + t);
+                    }
+                }
+                stats.record(System.nanoTime() - start);
+                free.offer(samples);
+            }
+        }
+
+        void stop() {
+            running = false;
+            thread.interrupt();
+        }
+    }
+
+    /** Stats label for a subscriber registered without one. */
+    public static String defaultName(Object callback) {
+        // Lambdas and anonymous classes have no simple name.
+        String name = callback.getClass().getSimpleName();
+        return name.isEmpty() ? callback.getClass().getName() : name;
+    }
+
+    private final Invoker<T> invoker;
+    private final Object lock = new Object();
+    @SuppressWarnings("unchecked")
+    private volatile Entry<T>[] entries = new Entry[0];
+
+    public AudioSamplesFanOut(@NonNull Invoker<T> invoker) {
+        this.invoker = invoker;
+    }
+
+    /**
+     * Registers a subscriber.
+     *
+     * @param name  label reported in {@link CallbackStats}
+     * @param async deliver pooled frame copies on a dedicated thread instead
+     *              of invoking the callback on the audio thread; the samples
+     *              are only valid until the callback returns
+     */
+    public void add(@NonNull String name, @NonNull T callback, boolean async) {
+        synchronized (lock) {
+            CallbackStats stats = new CallbackStats(name, async);
+            AsyncDelivery<T> delivery =
+                    async ? new AsyncDelivery<>(callback, stats, invoker) : null;
+            Entry<T>[] current = entries;
+            @SuppressWarnings("unchecked")
+            Entry<T>[] next = new Entry[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = new Entry<>(callback, stats, delivery);
+            entries = next;
+        }
+    }
+
+    /** Removes the first registration of {@code callback}, if any. */
+    public void remove(T callback) {
+        synchronized (lock) {
+            Entry<T>[] current = entries;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].callback != callback) {
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                Entry<T>[] next = new Entry[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                entries = next;
+                if (current[i].async != null) {
+                    current[i].async.stop();
+                }
+                return;
+            }
+        }
+    }
+
+    /** Removes every subscriber and stops their delivery threads. */
+    public void clear() {
+        synchronized (lock) {
+            Entry<T>[] current = entries;
+            @SuppressWarnings("unchecked")
+            Entry<T>[] next = new Entry[0];
+            entries = next;
+            for (Entry<T> entry : current) {
+                if (entry.async != null) {
+                    entry.async.stop();
+                }
+            }
+        }
+    }
+
+    /** Delivers {@code samples} to every subscriber. Called on the audio thread. */
+    public void dispatch(AudioSamples samples) {
+        final Entry<T>[] snapshot = entries;
+        for (Entry<T> entry : snapshot) {
+            if (entry.async != null) {
+                entry.async.offer(samples);
+                continue;
+            }
+            final long start = System.nanoTime();
+            try {
+                invoker.invoke(entry.callback, samples);
+            } catch (Throwable t) {
+                if (entry.stats.errors++ == 0) {
+                    Log.w(TAG, "[" + entry.stats.name + "] callback threw: " + t);
+                }
+            }
+            entry.stats.record(System.nanoTime() - start);
+        }
+    }
+
+    /** Snapshot of the per-subscriber counters, in registration order. */
+    public ConstraintsArray getStats() {
+        ConstraintsArray array = new ConstraintsArray();
+        for (Entry<T> entry : entries) {
+            array.pushMap(entry.stats.toMap());
+        }
+        return array;
+    }
+}
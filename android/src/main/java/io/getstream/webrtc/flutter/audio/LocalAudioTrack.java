@@ -10,8 +10,7 @@ import org.webrtc.AudioTrackSink;
 import org.webrtc.audio.JavaAudioDeviceModule;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * LocalAudioTrack represents an audio track that is sourced from local audio capture.
@@ -22,14 +21,31 @@ public class LocalAudioTrack
         super(audioTrack);
     }
 
-    final List<AudioTrackSink> sinks = new ArrayList<>();
+    private static final AudioTrackSink[] NO_SINKS = new AudioTrackSink[0];
+
+    private final Object sinksLock = new Object();
+    // Copy-on-write snapshot; the audio thread only reads the volatile reference.
+    private volatile AudioTrackSink[] sinks = NO_SINKS;
+
+    // Delivery state, only touched from the audio capture thread.
+    private int cachedAudioFormat = -1;
+    private int cachedSampleRate = -1;
+    private int cachedChannelCount = -1;
+    private int cachedDataLength = -1;
+    private int bitsPerSample;
+    private int numFrames;
+    private byte[] wrappedData;
+    private ByteBuffer wrapped;
 
     /**
      * Add a sink to receive audio data from this track.
      */
     public void addSink(AudioTrackSink sink) {
-        synchronized (sinks) {
-            sinks.add(sink);
+        synchronized (sinksLock) {
+            AudioTrackSink[] current = sinks;
+            AudioTrackSink[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = sink;
+            sinks = next;
         }
     }
 
@@ -37,8 +53,22 @@ public class LocalAudioTrack
      * Remove a sink for this track.
      */
     public void removeSink(AudioTrackSink sink) {
-        synchronized (sinks) {
-            sinks.remove(sink);
+        synchronized (sinksLock) {
+            AudioTrackSink[] current = sinks;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] != sink) {
+                    continue;
+                }
+                if (current.length == 1) {
+                    sinks = NO_SINKS;
+                    return;
+                }
+                AudioTrackSink[] next = new AudioTrackSink[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                sinks = next;
+                return;
+            }
         }
     }
 
@@ -57,17 +87,54 @@ public class LocalAudioTrack
         }
     }
 
+    /**
+     * Recomputes the per-frame metadata, only when the incoming format differs
+     * from the previous frame.
+     */
+    private void updateFormat(int audioFormat, int sampleRate, int channelCount, int dataLength) {
+        if (audioFormat == cachedAudioFormat && sampleRate == cachedSampleRate
+                && channelCount == cachedChannelCount && dataLength == cachedDataLength) {
+            return;
+        }
+        final int bytesPerSample = getBytesPerSample(audioFormat);
+        bitsPerSample = bytesPerSample * 8;
+        numFrames = dataLength / (bytesPerSample * Math.max(1, channelCount));
+        cachedAudioFormat = audioFormat;
+        cachedSampleRate = sampleRate;
+        cachedChannelCount = channelCount;
+        cachedDataLength = dataLength;
+    }
+
+    /**
+     * Delivers the frame to every sink through one heap buffer wrapping the
+     * ADM's sample array, so nothing is copied and {@code array()} keeps
+     * working. The wrapper is reused for as long as the ADM hands over the
+     * same array, and its position and limit are reset before each sink, so
+     * one sink reading it does not affect the next. Sinks must not write to
+     * it or keep it past {@code onData}.
+     */
     @Override
     public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
-        int bitsPerSample = getBytesPerSample(audioSamples.getAudioFormat()) * 8;
-        int numFrames = audioSamples.getSampleRate() / 100;
-        long timestamp = SystemClock.elapsedRealtime();
-        synchronized (sinks) {
-            for (AudioTrackSink sink : sinks) {
-                ByteBuffer byteBuffer = ByteBuffer.wrap(audioSamples.getData());
-                sink.onData(byteBuffer, bitsPerSample, audioSamples.getSampleRate(),
-                        audioSamples.getChannelCount(), numFrames, timestamp);
-            }
+        final AudioTrackSink[] snapshot = sinks;
+        if (snapshot.length == 0) {
+            return;
+        }
+        final byte[] data = audioSamples.getData();
+        final int sampleRate = audioSamples.getSampleRate();
+        final int channelCount = audioSamples.getChannelCount();
+        updateFormat(audioSamples.getAudioFormat(), sampleRate, channelCount, data.length);
+
+        if (data != wrappedData) {
+            wrappedData = data;
+            wrapped = ByteBuffer.wrap(data);
+        }
+        final ByteBuffer buffer = wrapped;
+
+        final long timestamp = SystemClock.elapsedRealtime();
+        for (AudioTrackSink sink : snapshot) {
+            buffer.clear();
+            sink.onData(buffer, bitsPerSample, sampleRate, channelCount,
+                    numFrames, timestamp);
         }
     }
 }
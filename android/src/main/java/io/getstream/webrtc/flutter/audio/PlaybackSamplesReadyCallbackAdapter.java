@@ -1,32 +1,51 @@
 package io.getstream.webrtc.flutter.audio;
 
-import org.webrtc.audio.JavaAudioDeviceModule;
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
 
-import java.util.ArrayList;
-import java.util.List;
+import org.webrtc.audio.JavaAudioDeviceModule;
 
+/**
+ * Fans the ADM's playback samples callback out to the plugin's consumers
+ * without taking a lock on the playout thread. See {@link AudioSamplesFanOut}.
+ */
 public class PlaybackSamplesReadyCallbackAdapter
         implements JavaAudioDeviceModule.PlaybackSamplesReadyCallback {
     public PlaybackSamplesReadyCallbackAdapter() {}
 
-    List<JavaAudioDeviceModule.PlaybackSamplesReadyCallback> callbacks = new ArrayList<>();
+    private final AudioSamplesFanOut<JavaAudioDeviceModule.PlaybackSamplesReadyCallback> fanOut =
+            new AudioSamplesFanOut<>(
+                    JavaAudioDeviceModule.PlaybackSamplesReadyCallback::onWebRtcAudioTrackSamplesReady);
 
     public void addCallback(JavaAudioDeviceModule.PlaybackSamplesReadyCallback callback) {
-        synchronized (callbacks) {
-            callbacks.add(callback);
-        }
+        addCallback(AudioSamplesFanOut.defaultName(callback), callback, false);
+    }
+
+    /**
+     * @param name  label reported by {@link #getCallbackStats()}
+     * @param async deliver pooled frame copies on a dedicated thread instead
+     *              of the audio playout thread; the samples are only valid
+     *              until the callback returns
+     */
+    public void addCallback(String name,
+            JavaAudioDeviceModule.PlaybackSamplesReadyCallback callback, boolean async) {
+        fanOut.add(name, callback, async);
     }
 
     public void removeCallback(JavaAudioDeviceModule.PlaybackSamplesReadyCallback callback) {
-        synchronized (callbacks) {
-            callbacks.remove(callback);
-        }
+        fanOut.remove(callback);
+    }
+
+    public void removeAllCallbacks() {
+        fanOut.clear();
+    }
+
+    /** Per-callback invocation counts, timings and drops. */
+    public ConstraintsArray getCallbackStats() {
+        return fanOut.getStats();
     }
 
     @Override
     public void onWebRtcAudioTrackSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
-        for (JavaAudioDeviceModule.PlaybackSamplesReadyCallback callback : callbacks) {
-            callback.onWebRtcAudioTrackSamplesReady(audioSamples);
-        }
+        fanOut.dispatch(audioSamples);
     }
 }
@@ -1,34 +1,51 @@
 package io.getstream.webrtc.flutter.audio;
 
-import org.webrtc.audio.JavaAudioDeviceModule;
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
 
-import java.util.ArrayList;
-import java.util.List;
+import org.webrtc.audio.JavaAudioDeviceModule;
 
+/**
+ * Fans the ADM's record samples callback out to the plugin's consumers without
+ * taking a lock on the capture thread. See {@link AudioSamplesFanOut}.
+ */
 public class RecordSamplesReadyCallbackAdapter
         implements JavaAudioDeviceModule.SamplesReadyCallback {
     public RecordSamplesReadyCallbackAdapter() {}
 
-    List<JavaAudioDeviceModule.SamplesReadyCallback> callbacks = new ArrayList<>();
+    private final AudioSamplesFanOut<JavaAudioDeviceModule.SamplesReadyCallback> fanOut =
+            new AudioSamplesFanOut<>(
+                    JavaAudioDeviceModule.SamplesReadyCallback::onWebRtcAudioRecordSamplesReady);
 
     public void addCallback(JavaAudioDeviceModule.SamplesReadyCallback callback) {
-        synchronized (callbacks) {
-            callbacks.add(callback);
-        }
+        addCallback(AudioSamplesFanOut.defaultName(callback), callback, false);
+    }
+
+    /**
+     * @param name  label reported by {@link #getCallbackStats()}
+     * @param async deliver pooled frame copies on a dedicated thread instead
+     *              of the audio capture thread; the samples are only valid
+     *              until the callback returns
+     */
+    public void addCallback(String name,
+            JavaAudioDeviceModule.SamplesReadyCallback callback, boolean async) {
+        fanOut.add(name, callback, async);
     }
 
     public void removeCallback(JavaAudioDeviceModule.SamplesReadyCallback callback) {
-        synchronized (callbacks) {
-            callbacks.remove(callback);
-        }
+        fanOut.remove(callback);
+    }
+
+    public void removeAllCallbacks() {
+        fanOut.clear();
+    }
+
+    /** Per-callback invocation counts, timings and drops. */
+    public ConstraintsArray getCallbackStats() {
+        return fanOut.getStats();
     }
 
     @Override
     public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
-        synchronized (callbacks) {
-            for (JavaAudioDeviceModule.SamplesReadyCallback callback : callbacks) {
-                callback.onWebRtcAudioRecordSamplesReady(audioSamples);
-            }
-        }
+        fanOut.dispatch(audioSamples);
     }
 }
@@ -9,6 +9,7 @@ import android.media.AudioPlaybackCaptureConfiguration;
 import android.media.AudioRecord;
 import android.media.projection.MediaProjection;
 import android.os.Build;
+import android.os.Process;
 import android.util.Log;
 
 import androidx.annotation.RequiresApi;
@@ -16,6 +17,7 @@ import androidx.core.app.ActivityCompat;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
 
 /**
  * ScreenAudioCapturer captures audio from screen content using
@@ -23,7 +25,9 @@ import java.nio.ByteOrder;
  * This requires Android Q (API 29) or higher.
  * 
  * The captured audio can be mixed with microphone audio to transmit both during
- * screen sharing.
+ * screen sharing. Capture runs on a dedicated thread that feeds an
+ * {@link AudioRingBuffer}; {@link #getScreenAudioBytes} only drains that buffer
+ * and never blocks the ADM capture thread.
  */
 public class ScreenAudioCapturer {
     private static final String TAG = "ScreenAudioCapturer";
@@ -33,14 +37,38 @@ public class ScreenAudioCapturer {
     private static final int CALLBACK_BUFFER_SIZE_MS = 10;
     private static final int BUFFERS_PER_SECOND = 1000 / CALLBACK_BUFFER_SIZE_MS;
     private static final int SAMPLE_RATE = 48000; // Standard WebRTC sample rate
+    // 100 ms of headroom absorbs scheduling jitter between the two threads.
+    private static final int RING_BUFFER_FRAMES = 10;
+    // Steady-state latency the drift correction steers towards.
+    private static final int TARGET_LATENCY_MS = 30;
+    private static final int TARGET_FILL_FRAMES = SAMPLE_RATE * TARGET_LATENCY_MS / 1000;
+    private static final double FILL_SMOOTHING = 0.02;
+    private static final double DRIFT_GAIN = 0.002;
+    private static final double MAX_DRIFT_CORRECTION = 0.005;
+    // A blocking read returns within one 10 ms frame; this only bounds a stuck read.
+    private static final long STOP_TIMEOUT_MS = 200;
 
     private final Context context;
     private final int numChannels;
     private volatile AudioRecord screenAudioRecord;
     private MediaProjection mediaProjection;
     private volatile ByteBuffer screenAudioBuffer;
+    private volatile AudioRingBuffer ringBuffer;
+    private volatile Thread captureThread;
     private volatile boolean isCapturing = false;
 
+    // Consumer-side state, only touched from the ADM capture thread.
+    private final AudioResampler resampler = new AudioResampler();
+    private AudioRingBuffer consumerRing;
+    private boolean primed = false;
+    private double smoothedFillFrames = TARGET_FILL_FRAMES;
+    private short[] sourceSamples = new short[0];
+    private ByteBuffer sourceBytes = ByteBuffer.allocate(0);
+    private ShortBuffer sourceShorts = sourceBytes.asShortBuffer();
+    private short[] outputSamples = new short[0];
+    private ByteBuffer outputShortsOwner;
+    private ShortBuffer outputShorts;
+
     public ScreenAudioCapturer(Context context, int numChannels) {
         this.context = context;
         this.numChannels = numChannels;
@@ -77,6 +105,9 @@ public class ScreenAudioCapturer {
 
             screenAudioBuffer = ByteBuffer.allocateDirect(bufferCapacity);
             screenAudioBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            ringBuffer = new AudioRingBuffer(bufferCapacity, RING_BUFFER_FRAMES,
+                    AudioRingBuffer.OverrunPolicy.DROP_OLDEST,
+                    AudioRingBuffer.UnderrunPolicy.PARTIAL);
 
             int channelMask = (numChannels == 2)
                     ? AudioFormat.CHANNEL_IN_STEREO
@@ -109,6 +140,13 @@ public class ScreenAudioCapturer {
             screenAudioRecord.startRecording();
             isCapturing = true;
 
+            final AudioRecord record = screenAudioRecord;
+            final AudioRingBuffer ring = ringBuffer;
+            Thread thread = new Thread(() -> captureLoop(record, ring, bufferCapacity),
+                    "ScreenAudioCapturer");
+            captureThread = thread;
+            thread.start();
+
             Log.d(TAG, "Screen audio capture started successfully (channels=" + numChannels + ")");
             return true;
 
@@ -120,50 +158,173 @@ public class ScreenAudioCapturer {
     }
 
     /**
-     * Gets the next set of screen audio bytes on demand by reading directly from
-     * AudioRecord.
+     * Reads from the AudioRecord on the capture thread and publishes each 10 ms
+     * frame to the ring buffer. Owns the AudioRecord once started and releases
+     * it when capture stops.
      */
-    public ByteBuffer getScreenAudioBytes(int bytesRequested) {
-        if (!isCapturing || bytesRequested <= 0) {
-            return null;
+    private void captureLoop(AudioRecord record, AudioRingBuffer ring, int frameBytes) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        ByteBuffer frame = ByteBuffer.allocateDirect(frameBytes);
+        try {
+            while (isCapturing && captureThread == Thread.currentThread()) {
+                frame.clear();
+                int bytesRead = record.read(frame, frameBytes, AudioRecord.READ_BLOCKING);
+                if (bytesRead > 0) {
+                    frame.limit(bytesRead);
+                    ring.write(frame);
+                } else if (bytesRead < 0) {
+                    Log.e(TAG, "AudioRecord.read failed: " + bytesRead);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            if (isCapturing) {
+                Log.e(TAG, "Error reading screen audio", e);
+            }
+        } finally {
+            try {
+                record.stop();
+                Log.d(TAG, "Screen audio capture stopped (overruns=" + ring.getOverrunCount()
+                        + ", droppedBytes=" + ring.getDroppedBytes()
+                        + ", underruns=" + ring.getUnderrunCount() + ")");
+            } catch (Exception e) {
+                Log.e(TAG, "Error stopping screen audio capture", e);
+            }
+            try {
+                record.release();
+                Log.d(TAG, "Screen audio record released");
+            } catch (Exception e) {
+                Log.e(TAG, "Error releasing AudioRecord", e);
+            }
         }
+    }
 
-        AudioRecord localAudioRecord = screenAudioRecord;
-        if (localAudioRecord == null) {
+    /**
+     * Drains screen audio converted to the microphone's format, filling up to
+     * {@code bytesRequested} bytes. Never blocks; returns null when nothing is
+     * buffered. Called from the ADM capture thread only.
+     *
+     * @param sampleRate   sample rate of the buffer being mixed into
+     * @param channelCount channel count of the buffer being mixed into
+     */
+    public ByteBuffer getScreenAudioBytes(int bytesRequested, int sampleRate, int channelCount) {
+        if (!isCapturing || bytesRequested <= 0 || sampleRate <= 0 || channelCount <= 0) {
             return null;
         }
 
-        try {
-            ByteBuffer localBuffer = screenAudioBuffer;
+        AudioRingBuffer ring = ringBuffer;
+        if (ring == null) {
+            return null;
+        }
+        if (ring != consumerRing) {
+            // New capture session: start from a clean converter state.
+            consumerRing = ring;
+            resampler.reset();
+            primed = false;
+            smoothedFillFrames = TARGET_FILL_FRAMES;
+        }
 
-            // Ensure buffer has enough capacity
-            if (localBuffer == null || localBuffer.capacity() < bytesRequested) {
-                localBuffer = ByteBuffer.allocateDirect(bytesRequested);
-                localBuffer.order(ByteOrder.LITTLE_ENDIAN);
-                screenAudioBuffer = localBuffer;
+        final int bytesPerInputFrame = numChannels * (INPUT_BITS_PER_SAMPLE / 8);
+        final int bufferedFrames = ring.available() / bytesPerInputFrame;
+        if (!primed) {
+            // Wait for the target latency to build up before draining, so a
+            // slow start does not turn into a run of underruns.
+            if (bufferedFrames < TARGET_FILL_FRAMES) {
+                return null;
             }
+            primed = true;
+        }
 
-            localBuffer.clear();
-            localBuffer.limit(bytesRequested);
+        resampler.configure(SAMPLE_RATE, numChannels, sampleRate, channelCount);
+        updateDriftCorrection(bufferedFrames);
 
-            int bytesRead = localAudioRecord.read(
-                    localBuffer,
-                    bytesRequested,
-                    AudioRecord.READ_BLOCKING);
+        final int outFrames = bytesRequested / (channelCount * (INPUT_BITS_PER_SAMPLE / 8));
+        final int inFrames = resampler.inputFramesNeeded(outFrames);
+        final int inBytes = inFrames * bytesPerInputFrame;
+        final ByteBuffer localBuffer = ensureConsumerCapacity(
+                inFrames * numChannels, outFrames * channelCount, bytesRequested);
 
-            if (bytesRead > 0) {
-                localBuffer.limit(bytesRead);
-                localBuffer.position(0);
-                return localBuffer;
-            }
+        sourceBytes.clear();
+        sourceBytes.limit(inBytes);
+        final int bytesRead = ring.read(sourceBytes, inBytes);
+        if (bytesRead < inBytes) {
+            primed = false;
+        }
+        final int framesRead = bytesRead / bytesPerInputFrame;
+        sourceShorts.position(0);
+        sourceShorts.get(sourceSamples, 0, framesRead * numChannels);
 
-        } catch (Exception e) {
-            if (isCapturing) {
-                Log.e(TAG, "Error reading screen audio", e);
-            }
+        final int produced = resampler.process(sourceSamples, framesRead, outputSamples, outFrames);
+        if (produced <= 0) {
+            return null;
         }
 
-        return null;
+        outputShorts.position(0);
+        outputShorts.put(outputSamples, 0, produced * channelCount);
+        localBuffer.position(0);
+        localBuffer.limit(produced * channelCount * (INPUT_BITS_PER_SAMPLE / 8));
+        return localBuffer;
+    }
+
+    /**
+     * Nudges the conversion ratio so the ring buffer fill level converges on
+     * {@link #TARGET_FILL_FRAMES}. Corrections stay well below what is audible
+     * and replace the periodic drop/underrun that uncorrected drift causes.
+     */
+    private void updateDriftCorrection(int bufferedFrames) {
+        smoothedFillFrames += FILL_SMOOTHING * (bufferedFrames - smoothedFillFrames);
+        double error = (smoothedFillFrames - TARGET_FILL_FRAMES) / TARGET_FILL_FRAMES;
+        double correction = Math.max(-MAX_DRIFT_CORRECTION,
+                Math.min(MAX_DRIFT_CORRECTION, DRIFT_GAIN * error));
+        resampler.setDriftCorrection(correction);
+    }
+
+    private ByteBuffer ensureConsumerCapacity(int inSamples, int outSamples, int outBytes) {
+        if (sourceSamples.length < inSamples) {
+            sourceSamples = new short[inSamples];
+            sourceBytes = ByteBuffer.allocate(inSamples * 2).order(ByteOrder.LITTLE_ENDIAN);
+            sourceShorts = sourceBytes.asShortBuffer();
+        }
+        if (outputSamples.length < outSamples) {
+            outputSamples = new short[outSamples];
+        }
+        ByteBuffer localBuffer = screenAudioBuffer;
+        if (localBuffer == null || localBuffer.capacity() < outBytes) {
+            localBuffer = ByteBuffer.allocateDirect(outBytes);
+            localBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            screenAudioBuffer = localBuffer;
+        }
+        if (localBuffer != outputShortsOwner) {
+            ByteBuffer dup = localBuffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            dup.clear();
+            outputShorts = dup.asShortBuffer();
+            outputShortsOwner = localBuffer;
+        }
+        return localBuffer;
+    }
+
+    /** Number of 10 ms frames currently buffered between capture and mixing. */
+    public int getBufferedFrames() {
+        AudioRingBuffer ring = ringBuffer;
+        return ring != null ? ring.getFillLevelFrames() : 0;
+    }
+
+    /** Number of overrun events since capture started. */
+    public long getOverrunCount() {
+        AudioRingBuffer ring = ringBuffer;
+        return ring != null ? ring.getOverrunCount() : 0;
+    }
+
+    /** Number of bytes dropped by the overrun policy since capture started. */
+    public long getDroppedBytes() {
+        AudioRingBuffer ring = ringBuffer;
+        return ring != null ? ring.getDroppedBytes() : 0;
+    }
+
+    /** Number of drains that found less audio than requested. */
+    public long getUnderrunCount() {
+        AudioRingBuffer ring = ringBuffer;
+        return ring != null ? ring.getUnderrunCount() : 0;
     }
 
     /**
@@ -172,29 +333,27 @@ public class ScreenAudioCapturer {
     public void stopCapture() {
         isCapturing = false;
 
-        AudioRecord localAudioRecord = screenAudioRecord;
+        Thread thread = captureThread;
+        captureThread = null;
         screenAudioRecord = null;
 
-        if (localAudioRecord != null) {
-            // Run cleanup on a background thread to avoid blocking the caller
-            new Thread(() -> {
-                try {
-                    localAudioRecord.stop();
-                    Log.d(TAG, "Screen audio capture stopped");
-                } catch (Exception e) {
-                    Log.e(TAG, "Error stopping screen audio capture", e);
-                }
-                try {
-                    localAudioRecord.release();
-                    Log.d(TAG, "Screen audio record released");
-                } catch (Exception e) {
-                    Log.e(TAG, "Error releasing AudioRecord", e);
-                }
-            }, "ScreenAudioCapturer-cleanup").start();
+        if (thread != null) {
+            // The capture thread owns the AudioRecord: it leaves its loop after
+            // the current read, then stops and releases the record itself.
+            try {
+                thread.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                Log.w(TAG, "Capture thread still running after " + STOP_TIMEOUT_MS
+                        + " ms; it releases the AudioRecord when its read returns");
+            }
         }
 
         mediaProjection = null;
         screenAudioBuffer = null;
+        ringBuffer = null;
     }
 
     private void release() {
@@ -216,6 +375,7 @@ public class ScreenAudioCapturer {
 
         mediaProjection = null;
         screenAudioBuffer = null;
+        ringBuffer = null;
     }
 
     public boolean isCapturing() {
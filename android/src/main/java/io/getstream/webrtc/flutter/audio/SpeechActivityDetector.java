@@ -4,16 +4,27 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import org.webrtc.audio.JavaAudioDeviceModule;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+import io.getstream.webrtc.flutter.utils.ObjectType;
+
 import org.webrtc.audio.JavaAudioDeviceModule.AudioSamples;
 import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
 
 /**
  * Speaking-while-muted detector.
  *
- * Mirrors the Stream Android SDK's {@code SoundInputProcessor} (-45 dB
- * threshold, 600 ms window).
+ * In {@link Mode#ENERGY}, as in the Stream Android SDK's
+ * {@code SoundInputProcessor}, each frame's RMS level in dBFS is averaged over a
+ * 600 ms window and compared to a -45 dB threshold. Averaging in the log
+ * domain keeps a single click from dominating the window. Unlike
+ * {@code SoundInputProcessor}, speaking only ends once the average drops
+ * {@link Config#hysteresisDb} below the threshold, and digital silence is
+ * skipped rather than averaged. The window is a fixed-size ring with a running
+ * sum, so each 10 ms frame costs O(1) regardless of the window length.
  *
+ * In {@link Mode#ENERGY_ZCR} a frame only counts as voice when it is loud
+ * enough and the zero-crossing rate of its downmix is in the range of speech,
+ * which rejects broadband noise such as fans or keyboard clicks.
  */
 public class SpeechActivityDetector implements SamplesReadyCallback {
 
@@ -22,17 +33,112 @@ public class SpeechActivityDetector implements SamplesReadyCallback {
         void onSpeechActivityChanged(boolean speaking);
     }
 
+    /** Receiver of the input RMS level in dBFS every {@link Config#levelIntervalMs}. */
+    public interface LevelListener {
+        void onAudioLevel(double levelDbfs, boolean speaking);
+    }
+
+    public enum Mode {
+        /** Average per-frame RMS level in dBFS over the window against the threshold. */
+        ENERGY,
+        /** Share of voiced frames (energy plus zero-crossing rate) over the window. */
+        ENERGY_ZCR
+    }
+
+    /** Detector tuning, parsed from the factory's {@code speechActivity} options. */
+    public static final class Config {
+        public double thresholdDbfs = -45.0;
+        /** Speaking ends only once the level drops this far below the threshold. */
+        public double hysteresisDb = 3.0;
+        public int windowMs = 600;
+        public Mode mode = Mode.ENERGY;
+        /** Zero-crossings per sample of the downmix above which a frame is treated as noise. */
+        public double maxZeroCrossingRate = 0.25;
+        /** Interval of {@link LevelListener} reports; 0 disables them. */
+        public int levelIntervalMs = 0;
+
+        @NonNull
+        public static Config fromMap(@Nullable ConstraintsMap map) {
+            Config config = new Config();
+            if (map == null) {
+                return config;
+            }
+            if (map.getType("thresholdDb") == ObjectType.Number) {
+                config.thresholdDbfs = map.getDouble("thresholdDb");
+            }
+            if (map.getType("hysteresisDb") == ObjectType.Number) {
+                config.hysteresisDb = Math.max(0.0, map.getDouble("hysteresisDb"));
+            }
+            if (map.getType("windowMs") == ObjectType.Number) {
+                config.windowMs = Math.max(FRAME_MS, map.getInt("windowMs"));
+            }
+            if (map.getType("mode") == ObjectType.String) {
+                config.mode = "energyZcr".equals(map.getString("mode"))
+                        ? Mode.ENERGY_ZCR : Mode.ENERGY;
+            }
+            if (map.getType("maxZeroCrossingRate") == ObjectType.Number) {
+                config.maxZeroCrossingRate = map.getDouble("maxZeroCrossingRate");
+            }
+            if (map.getType("levelIntervalMs") == ObjectType.Number) {
+                config.levelIntervalMs = Math.max(0, map.getInt("levelIntervalMs"));
+            }
+            return config;
+        }
+    }
+
     private static final String TAG = "SpeechActivityDetector";
-    private static final double THRESHOLD_DBFS = -45.0;
-    private static final long WINDOW_NS = 600_000_000L; // 600 ms
+    /** The ADM delivers one callback per 10 ms of audio. */
+    private static final int FRAME_MS = 10;
+    private static final double FULL_SCALE_POWER = 32768.0 * 32768.0;
+    private static final double SILENCE_DBFS = -127.0;
+    // Share of voiced frames in the window that starts / ends speech in ENERGY_ZCR mode.
+    private static final double VOICED_RATIO_ON = 0.4;
+    private static final double VOICED_RATIO_OFF = 0.15;
 
     private final Delegate delegate;
-    // Sliding window of (timestampNs, dbfs) entries. Audio thread only.
-    private final java.util.ArrayDeque<long[]> window = new java.util.ArrayDeque<>();
+    @Nullable
+    private final LevelListener levelListener;
+    private final Mode mode;
+    private final double onDbfs;
+    private final double offDbfs;
+    // The on threshold as a squared RMS (mean of squared 16-bit samples), so the
+    // ENERGY_ZCR voiced test compares without a log per frame.
+    private final double onPower;
+    private final double maxZeroCrossingRate;
+    private final int levelIntervalFrames;
+
+    // Sliding window of per-frame values (dBFS, or 0/1 voiced flags in
+    // ENERGY_ZCR mode). Audio thread only.
+    private final double[] window;
+    private int windowIndex = 0;
+    private int windowCount = 0;
+    private double windowSum = 0.0;
     private boolean speaking = false;
 
+    // Squared RMS summed over the level interval; reported as RMS dBFS.
+    private double levelPowerSum = 0.0;
+    private int levelFrames = 0;
+
     public SpeechActivityDetector(@NonNull Delegate delegate) {
+        this(delegate, null, new Config());
+    }
+
+    public SpeechActivityDetector(@NonNull Delegate delegate,
+            @Nullable LevelListener levelListener, @NonNull Config config) {
         this.delegate = delegate;
+        this.levelListener = levelListener;
+        this.mode = config.mode;
+        this.onDbfs = config.thresholdDbfs;
+        this.offDbfs = config.thresholdDbfs - config.hysteresisDb;
+        this.onPower = dbfsToPower(config.thresholdDbfs);
+        this.maxZeroCrossingRate = config.maxZeroCrossingRate;
+        this.levelIntervalFrames = config.levelIntervalMs > 0
+                ? Math.max(1, config.levelIntervalMs / FRAME_MS) : 0;
+        this.window = new double[Math.max(1, config.windowMs / FRAME_MS)];
+    }
+
+    private static double dbfsToPower(double dbfs) {
+        return Math.pow(10.0, dbfs / 10.0) * FULL_SCALE_POWER;
     }
 
     @Override
@@ -41,47 +147,63 @@ public class SpeechActivityDetector implements SamplesReadyCallback {
         final int channels = samples.getChannelCount();
         if (data == null || data.length < 2 || channels < 1) return;
 
-        // 16-bit signed little-endian PCM.
-        final int sampleCount = data.length / 2;
+        // 16-bit signed little-endian interleaved PCM.
+        final int frames = data.length / 2 / channels;
+        if (frames == 0) return;
+        final int sampleCount = frames * channels;
         long sumSq = 0;
-        for (int i = 0; i < sampleCount; i++) {
-            final int lo = data[i * 2] & 0xff;
-            final int hi = data[i * 2 + 1];
-            final short s = (short) ((hi << 8) | lo);
-            sumSq += (long) s * (long) s;
+        int zeroCrossings = 0;
+        int previous = 0;
+        int i = 0;
+        for (int f = 0; f < frames; f++) {
+            // Crossings are counted on the downmix; interleaved channels
+            // would otherwise register a crossing between every pair.
+            int mono = 0;
+            for (int c = 0; c < channels; c++, i++) {
+                final int lo = data[i * 2] & 0xff;
+                final int hi = data[i * 2 + 1];
+                final short s = (short) ((hi << 8) | lo);
+                sumSq += (long) s * (long) s;
+                mono += s;
+            }
+            if ((mono ^ previous) < 0) {
+                zeroCrossings++;
+            }
+            previous = mono;
         }
         final double meanSq = (double) sumSq / (double) sampleCount;
+        // Digital silence (muted or not yet running) carries no level.
         if (meanSq <= 0) return;
-        final double rms = Math.sqrt(meanSq);
-        final double dbfs = 20.0 * Math.log10(rms / 32768.0);
-
-        final long nowNs = System.nanoTime();
-        window.addLast(new long[] {nowNs, Double.doubleToRawLongBits(dbfs)});
-        while (!window.isEmpty() && (nowNs - window.peekFirst()[0]) > WINDOW_NS) {
-            window.pollFirst();
-        }
 
-        // Average dBFS across the window. With short windows of silence
-        // suppressing the average toward -inf, a transition still fires
-        // crisply on the threshold crossing.
-        double sum = 0.0;
-        int count = 0;
-        for (long[] entry : window) {
-            sum += Double.longBitsToDouble(entry[1]);
-            count++;
+        final double value;
+        if (mode == Mode.ENERGY_ZCR) {
+            final double zcr = (double) zeroCrossings / frames;
+            value = (meanSq >= onPower && zcr <= maxZeroCrossingRate) ? 1.0 : 0.0;
+        } else {
+            // 10 log10 of the squared RMS, i.e. the frame's RMS level in dBFS.
+            value = 10.0 * Math.log10(meanSq / FULL_SCALE_POWER);
         }
-        if (count == 0) return;
-        final double avg = sum / count;
+        push(value);
+        final double avg = windowSum / windowCount;
 
         final boolean wasSpeaking = speaking;
-        if (!wasSpeaking && avg >= THRESHOLD_DBFS) {
+        final boolean start;
+        final boolean end;
+        if (mode == Mode.ENERGY_ZCR) {
+            start = avg >= VOICED_RATIO_ON;
+            end = avg < VOICED_RATIO_OFF;
+        } else {
+            start = avg >= onDbfs;
+            end = avg < offDbfs;
+        }
+        if (!wasSpeaking && start) {
             speaking = true;
             try {
                 delegate.onSpeechActivityChanged(true);
             } catch (Throwable t) {
                 Log.w(TAG, "delegate(started) threw: " + t);
             }
-        } else if (wasSpeaking && avg < THRESHOLD_DBFS) {
+        } else if (wasSpeaking && end) {
             speaking = false;
             try {
                 delegate.onSpeechActivityChanged(false);
@@ -89,5 +211,41 @@ public class SpeechActivityDetector implements SamplesReadyCallback {
                 Log.w(TAG, "delegate(ended) threw: " + t);
             }
         }
+
+        if (levelListener != null && levelIntervalFrames > 0) {
+            levelPowerSum += meanSq;
+            if (++levelFrames >= levelIntervalFrames) {
+                final double meanPower = levelPowerSum / levelFrames;
+                final double dbfs = meanPower > 0
+                        ? Math.max(SILENCE_DBFS, 10.0 * Math.log10(meanPower / FULL_SCALE_POWER))
+                        : SILENCE_DBFS;
+                levelPowerSum = 0.0;
+                levelFrames = 0;
+                try {
+                    levelListener.onAudioLevel(dbfs, speaking);
+                } catch (Throwable t) {
+                    Log.w(TAG, "levelListener threw: " + t);
+                }
+            }
+        }
+    }
+
+    private void push(double value) {
+        if (windowCount < window.length) {
+            windowCount++;
+        } else {
+            windowSum -= window[windowIndex];
+        }
+        window[windowIndex] = value;
+        windowSum += value;
+        if (++windowIndex == window.length) {
+            windowIndex = 0;
+            // Re-derive the sum once per lap so floating-point error cannot accumulate.
+            double sum = 0.0;
+            for (int i = 0; i < windowCount; i++) {
+                sum += window[i];
+            }
+            windowSum = sum;
+        }
     }
 }
@@ -4,260 +4,447 @@ import android.media.MediaCodec;
 import android.media.MediaCodecInfo;
 import android.media.MediaFormat;
 import android.media.MediaMuxer;
+import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
+import io.getstream.webrtc.flutter.audio.AudioResampler;
+
 import org.webrtc.audio.JavaAudioDeviceModule;
 import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Audio-only recorder: AAC in MP4, or Opus in Ogg (WebM when the path ends
+ * in {@code .webm}).
+ *
+ * The 10 ms capture callbacks only copy PCM into a pooled chunk of
+ * {@link RecordingOptions#audioBatchMs}; the audio thread is woken once per
+ * full chunk and feeds it to an asynchronous {@link MediaCodec}, splitting it
+ * over as many input buffers as needed. Timestamps follow the sample count,
+ * so samples skipped while paused leave no gap.
+ */
 class AudioFileRenderer implements SamplesReadyCallback {
     private static final String TAG = "AudioFileRenderer";
+    // Chunks ready or being filled before new samples are dropped.
+    private static final int MAX_CHUNKS = 8;
+    // Sample rates the Opus encoder accepts; anything else is resampled to 48 kHz.
+    private static final int[] OPUS_SAMPLE_RATES = {8000, 12000, 16000, 24000, 48000};
+
+    /** PCM bytes on their way to the encoder, reused once consumed. */
+    private static final class Chunk {
+        final byte[] data;
+        int size;
+        int offset;
+        long ptsUs;
+
+        Chunk(int capacity) {
+            data = new byte[capacity];
+        }
+    }
+
     private final HandlerThread audioThread;
     private final Handler audioThreadHandler;
-    private ByteBuffer[] audioInputBuffers;
-    private ByteBuffer[] audioOutputBuffers;
-
-    private final MediaMuxer mediaMuxer;
-    private MediaCodec.BufferInfo audioBufferInfo;
-    private int audioTrackIndex = -1;
-    private boolean isRunning = true;
+    private final SegmentedMuxer mediaMuxer;
+    private final RecordingOptions options;
+    private final boolean opus;
+
+    private volatile boolean isRunning = true;
+    // Samples are timed by count, so skipping them while paused leaves no gap.
+    private volatile boolean paused = false;
+
+    // Capture thread state, guarded by chunkLock together with the queues.
+    private final Object chunkLock = new Object();
+    private final ArrayDeque<Chunk> freeChunks = new ArrayDeque<>();
+    private final ArrayDeque<Chunk> readyChunks = new ArrayDeque<>();
+    private int allocatedChunks = 0;
+    private Chunk filling;
+    private int sampleRate = -1;
+    private int channelCount = -1;
+    private int inputSampleRate = -1;
+    private long samplesQueued = 0;
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private AudioResampler resampler;
+    private short[] resampleIn = new short[0];
+    private short[] resampleOut = new short[0];
+    private byte[] resampleBytes = new byte[0];
+    private int chunkBytes;
+
+    // Audio thread state.
     private MediaCodec audioEncoder;
-    private boolean audioEncoderStarted = false;
-    private volatile boolean muxerStarted = false;
+    private final ArrayDeque<Integer> freeInputBuffers = new ArrayDeque<>();
+    private int audioTrackIndex = -1;
+    private boolean endOfStreamQueued = false;
+    private final CountDownLatch endOfStream = new CountDownLatch(1);
+
+    private final Runnable feedEncoder = this::feedEncoder;
 
     AudioFileRenderer(String outputFile) throws IOException {
+        this(outputFile, new RecordingOptions(), null);
+    }
+
+    AudioFileRenderer(String outputFile, RecordingOptions options,
+                      @Nullable SegmentedMuxer.Listener segmentListener) throws IOException {
+        this.options = options;
+        this.opus = options.audioCodec == RecordingOptions.AudioCodec.OPUS;
+        if (opus && Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            // AAC would end up in an MP4 under the caller's .ogg/.webm name.
+            throw new IllegalArgumentException("Opus recording needs Android 10 or later");
+        }
+
         audioThread = new HandlerThread(TAG + "AudioThread");
         audioThread.start();
         audioThreadHandler = new Handler(audioThread.getLooper());
 
-        // Create a MediaMuxer for audio-only recording
-        mediaMuxer = new MediaMuxer(outputFile, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        int outputFormat = MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4;
+        if (opus) {
+            outputFormat = outputFile.toLowerCase().endsWith(".webm")
+                    ? MediaMuxer.OutputFormat.MUXER_OUTPUT_WEBM
+                    : MediaMuxer.OutputFormat.MUXER_OUTPUT_OGG;
+        }
+        mediaMuxer = new SegmentedMuxer(outputFile, outputFormat, 1,
+                options.segmentDurationMs, options.segmentMaxBytes, segmentListener);
     }
 
-    /**
-     * Release all resources. All already posted audio samples will be processed
-     * first.
-     */
-    void release() {
-        isRunning = false;
-        CountDownLatch latch = new CountDownLatch(1);
+    void pause() {
+        paused = true;
+    }
 
-        audioThreadHandler.post(() -> {
-            try {
-                // First, stop the encoder if it's running
-                if (audioEncoder != null && audioEncoderStarted) {
-                    try {
-                        // Signal end of stream with timeout
-                        int inputBufferIndex = audioEncoder.dequeueInputBuffer(10000); // 10ms timeout
-                        if (inputBufferIndex >= 0) {
-                            audioEncoder.queueInputBuffer(inputBufferIndex, 0, 0, 0,
-                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                        }
-
-                        // Drain remaining data
-                        drainAudio();
-
-                        audioEncoder.stop();
-                        audioEncoderStarted = false;
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error stopping audio encoder", e);
-                    }
-                }
+    void resume() {
+        paused = false;
+    }
 
-                // Release encoder
-                if (audioEncoder != null) {
-                    try {
-                        audioEncoder.release();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error releasing audio encoder", e);
-                    }
-                    audioEncoder = null;
-                }
+    /** Samples discarded because the encoder fell behind by more than the chunk pool. */
+    long getDroppedSamples() {
+        return droppedSamples.get();
+    }
 
-                // Stop and release muxer only if it was properly started
-                try {
-                    if (muxerStarted && audioTrackIndex != -1) {
-                        mediaMuxer.stop();
-                        muxerStarted = false;
-                    }
-                    mediaMuxer.release();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error stopping/releasing MediaMuxer", e);
-                }
+    @Override
+    public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
+        if (!isRunning || paused)
+            return;
 
-            } catch (Exception e) {
-                Log.e(TAG, "Error during release", e);
-            } finally {
-                try {
-                    audioThread.quit();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error quitting audio thread", e);
-                }
-                latch.countDown();
+        boolean chunkReady;
+        synchronized (chunkLock) {
+            if (sampleRate == -1) {
+                configure(audioSamples.getSampleRate(), audioSamples.getChannelCount());
+            } else if (audioSamples.getSampleRate() != inputSampleRate
+                    || audioSamples.getChannelCount() != channelCount) {
+                // The encoder is configured for the first format it saw.
+                droppedSamples.addAndGet(audioSamples.getData().length / 2);
+                return;
             }
-        });
+            byte[] data = audioSamples.getData();
+            chunkReady = resampler != null
+                    ? appendResampled(data, data.length)
+                    : append(data, 0, data.length);
+        }
+        if (chunkReady) {
+            audioThreadHandler.post(feedEncoder);
+        }
+    }
 
-        try {
-            // Wait for cleanup with timeout to prevent ANR
-            if (!latch.await(2, java.util.concurrent.TimeUnit.SECONDS)) {
-                Log.w(TAG, "Release timed out, proceeding anyway");
+    /** Called with chunkLock held, on the first samples. */
+    private void configure(int rate, int channels) {
+        inputSampleRate = rate;
+        channelCount = channels;
+        sampleRate = rate;
+        if (opus && !isOpusRate(rate)) {
+            sampleRate = 48000;
+            resampler = new AudioResampler();
+            resampler.configure(rate, channels, sampleRate, channels);
+        }
+        final int outRate = sampleRate;
+        chunkBytes = Math.max(1, outRate * options.audioBatchMs / 1000) * channels * 2;
+        for (int i = 0; i < 2; i++) {
+            freeChunks.add(new Chunk(chunkBytes));
+        }
+        allocatedChunks = 2;
+        audioThreadHandler.post(() -> startEncoder(outRate, channels));
+    }
+
+    private static boolean isOpusRate(int rate) {
+        for (int supported : OPUS_SAMPLE_RATES) {
+            if (supported == rate) {
+                return true;
             }
-        } catch (InterruptedException e) {
-            Log.e(TAG, "Release interrupted", e);
-            Thread.currentThread().interrupt();
         }
+        return false;
     }
 
-    private long presTime = 0L;
-
-    private void drainAudio() {
-        if (audioBufferInfo == null)
-            audioBufferInfo = new MediaCodec.BufferInfo();
-
-        while (isRunning && audioEncoder != null) {
-            int encoderStatus = audioEncoder.dequeueOutputBuffer(audioBufferInfo, 100); // 100ms timeout
-            if (encoderStatus == MediaCodec.INFO_TRY_AGAIN_LATER) {
-                break;
-            } else if (encoderStatus == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
-                audioOutputBuffers = audioEncoder.getOutputBuffers();
-                Log.w(TAG, "audio encoder output buffers changed");
-            } else if (encoderStatus == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-                MediaFormat newFormat = audioEncoder.getOutputFormat();
-                Log.i(TAG, "audio encoder output format changed: " + newFormat);
-
-                if (audioTrackIndex == -1) {
-                    audioTrackIndex = mediaMuxer.addTrack(newFormat);
-                    if (audioTrackIndex != -1 && !muxerStarted) {
-                        mediaMuxer.start();
-                        muxerStarted = true;
-                        Log.i(TAG, "MediaMuxer started for audio recording");
-                    }
+    /**
+     * Copies PCM into the chunk being filled. Called with chunkLock held.
+     *
+     * @return true if a chunk became ready
+     */
+    private boolean append(byte[] data, int offset, int length) {
+        boolean ready = false;
+        while (length > 0) {
+            if (filling == null) {
+                filling = obtainChunk();
+                if (filling == null) {
+                    droppedSamples.addAndGet(length / 2);
+                    return ready;
                 }
-                if (!muxerStarted)
-                    break;
-            } else if (encoderStatus < 0) {
-                Log.e(TAG, "unexpected result from audio encoder.dequeueOutputBuffer: " + encoderStatus);
-            } else { // encoderStatus >= 0
-                try {
-                    ByteBuffer encodedData = audioOutputBuffers[encoderStatus];
-                    if (encodedData == null) {
-                        Log.e(TAG, "audio encoderOutputBuffer " + encoderStatus + " was null");
-                        break;
-                    }
+                filling.size = 0;
+                filling.offset = 0;
+                filling.ptsUs = samplesQueued * 1_000_000L / sampleRate;
+            }
+            int count = Math.min(length, filling.data.length - filling.size);
+            System.arraycopy(data, offset, filling.data, filling.size, count);
+            filling.size += count;
+            samplesQueued += count / (2 * channelCount);
+            offset += count;
+            length -= count;
+            if (filling.size == filling.data.length) {
+                readyChunks.addLast(filling);
+                filling = null;
+                ready = true;
+            }
+        }
+        return ready;
+    }
 
-                    // Adjust ByteBuffer values to match BufferInfo
-                    encodedData.position(audioBufferInfo.offset);
-                    encodedData.limit(audioBufferInfo.offset + audioBufferInfo.size);
+    private boolean appendResampled(byte[] data, int length) {
+        final int inFrames = length / (2 * channelCount);
+        final int inSamples = inFrames * channelCount;
+        if (resampleIn.length < inSamples) {
+            resampleIn = new short[inSamples];
+        }
+        for (int i = 0; i < inSamples; i++) {
+            resampleIn[i] = (short) ((data[2 * i] & 0xff) | (data[2 * i + 1] << 8));
+        }
+        final int maxOut = (int) ((long) inFrames * sampleRate / inputSampleRate) + 2;
+        if (resampleOut.length < maxOut * channelCount) {
+            resampleOut = new short[maxOut * channelCount];
+        }
+        final int produced = resampler.process(resampleIn, inFrames, resampleOut, maxOut);
+        final int outSamples = produced * channelCount;
+        if (resampleBytes.length < outSamples * 2) {
+            resampleBytes = new byte[outSamples * 2];
+        }
+        for (int i = 0; i < outSamples; i++) {
+            resampleBytes[2 * i] = (byte) resampleOut[i];
+            resampleBytes[2 * i + 1] = (byte) (resampleOut[i] >> 8);
+        }
+        return append(resampleBytes, 0, outSamples * 2);
+    }
 
-                    if (muxerStarted && audioTrackIndex != -1) {
-                        mediaMuxer.writeSampleData(audioTrackIndex, encodedData, audioBufferInfo);
-                    }
+    @Nullable
+    private Chunk obtainChunk() {
+        Chunk chunk = freeChunks.pollFirst();
+        if (chunk == null && allocatedChunks < MAX_CHUNKS) {
+            allocatedChunks++;
+            chunk = new Chunk(chunkBytes);
+        }
+        return chunk;
+    }
 
-                    audioEncoder.releaseOutputBuffer(encoderStatus, false);
+    private void startEncoder(int rate, int channels) {
+        if (!isRunning) {
+            // Released before the encoder started: nothing to drain.
+            endOfStream.countDown();
+            return;
+        }
+        String mime = opus ? MediaFormat.MIMETYPE_AUDIO_OPUS : MediaFormat.MIMETYPE_AUDIO_AAC;
+        int bitrate = options.audioBitrate > 0 ? options.audioBitrate : (opus ? 32000 : 128 * 1024);
+        try {
+            MediaFormat format = MediaFormat.createAudioFormat(mime, rate, channels);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+            if (!opus) {
+                format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            }
+            Log.i(TAG, "Configuring audio encoder with format: " + format);
+            audioEncoder = MediaCodec.createEncoderByType(mime);
+            // Created on the audio thread, so callbacks arrive on its looper.
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                audioEncoder.setCallback(encoderCallback, audioThreadHandler);
+            } else {
+                audioEncoder.setCallback(encoderCallback);
+            }
+            audioEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            audioEncoder.start();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start " + mime + " encoder", e);
+            if (audioEncoder != null) {
+                audioEncoder.release();
+                audioEncoder = null;
+            }
+            isRunning = false;
+            endOfStream.countDown();
+        }
+    }
 
-                    if ((audioBufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                        Log.i(TAG, "End of audio stream reached");
-                        break;
+    /** Moves ready PCM into free encoder input buffers. Audio thread only. */
+    private void feedEncoder() {
+        final MediaCodec codec = audioEncoder;
+        if (codec == null) {
+            return;
+        }
+        while (!freeInputBuffers.isEmpty()) {
+            Chunk chunk;
+            synchronized (chunkLock) {
+                chunk = readyChunks.peekFirst();
+            }
+            if (chunk == null) {
+                if (!isRunning && !endOfStreamQueued) {
+                    // Everything captured is queued; finish the stream.
+                    long ptsUs;
+                    synchronized (chunkLock) {
+                        ptsUs = sampleRate > 0 ? samplesQueued * 1_000_000L / sampleRate : 0;
                     }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error processing audio data", e);
-                    break;
+                    codec.queueInputBuffer(freeInputBuffers.pollFirst(), 0, 0, ptsUs,
+                            MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                    endOfStreamQueued = true;
+                }
+                return;
+            }
+            int index = freeInputBuffers.pollFirst();
+            ByteBuffer input = codec.getInputBuffer(index);
+            if (input == null) {
+                // Hand the index back empty, or the codec runs out of inputs.
+                codec.queueInputBuffer(index, 0, 0, 0, 0);
+                continue;
+            }
+            input.clear();
+            int count = Math.min(input.remaining(), chunk.size - chunk.offset);
+            long ptsUs = chunk.ptsUs + (long) chunk.offset / (2 * channelCount) * 1_000_000L / sampleRate;
+            input.put(chunk.data, chunk.offset, count);
+            chunk.offset += count;
+            codec.queueInputBuffer(index, 0, count, ptsUs, 0);
+            if (chunk.offset >= chunk.size) {
+                synchronized (chunkLock) {
+                    readyChunks.pollFirst();
+                    freeChunks.addLast(chunk);
                 }
             }
         }
     }
 
-    @Override
-    public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
-        if (!isRunning)
-            return;
+    private final MediaCodec.Callback encoderCallback = new MediaCodec.Callback() {
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            if (codec != audioEncoder) {
+                return;
+            }
+            freeInputBuffers.addLast(index);
+            feedEncoder();
+        }
 
-        audioThreadHandler.post(() -> {
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            if (codec != audioEncoder) {
+                return;
+            }
             try {
-                // Check if we're still running before processing
-                if (!isRunning) {
-                    return;
+                boolean codecConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                ByteBuffer encodedData = codec.getOutputBuffer(index);
+                if (encodedData != null && !codecConfig && info.size > 0 && audioTrackIndex != -1) {
+                    encodedData.position(info.offset);
+                    encodedData.limit(info.offset + info.size);
+                    mediaMuxer.writeSampleData(audioTrackIndex, encodedData, info);
                 }
+                codec.releaseOutputBuffer(index, false);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Audio encoder output after stop: " + e.getMessage());
+            }
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                Log.i(TAG, "End of audio stream reached");
+                endOfStream.countDown();
+            }
+        }
 
-                // Initialize audio encoder if not already done
-                if (audioEncoder == null) {
-                    initializeAudioEncoder(audioSamples);
-                }
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            Log.e(TAG, "Audio encoder error: " + e.getDiagnosticInfo(), e);
+            // No end of stream will follow; don't keep release() waiting.
+            endOfStream.countDown();
+        }
 
-                if (audioEncoder == null || !audioEncoderStarted) {
-                    Log.e(TAG, "Failed to initialize audio encoder or encoder not started");
-                    return;
-                }
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            if (codec != audioEncoder) {
+                return;
+            }
+            Log.i(TAG, "audio encoder output format changed: " + format);
+            if (audioTrackIndex == -1) {
+                audioTrackIndex = mediaMuxer.addTrack(format);
+            }
+        }
+    };
 
-                // Get input buffer and write audio data
-                int bufferIndex = audioEncoder.dequeueInputBuffer(100); // 100ms timeout
-                if (bufferIndex >= 0) {
-                    ByteBuffer buffer = audioInputBuffers[bufferIndex];
-                    buffer.clear();
-
-                    byte[] data = audioSamples.getData();
-                    if (data.length <= buffer.remaining()) {
-                        buffer.put(data);
-
-                        // Calculate presentation time (microseconds)
-                        // Assuming 16-bit samples: data.length bytes / 2 bytes per sample / sample rate
-                        // * 1000000
-                        long frameTime = (long) data.length * 1000000L
-                                / (2 * audioSamples.getSampleRate() * audioSamples.getChannelCount());
-
-                        audioEncoder.queueInputBuffer(bufferIndex, 0, data.length, presTime, 0);
-                        presTime += frameTime;
-                    } else {
-                        Log.w(TAG, "Audio data too large for buffer: " + data.length + " bytes, buffer capacity: "
-                                + buffer.remaining());
-                        audioEncoder.queueInputBuffer(bufferIndex, 0, 0, presTime, 0);
-                    }
-                } else {
-                    Log.w(TAG, "No input buffer available for audio data");
-                }
+    /**
+     * Release all resources. Samples captured so far, including a partly
+     * filled chunk, are encoded first.
+     */
+    void release() {
+        isRunning = false;
+        synchronized (chunkLock) {
+            if (sampleRate == -1) {
+                // No samples arrived, so there is no encoder to drain.
+                endOfStream.countDown();
+            }
+            if (filling != null && filling.size > 0) {
+                readyChunks.addLast(filling);
+            }
+            filling = null;
+        }
+        audioThreadHandler.post(() -> {
+            // Runs after a pending startEncoder(); without an encoder there is
+            // no end of stream to wait for.
+            if (audioEncoder == null) {
+                endOfStream.countDown();
+            } else {
+                feedEncoder();
+            }
+        });
+        try {
+            // Wait for the encoder to drain with a timeout to prevent ANR.
+            if (!endOfStream.await(2, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Audio encoder did not drain in time, proceeding anyway");
+            }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Release interrupted", e);
+            Thread.currentThread().interrupt();
+        }
 
-                // Drain encoded audio data only if still running
-                if (isRunning) {
-                    drainAudio();
+        CountDownLatch latch = new CountDownLatch(1);
+        audioThreadHandler.post(() -> {
+            try {
+                if (audioEncoder != null) {
+                    MediaCodec codec = audioEncoder;
+                    audioEncoder = null;
+                    try {
+                        codec.stop();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error stopping audio encoder", e);
+                    }
+                    codec.release();
                 }
-
+                mediaMuxer.release();
             } catch (Exception e) {
-                Log.e(TAG, "Error processing audio samples", e);
+                Log.e(TAG, "Error during release", e);
+            } finally {
+                audioThread.quit();
+                latch.countDown();
             }
         });
-    }
-
-    private void initializeAudioEncoder(JavaAudioDeviceModule.AudioSamples audioSamples) {
         try {
-            audioEncoder = MediaCodec.createEncoderByType("audio/mp4a-latm");
-
-            MediaFormat format = new MediaFormat();
-            format.setString(MediaFormat.KEY_MIME, "audio/mp4a-latm");
-            format.setInteger(MediaFormat.KEY_CHANNEL_COUNT, audioSamples.getChannelCount());
-            format.setInteger(MediaFormat.KEY_SAMPLE_RATE, audioSamples.getSampleRate());
-            format.setInteger(MediaFormat.KEY_BIT_RATE, 128 * 1024); // 128 kbps
-            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
-
-            Log.i(TAG, "Configuring audio encoder with format: " + format);
-
-            audioEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
-            audioEncoder.start();
-
-            audioInputBuffers = audioEncoder.getInputBuffers();
-            audioOutputBuffers = audioEncoder.getOutputBuffers();
-            audioEncoderStarted = true;
-
-            Log.i(TAG, "Audio encoder initialized successfully");
-
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to create audio encoder", e);
-            audioEncoder = null;
+            if (!latch.await(2, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Release timed out, proceeding anyway");
+            }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Release interrupted", e);
+            Thread.currentThread().interrupt();
         }
     }
 }
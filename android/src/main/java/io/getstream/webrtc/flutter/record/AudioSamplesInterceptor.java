@@ -1,11 +1,10 @@
 package io.getstream.webrtc.flutter.record;
 
-import android.annotation.SuppressLint;
-
 import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
 import org.webrtc.audio.JavaAudioDeviceModule.AudioSamples;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** JavaAudioDeviceModule allows attaching samples callback only on building
  *  We don't want to instantiate VideoFileRenderer and codecs at this step
@@ -13,8 +12,8 @@ import java.util.HashMap;
 @SuppressWarnings("WeakerAccess")
 public class AudioSamplesInterceptor implements SamplesReadyCallback {
 
-    @SuppressLint("UseSparseArrays")
-    protected final HashMap<Integer, SamplesReadyCallback> callbacks = new HashMap<>();
+    // Attached from the platform thread while the audio thread iterates.
+    protected final Map<Integer, SamplesReadyCallback> callbacks = new ConcurrentHashMap<>();
 
     @Override
     public void onWebRtcAudioRecordSamplesReady(AudioSamples audioSamples) {
@@ -0,0 +1,845 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.opengl.GLES20;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Surface;
+
+import androidx.annotation.Nullable;
+
+import io.getstream.webrtc.flutter.audio.AudioBufferMixer;
+import io.getstream.webrtc.flutter.audio.AudioResampler;
+import io.getstream.webrtc.flutter.audio.AudioRingBuffer;
+import io.getstream.webrtc.flutter.audio.LocalAudioTrack;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+import io.getstream.webrtc.flutter.utils.EglUtils;
+
+import org.webrtc.AudioTrack;
+import org.webrtc.AudioTrackSink;
+import org.webrtc.EglBase;
+import org.webrtc.GlRectDrawer;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records several tracks into one file through a single encoder.
+ *
+ * Every video track feeds a tile that keeps only its latest frame. One
+ * render thread draws all tiles into the encoder's input surface at a fixed
+ * output cadence, so tracks that stall keep their last frame on screen and
+ * the output frame rate never depends on how many tracks are recorded.
+ * Audio tracks are resampled to 48 kHz mono, buffered per track and mixed
+ * every 10 ms into one AAC stream on the same timeline.
+ *
+ * Tiles are laid out in a grid, or in caller supplied rectangles given as
+ * {@code [x, y, width, height]} fractions of the output, top-left origin.
+ * Frames are scaled to fit their tile without cropping.
+ */
+public class CompositeRecorder {
+    private static final String TAG = "CompositeRecorder";
+
+    private static final int AUDIO_SAMPLE_RATE = 48000;
+    private static final int AUDIO_FRAME_MS = 10;
+    private static final int AUDIO_FRAME_SAMPLES = AUDIO_SAMPLE_RATE / 1000 * AUDIO_FRAME_MS;
+    private static final int AUDIO_FRAME_BYTES = AUDIO_FRAME_SAMPLES * 2;
+    // 200 ms per source absorbs jitter between the tracks' delivery threads.
+    private static final int AUDIO_BUFFER_FRAMES = 20;
+    // Frames produced at most per audio tick when catching up after a stall.
+    private static final int AUDIO_MAX_CATCH_UP = 10;
+    // How long release() waits for each encoder to flush its end of stream.
+    private static final long END_OF_STREAM_TIMEOUT_MS = 2000;
+
+    private final Integer id;
+    private final int requestedWidth;
+    private final int requestedHeight;
+    @Nullable
+    private final float[][] layout;
+    private final RecordingOptions options;
+    @Nullable
+    private final MediaRecorderImpl.SegmentListener segmentListener;
+
+    private final List<Tile> tiles = new ArrayList<>();
+    private final List<AudioInput> audioInputs = new ArrayList<>();
+
+    private HandlerThread renderThread;
+    private Handler renderHandler;
+    private HandlerThread audioThread;
+    private Handler audioHandler;
+
+    private SegmentedMuxer muxer;
+    private MediaCodec encoder;
+    private Surface surface;
+    private EglBase eglBase;
+    private GlRectDrawer drawer;
+    private VideoFrameDrawer frameDrawer;
+    private int outputWidth;
+    private int outputHeight;
+    private volatile int videoTrackIndex = -1;
+    // Counted down once the video encoder has emitted its end of stream.
+    private final CountDownLatch videoEndOfStream = new CountDownLatch(1);
+
+    private MediaCodec audioEncoder;
+    private final MediaCodec.BufferInfo audioBufferInfo = new MediaCodec.BufferInfo();
+    private int audioTrackIndex = -1;
+    private AudioBufferMixer mixer;
+    private ByteBuffer mixBuffer;
+    private long audioFramesProduced = 0;
+
+    private volatile boolean isRunning = false;
+    private boolean isPaused = false;
+    // Uptime at which tick 0 of each clock was due. Pausing shifts them
+    // forward by the pause, so both tracks continue without a gap.
+    private long renderStartMs;
+    private long audioStartMs;
+    private long renderPausedAtMs;
+    private long audioPausedAtMs;
+    private long frameIntervalNs;
+    private long ticks = 0;
+
+    private final Object frameLock = new Object();
+    private int inFlightFrames = 0;
+    private volatile long encodedFrames = 0;
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    private File recordFile;
+
+    /**
+     * @param width  output width; may be aligned down to what the encoder supports
+     * @param height output height
+     * @param layout one {@code [x, y, width, height]} rectangle per video track,
+     *               or null for a grid
+     */
+    public CompositeRecorder(Integer id, int width, int height, @Nullable float[][] layout,
+            RecordingOptions options, @Nullable MediaRecorderImpl.SegmentListener segmentListener) {
+        this.id = id;
+        this.requestedWidth = width;
+        this.requestedHeight = height;
+        this.layout = layout;
+        this.options = options;
+        this.segmentListener = segmentListener;
+    }
+
+    /** Adds a tile for {@code track}; call before {@link #startRecording}. */
+    public void addVideoTrack(VideoTrack track) {
+        tiles.add(new Tile(track));
+    }
+
+    /** Mixes a local audio track into the recording; call before {@link #startRecording}. */
+    public void addAudioTrack(LocalAudioTrack track) {
+        final AudioInput input = new AudioInput();
+        input.attach = () -> track.addSink(input);
+        input.detach = () -> track.removeSink(input);
+        audioInputs.add(input);
+    }
+
+    /** Mixes a remote audio track into the recording; call before {@link #startRecording}. */
+    public void addAudioTrack(AudioTrack track) {
+        final AudioInput input = new AudioInput();
+        input.attach = () -> track.addSink(input);
+        input.detach = () -> track.removeSink(input);
+        audioInputs.add(input);
+    }
+
+    public File getRecordFile() {
+        return recordFile;
+    }
+
+    public void startRecording(File file) throws Exception {
+        if (isRunning) {
+            return;
+        }
+        if (tiles.isEmpty()) {
+            throw new Exception("Composite recording needs at least one video track");
+        }
+        if (layout != null && layout.length != tiles.size()) {
+            throw new Exception("Layout has " + layout.length + " rectangles for "
+                    + tiles.size() + " video tracks");
+        }
+        recordFile = file;
+        // noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+
+        boolean withAudio = !audioInputs.isEmpty();
+        muxer = new SegmentedMuxer(file.getAbsolutePath(),
+                MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4, withAudio ? 2 : 1,
+                options.segmentDurationMs, options.segmentMaxBytes, segmentCallback());
+
+        renderThread = new HandlerThread(TAG + "RenderThread");
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+
+        final boolean[] started = new boolean[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        renderHandler.post(() -> {
+            try {
+                started[0] = initVideoEncoder();
+            } finally {
+                latch.countDown();
+            }
+        });
+        latch.await();
+        if (!started[0]) {
+            renderThread.quit();
+            muxer.release();
+            throw new Exception("Failed to start the composite video encoder");
+        }
+        muxer.setKeyframeRequester(this::requestKeyframe);
+
+        isRunning = true;
+        frameIntervalNs = 1_000_000_000L / options.frameRate;
+        renderStartMs = SystemClock.uptimeMillis();
+        audioStartMs = renderStartMs;
+        for (Tile tile : tiles) {
+            tile.track.addSink(tile);
+        }
+        renderHandler.post(renderTick);
+
+        if (withAudio) {
+            mixer = new AudioBufferMixer(audioInputs.size(), AudioBufferMixer.ClipMode.LIMITER);
+            for (AudioInput input : audioInputs) {
+                input.slot = mixer.addInput(1f);
+            }
+            mixBuffer = ByteBuffer.allocate(AUDIO_FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            audioThread = new HandlerThread(TAG + "AudioThread");
+            audioThread.start();
+            audioHandler = new Handler(audioThread.getLooper());
+            for (AudioInput input : audioInputs) {
+                input.attach.run();
+            }
+            audioHandler.post(audioTick);
+        }
+    }
+
+    @Nullable
+    private SegmentedMuxer.Listener segmentCallback() {
+        if (segmentListener == null || !options.isSegmented()) {
+            return null;
+        }
+        return (path, index, durationUs, sizeBytes) ->
+                segmentListener.onSegmentCompleted(id, path, index, durationUs, sizeBytes);
+    }
+
+    private boolean initVideoEncoder() {
+        List<EncoderConfig> configs = new ArrayList<>(2);
+        EncoderConfig resolved = EncoderProbe.resolve(options, requestedWidth, requestedHeight);
+        if (resolved != null) {
+            configs.add(resolved);
+        }
+        int fallbackWidth = requestedWidth & ~15;
+        int fallbackHeight = requestedHeight & ~15;
+        configs.add(new EncoderConfig(MediaFormat.MIMETYPE_VIDEO_AVC, null,
+                fallbackWidth, fallbackHeight,
+                EncoderProbe.targetBitrate(options, MediaFormat.MIMETYPE_VIDEO_AVC,
+                        fallbackWidth, fallbackHeight, options.frameRate),
+                EncoderConfig.PROFILE_DEFAULT, options.frameRate,
+                options.keyFrameIntervalSec, -1, EncoderConfig.QUALITY_DEFAULT));
+        for (EncoderConfig config : configs) {
+            if (startEncoder(config)) {
+                outputWidth = config.width;
+                outputHeight = config.height;
+                return true;
+            }
+            releaseVideoEncoder();
+        }
+        return false;
+    }
+
+    private boolean startEncoder(EncoderConfig config) {
+        try {
+            MediaFormat format = MediaFormat.createVideoFormat(config.mimeType, config.width, config.height);
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, config.bitrate);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, config.frameRate);
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, config.keyFrameIntervalSec);
+            if (config.bitrateMode >= 0) {
+                format.setInteger(MediaFormat.KEY_BITRATE_MODE, config.bitrateMode);
+            }
+            if (config.quality != EncoderConfig.QUALITY_DEFAULT
+                    && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                format.setInteger(MediaFormat.KEY_QUALITY, config.quality);
+            }
+            if (config.profile != EncoderConfig.PROFILE_DEFAULT) {
+                format.setInteger(MediaFormat.KEY_PROFILE, config.profile);
+            }
+            Log.d(TAG, "Trying encoder config: " + config);
+
+            encoder = config.codecName != null
+                    ? MediaCodec.createByCodecName(config.codecName)
+                    : MediaCodec.createEncoderByType(config.mimeType);
+            // Called on the render thread, so callbacks arrive on its looper.
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                encoder.setCallback(encoderCallback, renderHandler);
+            } else {
+                encoder.setCallback(encoderCallback);
+            }
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            surface = encoder.createInputSurface();
+            encoder.start();
+
+            EglBase.Context shared = EglUtils.getRootEglBaseContext();
+            eglBase = EglBase.create(shared, EglBase.CONFIG_RECORDABLE);
+            eglBase.createSurface(surface);
+            eglBase.makeCurrent();
+            drawer = new GlRectDrawer();
+            frameDrawer = new VideoFrameDrawer();
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to start encoder for config: " + config + ", error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseVideoEncoder() {
+        if (frameDrawer != null) {
+            frameDrawer.release();
+            frameDrawer = null;
+        }
+        if (drawer != null) {
+            drawer.release();
+            drawer = null;
+        }
+        if (eglBase != null) {
+            eglBase.release();
+            eglBase = null;
+        }
+        if (encoder != null) {
+            try {
+                encoder.stop();
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to stop encoder", e);
+            }
+            encoder.release();
+            encoder = null;
+        }
+        if (surface != null) {
+            surface.release();
+            surface = null;
+        }
+    }
+
+    private void requestKeyframe() {
+        MediaCodec codec = encoder;
+        if (codec == null) {
+            return;
+        }
+        try {
+            Bundle params = new Bundle();
+            params.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+            codec.setParameters(params);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Failed to request keyframe: " + e.getMessage());
+        }
+    }
+
+    private final Runnable renderTick = new Runnable() {
+        @Override
+        public void run() {
+            if (!isRunning) {
+                return;
+            }
+            drawComposite(ticks * frameIntervalNs);
+            ticks++;
+            // Scheduled against the start time so delays don't accumulate.
+            renderHandler.postAtTime(this, renderStartMs + ticks * frameIntervalNs / 1_000_000);
+        }
+    };
+
+    private void drawComposite(long ptsNs) {
+        synchronized (frameLock) {
+            if (inFlightFrames >= options.maxInFlightFrames) {
+                droppedFrames.incrementAndGet();
+                return;
+            }
+            inFlightFrames++;
+        }
+        GLES20.glClearColor(0f, 0f, 0f, 1f);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        final int count = tiles.size();
+        final int columns = (int) Math.ceil(Math.sqrt(count));
+        final int rows = (count + columns - 1) / columns;
+        for (int i = 0; i < count; i++) {
+            VideoFrame frame = tiles.get(i).acquire();
+            if (frame == null) {
+                continue;
+            }
+            float x;
+            float y;
+            float w;
+            float h;
+            if (layout != null) {
+                x = layout[i][0] * outputWidth;
+                y = layout[i][1] * outputHeight;
+                w = layout[i][2] * outputWidth;
+                h = layout[i][3] * outputHeight;
+            } else {
+                w = (float) outputWidth / columns;
+                h = (float) outputHeight / rows;
+                x = (i % columns) * w;
+                y = (i / columns) * h;
+            }
+            drawFitted(frame, x, y, w, h);
+            frame.release();
+        }
+        eglBase.swapBuffers(ptsNs);
+    }
+
+    /** Draws {@code frame} centered in the given top-left based rectangle. */
+    private void drawFitted(VideoFrame frame, float x, float y, float w, float h) {
+        final int frameWidth = frame.getRotatedWidth();
+        final int frameHeight = frame.getRotatedHeight();
+        if (frameWidth <= 0 || frameHeight <= 0 || w < 1 || h < 1) {
+            return;
+        }
+        final float scale = Math.min(w / frameWidth, h / frameHeight);
+        final int drawWidth = Math.round(frameWidth * scale);
+        final int drawHeight = Math.round(frameHeight * scale);
+        final int left = Math.round(x + (w - drawWidth) / 2);
+        final int top = Math.round(y + (h - drawHeight) / 2);
+        // GL viewports have a bottom-left origin.
+        frameDrawer.drawFrame(frame, drawer, null, left,
+                outputHeight - top - drawHeight, drawWidth, drawHeight);
+    }
+
+    private final MediaCodec.Callback encoderCallback = new MediaCodec.Callback() {
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            // Input arrives through the surface.
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            if (codec != encoder) {
+                return;
+            }
+            try {
+                boolean codecConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                if (!codecConfig && info.size > 0) {
+                    synchronized (frameLock) {
+                        inFlightFrames = Math.max(0, inFlightFrames - 1);
+                    }
+                    encodedFrames++;
+                    ByteBuffer data = codec.getOutputBuffer(index);
+                    if (data != null && videoTrackIndex >= 0) {
+                        data.position(info.offset);
+                        data.limit(info.offset + info.size);
+                        muxer.writeSampleData(videoTrackIndex, data, info);
+                    }
+                }
+                codec.releaseOutputBuffer(index, false);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Encoder output after stop: " + e.getMessage());
+            }
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                videoEndOfStream.countDown();
+            }
+        }
+
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            Log.e(TAG, "Video encoder error: " + e.getDiagnosticInfo(), e);
+            // No end of stream will follow.
+            videoEndOfStream.countDown();
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            if (codec != encoder) {
+                return;
+            }
+            videoTrackIndex = muxer.addTrack(format);
+        }
+    };
+
+    private final Runnable audioTick = new Runnable() {
+        @Override
+        public void run() {
+            if (!isRunning) {
+                return;
+            }
+            long due = (SystemClock.uptimeMillis() - audioStartMs) / AUDIO_FRAME_MS;
+            if (due - audioFramesProduced > AUDIO_MAX_CATCH_UP) {
+                // Too far behind to catch up in real time; leave a gap.
+                audioFramesProduced = due - AUDIO_MAX_CATCH_UP;
+            }
+            while (audioFramesProduced < due) {
+                mixAndEncodeAudioFrame(audioFramesProduced * AUDIO_FRAME_MS * 1000);
+                audioFramesProduced++;
+            }
+            drainAudio(0);
+            audioHandler.postAtTime(this, audioStartMs + (audioFramesProduced + 1) * AUDIO_FRAME_MS);
+        }
+    };
+
+    private void mixAndEncodeAudioFrame(long ptsUs) {
+        if (audioEncoder == null && !startAudioEncoder()) {
+            return;
+        }
+        Arrays.fill(mixBuffer.array(), (byte) 0);
+        for (AudioInput input : audioInputs) {
+            ByteBuffer scratch = input.mixInput;
+            scratch.clear();
+            input.ring.read(scratch, AUDIO_FRAME_BYTES);
+            scratch.flip();
+            mixer.setInput(input.slot, scratch);
+        }
+        mixer.mix(mixBuffer, AUDIO_FRAME_BYTES);
+
+        int index = audioEncoder.dequeueInputBuffer(0);
+        if (index < 0) {
+            return;
+        }
+        ByteBuffer input = audioEncoder.getInputBuffer(index);
+        if (input == null) {
+            return;
+        }
+        input.clear();
+        mixBuffer.clear();
+        input.put(mixBuffer);
+        audioEncoder.queueInputBuffer(index, 0, AUDIO_FRAME_BYTES, ptsUs, 0);
+    }
+
+    private boolean startAudioEncoder() {
+        try {
+            audioEncoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            MediaFormat format = MediaFormat.createAudioFormat(
+                    MediaFormat.MIMETYPE_AUDIO_AAC, AUDIO_SAMPLE_RATE, 1);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, 64 * 1024);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            audioEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            audioEncoder.start();
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start audio encoder", e);
+            if (audioEncoder != null) {
+                audioEncoder.release();
+                audioEncoder = null;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Writes the audio encoder's pending output.
+     *
+     * @return whether the end of stream came out
+     */
+    private boolean drainAudio(long timeoutUs) {
+        if (audioEncoder == null) {
+            return true;
+        }
+        while (true) {
+            int status = audioEncoder.dequeueOutputBuffer(audioBufferInfo, timeoutUs);
+            if (status == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                return false;
+            } else if (status == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                audioTrackIndex = muxer.addTrack(audioEncoder.getOutputFormat());
+            } else if (status >= 0) {
+                ByteBuffer data = audioEncoder.getOutputBuffer(status);
+                boolean codecConfig = (audioBufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                if (data != null && !codecConfig && audioBufferInfo.size > 0 && audioTrackIndex >= 0) {
+                    data.position(audioBufferInfo.offset);
+                    data.limit(audioBufferInfo.offset + audioBufferInfo.size);
+                    muxer.writeSampleData(audioTrackIndex, data, audioBufferInfo);
+                }
+                audioEncoder.releaseOutputBuffer(status, false);
+                if ((audioBufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /** Audio thread: queues the end of stream and writes out the tail. */
+    private void finishAudioEncoder() {
+        if (audioEncoder == null) {
+            return;
+        }
+        final long deadlineMs = SystemClock.uptimeMillis() + END_OF_STREAM_TIMEOUT_MS;
+        try {
+            boolean queued = false;
+            while (!queued && SystemClock.uptimeMillis() < deadlineMs) {
+                int index = audioEncoder.dequeueInputBuffer(10_000);
+                if (index >= 0) {
+                    audioEncoder.queueInputBuffer(index, 0, 0, 0,
+                            MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                    queued = true;
+                } else {
+                    drainAudio(0);
+                }
+            }
+            boolean ended = !queued;
+            while (!ended && SystemClock.uptimeMillis() < deadlineMs) {
+                ended = drainAudio(10_000);
+            }
+            if (!ended || !queued) {
+                Log.w(TAG, "Audio encoder did not flush before the timeout");
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to flush audio encoder", e);
+        }
+        try {
+            audioEncoder.stop();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to stop audio encoder", e);
+        }
+        try {
+            audioEncoder.release();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to release audio encoder", e);
+        }
+        audioEncoder = null;
+    }
+
+    /** Stops producing output; encoders, muxer and track sinks stay attached. */
+    public void pauseRecording() {
+        if (!isRunning || isPaused) {
+            return;
+        }
+        isPaused = true;
+        final long now = SystemClock.uptimeMillis();
+        renderHandler.post(() -> {
+            renderHandler.removeCallbacks(renderTick);
+            renderPausedAtMs = now;
+        });
+        if (audioHandler != null) {
+            audioHandler.post(() -> {
+                audioHandler.removeCallbacks(audioTick);
+                audioPausedAtMs = now;
+            });
+        }
+    }
+
+    public void resumeRecording() {
+        if (!isRunning || !isPaused) {
+            return;
+        }
+        isPaused = false;
+        final long now = SystemClock.uptimeMillis();
+        renderHandler.post(() -> {
+            renderStartMs += now - renderPausedAtMs;
+            renderTick.run();
+        });
+        if (audioHandler != null) {
+            audioHandler.post(() -> {
+                audioStartMs += now - audioPausedAtMs;
+                // Drop what the tracks delivered during the pause.
+                for (AudioInput input : audioInputs) {
+                    input.ring.clear();
+                }
+                audioTick.run();
+            });
+        }
+    }
+
+    public ConstraintsMap getStats() {
+        ConstraintsMap stats = new ConstraintsMap();
+        stats.putLong("encodedFrames", encodedFrames);
+        stats.putLong("droppedFrames", droppedFrames.get());
+        synchronized (frameLock) {
+            stats.putInt("inFlightFrames", inFlightFrames);
+        }
+        return stats;
+    }
+
+    /** Detaches from all tracks, then finalizes the file off the caller's thread. */
+    public void stopRecording(Runnable onStopped) {
+        if (!isRunning) {
+            if (onStopped != null) {
+                onStopped.run();
+            }
+            return;
+        }
+        isRunning = false;
+        for (Tile tile : tiles) {
+            tile.track.removeSink(tile);
+        }
+        for (AudioInput input : audioInputs) {
+            try {
+                input.detach.run();
+            } catch (Throwable t) {
+                // The native track may already be disposed.
+                Log.w(TAG, "Failed to detach audio input: " + t);
+            }
+        }
+        new Thread(() -> {
+            release();
+            if (onStopped != null) {
+                onStopped.run();
+            }
+        }, TAG + "Release").start();
+    }
+
+    /**
+     * Flushes both encoders, then finalizes the file. The last GOP and the
+     * audio tail only reach the muxer once each encoder has emitted its end of
+     * stream, so the muxer is stopped after that, or after a timeout.
+     */
+    private void release() {
+        CountDownLatch latch = new CountDownLatch(audioHandler != null ? 2 : 1);
+        if (audioHandler != null) {
+            audioHandler.post(() -> {
+                try {
+                    finishAudioEncoder();
+                } finally {
+                    audioThread.quit();
+                    latch.countDown();
+                }
+            });
+        }
+        // The output callbacks run on the render thread, so wait from here.
+        renderHandler.post(() -> {
+            try {
+                if (encoder != null) {
+                    encoder.signalEndOfInputStream();
+                } else {
+                    videoEndOfStream.countDown();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to signal end of stream", e);
+                videoEndOfStream.countDown();
+            }
+        });
+        try {
+            if (!videoEndOfStream.await(END_OF_STREAM_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Video encoder did not flush before the timeout");
+            }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Release interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+        renderHandler.post(() -> {
+            try {
+                releaseVideoEncoder();
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to release video encoder", e);
+            }
+            try {
+                for (Tile tile : tiles) {
+                    tile.clear();
+                }
+            } finally {
+                renderThread.quit();
+                latch.countDown();
+            }
+        });
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Release interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+        try {
+            muxer.release();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to release muxer", e);
+        }
+    }
+
+    /** Holds the latest frame of one video track until the next composite is drawn. */
+    private static final class Tile implements VideoSink {
+        final VideoTrack track;
+        @Nullable
+        private VideoFrame latest;
+
+        Tile(VideoTrack track) {
+            this.track = track;
+        }
+
+        @Override
+        public void onFrame(VideoFrame frame) {
+            frame.retain();
+            VideoFrame previous;
+            synchronized (this) {
+                previous = latest;
+                latest = frame;
+            }
+            if (previous != null) {
+                previous.release();
+            }
+        }
+
+        /** The latest frame with an extra reference, or null before the first frame. */
+        @Nullable
+        synchronized VideoFrame acquire() {
+            if (latest != null) {
+                latest.retain();
+            }
+            return latest;
+        }
+
+        void clear() {
+            VideoFrame previous;
+            synchronized (this) {
+                previous = latest;
+                latest = null;
+            }
+            if (previous != null) {
+                previous.release();
+            }
+        }
+    }
+
+    /** Converts one audio track to 48 kHz mono and buffers it for the mixer. */
+    private static final class AudioInput implements AudioTrackSink {
+        final AudioRingBuffer ring = new AudioRingBuffer(AUDIO_FRAME_BYTES, AUDIO_BUFFER_FRAMES,
+                AudioRingBuffer.OverrunPolicy.DROP_OLDEST, AudioRingBuffer.UnderrunPolicy.FILL_SILENCE);
+        final ByteBuffer mixInput = ByteBuffer.allocate(AUDIO_FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final AudioResampler resampler = new AudioResampler();
+        private short[] samples = new short[0];
+        private short[] resampled = new short[0];
+        private ByteBuffer converted = ByteBuffer.allocate(0);
+        Runnable attach;
+        Runnable detach;
+        int slot;
+
+        @Override
+        public void onData(ByteBuffer audioData, int bitsPerSample, int sampleRate,
+                int numberOfChannels, int numberOfFrames, long absoluteCaptureTimestampMs) {
+            if (bitsPerSample != 16 || numberOfChannels <= 0 || sampleRate <= 0) {
+                return;
+            }
+            final int count = Math.min(numberOfFrames * numberOfChannels, audioData.remaining() / 2);
+            final int frames = count / numberOfChannels;
+            if (samples.length < count) {
+                samples = new short[count];
+            }
+            // Native buffers don't carry a byte order; PCM is little-endian.
+            final int start = audioData.position();
+            for (int i = 0; i < count; i++) {
+                final int offset = start + i * 2;
+                samples[i] = (short) ((audioData.get(offset) & 0xff) | (audioData.get(offset + 1) << 8));
+            }
+            resampler.configure(sampleRate, numberOfChannels, AUDIO_SAMPLE_RATE, 1);
+            final int maxOut = (int) ((long) frames * AUDIO_SAMPLE_RATE / sampleRate) + 2;
+            if (resampled.length < maxOut) {
+                resampled = new short[maxOut];
+                converted = ByteBuffer.allocate(maxOut * 2).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            final int produced = resampler.process(samples, frames, resampled, maxOut);
+            converted.clear();
+            converted.asShortBuffer().put(resampled, 0, produced);
+            converted.limit(produced * 2);
+            ring.write(converted);
+        }
+    }
+}
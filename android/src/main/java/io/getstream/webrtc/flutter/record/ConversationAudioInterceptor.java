@@ -0,0 +1,179 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.media.AudioFormat;
+
+import io.getstream.webrtc.flutter.audio.AudioBufferMixer;
+import io.getstream.webrtc.flutter.audio.AudioResampler;
+import io.getstream.webrtc.flutter.audio.AudioRingBuffer;
+import io.getstream.webrtc.flutter.audio.PlaybackSamplesReadyCallbackAdapter;
+import io.getstream.webrtc.flutter.audio.RecordSamplesReadyCallbackAdapter;
+
+import org.webrtc.audio.JavaAudioDeviceModule.AudioSamples;
+import org.webrtc.audio.JavaAudioDeviceModule.PlaybackSamplesReadyCallback;
+import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Delivers both sides of a call as one stream: playback is mixed into the
+ * microphone samples before they reach the attached recorders, so a
+ * conversation recording needs a single encoder.
+ *
+ * Both streams are converted to 48 kHz mono. The microphone clocks the
+ * output; playback goes through a small jitter buffer that is primed with
+ * {@link #PRIME_FRAMES} frames before it is read, re-primed after an
+ * underrun and trimmed when playout runs ahead. While the microphone is not
+ * capturing, playback frames are passed through on their own so a
+ * listen-only participant still records the other side.
+ */
+public class ConversationAudioInterceptor extends AudioSamplesInterceptor
+        implements PlaybackSamplesReadyCallback {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final int FRAME_BYTES = SAMPLE_RATE / 100 * 2;
+    // 100 ms of playback absorbs scheduling jitter between the two threads.
+    private static final int BUFFER_FRAMES = 10;
+    private static final int PRIME_FRAMES = 2;
+    // Microphone silence after which playback is recorded on its own.
+    private static final long RECORD_IDLE_NS = 100_000_000L;
+
+    private final RecordSamplesReadyCallbackAdapter recordAdapter;
+    private final PlaybackSamplesReadyCallbackAdapter playbackAdapter;
+
+    private final AudioRingBuffer playback = new AudioRingBuffer(FRAME_BYTES, BUFFER_FRAMES,
+            AudioRingBuffer.OverrunPolicy.DROP_OLDEST, AudioRingBuffer.UnderrunPolicy.PARTIAL);
+    private volatile long lastRecordNs = 0;
+
+    // Capture thread state.
+    private final Converter micConverter = new Converter();
+    private final AudioBufferMixer mixer = new AudioBufferMixer(1, AudioBufferMixer.ClipMode.LIMITER);
+    private final int playbackSlot = mixer.addInput(1f);
+    private ByteBuffer micBuffer = ByteBuffer.allocate(0);
+    private ByteBuffer playbackBuffer = ByteBuffer.allocate(0);
+    private boolean priming = true;
+
+    // Playout thread state.
+    private final Converter playbackConverter = new Converter();
+
+    public ConversationAudioInterceptor(RecordSamplesReadyCallbackAdapter recordAdapter,
+            PlaybackSamplesReadyCallbackAdapter playbackAdapter) {
+        this.recordAdapter = recordAdapter;
+        this.playbackAdapter = playbackAdapter;
+    }
+
+    @Override
+    public void attachCallback(Integer id, SamplesReadyCallback callback) throws Exception {
+        boolean first = callbacks.isEmpty();
+        super.attachCallback(id, callback);
+        if (first) {
+            recordAdapter.addCallback("conversationRecorder", this, false);
+            playbackAdapter.addCallback("conversationRecorder", this, false);
+        }
+    }
+
+    @Override
+    public void detachCallback(Integer id) {
+        super.detachCallback(id);
+        if (callbacks.isEmpty()) {
+            recordAdapter.removeCallback(this);
+            playbackAdapter.removeCallback(this);
+        }
+    }
+
+    @Override
+    public void onWebRtcAudioRecordSamplesReady(AudioSamples samples) {
+        final long now = System.nanoTime();
+        if (now - lastRecordNs > RECORD_IDLE_NS) {
+            // Capture (re)started: whatever is buffered belongs to the pass-through period.
+            playback.clear();
+            priming = true;
+        }
+        lastRecordNs = now;
+
+        final int bytes = micConverter.convert(samples);
+        if (bytes == 0) {
+            return;
+        }
+        if (micBuffer.capacity() < bytes) {
+            micBuffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            playbackBuffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        micBuffer.clear();
+        micBuffer.put(micConverter.out, 0, bytes);
+
+        if (priming && playback.available() >= PRIME_FRAMES * FRAME_BYTES) {
+            priming = false;
+        }
+        if (!priming) {
+            playbackBuffer.clear();
+            int read = playback.read(playbackBuffer, bytes);
+            if (read < bytes) {
+                // Playout fell behind; mix what there is and rebuild the cushion.
+                priming = true;
+            }
+            playbackBuffer.flip();
+            mixer.setInput(playbackSlot, playbackBuffer);
+            mixer.mix(micBuffer, bytes);
+        }
+        // Recorders may keep the array beyond this call.
+        deliver(Arrays.copyOf(micBuffer.array(), bytes));
+    }
+
+    @Override
+    public void onWebRtcAudioTrackSamplesReady(AudioSamples samples) {
+        final int bytes = playbackConverter.convert(samples);
+        if (bytes == 0) {
+            return;
+        }
+        if (System.nanoTime() - lastRecordNs > RECORD_IDLE_NS) {
+            deliver(Arrays.copyOf(playbackConverter.out, bytes));
+            return;
+        }
+        playback.write(ByteBuffer.wrap(playbackConverter.out, 0, bytes));
+    }
+
+    private void deliver(byte[] data) {
+        super.onWebRtcAudioRecordSamplesReady(new AudioSamples(
+                AudioFormat.ENCODING_PCM_16BIT, 1, SAMPLE_RATE, data));
+    }
+
+    /** Converts 16-bit PCM of any rate and layout to 48 kHz mono, reusing its buffers. */
+    private static final class Converter {
+        private final AudioResampler resampler = new AudioResampler();
+        private short[] in = new short[0];
+        private short[] resampled = new short[0];
+        byte[] out = new byte[0];
+
+        /** @return the number of bytes written to {@link #out} */
+        int convert(AudioSamples samples) {
+            final int channels = samples.getChannelCount();
+            final int rate = samples.getSampleRate();
+            if (channels <= 0 || rate <= 0) {
+                return 0;
+            }
+            final byte[] data = samples.getData();
+            final int frames = data.length / (2 * channels);
+            final int count = frames * channels;
+            if (in.length < count) {
+                in = new short[count];
+            }
+            for (int i = 0; i < count; i++) {
+                in[i] = (short) ((data[2 * i] & 0xff) | (data[2 * i + 1] << 8));
+            }
+            resampler.configure(rate, channels, SAMPLE_RATE, 1);
+            final int maxOut = (int) ((long) frames * SAMPLE_RATE / rate) + 2;
+            if (resampled.length < maxOut) {
+                resampled = new short[maxOut];
+                out = new byte[maxOut * 2];
+            }
+            final int produced = resampler.process(in, frames, resampled, maxOut);
+            for (int i = 0; i < produced; i++) {
+                out[2 * i] = (byte) resampled[i];
+                out[2 * i + 1] = (byte) (resampled[i] >> 8);
+            }
+            return produced * 2;
+        }
+    }
+}
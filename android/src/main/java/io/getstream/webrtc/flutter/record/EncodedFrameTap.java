@@ -0,0 +1,238 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.media.MediaFormat;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.EncodedImage;
+import org.webrtc.VideoCodecInfo;
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoDecoder;
+import org.webrtc.VideoEncoder;
+import org.webrtc.VideoFrame;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hooks the Java video encoders and decoders so pass-through recorders can
+ * receive the frames WebRTC encodes or decodes anyway.
+ *
+ * The factories wrap every Java codec they create; while no
+ * {@link PassthroughRecorder} is registered the wrappers only forward calls.
+ * Codecs implemented natively never reach Java and cannot be tapped: the
+ * software VP8/VP9/AV1 codecs, and {@code VideoDecoderFallback}, which the
+ * decoder factory returns whenever a hardware decoder has a software fallback.
+ * Remote tracks decoded that way can't be recorded in pass-through mode;
+ * {@link #hasTappedDecoders()} lets callers reject such recordings up front.
+ */
+public final class EncodedFrameTap {
+
+    private static final CopyOnWriteArrayList<PassthroughRecorder> recorders =
+            new CopyOnWriteArrayList<>();
+    private static final AtomicInteger liveDecoders = new AtomicInteger();
+
+    private EncodedFrameTap() {
+    }
+
+    static void register(PassthroughRecorder recorder) {
+        recorders.addIfAbsent(recorder);
+    }
+
+    static void unregister(PassthroughRecorder recorder) {
+        recorders.remove(recorder);
+    }
+
+    /**
+     * Whether any tapped Java decoder is currently initialized. Without one,
+     * no remote track can be recorded in pass-through mode.
+     */
+    public static boolean hasTappedDecoders() {
+        return liveDecoders.get() > 0;
+    }
+
+    /** Container MIME type for a WebRTC codec name, or null if it can't be muxed. */
+    @Nullable
+    static String mimeTypeFor(@Nullable String codecName) {
+        if (codecName == null) {
+            return null;
+        }
+        switch (codecName.toUpperCase()) {
+            case "H264":
+                return MediaFormat.MIMETYPE_VIDEO_AVC;
+            case "H265":
+            case "HEVC":
+                return MediaFormat.MIMETYPE_VIDEO_HEVC;
+            case "VP8":
+                return MediaFormat.MIMETYPE_VIDEO_VP8;
+            case "VP9":
+                return MediaFormat.MIMETYPE_VIDEO_VP9;
+            default:
+                return null;
+        }
+    }
+
+    /** Wraps a Java encoder; returns it unchanged if its codec can't be recorded. */
+    public static VideoEncoder wrapEncoder(VideoEncoder encoder, @Nullable VideoCodecInfo info) {
+        String mimeType = mimeTypeFor(info != null ? info.name : null);
+        return mimeType != null ? new TapEncoder(encoder, mimeType) : encoder;
+    }
+
+    /** Wraps a Java decoder; returns it unchanged if its codec can't be recorded. */
+    public static VideoDecoder wrapDecoder(VideoDecoder decoder, @Nullable VideoCodecInfo info) {
+        String mimeType = mimeTypeFor(info != null ? info.name : null);
+        return mimeType != null ? new TapDecoder(decoder, mimeType) : decoder;
+    }
+
+    private static VideoEncoder.EncodeInfo keyframeInfo(@Nullable VideoEncoder.EncodeInfo info) {
+        int layers = info != null && info.frameTypes.length > 0 ? info.frameTypes.length : 1;
+        EncodedImage.FrameType[] types = new EncodedImage.FrameType[layers];
+        for (int i = 0; i < layers; i++) {
+            types[i] = EncodedImage.FrameType.VideoFrameKey;
+        }
+        return new VideoEncoder.EncodeInfo(types);
+    }
+
+    /** Sender side: one simulcast layer or the single stream of a track. */
+    private static final class TapEncoder implements VideoEncoder {
+        private final VideoEncoder encoder;
+        private final String mimeType;
+
+        TapEncoder(VideoEncoder encoder, String mimeType) {
+            this.encoder = encoder;
+            this.mimeType = mimeType;
+        }
+
+        @Override
+        public VideoCodecStatus initEncode(Settings settings, Callback callback) {
+            if (callback == null) {
+                return encoder.initEncode(settings, null);
+            }
+            return encoder.initEncode(settings, (image, info) -> {
+                if (!recorders.isEmpty()) {
+                    for (PassthroughRecorder recorder : recorders) {
+                        recorder.onEncodedFrame(this, image, mimeType, image.captureTimeNs);
+                    }
+                }
+                callback.onEncodedFrame(image, info);
+            });
+        }
+
+        @Override
+        public VideoCodecStatus release() {
+            return encoder.release();
+        }
+
+        @Override
+        public VideoCodecStatus encode(VideoFrame frame, EncodeInfo info) {
+            if (!recorders.isEmpty()) {
+                int width = frame.getBuffer().getWidth();
+                int height = frame.getBuffer().getHeight();
+                for (PassthroughRecorder recorder : recorders) {
+                    if (recorder.offerSource(this, frame, width, height)
+                            && recorder.takeKeyframeRequest(this)) {
+                        info = keyframeInfo(info);
+                    }
+                }
+            }
+            return encoder.encode(frame, info);
+        }
+
+        @Override
+        public VideoCodecStatus setRateAllocation(BitrateAllocation allocation, int framerate) {
+            return encoder.setRateAllocation(allocation, framerate);
+        }
+
+        @Override
+        public VideoCodecStatus setRates(RateControlParameters parameters) {
+            return encoder.setRates(parameters);
+        }
+
+        @Override
+        public ScalingSettings getScalingSettings() {
+            return encoder.getScalingSettings();
+        }
+
+        @Override
+        public ResolutionBitrateLimits[] getResolutionBitrateLimits() {
+            return encoder.getResolutionBitrateLimits();
+        }
+
+        @Override
+        public EncoderInfo getEncoderInfo() {
+            return encoder.getEncoderInfo();
+        }
+
+        @Override
+        public boolean isHardwareEncoder() {
+            return encoder.isHardwareEncoder();
+        }
+
+        @Override
+        public String getImplementationName() {
+            return encoder.getImplementationName();
+        }
+    }
+
+    /**
+     * Receiver side. A decoder is matched to a track by its output, so it
+     * only starts feeding a recorder after its first decoded frame.
+     */
+    private static final class TapDecoder implements VideoDecoder {
+        private final VideoDecoder decoder;
+        private final String mimeType;
+        private boolean initialized = false;
+
+        TapDecoder(VideoDecoder decoder, String mimeType) {
+            this.decoder = decoder;
+            this.mimeType = mimeType;
+        }
+
+        @Override
+        public VideoCodecStatus initDecode(Settings settings, Callback callback) {
+            if (!initialized) {
+                initialized = true;
+                liveDecoders.incrementAndGet();
+            }
+            if (callback == null) {
+                return decoder.initDecode(settings, null);
+            }
+            return decoder.initDecode(settings, (frame, decodeTimeMs, qp) -> {
+                if (!recorders.isEmpty()) {
+                    int width = frame.getBuffer().getWidth();
+                    int height = frame.getBuffer().getHeight();
+                    for (PassthroughRecorder recorder : recorders) {
+                        recorder.offerSource(this, frame, width, height);
+                    }
+                }
+                callback.onDecodedFrame(frame, decodeTimeMs, qp);
+            });
+        }
+
+        @Override
+        public VideoCodecStatus release() {
+            if (initialized) {
+                initialized = false;
+                liveDecoders.decrementAndGet();
+            }
+            return decoder.release();
+        }
+
+        @Override
+        public VideoCodecStatus decode(EncodedImage image, DecodeInfo info) {
+            if (!recorders.isEmpty()) {
+                // Received frames carry no local capture time; stamp arrival.
+                long nowNs = System.nanoTime();
+                for (PassthroughRecorder recorder : recorders) {
+                    recorder.onEncodedFrame(this, image, mimeType, nowNs);
+                }
+            }
+            return decoder.decode(image, info);
+        }
+
+        @Override
+        public String getImplementationName() {
+            return decoder.getImplementationName();
+        }
+    }
+}
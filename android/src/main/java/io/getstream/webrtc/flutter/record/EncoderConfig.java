@@ -1,20 +1,48 @@
 package io.getstream.webrtc.flutter.record;
 
+import androidx.annotation.Nullable;
+
 class EncoderConfig {
+    /** Marks {@link #profile} as left to the codec's default. */
+    static final int PROFILE_DEFAULT = -1;
+    /** Marks {@link #quality} as unset; only constant-quality mode uses it. */
+    static final int QUALITY_DEFAULT = -1;
+
+    final String mimeType;
+    /** Codec to instantiate, or null to let MediaCodec pick one for {@link #mimeType}. */
+    @Nullable
+    final String codecName;
     final int width;
     final int height;
     final int bitrate;
     final int profile;
+    final int frameRate;
+    final int keyFrameIntervalSec;
+    /** One of the {@code MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_*} values, or -1. */
+    final int bitrateMode;
+    /** {@code MediaFormat.KEY_QUALITY} for constant-quality mode, or {@link #QUALITY_DEFAULT}. */
+    final int quality;
 
-    EncoderConfig(int width, int height, int bitrate, int profile) {
+    EncoderConfig(String mimeType, @Nullable String codecName, int width, int height,
+                  int bitrate, int profile, int frameRate, int keyFrameIntervalSec,
+                  int bitrateMode, int quality) {
+        this.mimeType = mimeType;
+        this.codecName = codecName;
         this.width = width;
         this.height = height;
         this.bitrate = bitrate;
         this.profile = profile;
+        this.frameRate = frameRate;
+        this.keyFrameIntervalSec = keyFrameIntervalSec;
+        this.bitrateMode = bitrateMode;
+        this.quality = quality;
     }
 
     @Override
     public String toString() {
-        return width + "x" + height + ", bitrate: " + bitrate + ", profile: " + profile;
+        return mimeType + " (" + codecName + ") " + width + "x" + height + "@" + frameRate
+                + ", bitrate: " + bitrate + ", profile: " + profile
+                + ", gop: " + keyFrameIntervalSec + "s, bitrateMode: " + bitrateMode
+                + ", quality: " + quality;
     }
-}
\ No newline at end of file
+}
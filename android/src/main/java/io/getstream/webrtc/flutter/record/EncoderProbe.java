@@ -0,0 +1,277 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.util.Log;
+import android.util.Range;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves {@link RecordingOptions} into a single {@link EncoderConfig} the
+ * device can encode, using the capabilities advertised by
+ * {@link MediaCodecList} instead of configuring codecs by trial and error.
+ *
+ * The codec list is scanned once per process and the chosen encoder per MIME
+ * type is cached, so starting a recording costs no codec instantiation beyond
+ * the one that is actually used.
+ */
+final class EncoderProbe {
+    private static final String TAG = "EncoderProbe";
+
+    /** Resolutions tried, in order, when the source size is not supported. */
+    private static final int[][] FALLBACK_RESOLUTIONS = {
+            {1920, 1080}, {1280, 720}, {854, 480}, {640, 360}, {426, 240}
+    };
+    /** Default target bits per pixel per frame for AVC; HEVC gets 60% of it. */
+    private static final double AVC_BITS_PER_PIXEL = 0.1;
+    private static final double HEVC_BITRATE_FACTOR = 0.6;
+    /** Point of the encoder's quality range used in constant-quality mode. */
+    private static final double CQ_QUALITY_FRACTION = 0.75;
+
+    private static final class Encoder {
+        final String name;
+        final MediaCodecInfo.CodecCapabilities capabilities;
+
+        Encoder(String name, MediaCodecInfo.CodecCapabilities capabilities) {
+            this.name = name;
+            this.capabilities = capabilities;
+        }
+    }
+
+    private static volatile Map<String, Encoder> encoders;
+
+    private EncoderProbe() {
+    }
+
+    /** Scans the codec list on first use; later calls return the cached result. */
+    private static Map<String, Encoder> encoders() {
+        Map<String, Encoder> result = encoders;
+        if (result != null) {
+            return result;
+        }
+        synchronized (EncoderProbe.class) {
+            if (encoders == null) {
+                encoders = scan();
+            }
+            return encoders;
+        }
+    }
+
+    private static Map<String, Encoder> scan() {
+        Map<String, Encoder> found = new HashMap<>();
+        Map<String, Boolean> foundIsHardware = new HashMap<>();
+        MediaCodecInfo[] infos;
+        try {
+            infos = new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to list codecs: " + e.getMessage());
+            return found;
+        }
+        for (MediaCodecInfo info : infos) {
+            if (!info.isEncoder()) {
+                continue;
+            }
+            for (String type : info.getSupportedTypes()) {
+                if (!MediaFormat.MIMETYPE_VIDEO_AVC.equalsIgnoreCase(type)
+                        && !MediaFormat.MIMETYPE_VIDEO_HEVC.equalsIgnoreCase(type)) {
+                    continue;
+                }
+                String mime = type.toLowerCase();
+                boolean hardware = isHardware(info);
+                Boolean current = foundIsHardware.get(mime);
+                // Keep the first hardware encoder; a software one only until a hardware one shows up.
+                if (current != null && (current || !hardware)) {
+                    continue;
+                }
+                try {
+                    MediaCodecInfo.CodecCapabilities caps = info.getCapabilitiesForType(type);
+                    if (caps.getVideoCapabilities() == null) {
+                        continue;
+                    }
+                    found.put(mime, new Encoder(info.getName(), caps));
+                    foundIsHardware.put(mime, hardware);
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to read capabilities of " + info.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+        Log.d(TAG, "Video encoders: " + found.keySet());
+        return found;
+    }
+
+    private static boolean isHardware(MediaCodecInfo info) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return info.isHardwareAccelerated();
+        }
+        String name = info.getName().toLowerCase();
+        return !name.startsWith("omx.google.") && !name.startsWith("c2.android.")
+                && !name.contains(".sw.");
+    }
+
+    /**
+     * Picks codec, size, frame rate, bitrate, profile and rate control for a
+     * source of {@code frameWidth} x {@code frameHeight}.
+     *
+     * @return the configuration, or null if no AVC or HEVC encoder exists
+     */
+    @Nullable
+    static EncoderConfig resolve(RecordingOptions options, int frameWidth, int frameHeight) {
+        Map<String, Encoder> available = encoders();
+        String mime = options.videoMimeType;
+        Encoder encoder = available.get(mime);
+        if (encoder == null && !MediaFormat.MIMETYPE_VIDEO_AVC.equals(mime)) {
+            Log.w(TAG, mime + " encoder not available, falling back to AVC");
+            mime = MediaFormat.MIMETYPE_VIDEO_AVC;
+            encoder = available.get(mime);
+        }
+        if (encoder == null) {
+            return null;
+        }
+        MediaCodecInfo.VideoCapabilities video = encoder.capabilities.getVideoCapabilities();
+
+        int[] size = resolveSize(video, frameWidth, frameHeight, options.frameRate);
+        int frameRate = options.frameRate;
+        try {
+            frameRate = video.getSupportedFrameRates().clamp(frameRate);
+        } catch (Exception ignored) {
+        }
+
+        int bitrate = video.getBitrateRange().clamp(
+                targetBitrate(options, mime, size[0], size[1], frameRate));
+
+        int bitrateMode = resolveBitrateMode(encoder, options.bitrateMode);
+        int quality = bitrateMode == MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ
+                ? resolveQuality(encoder) : EncoderConfig.QUALITY_DEFAULT;
+        return new EncoderConfig(mime, encoder.name, size[0], size[1], bitrate,
+                resolveProfile(encoder, mime), frameRate, options.keyFrameIntervalSec,
+                bitrateMode, quality);
+    }
+
+    /**
+     * Bitrate asked for by {@code options}, or one derived from the size and
+     * frame rate when the options leave it open. Not clamped to any encoder.
+     */
+    static int targetBitrate(RecordingOptions options, String mime,
+                             int width, int height, int frameRate) {
+        if (options.videoBitrate > 0) {
+            return options.videoBitrate;
+        }
+        double bits = (double) width * height * frameRate * AVC_BITS_PER_PIXEL;
+        if (MediaFormat.MIMETYPE_VIDEO_HEVC.equals(mime)) {
+            bits *= HEVC_BITRATE_FACTOR;
+        }
+        return (int) bits;
+    }
+
+    private static int[] resolveSize(MediaCodecInfo.VideoCapabilities video,
+                                     int frameWidth, int frameHeight, int frameRate) {
+        int width = align(frameWidth, video.getWidthAlignment());
+        int height = align(frameHeight, video.getHeightAlignment());
+        if (video.areSizeAndRateSupported(width, height, frameRate)) {
+            return new int[]{width, height};
+        }
+        // Landscape and portrait sources both step down the same ladder.
+        boolean portrait = frameHeight > frameWidth;
+        for (int[] candidate : FALLBACK_RESOLUTIONS) {
+            int w = portrait ? candidate[1] : candidate[0];
+            int h = portrait ? candidate[0] : candidate[1];
+            if (w <= frameWidth && h <= frameHeight && video.areSizeAndRateSupported(w, h, frameRate)) {
+                return new int[]{w, h};
+            }
+        }
+        for (int[] candidate : FALLBACK_RESOLUTIONS) {
+            int w = portrait ? candidate[1] : candidate[0];
+            int h = portrait ? candidate[0] : candidate[1];
+            if (video.isSizeSupported(w, h)) {
+                return new int[]{w, h};
+            }
+        }
+        return new int[]{width, height};
+    }
+
+    private static int align(int value, int alignment) {
+        return alignment > 1 ? value - value % alignment : value;
+    }
+
+    private static int resolveProfile(Encoder encoder, String mime) {
+        int wanted;
+        if (MediaFormat.MIMETYPE_VIDEO_HEVC.equals(mime)) {
+            wanted = MediaCodecInfo.CodecProfileLevel.HEVCProfileMain;
+        } else if (acceptsExplicitAvcProfile(encoder.name)) {
+            wanted = MediaCodecInfo.CodecProfileLevel.AVCProfileBaseline;
+        } else {
+            return EncoderConfig.PROFILE_DEFAULT;
+        }
+        for (MediaCodecInfo.CodecProfileLevel pl : encoder.capabilities.profileLevels) {
+            if (pl.profile == wanted) {
+                return wanted;
+            }
+        }
+        return EncoderConfig.PROFILE_DEFAULT;
+    }
+
+    /**
+     * Whether an explicit AVC profile may be set on this encoder. False for the
+     * vendor encoders known to reject one; those keep their default profile.
+     */
+    private static boolean acceptsExplicitAvcProfile(String codecName) {
+        return !codecName.startsWith("OMX.qcom.")
+                && !"OMX.hisi.video.encoder.avc".equals(codecName);
+    }
+
+    private static int resolveBitrateMode(Encoder encoder, RecordingOptions.BitrateMode mode) {
+        MediaCodecInfo.EncoderCapabilities caps = encoder.capabilities.getEncoderCapabilities();
+        if (caps == null) {
+            return -1;
+        }
+        int requested;
+        switch (mode) {
+            case CBR:
+                requested = MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CBR;
+                break;
+            case CQ:
+                requested = MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ;
+                break;
+            case VBR:
+            default:
+                requested = MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_VBR;
+                break;
+        }
+        if (caps.isBitrateModeSupported(requested)
+                && (requested != MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ
+                        || resolveQuality(encoder) != EncoderConfig.QUALITY_DEFAULT)) {
+            return requested;
+        }
+        Log.w(TAG, "Bitrate mode " + mode + " not supported by " + encoder.name);
+        return caps.isBitrateModeSupported(MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_VBR)
+                ? MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_VBR : -1;
+    }
+
+    /**
+     * Constant-quality target inside the encoder's advertised quality range, or
+     * {@link EncoderConfig#QUALITY_DEFAULT} when it has none; CQ without
+     * {@code KEY_QUALITY} leaves the quality to the vendor.
+     */
+    private static int resolveQuality(Encoder encoder) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            return EncoderConfig.QUALITY_DEFAULT;
+        }
+        MediaCodecInfo.EncoderCapabilities caps = encoder.capabilities.getEncoderCapabilities();
+        if (caps == null) {
+            return EncoderConfig.QUALITY_DEFAULT;
+        }
+        Range<Integer> range = caps.getQualityRange();
+        int lower = range.getLower();
+        int upper = range.getUpper();
+        if (upper <= lower) {
+            return EncoderConfig.QUALITY_DEFAULT;
+        }
+        return lower + (int) Math.round((upper - lower) * CQ_QUALITY_FRACTION);
+    }
+}
@@ -1,120 +1,134 @@
 package io.getstream.webrtc.flutter.record;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
-import android.graphics.Matrix;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
 
 import org.webrtc.VideoFrame;
 import org.webrtc.VideoSink;
 import org.webrtc.VideoTrack;
-import org.webrtc.YuvHelper;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.flutter.plugin.common.MethodChannel;
 
+/**
+ * Saves the next frame of a video track to an image file.
+ *
+ * The frame delivery thread only retains the frame. A short-lived GL thread
+ * reads it back rotated and scaled through a {@link FrameReader}, and the
+ * bitmap is compressed on a background executor.
+ */
 public class FrameCapturer implements VideoSink {
+
+    /** Image format of the saved frame. */
+    public enum Format {
+        JPEG, PNG, WEBP;
+
+        public static Format fromString(String name) {
+            return name == null ? JPEG : Format.valueOf(name.toUpperCase());
+        }
+
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat toCompressFormat(int quality) {
+            switch (this) {
+                case PNG:
+                    return Bitmap.CompressFormat.PNG;
+                case WEBP:
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                        return quality == 100
+                                ? Bitmap.CompressFormat.WEBP_LOSSLESS
+                                : Bitmap.CompressFormat.WEBP_LOSSY;
+                    }
+                    // Before Android 11 quality 100 already means lossless.
+                    return Bitmap.CompressFormat.WEBP;
+                default:
+                    return Bitmap.CompressFormat.JPEG;
+            }
+        }
+    }
+
+    // Snapshots are rare, one encoder thread for the whole process is enough.
+    private static final ExecutorService encodeExecutor = Executors.newSingleThreadExecutor();
+
     private final VideoTrack videoTrack;
-    private File file;
+    private final File file;
+    private final Format format;
+    private final int quality;
+    private final int maxWidth;
+    private final int maxHeight;
     private final MethodChannel.Result callback;
-    private boolean gotFrame = false;
+    private final AtomicBoolean gotFrame = new AtomicBoolean(false);
 
     public FrameCapturer(VideoTrack track, File file, MethodChannel.Result callback) {
+        this(track, file, Format.JPEG, 100, 0, 0, callback);
+    }
+
+    /**
+     * @param quality   compression quality 0-100; ignored for PNG, 100 makes WebP lossless
+     * @param maxWidth  bound of the saved image, 0 for the frame's own width
+     * @param maxHeight bound of the saved image, 0 for the frame's own height
+     */
+    public FrameCapturer(VideoTrack track, File file, Format format, int quality,
+            int maxWidth, int maxHeight, MethodChannel.Result callback) {
         videoTrack = track;
         this.file = file;
+        this.format = format;
+        this.quality = Math.max(0, Math.min(100, quality));
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
         this.callback = callback;
         track.addSink(this);
     }
 
     @Override
     public void onFrame(VideoFrame videoFrame) {
-        if (gotFrame)
+        if (!gotFrame.compareAndSet(false, true))
             return;
-        gotFrame = true;
         videoFrame.retain();
-        VideoFrame.Buffer buffer = videoFrame.getBuffer();
-        VideoFrame.I420Buffer i420Buffer = buffer.toI420();
-        ByteBuffer y = i420Buffer.getDataY();
-        ByteBuffer u = i420Buffer.getDataU();
-        ByteBuffer v = i420Buffer.getDataV();
-        int width = i420Buffer.getWidth();
-        int height = i420Buffer.getHeight();
-        int[] strides = new int[] {
-            i420Buffer.getStrideY(),
-            i420Buffer.getStrideU(),
-            i420Buffer.getStrideV()
-        };
-        final int chromaWidth = (width + 1) / 2;
-        final int chromaHeight = (height + 1) / 2;
-        final int minSize = width * height + chromaWidth * chromaHeight * 2;
-
-        ByteBuffer yuvBuffer = ByteBuffer.allocateDirect(minSize);
-        // NV21 is the same as NV12, only that V and U are stored in the reverse oder
-        // NV21 (YYYYYYYYY:VUVU)
-        // NV12 (YYYYYYYYY:UVUV)
-        // Therefore we can use the NV12 helper, but swap the U and V input buffers
-        YuvHelper.I420ToNV12(y, strides[0], v, strides[2], u, strides[1], yuvBuffer, width, height);
-
-        // For some reason the ByteBuffer may have leading 0. We remove them as
-        // otherwise the
-        // image will be shifted
-        byte[] cleanedArray = Arrays.copyOfRange(yuvBuffer.array(), yuvBuffer.arrayOffset(), minSize);
-
-        YuvImage yuvImage = new YuvImage(
-            cleanedArray,
-            ImageFormat.NV21,
-            width,
-            height,
-            // We omit the strides here. If they were included, the resulting image would
-            // have its colors offset.
-            null);
-        i420Buffer.release();
-        videoFrame.release();
         new Handler(Looper.getMainLooper()).post(() -> {
             videoTrack.removeSink(this);
         });
+
+        final HandlerThread glThread = new HandlerThread("FrameCapturer");
+        glThread.start();
+        new Handler(glThread.getLooper()).post(() -> {
+            try {
+                final Bitmap bitmap;
+                final FrameReader reader = new FrameReader();
+                try {
+                    bitmap = reader.read(videoFrame, maxWidth, maxHeight, null);
+                } finally {
+                    reader.release();
+                }
+                encodeExecutor.execute(() -> save(bitmap));
+            } catch (RuntimeException e) {
+                callback.error(e.getClass().getSimpleName(), e.getLocalizedMessage(), null);
+            } finally {
+                videoFrame.release();
+                glThread.quit();
+            }
+        });
+    }
+
+    /** Encoder thread. */
+    private void save(Bitmap bitmap) {
         try {
-            if (!file.exists()) {
+            File parent = file.getParentFile();
+            if (parent != null) {
                 //noinspection ResultOfMethodCallIgnored
-                file.getParentFile().mkdirs();
-                //noinspection ResultOfMethodCallIgnored
-                file.createNewFile();
+                parent.mkdirs();
             }
-        } catch (IOException io) {
-            callback.error("IOException", io.getLocalizedMessage(), io);
-            return;
-        }
-        try (FileOutputStream outputStream = new FileOutputStream(file)) {
-            yuvImage.compressToJpeg(
-                new Rect(0, 0, width, height),
-                100,
-                outputStream
-            );
-            switch (videoFrame.getRotation()) {
-                case 0:
-                    break;
-                case 90:
-                case 180:
-                case 270:
-                    Bitmap original = BitmapFactory.decodeFile(file.toString());
-                    Matrix matrix = new Matrix();
-                    matrix.postRotate(videoFrame.getRotation());
-                    Bitmap rotated = Bitmap.createBitmap(original, 0, 0, original.getWidth(), original.getHeight(), matrix, true);
-                    FileOutputStream rotatedOutputStream = new FileOutputStream(file);
-                    rotated.compress(Bitmap.CompressFormat.JPEG, 100, rotatedOutputStream);
-                    break;
-                default:
-                    // Rotation is checked to always be 0, 90, 180 or 270 by VideoFrame
-                    throw new RuntimeException("Invalid rotation");
+            try (FileOutputStream outputStream = new FileOutputStream(file)) {
+                if (!bitmap.compress(format.toCompressFormat(quality), quality, outputStream))
+                    throw new IOException("Failed to encode frame as " + format);
             }
             callback.success(null);
         } catch (IOException io) {
@@ -122,7 +136,7 @@ public class FrameCapturer implements VideoSink {
         } catch (IllegalArgumentException iae) {
             callback.error("IllegalArgumentException", iae.getLocalizedMessage(), iae);
         } finally {
-            file = null;
+            bitmap.recycle();
         }
     }
 }
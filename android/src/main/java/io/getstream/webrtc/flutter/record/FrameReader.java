@@ -0,0 +1,105 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.opengl.GLES20;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.EglBase;
+import org.webrtc.GlRectDrawer;
+import org.webrtc.GlTextureFrameBuffer;
+import org.webrtc.GlUtil;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
+
+import java.nio.ByteBuffer;
+
+import io.getstream.webrtc.flutter.utils.EglUtils;
+
+/**
+ * Draws video frames upright and scaled into an offscreen framebuffer and
+ * reads the pixels back into a bitmap. Texture frames stay on the GPU until
+ * the readback.
+ *
+ * Owns an EGL context shared with the root one: create, use and release it
+ * on a single thread.
+ */
+final class FrameReader {
+    private final EglBase eglBase;
+    private final GlRectDrawer drawer;
+    private final VideoFrameDrawer frameDrawer;
+    private final GlTextureFrameBuffer frameBuffer;
+    // glReadPixels returns rows bottom-up, draw flipped so the bitmap is upright.
+    private final Matrix drawMatrix = new Matrix();
+    private ByteBuffer pixels = ByteBuffer.allocateDirect(0);
+
+    FrameReader() {
+        eglBase = EglBase.create(EglUtils.getRootEglBaseContext(), EglBase.CONFIG_PIXEL_BUFFER);
+        try {
+            eglBase.createDummyPbufferSurface();
+            eglBase.makeCurrent();
+        } catch (RuntimeException e) {
+            eglBase.release();
+            throw e;
+        }
+        drawer = new GlRectDrawer();
+        frameDrawer = new VideoFrameDrawer();
+        frameBuffer = new GlTextureFrameBuffer(GLES20.GL_RGBA);
+        drawMatrix.preTranslate(0.5f, 0.5f);
+        drawMatrix.preScale(1f, -1f);
+        drawMatrix.preTranslate(-0.5f, -0.5f);
+    }
+
+    /**
+     * @param maxWidth  bound of the output, 0 for the frame's rotated width
+     * @param maxHeight bound of the output, 0 for the frame's rotated height
+     * @param reuse     bitmap to overwrite if it has the output size, may be null
+     * @return {@code reuse} or a new bitmap holding the frame
+     */
+    Bitmap read(VideoFrame frame, int maxWidth, int maxHeight, @Nullable Bitmap reuse) {
+        final int rotatedWidth = frame.getRotatedWidth();
+        final int rotatedHeight = frame.getRotatedHeight();
+        float scale = 1f;
+        if (maxWidth > 0)
+            scale = Math.min(scale, (float) maxWidth / rotatedWidth);
+        if (maxHeight > 0)
+            scale = Math.min(scale, (float) maxHeight / rotatedHeight);
+        final int width = Math.max(1, Math.round(rotatedWidth * scale));
+        final int height = Math.max(1, Math.round(rotatedHeight * scale));
+
+        frameBuffer.setSize(width, height);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, frameBuffer.getFrameBufferId());
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, frameBuffer.getTextureId(), 0);
+        GLES20.glClearColor(0, 0, 0, 1);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        frameDrawer.drawFrame(frame, drawer, drawMatrix, 0, 0, width, height);
+
+        if (pixels.capacity() < width * height * 4)
+            pixels = ByteBuffer.allocateDirect(width * height * 4);
+        pixels.clear();
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        GlUtil.checkNoGLES2Error("FrameReader.read");
+
+        Bitmap bitmap = reuse;
+        if (bitmap == null || bitmap.isRecycled()
+                || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            if (bitmap != null)
+                bitmap.recycle();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        pixels.rewind();
+        bitmap.copyPixelsFromBuffer(pixels);
+        return bitmap;
+    }
+
+    void release() {
+        frameBuffer.release();
+        frameDrawer.release();
+        drawer.release();
+        eglBase.release();
+    }
+}
@@ -0,0 +1,137 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-lived sink that encodes a downscaled frame of a video track at a fixed
+ * interval, for thumbnails and grid previews.
+ *
+ * The sink stays attached until {@link #release()}. Frames between samples
+ * are ignored on the delivery thread without being retained, and a sample is
+ * skipped while the previous one is still being encoded. The GL reader, the
+ * bitmap and the output stream live on the sampler's thread and are reused
+ * for every sample.
+ */
+public class FrameSampler implements VideoSink {
+    private static final String TAG = "FrameSampler";
+
+    public interface Listener {
+        /** Called on the sampler's thread; {@code data} is owned by the listener. */
+        void onFrameSampled(String samplerId, byte[] data, int width, int height, long timestampNs);
+    }
+
+    private final String id;
+    private final VideoTrack videoTrack;
+    private final long intervalNs;
+    private final int maxWidth;
+    private final int maxHeight;
+    private final FrameCapturer.Format format;
+    private final int quality;
+    private final Listener listener;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final AtomicBoolean idle = new AtomicBoolean(true);
+    private volatile boolean released = false;
+    // Delivery thread state.
+    private long nextSampleNs = 0;
+
+    // Sampler thread state.
+    private FrameReader reader;
+    private Bitmap bitmap;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    public FrameSampler(String id, VideoTrack track, long intervalMs, int maxWidth, int maxHeight,
+            FrameCapturer.Format format, int quality, Listener listener) {
+        this.id = id;
+        this.videoTrack = track;
+        this.intervalNs = TimeUnit.MILLISECONDS.toNanos(Math.max(1, intervalMs));
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.format = format;
+        this.quality = Math.max(0, Math.min(100, quality));
+        this.listener = listener;
+        thread = new HandlerThread(TAG + "-" + id);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        track.addSink(this);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void onFrame(VideoFrame frame) {
+        final long now = System.nanoTime();
+        if (released || now < nextSampleNs || !idle.compareAndSet(true, false))
+            return;
+        nextSampleNs = now + intervalNs;
+        frame.retain();
+        final boolean posted = handler.post(() -> {
+            try {
+                if (!released)
+                    sample(frame);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "[" + id + "] sampling failed: " + e);
+            } finally {
+                frame.release();
+                idle.set(true);
+            }
+        });
+        if (!posted) {
+            // The thread quit after release() raced this frame.
+            frame.release();
+            idle.set(true);
+        }
+    }
+
+    /** Sampler thread. */
+    private void sample(VideoFrame frame) {
+        if (reader == null)
+            reader = new FrameReader();
+        bitmap = reader.read(frame, maxWidth, maxHeight, bitmap);
+        output.reset();
+        if (!bitmap.compress(format.toCompressFormat(quality), quality, output)) {
+            Log.w(TAG, "[" + id + "] failed to encode frame as " + format);
+            return;
+        }
+        listener.onFrameSampled(id, output.toByteArray(), bitmap.getWidth(), bitmap.getHeight(),
+                frame.getTimestampNs());
+    }
+
+    /** Detaches from the track and frees the GL resources. Call on the main thread. */
+    public void release() {
+        if (released)
+            return;
+        released = true;
+        try {
+            videoTrack.removeSink(this);
+        } catch (Throwable t) {
+            // The native track may already be disposed.
+            Log.w(TAG, "[" + id + "] removeSink: track stale: " + t);
+        }
+        handler.post(() -> {
+            if (reader != null) {
+                reader.release();
+                reader = null;
+            }
+            if (bitmap != null) {
+                bitmap.recycle();
+                bitmap = null;
+            }
+        });
+        thread.quitSafely();
+    }
+}
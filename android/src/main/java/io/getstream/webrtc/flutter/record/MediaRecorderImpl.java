@@ -3,6 +3,7 @@ package io.getstream.webrtc.flutter.record;
 import androidx.annotation.Nullable;
 import android.util.Log;
 
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
 import io.getstream.webrtc.flutter.utils.EglUtils;
 
 import org.webrtc.VideoTrack;
@@ -13,19 +14,43 @@ import java.util.concurrent.Executors;
 
 public class MediaRecorderImpl {
 
+    /** Receives each finished segment of a segmented recording. */
+    public interface SegmentListener {
+        void onSegmentCompleted(Integer recorderId, String path, int index,
+                long durationUs, long sizeBytes);
+    }
+
     private final Integer id;
     private final VideoTrack videoTrack;
     private final AudioSamplesInterceptor audioInterceptor;
+    private final RecordingOptions options;
+    @Nullable
+    private final SegmentListener segmentListener;
     private VideoFileRenderer videoFileRenderer;
+    private PassthroughRecorder passthroughRecorder;
     private AudioFileRenderer audioFileRenderer;
     private boolean isRunning = false;
+    private boolean isPaused = false;
     private File recordFile;
 
     public MediaRecorderImpl(Integer id, @Nullable VideoTrack videoTrack,
             @Nullable AudioSamplesInterceptor audioInterceptor) {
+        this(id, videoTrack, audioInterceptor, new RecordingOptions());
+    }
+
+    public MediaRecorderImpl(Integer id, @Nullable VideoTrack videoTrack,
+            @Nullable AudioSamplesInterceptor audioInterceptor, RecordingOptions options) {
+        this(id, videoTrack, audioInterceptor, options, null);
+    }
+
+    public MediaRecorderImpl(Integer id, @Nullable VideoTrack videoTrack,
+            @Nullable AudioSamplesInterceptor audioInterceptor, RecordingOptions options,
+            @Nullable SegmentListener segmentListener) {
         this.id = id;
         this.videoTrack = videoTrack;
         this.audioInterceptor = audioInterceptor;
+        this.options = options;
+        this.segmentListener = segmentListener;
     }
 
     public void startRecording(File file) throws Exception {
@@ -35,11 +60,23 @@ public class MediaRecorderImpl {
         isRunning = true;
         // noinspection ResultOfMethodCallIgnored
         file.getParentFile().mkdirs();
-        if (videoTrack != null) {
+        if (videoTrack != null && options.passthrough) {
+            passthroughRecorder = new PassthroughRecorder(
+                    file.getAbsolutePath(),
+                    audioInterceptor != null,
+                    options,
+                    segmentCallback());
+            EncodedFrameTap.register(passthroughRecorder);
+            videoTrack.addSink(passthroughRecorder);
+            if (audioInterceptor != null)
+                audioInterceptor.attachCallback(id, passthroughRecorder);
+        } else if (videoTrack != null) {
             videoFileRenderer = new VideoFileRenderer(
                     file.getAbsolutePath(),
                     EglUtils.getRootEglBaseContext(),
-                    audioInterceptor != null);
+                    audioInterceptor != null,
+                    options,
+                    segmentCallback());
             videoTrack.addSink(videoFileRenderer);
             if (audioInterceptor != null)
                 audioInterceptor.attachCallback(id, videoFileRenderer);
@@ -47,7 +84,8 @@ public class MediaRecorderImpl {
             Log.d(TAG, "Video track is null - checking for audio-only recording");
             if (audioInterceptor != null) {
                 // Audio-only recording implementation
-                audioFileRenderer = new AudioFileRenderer(file.getAbsolutePath());
+                audioFileRenderer = new AudioFileRenderer(file.getAbsolutePath(), options,
+                        segmentCallback());
                 audioInterceptor.attachCallback(id, audioFileRenderer);
             } else {
                 throw new Exception("Both video track and audio interceptor are null - cannot record");
@@ -55,17 +93,83 @@ public class MediaRecorderImpl {
         }
     }
 
+    @Nullable
+    private SegmentedMuxer.Listener segmentCallback() {
+        if (segmentListener == null || !options.isSegmented()) {
+            return null;
+        }
+        return (path, index, durationUs, sizeBytes) ->
+                segmentListener.onSegmentCompleted(id, path, index, durationUs, sizeBytes);
+    }
+
+    /**
+     * Stops writing media without releasing the encoders or the muxer; the
+     * recording continues in the same file after {@link #resumeRecording}.
+     */
+    public void pauseRecording() {
+        if (!isRunning || isPaused) {
+            return;
+        }
+        if (passthroughRecorder != null) {
+            throw new IllegalStateException("Pause is not supported for pass-through recordings");
+        }
+        isPaused = true;
+        if (videoFileRenderer != null)
+            videoFileRenderer.pause();
+        if (audioFileRenderer != null)
+            audioFileRenderer.pause();
+    }
+
+    public void resumeRecording() {
+        if (!isRunning || !isPaused) {
+            return;
+        }
+        isPaused = false;
+        if (videoFileRenderer != null)
+            videoFileRenderer.resume();
+        if (audioFileRenderer != null)
+            audioFileRenderer.resume();
+    }
+
     public File getRecordFile() {
         return recordFile;
     }
 
+    /** Video encoder counters; all zero for audio-only recordings. */
+    public ConstraintsMap getStats() {
+        ConstraintsMap stats = new ConstraintsMap();
+        PassthroughRecorder passthrough = passthroughRecorder;
+        if (passthrough != null) {
+            stats.putLong("encodedFrames", passthrough.getWrittenFrames());
+            stats.putLong("droppedFrames", passthrough.getDroppedFrames());
+            stats.putInt("inFlightFrames", passthrough.getPendingFrames());
+            stats.putLong("droppedAudioFrames", passthrough.getDroppedAudioFrames());
+            return stats;
+        }
+        VideoFileRenderer renderer = videoFileRenderer;
+        stats.putLong("encodedFrames", renderer != null ? renderer.getEncodedFrames() : 0);
+        stats.putLong("droppedFrames", renderer != null ? renderer.getDroppedFrames() : 0);
+        stats.putInt("inFlightFrames", renderer != null ? renderer.getInFlightFrames() : 0);
+        return stats;
+    }
+
     private final ExecutorService releaseExecutor = Executors.newSingleThreadExecutor();
 
     public void stopRecording(Runnable onStopped) {
         isRunning = false;
         if (audioInterceptor != null)
             audioInterceptor.detachCallback(id);
-        if (videoTrack != null && videoFileRenderer != null) {
+        if (videoTrack != null && passthroughRecorder != null) {
+            videoTrack.removeSink(passthroughRecorder);
+            EncodedFrameTap.unregister(passthroughRecorder);
+            releaseExecutor.submit(() -> {
+                passthroughRecorder.release();
+                passthroughRecorder = null;
+                if (onStopped != null)
+                    onStopped.run();
+                releaseExecutor.shutdown();
+            });
+        } else if (videoTrack != null && videoFileRenderer != null) {
             videoTrack.removeSink(videoFileRenderer);
             releaseExecutor.submit(() -> {
                 videoFileRenderer.release();
@@ -1,27 +1,47 @@
 package io.getstream.webrtc.flutter.record;
 
-import org.webrtc.audio.JavaAudioDeviceModule;
-import org.webrtc.audio.WebRtcAudioTrackUtils;
+import io.getstream.webrtc.flutter.audio.PlaybackSamplesReadyCallbackAdapter;
 
-public class OutputAudioSamplesInterceptor extends AudioSamplesInterceptor {
-    private final JavaAudioDeviceModule audioDeviceModule;
+import org.webrtc.audio.JavaAudioDeviceModule.AudioSamples;
+import org.webrtc.audio.JavaAudioDeviceModule.PlaybackSamplesReadyCallback;
+import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
 
-    public OutputAudioSamplesInterceptor(JavaAudioDeviceModule audioDeviceModule) {
+/**
+ * Taps the audio played out by the ADM through its playback samples callback.
+ *
+ * The interceptor subscribes to the factory's playback adapter only while a
+ * recorder is attached, so playout pays nothing otherwise. Each frame the ADM
+ * hands over is passed to every attached recorder as is, without copying: the
+ * samples are shared and must be treated as read-only. Subscribing and
+ * unsubscribing swap a copy-on-write snapshot in the adapter and never block
+ * the playout thread.
+ */
+public class OutputAudioSamplesInterceptor extends AudioSamplesInterceptor
+        implements PlaybackSamplesReadyCallback {
+    private final PlaybackSamplesReadyCallbackAdapter playbackAdapter;
+
+    public OutputAudioSamplesInterceptor(PlaybackSamplesReadyCallbackAdapter playbackAdapter) {
         super();
-        this.audioDeviceModule = audioDeviceModule;
+        this.playbackAdapter = playbackAdapter;
     }
 
     @Override
-    public void attachCallback(Integer id, JavaAudioDeviceModule.SamplesReadyCallback callback) throws Exception {
-        if (callbacks.isEmpty())
-            WebRtcAudioTrackUtils.attachOutputCallback(this, audioDeviceModule);
+    public void attachCallback(Integer id, SamplesReadyCallback callback) throws Exception {
+        boolean first = callbacks.isEmpty();
         super.attachCallback(id, callback);
+        if (first)
+            playbackAdapter.addCallback("outputSamplesInterceptor", this, false);
     }
 
     @Override
     public void detachCallback(Integer id) {
         super.detachCallback(id);
         if (callbacks.isEmpty())
-            WebRtcAudioTrackUtils.detachOutputCallback(audioDeviceModule);
+            playbackAdapter.removeCallback(this);
+    }
+
+    @Override
+    public void onWebRtcAudioTrackSamplesReady(AudioSamples samples) {
+        onWebRtcAudioRecordSamplesReady(samples);
     }
 }
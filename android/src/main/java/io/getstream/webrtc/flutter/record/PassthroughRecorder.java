@@ -0,0 +1,575 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.webrtc.EncodedImage;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+import org.webrtc.audio.JavaAudioDeviceModule;
+import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a video track by muxing the frames WebRTC already encodes (local
+ * tracks) or receives (remote tracks), with no rendering and no second
+ * encode.
+ *
+ * The recorder is added to the track as a sink only to learn which codec
+ * instance belongs to the track: {@link EncodedFrameTap} offers every tapped
+ * codec, and the one handed the very buffer objects delivered to the track is
+ * bound. Buffers are compared by reference, so another sender's frames never
+ * match even with equal capture times. Encoders see a frame after the track's
+ * sinks, decoders before it, so each side remembers the recent buffers of the
+ * other. With simulcast the widest layer passed through unscaled wins. Local
+ * encoders are asked for a keyframe when bound; remote streams start at their
+ * next keyframe.
+ *
+ * H.264 and H.265 are written to MP4 with optional AAC audio, VP8 and VP9 to
+ * WebM without audio. Frames are copied out of the codec callbacks into
+ * pooled buffers and muxed on a private thread.
+ */
+class PassthroughRecorder implements VideoSink, SamplesReadyCallback {
+    private static final String TAG = "PassthroughRecorder";
+
+    private static final class Candidate {
+        final WeakReference<VideoFrame.Buffer> buffer;
+        final WeakReference<Object> source;
+        final int width;
+        final int height;
+
+        Candidate(VideoFrame.Buffer buffer, Object source, int width, int height) {
+            this.buffer = new WeakReference<>(buffer);
+            this.source = new WeakReference<>(source);
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final int MATCH_HISTORY = 8;
+    private static final int MAX_PENDING_FRAMES = 30;
+    // ~500 ms of 10 ms frames waiting for encoder input buffers.
+    private static final int MAX_PENDING_AUDIO_FRAMES = 50;
+    private static final int MAX_POOLED_BUFFERS = 8;
+    private static final long KEYFRAME_REQUEST_INTERVAL_NS = 1_000_000_000L;
+
+    private final String outputFile;
+    private final boolean withAudio;
+    private final RecordingOptions options;
+    @Nullable
+    private final SegmentedMuxer.Listener segmentListener;
+    private final HandlerThread writerThread;
+    private final Handler writerHandler;
+
+    // The latest buffers seen by the track's sink, used to recognize the codec
+    // feeding that track. Weak, so pixel memory is not held past the frame.
+    @SuppressWarnings("unchecked")
+    private final WeakReference<VideoFrame.Buffer>[] recentBuffers =
+            new WeakReference[MATCH_HISTORY];
+    private int recentNext = 0;
+    // Frames offered by decoders before the sink saw them, guarded by recentBuffers.
+    private final Candidate[] candidates = new Candidate[MATCH_HISTORY];
+    private int candidateNext = 0;
+
+    // Binding state, guarded by this.
+    @Nullable
+    private volatile Object boundSource;
+    private int boundWidth;
+    private int boundHeight;
+    private volatile boolean locked = false;
+    private boolean keyframeRequested = false;
+
+    private volatile boolean isRunning = true;
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+    private volatile boolean overflowed = false;
+    private final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+    private final AtomicLong writtenFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong droppedAudioFrames = new AtomicLong();
+
+    // Writer thread only.
+    @Nullable
+    private SegmentedMuxer muxer;
+    private boolean muxAudio;
+    private int videoTrackIndex = -1;
+    private int audioTrackIndex = -1;
+    private boolean waitingForKeyframe = true;
+    private long lastKeyframeRequestNs = Long.MIN_VALUE;
+    private long originUs = -1;
+    private final MediaCodec.BufferInfo videoInfo = new MediaCodec.BufferInfo();
+    @Nullable
+    private MediaCodec audioEncoder;
+    @Nullable
+    private MediaFormat audioFormat;
+    private final MediaCodec.BufferInfo audioInfo = new MediaCodec.BufferInfo();
+    private long audioStartUs = -1;
+    private long audioSamplesQueued = 0;
+    // Frames waiting for an encoder input buffer, oldest first.
+    private final ArrayDeque<JavaAudioDeviceModule.AudioSamples> pendingAudio = new ArrayDeque<>();
+
+    PassthroughRecorder(String outputFile, boolean withAudio, RecordingOptions options,
+                        @Nullable SegmentedMuxer.Listener segmentListener) {
+        this.outputFile = outputFile;
+        this.withAudio = withAudio;
+        this.options = options;
+        this.segmentListener = segmentListener;
+        writerThread = new HandlerThread(TAG + "WriterThread");
+        writerThread.start();
+        writerHandler = new Handler(writerThread.getLooper());
+    }
+
+    long getWrittenFrames() {
+        return writtenFrames.get();
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    int getPendingFrames() {
+        return pendingFrames.get();
+    }
+
+    /** Audio frames dropped because the encoder had no input buffer for too long. */
+    long getDroppedAudioFrames() {
+        return droppedAudioFrames.get();
+    }
+
+    @Override
+    public void onFrame(VideoFrame frame) {
+        if (locked) {
+            return;
+        }
+        VideoFrame.Buffer buffer = frame.getBuffer();
+        Candidate offered = null;
+        synchronized (recentBuffers) {
+            recentBuffers[recentNext] = new WeakReference<>(buffer);
+            recentNext = (recentNext + 1) % MATCH_HISTORY;
+            for (Candidate candidate : candidates) {
+                if (candidate != null && candidate.buffer.get() == buffer) {
+                    offered = candidate;
+                    break;
+                }
+            }
+        }
+        if (offered != null) {
+            Object source = offered.source.get();
+            if (source != null && isRunning) {
+                bind(source, offered.width, offered.height);
+            }
+        }
+    }
+
+    private boolean matches(VideoFrame frame) {
+        VideoFrame.Buffer buffer = frame.getBuffer();
+        synchronized (recentBuffers) {
+            for (WeakReference<VideoFrame.Buffer> recent : recentBuffers) {
+                if (recent != null && recent.get() == buffer) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called by a tapped codec for each raw frame it encodes or decodes.
+     *
+     * @return whether {@code source} is the codec this recorder records from
+     */
+    boolean offerSource(Object source, VideoFrame frame, int width, int height) {
+        if (locked || !isRunning) {
+            return source == boundSource;
+        }
+        if (source != boundSource && !matches(frame)) {
+            // A decoder offers its output before the track's sinks get it.
+            synchronized (recentBuffers) {
+                candidates[candidateNext] = new Candidate(frame.getBuffer(), source, width, height);
+                candidateNext = (candidateNext + 1) % MATCH_HISTORY;
+            }
+            return false;
+        }
+        return bind(source, width, height);
+    }
+
+    private synchronized boolean bind(Object source, int width, int height) {
+        if (!locked && (boundSource == null || (source != boundSource && width > boundWidth))) {
+            Log.d(TAG, "Recording from " + width + "x" + height + " stream");
+            boundSource = source;
+            boundWidth = width;
+            boundHeight = height;
+            keyframeRequested = true;
+        }
+        return source == boundSource;
+    }
+
+    /** Returns true once per keyframe request if {@code source} should encode a keyframe. */
+    synchronized boolean takeKeyframeRequest(Object source) {
+        if (keyframeRequested && source == boundSource) {
+            keyframeRequested = false;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /** Called by a tapped codec on its own thread; copies the frame and returns. */
+    void onEncodedFrame(Object source, EncodedImage image, String mimeType, long timestampNs) {
+        if (!isRunning || source != boundSource || image.buffer == null) {
+            return;
+        }
+        final boolean keyframe = image.frameType == EncodedImage.FrameType.VideoFrameKey;
+        if (pendingFrames.get() >= MAX_PENDING_FRAMES) {
+            droppedFrames.incrementAndGet();
+            overflowed = true;
+            return;
+        }
+        ByteBuffer src = image.buffer.duplicate();
+        final int size = src.remaining();
+        if (size == 0) {
+            return;
+        }
+        final ByteBuffer copy = obtainBuffer(size);
+        copy.put(src);
+        copy.flip();
+        final int width = image.encodedWidth > 0 ? image.encodedWidth : boundWidth;
+        final int height = image.encodedHeight > 0 ? image.encodedHeight : boundHeight;
+        pendingFrames.incrementAndGet();
+        writerHandler.post(() -> {
+            pendingFrames.decrementAndGet();
+            try {
+                writeVideo(copy, size, keyframe, timestampNs / 1000, width, height, mimeType);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to write video frame", e);
+            } finally {
+                recycleBuffer(copy);
+            }
+        });
+    }
+
+    private ByteBuffer obtainBuffer(int size) {
+        synchronized (bufferPool) {
+            for (int i = bufferPool.size(); i > 0; i--) {
+                ByteBuffer buffer = bufferPool.pollFirst();
+                if (buffer.capacity() >= size) {
+                    buffer.clear();
+                    return buffer;
+                }
+                // Too small for current frames; let it go.
+            }
+        }
+        return ByteBuffer.allocateDirect(size + size / 2);
+    }
+
+    private void recycleBuffer(ByteBuffer buffer) {
+        synchronized (bufferPool) {
+            if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+                bufferPool.addLast(buffer);
+            }
+        }
+    }
+
+    private void writeVideo(ByteBuffer data, int size, boolean keyframe, long ptsUs,
+                            int width, int height, String mimeType) throws IOException {
+        if (!isRunning) {
+            return;
+        }
+        if (overflowed) {
+            // Frames were lost; the next ones can't be decoded without a keyframe.
+            overflowed = false;
+            waitingForKeyframe = true;
+        }
+        if (muxer == null) {
+            if (!keyframe) {
+                maybeRequestKeyframe();
+                droppedFrames.incrementAndGet();
+                return;
+            }
+            if (!openMuxer(data, size, width, height, mimeType)) {
+                return;
+            }
+        }
+        if (!muxer.isStarted() || (waitingForKeyframe && !keyframe)) {
+            waitingForKeyframe = true;
+            maybeRequestKeyframe();
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        waitingForKeyframe = false;
+        if (originUs < 0) {
+            originUs = ptsUs;
+            locked = true;
+        }
+        if (ptsUs < originUs) {
+            return;
+        }
+        videoInfo.set(0, size, ptsUs - originUs, keyframe ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0);
+        muxer.writeSampleData(videoTrackIndex, data, videoInfo);
+        writtenFrames.incrementAndGet();
+    }
+
+    private void maybeRequestKeyframe() {
+        long now = System.nanoTime();
+        if (lastKeyframeRequestNs == Long.MIN_VALUE
+                || now - lastKeyframeRequestNs >= KEYFRAME_REQUEST_INTERVAL_NS) {
+            lastKeyframeRequestNs = now;
+            requestKeyframe();
+        }
+    }
+
+    private boolean openMuxer(ByteBuffer keyframe, int size, int width, int height,
+                              String mimeType) throws IOException {
+        MediaFormat format = MediaFormat.createVideoFormat(mimeType, width, height);
+        boolean mp4 = MediaFormat.MIMETYPE_VIDEO_AVC.equals(mimeType)
+                || MediaFormat.MIMETYPE_VIDEO_HEVC.equals(mimeType);
+        if (mp4 && !putParameterSets(format, keyframe, size, mimeType)) {
+            Log.w(TAG, "Keyframe without parameter sets, waiting for the next one");
+            maybeRequestKeyframe();
+            return false;
+        }
+        muxAudio = withAudio && mp4;
+        if (withAudio && !mp4) {
+            Log.w(TAG, "Audio is not recorded alongside " + mimeType);
+        }
+        muxer = new SegmentedMuxer(outputFile,
+                mp4 ? MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4 : MediaMuxer.OutputFormat.MUXER_OUTPUT_WEBM,
+                muxAudio ? 2 : 1, options.segmentDurationMs, options.segmentMaxBytes, segmentListener);
+        muxer.setKeyframeRequester(this::requestKeyframe);
+        videoTrackIndex = muxer.addTrack(format);
+        if (muxAudio && audioFormat != null) {
+            audioTrackIndex = muxer.addTrack(audioFormat);
+        }
+        Log.d(TAG, "Muxing " + mimeType + " " + width + "x" + height + " to " + outputFile);
+        return true;
+    }
+
+    /**
+     * Copies SPS/PPS (and VPS for H.265) from an Annex B keyframe into the
+     * format's codec-specific data, start codes included.
+     */
+    private static boolean putParameterSets(MediaFormat format, ByteBuffer data, int size,
+                                            String mimeType) {
+        boolean hevc = MediaFormat.MIMETYPE_VIDEO_HEVC.equals(mimeType);
+        ByteBuffer sps = null;
+        ByteBuffer pps = null;
+        int parameterSetsStart = -1;
+        int parameterSetsEnd = -1;
+        int i = 0;
+        while (i + 3 < size) {
+            int startCode = startCodeLength(data, i, size);
+            if (startCode == 0) {
+                i++;
+                continue;
+            }
+            int header = i + startCode;
+            int next = header;
+            while (next + 3 < size && startCodeLength(data, next, size) == 0) {
+                next++;
+            }
+            int end = next + 3 < size ? next : size;
+            int type = hevc ? (data.get(header) >> 1) & 0x3f : data.get(header) & 0x1f;
+            if (hevc) {
+                // VPS, SPS and PPS travel together in csd-0.
+                if (type >= 32 && type <= 34) {
+                    if (parameterSetsStart < 0) {
+                        parameterSetsStart = i;
+                    }
+                    parameterSetsEnd = end;
+                }
+            } else if (type == 7) {
+                sps = slice(data, i, end);
+            } else if (type == 8) {
+                pps = slice(data, i, end);
+            }
+            i = end;
+        }
+        if (hevc) {
+            if (parameterSetsStart < 0) {
+                return false;
+            }
+            format.setByteBuffer("csd-0", slice(data, parameterSetsStart, parameterSetsEnd));
+            return true;
+        }
+        if (sps == null || pps == null) {
+            return false;
+        }
+        format.setByteBuffer("csd-0", sps);
+        format.setByteBuffer("csd-1", pps);
+        return true;
+    }
+
+    private static int startCodeLength(ByteBuffer data, int i, int size) {
+        if (data.get(i) != 0 || data.get(i + 1) != 0) {
+            return 0;
+        }
+        if (data.get(i + 2) == 1) {
+            return 3;
+        }
+        if (i + 3 < size && data.get(i + 2) == 0 && data.get(i + 3) == 1) {
+            return 4;
+        }
+        return 0;
+    }
+
+    private static ByteBuffer slice(ByteBuffer data, int start, int end) {
+        ByteBuffer copy = ByteBuffer.allocate(end - start);
+        for (int i = start; i < end; i++) {
+            copy.put(data.get(i));
+        }
+        copy.flip();
+        return copy;
+    }
+
+    @Override
+    public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
+        if (!isRunning || !withAudio) {
+            return;
+        }
+        final long arrivalUs = System.nanoTime() / 1000;
+        writerHandler.post(() -> {
+            try {
+                encodeAudio(audioSamples, arrivalUs);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to encode audio", e);
+            }
+        });
+    }
+
+    private void encodeAudio(JavaAudioDeviceModule.AudioSamples samples, long arrivalUs)
+            throws IOException {
+        if (!isRunning) {
+            return;
+        }
+        if (audioEncoder == null) {
+            MediaFormat format = new MediaFormat();
+            format.setString(MediaFormat.KEY_MIME, MediaFormat.MIMETYPE_AUDIO_AAC);
+            format.setInteger(MediaFormat.KEY_CHANNEL_COUNT, samples.getChannelCount());
+            format.setInteger(MediaFormat.KEY_SAMPLE_RATE, samples.getSampleRate());
+            format.setInteger(MediaFormat.KEY_BIT_RATE, 64 * 1024);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            audioEncoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            audioEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            audioEncoder.start();
+            // Audio time runs on the same clock as capture timestamps.
+            audioStartUs = arrivalUs;
+        }
+        pendingAudio.addLast(samples);
+        if (pendingAudio.size() > MAX_PENDING_AUDIO_FRAMES) {
+            // Keep the timeline: the dropped samples still advance the clock.
+            JavaAudioDeviceModule.AudioSamples dropped = pendingAudio.pollFirst();
+            audioSamplesQueued += dropped.getData().length / (2L * dropped.getChannelCount());
+            if (droppedAudioFrames.getAndIncrement() == 0) {
+                Log.w(TAG, "Audio encoder is not keeping up, dropping audio");
+            }
+        }
+        // Free input buffers as output is consumed, then feed the backlog.
+        drainAudio();
+        while (!pendingAudio.isEmpty()) {
+            int index = audioEncoder.dequeueInputBuffer(0);
+            if (index < 0) {
+                // Retried with the next callback.
+                break;
+            }
+            JavaAudioDeviceModule.AudioSamples next = pendingAudio.pollFirst();
+            byte[] data = next.getData();
+            ByteBuffer buffer = audioEncoder.getInputBuffer(index);
+            if (buffer != null && data.length <= buffer.capacity()) {
+                buffer.clear();
+                buffer.put(data);
+                long ptsUs = audioStartUs + audioSamplesQueued * 1_000_000L / next.getSampleRate();
+                audioSamplesQueued += data.length / (2L * next.getChannelCount());
+                audioEncoder.queueInputBuffer(index, 0, data.length, ptsUs, 0);
+            } else {
+                audioSamplesQueued += data.length / (2L * next.getChannelCount());
+                droppedAudioFrames.incrementAndGet();
+                audioEncoder.queueInputBuffer(index, 0, 0, 0, 0);
+            }
+        }
+        drainAudio();
+    }
+
+    private void drainAudio() {
+        while (true) {
+            int index = audioEncoder.dequeueOutputBuffer(audioInfo, 0);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                return;
+            }
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                audioFormat = audioEncoder.getOutputFormat();
+                if (muxer != null && muxAudio && audioTrackIndex < 0) {
+                    audioTrackIndex = muxer.addTrack(audioFormat);
+                }
+                continue;
+            }
+            if (index < 0) {
+                continue;
+            }
+            ByteBuffer encoded = audioEncoder.getOutputBuffer(index);
+            boolean config = (audioInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+            if (encoded != null && !config && audioInfo.size > 0 && muxer != null
+                    && audioTrackIndex >= 0 && originUs >= 0
+                    && audioInfo.presentationTimeUs >= originUs) {
+                encoded.position(audioInfo.offset);
+                encoded.limit(audioInfo.offset + audioInfo.size);
+                audioInfo.presentationTimeUs -= originUs;
+                muxer.writeSampleData(audioTrackIndex, encoded, audioInfo);
+            }
+            audioEncoder.releaseOutputBuffer(index, false);
+        }
+    }
+
+    /** Finalizes the file; frames still queued are written first. */
+    void release() {
+        CountDownLatch latch = new CountDownLatch(1);
+        writerHandler.post(() -> {
+            isRunning = false;
+            try {
+                if (audioEncoder != null) {
+                    try {
+                        audioEncoder.stop();
+                    } catch (Exception e) {
+                        Log.w(TAG, "Failed to stop audio encoder", e);
+                    }
+                    audioEncoder.release();
+                    audioEncoder = null;
+                }
+                if (muxer != null) {
+                    muxer.release();
+                    muxer = null;
+                }
+            } finally {
+                writerThread.quit();
+                latch.countDown();
+            }
+        });
+        try {
+            if (!latch.await(2, TimeUnit.SECONDS)) {
+                Log.w(TAG, "Release timed out, proceeding anyway");
+            }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Release interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+        synchronized (bufferPool) {
+            bufferPool.clear();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.media.MediaFormat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+import io.getstream.webrtc.flutter.utils.ObjectType;
+
+/**
+ * Options passed to {@code startRecordToFile} under {@code options}.
+ */
+public class RecordingOptions {
+
+    /** What the video encoder does when its in-flight frame budget is used up. */
+    public enum DropPolicy {
+        /** Evict the oldest frame still waiting to be rendered. */
+        DROP_OLDEST,
+        /** Discard the incoming frame. */
+        DROP_NEWEST,
+        /**
+         * Discard incoming frames, except one due to start a new GOP, which
+         * evicts the oldest waiting frame and is encoded as a keyframe. Drops
+         * then never stretch the keyframe interval.
+         */
+        KEYFRAME_CADENCE
+    }
+
+    /** Rate control requested from the video encoder. */
+    public enum BitrateMode {
+        /** Variable bitrate around the target; the default. */
+        VBR,
+        /** Constant bitrate; predictable file growth. */
+        CBR,
+        /** Constant quality; bitrate follows scene complexity. VBR below API 28. */
+        CQ
+    }
+
+    /** Codec of audio-only recordings. */
+    public enum AudioCodec {
+        /** AAC-LC in MP4; the default. */
+        AAC,
+        /** Opus in Ogg, or WebM for {@code .webm} paths; needs Android 10. */
+        OPUS
+    }
+
+    public static final int DEFAULT_MAX_IN_FLIGHT_FRAMES = 4;
+
+    /** Frames queued for rendering plus frames inside the encoder. */
+    public int maxInFlightFrames = DEFAULT_MAX_IN_FLIGHT_FRAMES;
+    public DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+
+    /** {@code video/avc} or {@code video/hevc}; HEVC falls back to AVC when unsupported. */
+    public String videoMimeType = MediaFormat.MIMETYPE_VIDEO_AVC;
+    public int frameRate = 30;
+    /** Seconds between keyframes. */
+    public int keyFrameIntervalSec = 5;
+    public BitrateMode bitrateMode = BitrateMode.VBR;
+    /** Target video bitrate in bits per second; 0 derives it from size and frame rate. */
+    public int videoBitrate = 0;
+
+    public AudioCodec audioCodec = AudioCodec.AAC;
+    /** Target audio bitrate in bits per second; 0 picks a default for the codec. */
+    public int audioBitrate = 0;
+    /** PCM collected before the encoder is fed, in milliseconds. */
+    public int audioBatchMs = 100;
+    /**
+     * Record microphone and playback mixed into one track instead of the
+     * requested audio channel; see {@link ConversationAudioInterceptor}.
+     */
+    public boolean conversationAudio = false;
+
+    /**
+     * Mux the frames WebRTC already encodes for the track instead of
+     * re-encoding them; see {@link PassthroughRecorder}.
+     */
+    public boolean passthrough = false;
+
+    /** Rotate to a new output file after this much media time; 0 disables. */
+    public long segmentDurationMs = 0;
+    /** Rotate to a new output file after this many bytes of samples; 0 disables. */
+    public long segmentMaxBytes = 0;
+
+    /** Whether the recording is split into segment files. */
+    public boolean isSegmented() {
+        return segmentDurationMs > 0 || segmentMaxBytes > 0;
+    }
+
+    @NonNull
+    public static RecordingOptions fromMap(@Nullable ConstraintsMap map) {
+        RecordingOptions options = new RecordingOptions();
+        if (map == null) {
+            return options;
+        }
+        if (map.getType("maxInFlightFrames") == ObjectType.Number) {
+            options.maxInFlightFrames = Math.max(1, map.getInt("maxInFlightFrames"));
+        }
+        if (map.getType("dropPolicy") == ObjectType.String) {
+            switch (map.getString("dropPolicy")) {
+                case "dropNewest":
+                    options.dropPolicy = DropPolicy.DROP_NEWEST;
+                    break;
+                case "keyframeCadence":
+                    options.dropPolicy = DropPolicy.KEYFRAME_CADENCE;
+                    break;
+                default:
+                    options.dropPolicy = DropPolicy.DROP_OLDEST;
+                    break;
+            }
+        }
+        if (map.getType("videoCodec") == ObjectType.String) {
+            options.videoMimeType = "hevc".equals(map.getString("videoCodec"))
+                    ? MediaFormat.MIMETYPE_VIDEO_HEVC : MediaFormat.MIMETYPE_VIDEO_AVC;
+        }
+        if (map.getType("frameRate") == ObjectType.Number) {
+            options.frameRate = Math.max(1, map.getInt("frameRate"));
+        }
+        if (map.getType("keyFrameIntervalSec") == ObjectType.Number) {
+            options.keyFrameIntervalSec = Math.max(1, map.getInt("keyFrameIntervalSec"));
+        }
+        if (map.getType("bitrateMode") == ObjectType.String) {
+            switch (map.getString("bitrateMode")) {
+                case "cbr":
+                    options.bitrateMode = BitrateMode.CBR;
+                    break;
+                case "cq":
+                    options.bitrateMode = BitrateMode.CQ;
+                    break;
+                default:
+                    options.bitrateMode = BitrateMode.VBR;
+                    break;
+            }
+        }
+        if (map.getType("videoBitrate") == ObjectType.Number) {
+            options.videoBitrate = Math.max(0, map.getInt("videoBitrate"));
+        }
+        if (map.getType("audioCodec") == ObjectType.String) {
+            options.audioCodec = "opus".equals(map.getString("audioCodec"))
+                    ? AudioCodec.OPUS : AudioCodec.AAC;
+        }
+        if (map.getType("audioBitrate") == ObjectType.Number) {
+            options.audioBitrate = Math.max(0, map.getInt("audioBitrate"));
+        }
+        if (map.getType("audioBatchMs") == ObjectType.Number) {
+            options.audioBatchMs = Math.max(10, Math.min(1000, map.getInt("audioBatchMs")));
+        }
+        if (map.getType("conversationAudio") == ObjectType.Boolean) {
+            options.conversationAudio = map.getBoolean("conversationAudio");
+        }
+        if (map.getType("passthrough") == ObjectType.Boolean) {
+            options.passthrough = map.getBoolean("passthrough");
+        }
+        if (map.getType("segmentDurationMs") == ObjectType.Number) {
+            options.segmentDurationMs = Math.max(0, (long) map.getDouble("segmentDurationMs"));
+        }
+        if (map.getType("segmentMaxBytes") == ObjectType.Number) {
+            options.segmentMaxBytes = Math.max(0, (long) map.getDouble("segmentMaxBytes"));
+        }
+        return options;
+    }
+}
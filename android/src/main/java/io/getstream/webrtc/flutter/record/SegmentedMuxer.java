@@ -0,0 +1,281 @@
+package io.getstream.webrtc.flutter.record;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link MediaMuxer} that optionally rotates its output into consecutive
+ * files once a segment reaches a duration or byte threshold.
+ *
+ * Every segment is a complete, independently playable file: the muxer is
+ * stopped (writing the moov atom) before the next one is opened, so a crash
+ * only loses the segment in progress. When a video track is present,
+ * rotation waits for the next keyframe so each segment starts decodable;
+ * {@link #setKeyframeRequester} lets the video encoder be asked for one as
+ * soon as the threshold is hit. Timestamps restart at zero in every segment.
+ *
+ * Without thresholds this behaves like a plain muxer writing to the given
+ * path. Segment files are named {@code <name>_<index>.<ext>} next to it.
+ *
+ * All methods may be called from any thread.
+ */
+class SegmentedMuxer {
+    private static final String TAG = "SegmentedMuxer";
+
+    /** Notified on a background thread once a segment file is closed. */
+    interface Listener {
+        void onSegmentCompleted(String path, int index, long durationUs, long sizeBytes);
+    }
+
+    private final String outputFile;
+    private final int outputFormat;
+    private final int expectedTracks;
+    private final long maxDurationUs;
+    private final long maxBytes;
+    @Nullable
+    private final Listener listener;
+    private final boolean segmented;
+
+    // Track formats in the order they were added, replayed into every segment.
+    private final List<MediaFormat> formats = new ArrayList<>();
+    private int videoTrack = -1;
+    private final MediaCodec.BufferInfo rebasedInfo = new MediaCodec.BufferInfo();
+
+    private MediaMuxer muxer;
+    private String segmentPath;
+    private int segmentIndex = 0;
+    private boolean started = false;
+    private boolean released = false;
+    // Presentation time (us) that maps to zero in the current segment; -1 until
+    // the first sample is written.
+    private long segmentBaseUs = -1;
+    private long segmentLastUs = 0;
+    private long segmentBytes = 0;
+    private boolean rotationDue = false;
+    @Nullable
+    private Runnable keyframeRequester;
+
+    // Closing a segment writes its index; keep that off the encoder threads.
+    @Nullable
+    private final ExecutorService closeExecutor;
+
+    /**
+     * @param expectedTracks tracks to add before the muxer starts
+     * @param maxDurationMs  rotate after this much media time, or 0
+     * @param maxBytes       rotate after this many sample bytes, or 0
+     */
+    SegmentedMuxer(String outputFile, int outputFormat, int expectedTracks,
+                   long maxDurationMs, long maxBytes, @Nullable Listener listener) throws IOException {
+        this.outputFile = outputFile;
+        this.outputFormat = outputFormat;
+        this.expectedTracks = expectedTracks;
+        this.maxDurationUs = Math.max(0, maxDurationMs) * 1000;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.listener = listener;
+        this.segmented = this.maxDurationUs > 0 || this.maxBytes > 0;
+        this.closeExecutor = segmented ? Executors.newSingleThreadExecutor() : null;
+        openSegment();
+    }
+
+    SegmentedMuxer(String outputFile, int outputFormat, int expectedTracks) throws IOException {
+        this(outputFile, outputFormat, expectedTracks, 0, 0, null);
+    }
+
+    private void openSegment() throws IOException {
+        segmentPath = segmented ? segmentPath(outputFile, segmentIndex) : outputFile;
+        muxer = new MediaMuxer(segmentPath, outputFormat);
+        // A single file keeps the timestamps it is given.
+        segmentBaseUs = segmented ? -1 : 0;
+        segmentLastUs = 0;
+        segmentBytes = 0;
+    }
+
+    static String segmentPath(String outputFile, int index) {
+        int slash = outputFile.lastIndexOf('/');
+        int dot = outputFile.lastIndexOf('.');
+        String suffix = String.format(Locale.US, "_%04d", index);
+        if (dot <= slash) {
+            return outputFile + suffix;
+        }
+        return outputFile.substring(0, dot) + suffix + outputFile.substring(dot);
+    }
+
+    synchronized void setKeyframeRequester(@Nullable Runnable requester) {
+        this.keyframeRequester = requester;
+    }
+
+    /**
+     * Adds a track; the muxer starts once all expected tracks are added.
+     *
+     * @return the track index to pass to {@link #writeSampleData}
+     */
+    synchronized int addTrack(MediaFormat format) {
+        int index = muxer.addTrack(format);
+        formats.add(format);
+        String mime = format.getString(MediaFormat.KEY_MIME);
+        if (mime != null && mime.startsWith("video/")) {
+            videoTrack = index;
+        }
+        if (formats.size() >= expectedTracks && !started) {
+            muxer.start();
+            started = true;
+        }
+        return index;
+    }
+
+    synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Writes one encoded sample, rotating to a new segment first if the
+     * current one is due and this sample can start a segment. Samples written
+     * before the muxer has started are dropped.
+     */
+    synchronized void writeSampleData(int track, ByteBuffer data, MediaCodec.BufferInfo info) {
+        if (!started || released) {
+            return;
+        }
+        if (rotationDue && canStartSegment(track, info)) {
+            rotate();
+            if (!started) {
+                return;
+            }
+        }
+        long ptsUs = info.presentationTimeUs;
+        if (segmentBaseUs < 0) {
+            segmentBaseUs = ptsUs;
+        }
+        if (ptsUs < segmentBaseUs) {
+            // Audio encoded before the keyframe that opened this segment.
+            return;
+        }
+        rebasedInfo.set(info.offset, info.size, ptsUs - segmentBaseUs, info.flags);
+        muxer.writeSampleData(track, data, rebasedInfo);
+        segmentLastUs = Math.max(segmentLastUs, ptsUs - segmentBaseUs);
+        segmentBytes += info.size;
+
+        if (segmented && !rotationDue
+                && ((maxDurationUs > 0 && segmentLastUs >= maxDurationUs)
+                || (maxBytes > 0 && segmentBytes >= maxBytes))) {
+            rotationDue = true;
+            if (videoTrack >= 0 && keyframeRequester != null) {
+                keyframeRequester.run();
+            }
+        }
+    }
+
+    private boolean canStartSegment(int track, MediaCodec.BufferInfo info) {
+        if (videoTrack < 0) {
+            return true;
+        }
+        return track == videoTrack && (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+    }
+
+    private void rotate() {
+        final MediaMuxer finished = muxer;
+        final String finishedPath = segmentPath;
+        final int finishedIndex = segmentIndex;
+        final long durationUs = segmentLastUs;
+        final long bytes = segmentBytes;
+        closeExecutor.execute(() -> closeSegment(finished, finishedPath, finishedIndex, durationUs, bytes));
+
+        rotationDue = false;
+        segmentIndex++;
+        try {
+            openSegment();
+            for (MediaFormat format : formats) {
+                muxer.addTrack(format);
+            }
+            muxer.start();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to open segment " + segmentIndex, e);
+            started = false;
+            muxer = null;
+        }
+    }
+
+    private void closeSegment(MediaMuxer finished, String path, int index, long durationUs, long bytes) {
+        try {
+            finished.stop();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to finalize segment " + path, e);
+            return;
+        } finally {
+            try {
+                finished.release();
+            } catch (Exception ignored) {
+            }
+        }
+        if (listener != null) {
+            listener.onSegmentCompleted(path, index, durationUs, bytes);
+        }
+    }
+
+    /**
+     * Finalizes the current file. In segmented mode this waits for earlier
+     * segments to be closed, then reports the last one as completed too.
+     */
+    void release() {
+        MediaMuxer last;
+        boolean wasStarted;
+        String lastPath;
+        int lastIndex;
+        long lastDurationUs;
+        long lastBytes;
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+            last = muxer;
+            wasStarted = started;
+            lastPath = segmentPath;
+            lastIndex = segmentIndex;
+            lastDurationUs = segmentLastUs;
+            lastBytes = segmentBytes;
+            started = false;
+            muxer = null;
+        }
+        if (closeExecutor != null) {
+            closeExecutor.shutdown();
+            try {
+                closeExecutor.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (last == null) {
+            return;
+        }
+        if (wasStarted) {
+            if (segmented) {
+                closeSegment(last, lastPath, lastIndex, lastDurationUs, lastBytes);
+                return;
+            }
+            try {
+                last.stop();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to stop muxer", e);
+            }
+        }
+        try {
+            last.release();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to release muxer", e);
+        }
+    }
+}
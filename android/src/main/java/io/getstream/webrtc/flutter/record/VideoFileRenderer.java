@@ -5,11 +5,14 @@ import android.media.MediaCodecInfo;
 import android.media.MediaFormat;
 import android.media.MediaMuxer;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.util.Log;
 import android.view.Surface;
 
+import androidx.annotation.Nullable;
+
 import org.webrtc.EglBase;
 import org.webrtc.GlRectDrawer;
 import org.webrtc.VideoFrame;
@@ -21,12 +24,11 @@ import org.webrtc.audio.JavaAudioDeviceModule.SamplesReadyCallback;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
     private static final String TAG = "VideoFileRenderer";
@@ -34,33 +36,67 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
     private final Handler renderThreadHandler;
     private final HandlerThread audioThread;
     private final Handler audioThreadHandler;
-    private int outputFileWidth = -1;
-    private int outputFileHeight = -1;
-    private ByteBuffer[] encoderOutputBuffers;
+    private volatile int outputFileWidth = -1;
+    private volatile int outputFileHeight = -1;
     private ByteBuffer[] audioInputBuffers;
     private ByteBuffer[] audioOutputBuffers;
     private EglBase eglBase;
     private final EglBase.Context sharedContext;
     private VideoFrameDrawer frameDrawer;
 
-    // TODO: these ought to be configurable as well
-    private static final String MIME_TYPE = "video/avc";    // H.264 Advanced Video Coding
-    private static final int FRAME_RATE = 30;               // 30fps
-    private static final int IFRAME_INTERVAL = 5;           // 5 seconds between I-frames
+    // Seconds between keyframes of the configured encoder.
+    private int keyFrameIntervalSec;
 
-    private final MediaMuxer mediaMuxer;
+    private final SegmentedMuxer mediaMuxer;
     private MediaCodec encoder;
     private final MediaCodec.BufferInfo bufferInfo;
     private MediaCodec.BufferInfo audioBufferInfo;
     private int trackIndex = -1;
     private int audioTrackIndex;
-    private boolean isRunning = true;
+    private volatile boolean isRunning = true;
     private GlRectDrawer drawer;
     private Surface surface;
     private MediaCodec audioEncoder;
-    private boolean encoderInitFailed = false;
+    private volatile boolean encoderInitFailed = false;
+
+    private final RecordingOptions options;
+    // Frames accepted by onFrame and not yet drawn, oldest first, and the
+    // presentation times (us) of drawn frames the encoder has not emitted yet.
+    // Together they make up the in-flight budget. Guarded by frameLock.
+    private final Object frameLock = new Object();
+    private final ArrayDeque<VideoFrame> pendingFrames = new ArrayDeque<>();
+    private final long[] inFlightPts;
+    private int inFlightHead = 0;
+    private int inFlightCount = 0;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile long encodedFrames = 0;
+    // Capture time (ns) from which the next frame starts a new GOP; only used
+    // with DropPolicy.KEYFRAME_CADENCE.
+    private volatile long nextKeyframeNs = Long.MIN_VALUE;
+    private volatile boolean droppedSinceKeyframe = false;
+
+    // While paused, frames and samples are discarded but the encoders and
+    // muxer stay configured. Video timestamps after a resume are shifted back
+    // by the gap so the file plays continuously; the AAC track is timed by
+    // sample count and needs no shift. The last three are render thread only.
+    private volatile boolean paused = false;
+    private final long frameIntervalNs;
+    private boolean resumePending = false;
+    private long lastCaptureNs = Long.MIN_VALUE;
+    private long pausedDurationNs = 0;
+
+    VideoFileRenderer(String outputFile, final EglBase.Context sharedContext, boolean withAudio,
+                      RecordingOptions options) throws IOException {
+        this(outputFile, sharedContext, withAudio, options, null);
+    }
 
-    VideoFileRenderer(String outputFile, final EglBase.Context sharedContext, boolean withAudio) throws IOException {
+    VideoFileRenderer(String outputFile, final EglBase.Context sharedContext, boolean withAudio,
+                      RecordingOptions options, @Nullable SegmentedMuxer.Listener segmentListener)
+            throws IOException {
+        this.options = options;
+        this.keyFrameIntervalSec = options.keyFrameIntervalSec;
+        this.inFlightPts = new long[options.maxInFlightFrames];
+        this.frameIntervalNs = 1_000_000_000L / options.frameRate;
         renderThread = new HandlerThread(TAG + "RenderThread");
         renderThread.start();
         renderThreadHandler = new Handler(renderThread.getLooper());
@@ -78,29 +114,46 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
         // Create a MediaMuxer.  We can't add the video track and start() the muxer here,
         // because our MediaFormat doesn't have the Magic Goodies.  These can only be
         // obtained from the encoder after it has started processing data.
-        mediaMuxer = new MediaMuxer(outputFile,
-                MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        mediaMuxer = new SegmentedMuxer(outputFile,
+                MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4, withAudio ? 2 : 1,
+                options.segmentDurationMs, options.segmentMaxBytes, segmentListener);
+        // Cut segments promptly instead of waiting out the GOP.
+        mediaMuxer.setKeyframeRequester(this::requestKeyframe);
 
         audioTrackIndex = withAudio ? -1 : 0;
     }
     private boolean tryConfigureEncoder(EncoderConfig config) {
         try {
-            MediaFormat format = MediaFormat.createVideoFormat(MIME_TYPE, config.width, config.height);
+            MediaFormat format = MediaFormat.createVideoFormat(config.mimeType, config.width, config.height);
             format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
             format.setInteger(MediaFormat.KEY_BIT_RATE, config.bitrate);
-            format.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
-            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, IFRAME_INTERVAL);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, config.frameRate);
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, config.keyFrameIntervalSec);
+            if (config.bitrateMode >= 0) {
+                format.setInteger(MediaFormat.KEY_BITRATE_MODE, config.bitrateMode);
+            }
+            if (config.quality != EncoderConfig.QUALITY_DEFAULT
+                    && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                format.setInteger(MediaFormat.KEY_QUALITY, config.quality);
+            }
+            if (config.profile != EncoderConfig.PROFILE_DEFAULT) {
+                format.setInteger(MediaFormat.KEY_PROFILE, config.profile);
+            }
 
             Log.d(TAG, "Trying encoder config: " + config);
 
-            encoder = MediaCodec.createEncoderByType(MIME_TYPE);
-            String codecName = encoder.getName();
-            Log.d(TAG, "Codec name: " + codecName);
-            if (shouldForceCodecProfile(codecName)) {
-                format.setInteger(MediaFormat.KEY_PROFILE, config.profile);
+            encoder = config.codecName != null
+                    ? MediaCodec.createByCodecName(config.codecName)
+                    : MediaCodec.createEncoderByType(config.mimeType);
+            // Asynchronous mode must be selected before configure(). Below API 23
+            // callbacks go to the looper of the creating thread, which is the
+            // render thread since initVideoEncoder() runs there.
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                encoder.setCallback(encoderCallback, renderThreadHandler);
             } else {
-                Log.w(TAG, "Skip explicit H264 profile for codec: " + codecName);
+                encoder.setCallback(encoderCallback);
             }
+            Log.d(TAG, "Codec name: " + encoder.getName());
 
             encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
             // Create input surface *before* starting the encoder
@@ -124,18 +177,9 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
         }
     }
 
-    private boolean shouldForceCodecProfile(String codecName) {
-        if (codecName == null) {
-            return true;
-        }
-        return !codecName.startsWith("OMX.qcom.")
-                && !"OMX.hisi.video.encoder.avc".equals(codecName);
-    }
-
     private boolean startEncoder() {
         try {
             encoder.start();
-            encoderOutputBuffers = encoder.getOutputBuffers();
             Log.d(TAG, "Encoder started successfully");
             return true;
         } catch (Exception e) {
@@ -155,83 +199,17 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
         }
     }
 
-    private List<EncoderConfig> getSupportedConfigurations(int frameWidth, int frameHeight) {
-        
-        int[] bitrates = {6000000, 4000000, 2000000, 1000000};
-        int[] profiles = {
-                MediaCodecInfo.CodecProfileLevel.AVCProfileBaseline,
-                MediaCodecInfo.CodecProfileLevel.AVCProfileMain,
-                MediaCodecInfo.CodecProfileLevel.AVCProfileHigh
-        };
-        List<int[]> resolutions = new ArrayList<>();
-        resolutions.add(new int[]{frameWidth, frameHeight});
-        for (int[] res : Arrays.asList(
-                new int[]{1920, 1080},
-                new int[]{1280, 720},
-                new int[]{854, 480},
-                new int[]{640, 360},
-                new int[]{426, 240})) {
-            // only add resolutions bellow the original stream resolution
-            if (res[0] <= frameWidth && res[1] <= frameHeight
-                    && !containsResolution(resolutions, res[0], res[1])) {
-                resolutions.add(res);
-            }
-        }
-
-        List<EncoderConfig> configs = new ArrayList<>();
-        for (int[] res : resolutions) {
-            for (int bitrate : bitrates) {
-                for (int profile : profiles) {
-                    configs.add(new EncoderConfig(res[0], res[1], bitrate, profile));
-                }
-            }
-        }
-
-        // Sort: prioritize higher resolutions, higher bitrates, Baseline profile
-        Collections.sort(configs, new Comparator<EncoderConfig>() {
-            @Override
-            public int compare(EncoderConfig c1, EncoderConfig c2) {
-                int resCompare = Integer.compare(c2.width * c2.height, c1.width * c1.height);
-                if (resCompare != 0) return resCompare;
-                int bitrateCompare = Integer.compare(c2.bitrate, c1.bitrate);
-                if (bitrateCompare != 0) return bitrateCompare;
-                return Integer.compare(c1.profile, c2.profile); // Baseline first
-            }
-        });
-
-        return configs;
-    }
-
-    private boolean isProfileSupported(MediaCodecInfo codecInfo, String mimeType, int profile) {
-        try {
-            MediaCodecInfo.CodecCapabilities caps = codecInfo.getCapabilitiesForType(mimeType);
-            for (MediaCodecInfo.CodecProfileLevel pl : caps.profileLevels) {
-                if (pl.profile == profile) {
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to check profile support: " + e.getMessage());
-        }
-        return false;
-    }
-
-    private boolean containsResolution(List<int[]> resolutions, int width, int height) {
-        for (int[] resolution : resolutions) {
-            if (resolution[0] == width && resolution[1] == height) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void resetVideoEncoderState() {
         encoderStarted = false;
         outputFileWidth = -1;
         outputFileHeight = -1;
-        encoderOutputBuffers = null;
         trackIndex = -1;
         videoFrameStart = 0;
+        synchronized (frameLock) {
+            inFlightHead = 0;
+            inFlightCount = 0;
+        }
+        nextKeyframeNs = Long.MIN_VALUE;
     }
 
     private void releaseVideoEncoderResources() {
@@ -301,82 +279,55 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
     }
 
 
+    /**
+     * Render thread: the codec is created here so that its callbacks share this
+     * thread with renderNextFrame() and release() on every API level.
+     */
     private void initVideoEncoder(int frameWidth, int frameHeight) {
+        if (!isRunning) {
+            encoderInitializing = false;
+            return;
+        }
         releaseVideoEncoderResources();
         resetVideoEncoderState();
         encoderInitFailed = false;
 
-        // Check codec capabilities
-        MediaCodecInfo codecInfo = null;
-        String codecName = null;
-        try {
-            MediaCodec codec = MediaCodec.createEncoderByType(MIME_TYPE);
-            codecInfo = codec.getCodecInfo();
-            codecName = codecInfo.getName();
-            codec.release();
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to get codec info: " + e.getMessage());
+        // Resolved once from the cached capability probe; the plain AVC
+        // config is only a safety net for codecs that misreport capabilities.
+        List<EncoderConfig> configs = new ArrayList<>(2);
+        EncoderConfig resolved = EncoderProbe.resolve(options, frameWidth, frameHeight);
+        if (resolved != null) {
+            configs.add(resolved);
         }
-
-        List<EncoderConfig> configs = getSupportedConfigurations(frameWidth, frameHeight);
+        int fallbackWidth = resolved != null ? resolved.width : frameWidth & ~1;
+        int fallbackHeight = resolved != null ? resolved.height : frameHeight & ~1;
+        configs.add(new EncoderConfig(MediaFormat.MIMETYPE_VIDEO_AVC, null,
+                fallbackWidth, fallbackHeight,
+                EncoderProbe.targetBitrate(options, MediaFormat.MIMETYPE_VIDEO_AVC,
+                        fallbackWidth, fallbackHeight, options.frameRate),
+                EncoderConfig.PROFILE_DEFAULT, options.frameRate,
+                options.keyFrameIntervalSec, -1, EncoderConfig.QUALITY_DEFAULT));
 
         for (EncoderConfig config : configs) {
-            // Skip unsupported configurations
-            if (codecInfo != null) {
-                MediaCodecInfo.VideoCapabilities videoCaps = codecInfo.getCapabilitiesForType(MIME_TYPE).getVideoCapabilities();
-                if (!videoCaps.isSizeSupported(config.width, config.height)) {
-                    Log.d(TAG, "Skipping unsupported resolution: " + config);
-                    continue;
-                }
-                if (!videoCaps.getBitrateRange().contains(config.bitrate)) {
-                    Log.d(TAG, "Skipping unsupported bitrate: " + config);
-                    continue;
-                }
-                if (!shouldForceCodecProfile(codecName)
-                        && config.profile != MediaCodecInfo.CodecProfileLevel.AVCProfileBaseline) {
-                    Log.d(TAG, "Skipping redundant profile retry for codec " + codecName + ": " + config);
-                    continue;
-                }
-                if (shouldForceCodecProfile(codecName)
-                        && !isProfileSupported(codecInfo, MIME_TYPE, config.profile)) {
-                    Log.d(TAG, "Skipping unsupported profile: " + config);
-                    continue;
-                }
-            }
-
             if (tryConfigureEncoder(config) && startEncoder()) {
                 outputFileWidth = config.width;
                 outputFileHeight = config.height;
-                CountDownLatch latch = new CountDownLatch(1);
-                renderThreadHandler.post(() -> {
-                    try {
-                        boolean didSetup = false;
-                        if (sharedContext != null) {
-                            didSetup = setupEncoderSurface(sharedContext, "shared");
-                        }
-                        if (!didSetup) {
-                            didSetup = setupEncoderSurface(null, "standalone");
-                        }
-                        encoderStarted = didSetup;
-                        if (!didSetup) {
-                            resetVideoEncoderState();
-                            releaseVideoEncoderResources();
-                            Log.e(TAG, "Failed to setup EGL surface for config: " + config);
-                        }
-                    } finally {
-                        encoderInitializing = false;
-                        latch.countDown();
-                    }
-                });
-                try {
-                    latch.await();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    Log.e(TAG, "Interrupted while awaiting EGL setup: " + e.getMessage());
+                keyFrameIntervalSec = config.keyFrameIntervalSec;
+                boolean didSetup = false;
+                if (sharedContext != null) {
+                    didSetup = setupEncoderSurface(sharedContext, "shared");
+                }
+                if (!didSetup) {
+                    didSetup = setupEncoderSurface(null, "standalone");
                 }
-                if (encoderStarted) {
+                if (didSetup) {
+                    encoderStarted = true;
+                    encoderInitializing = false;
                     return;
                 }
+                resetVideoEncoderState();
+                releaseVideoEncoderResources();
+                Log.e(TAG, "Failed to setup EGL surface for config: " + config);
             }
         }
 
@@ -385,28 +336,127 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
         encoderInitFailed = true;
         Log.e(TAG, "Failed to configure and start encoder with any supported configuration.");
     }
+    /** Stops accepting frames and samples; already queued frames are still encoded. */
+    void pause() {
+        paused = true;
+    }
+
+    /**
+     * Accepts frames again. Frames queued before the pause are rendered
+     * first, so the timestamp shift is measured from the last of them.
+     */
+    void resume() {
+        if (!paused) {
+            return;
+        }
+        renderThreadHandler.post(() -> resumePending = true);
+        paused = false;
+    }
+
     @Override
     public void onFrame(VideoFrame frame) {
-        if (!isRunning || encoderInitFailed) {
+        if (!isRunning || encoderInitFailed || paused) {
             return;
         }
-        frame.retain();
         if (outputFileWidth == -1 && !encoderInitializing) {
             encoderInitializing = true;
-            int frameWidth = frame.getRotatedWidth();
-            int frameHeight = frame.getRotatedHeight();
-            initVideoEncoder(frameWidth, frameHeight);
+            final int frameWidth = frame.getRotatedWidth();
+            final int frameHeight = frame.getRotatedHeight();
+            renderThreadHandler.post(() -> initVideoEncoder(frameWidth, frameHeight));
         }
+        // Frames arriving before the encoder is up are not recorded.
         if (!encoderStarted || outputFileWidth == -1 || outputFileHeight == -1) {
-            frame.release();
             return;
         }
-        renderThreadHandler.post(() -> renderFrameOnRenderThread(frame));
+
+        VideoFrame evicted = null;
+        boolean accepted;
+        synchronized (frameLock) {
+            if (pendingFrames.size() + inFlightCount < options.maxInFlightFrames) {
+                accepted = true;
+            } else {
+                switch (options.dropPolicy) {
+                    case DROP_NEWEST:
+                        accepted = false;
+                        break;
+                    case KEYFRAME_CADENCE:
+                        if (frame.getTimestampNs() >= nextKeyframeNs) {
+                            evicted = pendingFrames.pollFirst();
+                            accepted = evicted != null;
+                        } else {
+                            accepted = false;
+                        }
+                        break;
+                    case DROP_OLDEST:
+                    default:
+                        evicted = pendingFrames.pollFirst();
+                        accepted = evicted != null;
+                        break;
+                }
+            }
+            if (accepted) {
+                frame.retain();
+                pendingFrames.addLast(frame);
+            }
+        }
+        if (evicted != null) {
+            evicted.release();
+            droppedFrames.incrementAndGet();
+            droppedSinceKeyframe = true;
+        }
+        if (!accepted) {
+            droppedFrames.incrementAndGet();
+            droppedSinceKeyframe = true;
+            return;
+        }
+        renderThreadHandler.post(this::renderNextFrame);
     }
 
-    private void renderFrameOnRenderThread(VideoFrame frame) {
+    /** Number of frames dropped because the in-flight budget was exhausted. */
+    long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /** Number of video frames the encoder has emitted. */
+    long getEncodedFrames() {
+        return encodedFrames;
+    }
+
+    int getInFlightFrames() {
+        synchronized (frameLock) {
+            return pendingFrames.size() + inFlightCount;
+        }
+    }
+
+    private void renderNextFrame() {
+        VideoFrame frame;
+        boolean resumed = false;
+        long timestampNs;
+        synchronized (frameLock) {
+            frame = pendingFrames.pollFirst();
+            if (frame == null) {
+                // Evicted by the drop policy after this render was posted.
+                return;
+            }
+            final long captureNs = frame.getTimestampNs();
+            if (resumePending) {
+                resumePending = false;
+                if (lastCaptureNs != Long.MIN_VALUE) {
+                    // Close the gap, leaving one frame interval in its place.
+                    pausedDurationNs += Math.max(0, captureNs - lastCaptureNs - frameIntervalNs);
+                    resumed = true;
+                }
+            }
+            lastCaptureNs = captureNs;
+            timestampNs = captureNs - pausedDurationNs;
+            inFlightPts[(inFlightHead + inFlightCount) % inFlightPts.length] = timestampNs / 1000;
+            inFlightCount++;
+        }
         if (!encoderStarted || drawer == null || eglBase == null || encoder == null) {
             Log.e(TAG, "drawer is null — skipping frame render");
+            synchronized (frameLock) {
+                inFlightCount--;
+            }
             frame.release();
             return;
         }
@@ -414,10 +464,62 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
         if (frameDrawer == null) {
             frameDrawer = new VideoFrameDrawer();
         }
+        if (resumed) {
+            // Start the resumed part on a keyframe so it can be seeked to.
+            requestKeyframe();
+        } else if (options.dropPolicy == RecordingOptions.DropPolicy.KEYFRAME_CADENCE) {
+            maybeRequestKeyframe(frame.getTimestampNs());
+        }
         frameDrawer.drawFrame(frame, drawer, null, 0, 0, outputFileWidth, outputFileHeight);
         frame.release();
-        eglBase.swapBuffers();
-        drainEncoder();
+        // Stamp the encoder input with the capture time so dropped frames
+        // leave a gap instead of compressing the timeline.
+        eglBase.swapBuffers(timestampNs);
+    }
+
+    /**
+     * Keeps keyframes on the configured interval of capture time. Encoders
+     * count GOPs in frames, so after drops they would drift; an explicit sync
+     * frame request at each boundary puts them back on schedule.
+     */
+    private void maybeRequestKeyframe(long timestampNs) {
+        if (nextKeyframeNs == Long.MIN_VALUE) {
+            // The first frame is a keyframe anyway.
+            nextKeyframeNs = timestampNs + keyFrameIntervalSec * 1_000_000_000L;
+            return;
+        }
+        if (timestampNs < nextKeyframeNs) {
+            return;
+        }
+        nextKeyframeNs = timestampNs + keyFrameIntervalSec * 1_000_000_000L;
+        if (droppedSinceKeyframe) {
+            droppedSinceKeyframe = false;
+            requestKeyframe();
+        }
+    }
+
+    private void requestKeyframe() {
+        MediaCodec codec = encoder;
+        if (codec == null) {
+            return;
+        }
+        try {
+            Bundle params = new Bundle();
+            params.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+            codec.setParameters(params);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Failed to request keyframe: " + e.getMessage());
+        }
+    }
+
+    /** Retires every in-flight frame presented at or before {@code ptsUs}. */
+    private void completeFramesUpTo(long ptsUs) {
+        synchronized (frameLock) {
+            while (inFlightCount > 0 && inFlightPts[inFlightHead] <= ptsUs) {
+                inFlightHead = (inFlightHead + 1) % inFlightPts.length;
+                inFlightCount--;
+            }
+        }
     }
 
     /**
@@ -426,6 +528,12 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
     // Start Signify modification
     void release() {
         isRunning = false;
+        synchronized (frameLock) {
+            VideoFrame pending;
+            while ((pending = pendingFrames.pollFirst()) != null) {
+                pending.release();
+            }
+        }
         CountDownLatch latch = new CountDownLatch(audioThreadHandler  != null ? 2 : 1);
         if (audioThreadHandler != null) {
             audioThreadHandler.post(() -> {
@@ -446,16 +554,13 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
                 if (encoder != null) {
                     encoder.stop();
                     encoder.release();
+                    encoder = null;
                 }
                 if (eglBase != null) {
                     eglBase.release();
                     eglBase = null;
                 }
-                if (muxerStarted) {
-                    mediaMuxer.stop();
-                    mediaMuxer.release();
-                    muxerStarted = false;
-                }
+                mediaMuxer.release();
                 renderThread.quit();
             } finally {
                 latch.countDown();
@@ -470,73 +575,66 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
         }
     }
     // End Signify modification
-    private boolean encoderInitializing = false;
-    private boolean encoderStarted = false;
-    private volatile boolean muxerStarted = false;
+    // Read on the frame delivery thread, written on the render thread.
+    private volatile boolean encoderInitializing = false;
+    private volatile boolean encoderStarted = false;
     private long videoFrameStart = 0;
 
-    private void drainEncoder() {
-        while (true) {
-            int encoderStatus = encoder.dequeueOutputBuffer(bufferInfo, 10000);
-            if (encoderStatus == MediaCodec.INFO_TRY_AGAIN_LATER) {
-                break;
-            } else if (encoderStatus == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
-                // not expected for an encoder
-                encoderOutputBuffers = encoder.getOutputBuffers();
-                Log.e(TAG, "encoder output buffers changed");
-            } else if (encoderStatus == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
-                // not expected for an encoder
-                MediaFormat newFormat = encoder.getOutputFormat();
-
-                Log.e(TAG, "encoder output format changed: " + newFormat);
-                trackIndex = mediaMuxer.addTrack(newFormat);
-                // Start Signify modification
-                if (trackIndex != -1 && audioTrackIndex != -1 && !muxerStarted) {
-                // End Signify modification
-                    mediaMuxer.start();
-                    muxerStarted = true;
-                }
-                if (!muxerStarted)
-                    break;
-            } else if (encoderStatus < 0) {
-                Log.e(TAG, "unexpected result fr om encoder.dequeueOutputBuffer: " + encoderStatus);
-            } else { // encoderStatus >= 0
-                try {
-                    ByteBuffer encodedData = encoderOutputBuffers[encoderStatus];
-                    if (encodedData == null) {
-                        Log.e(TAG, "encoderOutputBuffer " + encoderStatus + " was null");
-                        break;
-                    }
-                    if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
-                        bufferInfo.size = 0;
-                    }
-                    if (bufferInfo.size <= 0 || bufferInfo.offset < 0) {
-                        encoder.releaseOutputBuffer(encoderStatus, false);
-                        if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                            break;
-                        }
-                        continue;
-                    }
-                    // It's usually necessary to adjust the ByteBuffer values to match BufferInfo.
-                    encodedData.position(bufferInfo.offset);
-                    encodedData.limit(bufferInfo.offset + bufferInfo.size);
-                    if (videoFrameStart == 0 && bufferInfo.presentationTimeUs != 0) {
-                        videoFrameStart = bufferInfo.presentationTimeUs;
-                    }
-                    bufferInfo.presentationTimeUs = Math.max(0, bufferInfo.presentationTimeUs - videoFrameStart);
-                    if (muxerStarted)
-                        mediaMuxer.writeSampleData(trackIndex, encodedData, bufferInfo);
-                    isRunning = isRunning && (bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) == 0;
-                    encoder.releaseOutputBuffer(encoderStatus, false);
-                    if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                        break;
-                    }
-                } catch (Exception e) {
-                    Log.wtf(TAG, e);
-                    break;
-                }
+    private final MediaCodec.Callback encoderCallback = new MediaCodec.Callback() {
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            // Input arrives through the surface.
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            if (codec != encoder) {
+                // Late callback from an encoder that has been released.
+                return;
+            }
+            try {
+                writeEncodedFrame(codec, index, info);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Encoder output after stop: " + e.getMessage());
             }
         }
+
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            Log.e(TAG, "Video encoder error: " + e.getDiagnosticInfo(), e);
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            if (codec != encoder) {
+                return;
+            }
+            Log.d(TAG, "encoder output format changed: " + format);
+            trackIndex = mediaMuxer.addTrack(format);
+        }
+    };
+
+    private void writeEncodedFrame(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+        final boolean codecConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+        final boolean endOfStream = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+        if (!codecConfig && info.size > 0) {
+            completeFramesUpTo(info.presentationTimeUs);
+            encodedFrames++;
+        }
+        ByteBuffer encodedData = codec.getOutputBuffer(index);
+        if (encodedData != null && !codecConfig && info.size > 0 && info.offset >= 0 && mediaMuxer.isStarted()) {
+            // It's usually necessary to adjust the ByteBuffer values to match BufferInfo.
+            encodedData.position(info.offset);
+            encodedData.limit(info.offset + info.size);
+            if (videoFrameStart == 0 && info.presentationTimeUs != 0) {
+                videoFrameStart = info.presentationTimeUs;
+            }
+            bufferInfo.set(info.offset, info.size,
+                    Math.max(0, info.presentationTimeUs - videoFrameStart), info.flags);
+            mediaMuxer.writeSampleData(trackIndex, encodedData, bufferInfo);
+        }
+        isRunning = isRunning && !endOfStream;
+        codec.releaseOutputBuffer(index, false);
     }
 
     private long presTime = 0L;
@@ -562,13 +660,7 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
 
                 Log.w(TAG, "encoder output format changed: " + newFormat);
                 audioTrackIndex = mediaMuxer.addTrack(newFormat);
-                // Start Signify modification
-                if (trackIndex != -1 && audioTrackIndex != -1 && !muxerStarted) {
-                // End Signify modification
-                    mediaMuxer.start();
-                    muxerStarted = true;
-                }
-                if (!muxerStarted)
+                if (!mediaMuxer.isStarted())
                     break;
             } else if (encoderStatus < 0) {
                 Log.e(TAG, "unexpected result from encoder.dequeueOutputBuffer: " + encoderStatus);
@@ -595,8 +687,7 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
                     encodedData.position(audioBufferInfo.offset);
                     encodedData.limit(audioBufferInfo.offset + audioBufferInfo.size);
 
-                    if (muxerStarted)
-                        mediaMuxer.writeSampleData(audioTrackIndex, encodedData, audioBufferInfo);
+                    mediaMuxer.writeSampleData(audioTrackIndex, encodedData, audioBufferInfo);
 
                     isRunning = isRunning && (audioBufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) == 0;
                     audioEncoder.releaseOutputBuffer(encoderStatus, false);
@@ -615,7 +706,7 @@ class VideoFileRenderer implements VideoSink, SamplesReadyCallback {
 
     @Override
     public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples audioSamples) {
-        if (!isRunning)
+        if (!isRunning || paused)
             return;
         audioThreadHandler.post(() -> {
             if (audioEncoder == null) try {
@@ -0,0 +1,298 @@
+package io.getstream.webrtc.flutter.stats;
+
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Derives rate metrics from successive stats reports and keeps a time series
+ * of them per SSRC.
+ *
+ * Rates are computed from each report's own {@code timestampUs}, so they are
+ * exact regardless of how regularly the reports are polled. Every metric is a
+ * fixed-size ring of (timestamp, value) samples; {@link #getAggregates}
+ * summarizes the samples inside a trailing window with mean, p95, min and max.
+ *
+ * Metrics per SSRC:
+ * <ul>
+ *   <li>{@code bitrate}: bits per second received (inbound) or sent (outbound)</li>
+ *   <li>{@code packetLoss}: percentage of packets lost over the interval;
+ *       for outbound streams from the matching {@code remote-inbound-rtp}</li>
+ *   <li>{@code jitter}: milliseconds; for outbound streams as reported by the
+ *       remote side</li>
+ *   <li>{@code fps}: decoded (inbound) or encoded (outbound) frames per second,
+ *       video only</li>
+ * </ul>
+ *
+ * {@link #onReport} is called on the stats sampler thread; the aggregates may
+ * be read from any thread.
+ */
+public class StatsAggregator {
+
+    public static final int DEFAULT_CAPACITY = 300;
+
+    private static final String BITRATE = "bitrate";
+    private static final String PACKET_LOSS = "packetLoss";
+    private static final String JITTER = "jitter";
+    private static final String FPS = "fps";
+
+    /** Ring of samples for one metric. */
+    private static final class Series {
+        final long[] timestampsUs;
+        final double[] values;
+        int next = 0;
+        int size = 0;
+
+        Series(int capacity) {
+            timestampsUs = new long[capacity];
+            values = new double[capacity];
+        }
+
+        void add(long timestampUs, double value) {
+            timestampsUs[next] = timestampUs;
+            values[next] = value;
+            next = (next + 1) % values.length;
+            if (size < values.length) {
+                size++;
+            }
+        }
+
+        /**
+         * Copies the values newer than {@code sinceUs} into {@code scratch}.
+         *
+         * @return the number of values copied
+         */
+        int collect(long sinceUs, double[] scratch) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int index = (next - 1 - i + values.length) % values.length;
+                if (timestampsUs[index] < sinceUs) {
+                    break;
+                }
+                scratch[count++] = values[index];
+            }
+            return count;
+        }
+
+        double latest() {
+            return values[(next - 1 + values.length) % values.length];
+        }
+    }
+
+    /** Cumulative counters of the previous report for one SSRC. */
+    private static final class Stream {
+        final long ssrc;
+        final String kind;
+        final boolean inbound;
+        final LinkedHashMap<String, Series> series = new LinkedHashMap<>();
+        long lastTimestampUs = -1;
+        double bytes;
+        double packets;
+        double packetsLost;
+        double frames;
+        long lastRemoteTimestampUs = -1;
+        double remotePacketsLost;
+        double remotePacketsReceived;
+
+        Stream(long ssrc, String kind, boolean inbound) {
+            this.ssrc = ssrc;
+            this.kind = kind;
+            this.inbound = inbound;
+        }
+    }
+
+    private final int capacity;
+    private final HashMap<String, Stream> streams = new HashMap<>();
+    private double[] scratch;
+
+    public StatsAggregator(int capacity) {
+        this.capacity = Math.max(2, capacity);
+        this.scratch = new double[this.capacity];
+    }
+
+    public synchronized void clear() {
+        streams.clear();
+    }
+
+    public synchronized void onReport(RTCStatsReport report) {
+        for (RTCStats stats : report.getStatsMap().values()) {
+            switch (stats.getType()) {
+                case "inbound-rtp":
+                    onRtp(stats, true);
+                    break;
+                case "outbound-rtp":
+                    onRtp(stats, false);
+                    break;
+                case "remote-inbound-rtp":
+                    onRemoteInbound(stats);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private Stream stream(Map<String, Object> members, boolean inbound) {
+        Object ssrc = members.get("ssrc");
+        if (!(ssrc instanceof Number)) {
+            return null;
+        }
+        long value = ((Number) ssrc).longValue();
+        String key = (inbound ? "in:" : "out:") + value;
+        Stream stream = streams.get(key);
+        if (stream == null) {
+            Object kind = members.get("kind");
+            stream = new Stream(value, kind instanceof String ? (String) kind : "", inbound);
+            streams.put(key, stream);
+        }
+        return stream;
+    }
+
+    private void onRtp(RTCStats stats, boolean inbound) {
+        Map<String, Object> members = stats.getMembers();
+        Stream stream = stream(members, inbound);
+        if (stream == null) {
+            return;
+        }
+        final long timestampUs = (long) stats.getTimestampUs();
+        final double bytes = number(members, inbound ? "bytesReceived" : "bytesSent");
+        final double packets = number(members, inbound ? "packetsReceived" : "packetsSent");
+        final double lost = inbound ? number(members, "packetsLost") : 0;
+        final double frames = number(members, inbound ? "framesDecoded" : "framesEncoded");
+
+        final long previousUs = stream.lastTimestampUs;
+        if (previousUs >= 0 && timestampUs > previousUs) {
+            final double seconds = (timestampUs - previousUs) / 1e6;
+            if (bytes >= stream.bytes) {
+                add(stream, BITRATE, timestampUs, (bytes - stream.bytes) * 8 / seconds);
+            }
+            if (inbound) {
+                double lostDelta = Math.max(0, lost - stream.packetsLost);
+                double receivedDelta = Math.max(0, packets - stream.packets);
+                if (lostDelta + receivedDelta > 0) {
+                    add(stream, PACKET_LOSS, timestampUs,
+                            100.0 * lostDelta / (lostDelta + receivedDelta));
+                }
+            }
+            if ("video".equals(stream.kind) && frames >= stream.frames) {
+                add(stream, FPS, timestampUs, (frames - stream.frames) / seconds);
+            }
+        }
+        if (inbound && members.get("jitter") instanceof Number) {
+            add(stream, JITTER, timestampUs, number(members, "jitter") * 1000.0);
+        }
+        stream.lastTimestampUs = timestampUs;
+        stream.bytes = bytes;
+        stream.packets = packets;
+        stream.packetsLost = lost;
+        stream.frames = frames;
+    }
+
+    /** Loss and jitter of an outbound stream, as reported back by the receiver. */
+    private void onRemoteInbound(RTCStats stats) {
+        Map<String, Object> members = stats.getMembers();
+        Stream stream = stream(members, false);
+        if (stream == null) {
+            return;
+        }
+        final long timestampUs = (long) stats.getTimestampUs();
+        if (timestampUs == stream.lastRemoteTimestampUs) {
+            // Remote reports only change when an RTCP receiver report arrives.
+            return;
+        }
+        if (members.get("jitter") instanceof Number) {
+            add(stream, JITTER, timestampUs, number(members, "jitter") * 1000.0);
+        }
+        final double lost = number(members, "packetsLost");
+        final double received = number(members, "packetsReceived");
+        if (stream.lastRemoteTimestampUs >= 0 && members.containsKey("packetsReceived")) {
+            double lostDelta = Math.max(0, lost - stream.remotePacketsLost);
+            double receivedDelta = Math.max(0, received - stream.remotePacketsReceived);
+            if (lostDelta + receivedDelta > 0) {
+                add(stream, PACKET_LOSS, timestampUs,
+                        100.0 * lostDelta / (lostDelta + receivedDelta));
+            }
+        } else if (!members.containsKey("packetsReceived")
+                && members.get("fractionLost") instanceof Number) {
+            add(stream, PACKET_LOSS, timestampUs, number(members, "fractionLost") * 100.0);
+        }
+        stream.lastRemoteTimestampUs = timestampUs;
+        stream.remotePacketsLost = lost;
+        stream.remotePacketsReceived = received;
+    }
+
+    private void add(Stream stream, String metric, long timestampUs, double value) {
+        Series series = stream.series.get(metric);
+        if (series == null) {
+            series = new Series(capacity);
+            stream.series.put(metric, series);
+        }
+        series.add(timestampUs, value);
+    }
+
+    private static double number(Map<String, Object> members, String key) {
+        Object value = members.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return 0;
+    }
+
+    /**
+     * Summarizes each metric over the samples of the last {@code windowMs},
+     * measured back from that stream's newest report. A window of 0 or less
+     * covers every retained sample.
+     */
+    public synchronized ConstraintsArray getAggregates(int windowMs) {
+        ConstraintsArray result = new ConstraintsArray();
+        for (Stream stream : streams.values()) {
+            if (stream.series.isEmpty()) {
+                continue;
+            }
+            long sinceUs = windowMs > 0
+                    ? stream.lastTimestampUs - windowMs * 1000L
+                    : Long.MIN_VALUE;
+            ConstraintsMap metrics = new ConstraintsMap();
+            for (Map.Entry<String, Series> entry : stream.series.entrySet()) {
+                Series series = entry.getValue();
+                int count = series.collect(sinceUs, scratch);
+                if (count == 0) {
+                    continue;
+                }
+                metrics.putMap(entry.getKey(), summarize(scratch, count, series.latest()).toMap());
+            }
+            ConstraintsMap entry = new ConstraintsMap();
+            entry.putLong("ssrc", stream.ssrc);
+            entry.putString("kind", stream.kind);
+            entry.putString("direction", stream.inbound ? "inbound" : "outbound");
+            entry.putMap("metrics", metrics.toMap());
+            result.pushMap(entry);
+        }
+        return result;
+    }
+
+    private static ConstraintsMap summarize(double[] values, int count, double latest) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        // Sorting only the window copy; the ring itself keeps arrival order.
+        Arrays.sort(values, 0, count);
+        int p95 = (int) Math.ceil(0.95 * count) - 1;
+        ConstraintsMap map = new ConstraintsMap();
+        map.putDouble("mean", sum / count);
+        map.putDouble("p95", values[Math.max(0, p95)]);
+        map.putDouble("min", values[0]);
+        map.putDouble("max", values[count - 1]);
+        map.putDouble("latest", latest);
+        map.putInt("count", count);
+        return map;
+    }
+}
@@ -0,0 +1,245 @@
+package io.getstream.webrtc.flutter.stats;
+
+import android.util.Log;
+
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializes an {@link RTCStatsReport} into one flat little-endian byte array
+ * instead of a tree of boxed {@code ConstraintsMap}s.
+ *
+ * Every string (member names, report ids and types, string values) is interned
+ * into a table written once at the start, and members reference it by index.
+ * Layout (varints are unsigned LEB128):
+ * <pre>
+ *   u8      version (1)
+ *   varint  string count, then per string: varint byte length, UTF-8 bytes
+ *   varint  report count, then per report:
+ *             varint id index, varint type index, f64 timestampUs,
+ *             varint member count, then per member: varint key index, value
+ *   value:  u8 tag, then
+ *             TAG_FALSE / TAG_TRUE  -
+ *             TAG_INT32             i32
+ *             TAG_INT64             i64 (also used for BigInteger)
+ *             TAG_DOUBLE            f64
+ *             TAG_STRING            varint string index
+ *             TAG_STRING_ARRAY      varint count, string indices
+ *             TAG_MAP               varint count, (varint key index, value) pairs
+ * </pre>
+ * The decoder lives in {@code lib/src/native/stats_codec.dart} and must be
+ * kept in sync with this layout. {@code StatsBinaryEncoderTest} pins the output
+ * to {@code test/unit/fixtures/stats_report_v1.bin}, which the Dart codec test
+ * decodes.
+ *
+ * Scratch buffers and the intern table are reused across calls, so a report
+ * costs one exact-size array for the result. Encoding is synchronized so one
+ * instance can be shared by the stats callbacks of a peer connection.
+ */
+public class StatsBinaryEncoder {
+
+    private static final String TAG = "StatsBinaryEncoder";
+
+    public static final int VERSION = 1;
+
+    static final int TAG_FALSE = 0;
+    static final int TAG_TRUE = 1;
+    static final int TAG_INT32 = 2;
+    static final int TAG_INT64 = 3;
+    static final int TAG_DOUBLE = 4;
+    static final int TAG_STRING = 5;
+    static final int TAG_STRING_ARRAY = 6;
+    static final int TAG_MAP = 7;
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    private final HashMap<String, Integer> stringIndex = new HashMap<>();
+    private final ArrayList<String> strings = new ArrayList<>();
+    private final Buffer body = new Buffer(INITIAL_CAPACITY);
+    private final Buffer header = new Buffer(INITIAL_CAPACITY / 4);
+    private int skippedMembers;
+
+    /** Encodes {@code report} and returns the serialized bytes. */
+    public synchronized byte[] encode(RTCStatsReport report) {
+        stringIndex.clear();
+        strings.clear();
+        body.reset();
+        header.reset();
+        skippedMembers = 0;
+
+        Map<String, RTCStats> reports = report.getStatsMap();
+        body.writeVarint(reports.size());
+        for (RTCStats stats : reports.values()) {
+            body.writeVarint(intern(stats.getId()));
+            body.writeVarint(intern(stats.getType()));
+            body.writeDouble(stats.getTimestampUs());
+            writeMembers(stats.getMembers());
+        }
+
+        header.writeByte(VERSION);
+        header.writeVarint(strings.size());
+        for (String s : strings) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            header.writeVarint(utf8.length);
+            header.writeBytes(utf8);
+        }
+
+        if (skippedMembers > 0) {
+            Log.d(TAG, "encode() skipped " + skippedMembers + " members of unsupported type");
+        }
+
+        byte[] out = new byte[header.size + body.size];
+        System.arraycopy(header.data, 0, out, 0, header.size);
+        System.arraycopy(body.data, 0, out, header.size, body.size);
+        return out;
+    }
+
+    private void writeMembers(Map<?, ?> members) {
+        // Unsupported members are dropped, so the count is patched afterwards.
+        int countAt = body.size;
+        body.writeFixedVarintPlaceholder();
+        int count = 0;
+        for (Map.Entry<?, ?> entry : members.entrySet()) {
+            Object value = entry.getValue();
+            if (!isSupported(value)) {
+                skippedMembers++;
+                continue;
+            }
+            body.writeVarint(intern(String.valueOf(entry.getKey())));
+            writeValue(value);
+            count++;
+        }
+        body.patchFixedVarint(countAt, count);
+    }
+
+    private static boolean isSupported(Object v) {
+        return v instanceof Boolean || v instanceof Integer || v instanceof Long
+                || v instanceof Double || v instanceof BigInteger || v instanceof String
+                || v instanceof String[] || v instanceof Map;
+    }
+
+    private void writeValue(Object v) {
+        if (v instanceof Boolean) {
+            body.writeByte((Boolean) v ? TAG_TRUE : TAG_FALSE);
+        } else if (v instanceof Integer) {
+            body.writeByte(TAG_INT32);
+            body.writeInt((Integer) v);
+        } else if (v instanceof Long) {
+            body.writeByte(TAG_INT64);
+            body.writeLong((Long) v);
+        } else if (v instanceof Double) {
+            body.writeByte(TAG_DOUBLE);
+            body.writeDouble((Double) v);
+        } else if (v instanceof BigInteger) {
+            body.writeByte(TAG_INT64);
+            body.writeLong(((BigInteger) v).longValue());
+        } else if (v instanceof String) {
+            body.writeByte(TAG_STRING);
+            body.writeVarint(intern((String) v));
+        } else if (v instanceof String[]) {
+            String[] array = (String[]) v;
+            body.writeByte(TAG_STRING_ARRAY);
+            body.writeVarint(array.length);
+            for (String s : array) {
+                body.writeVarint(intern(s == null ? "" : s));
+            }
+        } else {
+            body.writeByte(TAG_MAP);
+            writeMembers((Map<?, ?>) v);
+        }
+    }
+
+    private int intern(String s) {
+        Integer index = stringIndex.get(s);
+        if (index == null) {
+            index = strings.size();
+            strings.add(s);
+            stringIndex.put(s, index);
+        }
+        return index;
+    }
+
+    /** Growable little-endian write buffer. */
+    private static final class Buffer {
+        /** Width of a patched count; five bytes hold any int as a padded varint. */
+        private static final int FIXED_VARINT_BYTES = 5;
+
+        byte[] data;
+        int size;
+
+        Buffer(int capacity) {
+            data = new byte[capacity];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > data.length) {
+                byte[] grown = new byte[Math.max(data.length * 2, size + extra)];
+                System.arraycopy(data, 0, grown, 0, size);
+                data = grown;
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            data[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, data, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarint(int value) {
+            ensure(FIXED_VARINT_BYTES);
+            while ((value & ~0x7f) != 0) {
+                data[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        void writeFixedVarintPlaceholder() {
+            ensure(FIXED_VARINT_BYTES);
+            size += FIXED_VARINT_BYTES;
+        }
+
+        /** Writes {@code value} as a varint padded to exactly five bytes. */
+        void patchFixedVarint(int at, int value) {
+            for (int i = 0; i < FIXED_VARINT_BYTES - 1; i++) {
+                data[at + i] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data[at + FIXED_VARINT_BYTES - 1] = (byte) (value & 0x7f);
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            data[size++] = (byte) v;
+            data[size++] = (byte) (v >> 8);
+            data[size++] = (byte) (v >> 16);
+            data[size++] = (byte) (v >> 24);
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                data[size++] = (byte) (v >> (8 * i));
+            }
+        }
+
+        void writeDouble(double v) {
+            writeLong(Double.doubleToLongBits(v));
+        }
+    }
+}
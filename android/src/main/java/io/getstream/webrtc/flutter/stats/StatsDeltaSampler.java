@@ -0,0 +1,212 @@
+package io.getstream.webrtc.flutter.stats;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.annotation.Nullable;
+
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Polls a peer connection's stats on a background thread and emits only what
+ * changed since the previous poll.
+ *
+ * Each {@code onStatsDelta} event carries, per report that is new or has
+ * changed members, just those members and the names of members it no longer
+ * has, plus the ids of reports that disappeared. Codec, certificate and other
+ * static reports are therefore sent once and then stay silent. Polls that
+ * change nothing emit nothing.
+ *
+ * The same poll can also feed a {@link StatsAggregator}, so derived metrics
+ * do not cost a second {@code getStats} call.
+ */
+public class StatsDeltaSampler {
+
+    /** Receives the delta events; called on the sampler thread. */
+    public interface Listener {
+        void onStatsDelta(ConstraintsMap event);
+    }
+
+    public static final int MIN_INTERVAL_MS = 100;
+
+    private final PeerConnection peerConnection;
+    private final Listener listener;
+    private final String threadName;
+    @Nullable
+    private Session session;
+
+    public StatsDeltaSampler(PeerConnection peerConnection, String threadName, Listener listener) {
+        this.peerConnection = peerConnection;
+        this.threadName = threadName;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts sampling, or restarts it with new settings. The first poll after
+     * a (re)start reports every matching member.
+     *
+     * @param emitDeltas whether to emit {@code onStatsDelta} events
+     * @param types      stats types to report, e.g. {@code inbound-rtp}; null
+     *                   or empty for all. Does not apply to the aggregator.
+     * @param aggregator receives every polled report, or null
+     */
+    public synchronized void start(int intervalMs, boolean emitDeltas,
+            @Nullable List<String> types, @Nullable StatsAggregator aggregator) {
+        stop();
+        Set<String> filter = types == null || types.isEmpty() ? null : new HashSet<>(types);
+        session = new Session(Math.max(MIN_INTERVAL_MS, intervalMs), emitDeltas, filter, aggregator);
+    }
+
+    /**
+     * Stops sampling. Once this returns no further {@code getStats} call is
+     * issued, so the peer connection may be closed.
+     */
+    public synchronized void stop() {
+        if (session != null) {
+            session.stop();
+            session = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return session != null;
+    }
+
+    private final class Session implements Runnable {
+        private final int intervalMs;
+        private final boolean emitDeltas;
+        @Nullable
+        private final Set<String> types;
+        @Nullable
+        private final StatsAggregator aggregator;
+        private final HandlerThread thread;
+        private final Handler handler;
+        private volatile boolean running = true;
+        // Members of the previous poll by report id. Sampler thread only.
+        private final HashMap<String, Map<String, Object>> previous = new HashMap<>();
+
+        Session(int intervalMs, boolean emitDeltas, @Nullable Set<String> types,
+                @Nullable StatsAggregator aggregator) {
+            this.intervalMs = intervalMs;
+            this.emitDeltas = emitDeltas;
+            this.types = types;
+            this.aggregator = aggregator;
+            thread = new HandlerThread(threadName);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+            handler.post(this);
+        }
+
+        void stop() {
+            running = false;
+            handler.removeCallbacks(this);
+            thread.quitSafely();
+        }
+
+        @Override
+        public void run() {
+            synchronized (StatsDeltaSampler.this) {
+                if (!running) {
+                    return;
+                }
+                // The callback fires on the signaling thread; diff on ours.
+                peerConnection.getStats(report -> handler.post(() -> {
+                    if (!running) {
+                        return;
+                    }
+                    if (aggregator != null) {
+                        aggregator.onReport(report);
+                    }
+                    if (emitDeltas) {
+                        diff(report);
+                    }
+                }));
+            }
+            handler.postDelayed(this, intervalMs);
+        }
+
+        private void diff(RTCStatsReport report) {
+            ConstraintsArray changed = new ConstraintsArray();
+            Set<String> seen = new HashSet<>();
+            for (RTCStats stats : report.getStatsMap().values()) {
+                if (types != null && !types.contains(stats.getType())) {
+                    continue;
+                }
+                seen.add(stats.getId());
+                Map<String, Object> members = stats.getMembers();
+                Map<String, Object> before = previous.put(stats.getId(), members);
+
+                ConstraintsMap values = new ConstraintsMap();
+                int count = 0;
+                for (Map.Entry<String, Object> entry : members.entrySet()) {
+                    Object value = entry.getValue();
+                    if (before != null && sameValue(before.get(entry.getKey()), value)) {
+                        continue;
+                    }
+                    if (StatsMaps.putValue(values, entry.getKey(), value)) {
+                        count++;
+                    }
+                }
+                ConstraintsArray removedMembers = new ConstraintsArray();
+                if (before != null) {
+                    for (String key : before.keySet()) {
+                        if (!members.containsKey(key)) {
+                            removedMembers.pushString(key);
+                        }
+                    }
+                }
+                if (count == 0 && removedMembers.size() == 0 && before != null) {
+                    continue;
+                }
+                ConstraintsMap entry = new ConstraintsMap();
+                entry.putString("id", stats.getId());
+                entry.putString("type", stats.getType());
+                entry.putDouble("timestamp", stats.getTimestampUs());
+                entry.putMap("values", values.toMap());
+                if (removedMembers.size() > 0) {
+                    entry.putArray("removedMembers", removedMembers.toArrayList());
+                }
+                changed.pushMap(entry);
+            }
+
+            ConstraintsArray removed = new ConstraintsArray();
+            for (Iterator<String> it = previous.keySet().iterator(); it.hasNext(); ) {
+                String id = it.next();
+                if (!seen.contains(id)) {
+                    it.remove();
+                    removed.pushString(id);
+                }
+            }
+
+            if (changed.size() == 0 && removed.size() == 0) {
+                return;
+            }
+            ConstraintsMap event = new ConstraintsMap();
+            event.putString("event", "onStatsDelta");
+            event.putDouble("timestamp", report.getTimestampUs());
+            event.putArray("reports", changed.toArrayList());
+            event.putArray("removed", removed.toArrayList());
+            listener.onStatsDelta(event);
+        }
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof String[] && b instanceof String[]) {
+            return Arrays.equals((String[]) a, (String[]) b);
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,59 @@
+package io.getstream.webrtc.flutter.stats;
+
+import io.getstream.webrtc.flutter.utils.ConstraintsArray;
+import io.getstream.webrtc.flutter.utils.ConstraintsMap;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Conversion of {@link org.webrtc.RTCStats} member values into platform
+ * channel maps.
+ */
+public final class StatsMaps {
+
+    private StatsMaps() {
+    }
+
+    /**
+     * Stores {@code value} under {@code key}. BigIntegers are narrowed to long
+     * and nested maps are converted recursively.
+     *
+     * @return false if the value has an unsupported type and was skipped
+     */
+    public static boolean putValue(ConstraintsMap map, String key, Object value) {
+        if (value instanceof String) {
+            map.putString(key, (String) value);
+        } else if (value instanceof String[]) {
+            ConstraintsArray arr = new ConstraintsArray();
+            for (String s : (String[]) value) {
+                arr.pushString(s);
+            }
+            map.putArray(key, arr.toArrayList());
+        } else if (value instanceof Integer) {
+            map.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            map.putLong(key, (Long) value);
+        } else if (value instanceof Double) {
+            map.putDouble(key, (Double) value);
+        } else if (value instanceof Boolean) {
+            map.putBoolean(key, (Boolean) value);
+        } else if (value instanceof BigInteger) {
+            map.putLong(key, ((BigInteger) value).longValue());
+        } else if (value instanceof Map) {
+            map.putMap(key, membersToMap((Map<?, ?>) value).toMap());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /** Converts all supported members; unsupported ones are left out. */
+    public static ConstraintsMap membersToMap(Map<?, ?> members) {
+        ConstraintsMap map = new ConstraintsMap();
+        for (Map.Entry<?, ?> entry : members.entrySet()) {
+            putValue(map, String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return map;
+    }
+}
@@ -94,6 +94,10 @@ public class ConstraintsArray {
         mArray.add(value);
     }
 
+    public void pushLong(long value){
+        mArray.add(value);
+    }
+
     public void pushString(String value){
         mArray.add(value);
     }
@@ -2,11 +2,14 @@ package org.webrtc.video;
 
 import androidx.annotation.Nullable;
 
+import io.getstream.webrtc.flutter.record.EncodedFrameTap;
+
 import org.webrtc.EglBase;
 import org.webrtc.SoftwareVideoDecoderFactory;
 import org.webrtc.VideoCodecInfo;
 import org.webrtc.VideoDecoder;
 import org.webrtc.VideoDecoderFactory;
+import org.webrtc.WrappedNativeVideoDecoder;
 import org.webrtc.WrappedVideoDecoderFactory;
 
 import java.util.ArrayList;
@@ -42,7 +45,14 @@ public class CustomVideoDecoderFactory implements VideoDecoderFactory {
                 return softwareVideoDecoderFactory.createDecoder(videoCodecInfo);
             }
         }
-        return wrappedVideoDecoderFactory.createDecoder(videoCodecInfo);
+        VideoDecoder decoder = wrappedVideoDecoderFactory.createDecoder(videoCodecInfo);
+        if (decoder == null || decoder instanceof WrappedNativeVideoDecoder) {
+            // Native decoders, including the software/hardware fallback, never
+            // hand encoded frames to Java; their tracks can't be recorded in
+            // pass-through mode (see EncodedFrameTap).
+            return decoder;
+        }
+        return EncodedFrameTap.wrapDecoder(decoder, videoCodecInfo);
     }
 
     @Override
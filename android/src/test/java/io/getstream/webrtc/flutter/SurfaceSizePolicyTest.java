@@ -0,0 +1,98 @@
+package io.getstream.webrtc.flutter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class SurfaceSizePolicyTest {
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long DELAY = SurfaceSizePolicy.SHRINK_DELAY_NS;
+
+  private static void assertSize(SurfaceSizePolicy policy, int width, int height) {
+    assertEquals(width, policy.getWidth());
+    assertEquals(height, policy.getHeight());
+  }
+
+  @Test
+  public void growsImmediately() {
+    SurfaceSizePolicy policy = new SurfaceSizePolicy();
+    policy.offer(640, 360, 0);
+    assertSize(policy, 640, 360);
+    policy.offer(1280, 720, 10 * MS);
+    assertSize(policy, 1280, 720);
+  }
+
+  @Test
+  public void shrinksOnlyAfterDelay() {
+    SurfaceSizePolicy policy = new SurfaceSizePolicy();
+    policy.offer(1280, 720, 0);
+    policy.offer(640, 360, 100 * MS);
+    assertSize(policy, 1280, 720);
+    policy.offer(640, 360, 100 * MS + DELAY - 1);
+    assertSize(policy, 1280, 720);
+    policy.offer(640, 360, 100 * MS + DELAY);
+    assertSize(policy, 640, 360);
+  }
+
+  @Test
+  public void shrinksToLargestRecentFrame() {
+    SurfaceSizePolicy policy = new SurfaceSizePolicy();
+    policy.offer(1280, 720, 0);
+    policy.offer(320, 180, 0);
+    policy.offer(640, 360, DELAY / 2);
+    policy.offer(320, 180, DELAY);
+    assertSize(policy, 640, 360);
+  }
+
+  @Test
+  public void fullSizeFrameCancelsShrink() {
+    SurfaceSizePolicy policy = new SurfaceSizePolicy();
+    policy.offer(1280, 720, 0);
+    policy.offer(640, 360, 0);
+    policy.offer(1280, 720, DELAY / 2);
+    policy.offer(640, 360, DELAY);
+    assertSize(policy, 1280, 720);
+    policy.offer(640, 360, DELAY + DELAY / 2);
+    assertSize(policy, 1280, 720);
+    policy.offer(640, 360, 2 * DELAY);
+    assertSize(policy, 640, 360);
+  }
+
+  @Test
+  public void rotationResizesDirectly() {
+    SurfaceSizePolicy policy = new SurfaceSizePolicy();
+    policy.offer(720, 1280, 0);
+    policy.offer(1280, 720, 10 * MS);
+    assertSize(policy, 1280, 720);
+    policy.offer(1280, 720, 10 * MS + 2 * DELAY);
+    assertSize(policy, 1280, 720);
+  }
+
+  @Test
+  public void rotationToSmallerLayerResizesDirectly() {
+    SurfaceSizePolicy policy = new SurfaceSizePolicy();
+    policy.offer(1280, 720, 0);
+    policy.offer(360, 640, 10 * MS);
+    assertSize(policy, 360, 640);
+  }
+
+  @Test
+  public void squareFrameIsNotAFlip() {
+    SurfaceSizePolicy policy = new SurfaceSizePolicy();
+    policy.offer(1280, 720, 0);
+    policy.offer(720, 720, 10 * MS);
+    assertSize(policy, 1280, 720);
+  }
+
+  @Test
+  public void layoutScaleCoversLayout() {
+    assertEquals(1f, SurfaceSizePolicy.layoutScale(1280, 720, 0, 0), 0f);
+    assertEquals(1f, SurfaceSizePolicy.layoutScale(640, 360, 1280, 720), 0f);
+    assertEquals(0.5f, SurfaceSizePolicy.layoutScale(1280, 720, 640, 200), 0f);
+    assertEquals(640, SurfaceSizePolicy.scaleDimension(1280, 0.5f));
+    assertEquals(1280, SurfaceSizePolicy.scaleDimension(1280, 1f));
+    assertEquals(2, SurfaceSizePolicy.scaleDimension(3, 0.1f));
+  }
+}
@@ -0,0 +1,67 @@
+package io.getstream.webrtc.flutter.stats;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pins the encoder output to the golden fixture that
+ * {@code test/unit/stats_codec_test.dart} decodes, so a layout change on
+ * either side fails a test. Run {@link #main} from the {@code android}
+ * directory to regenerate the fixture after an intentional format change.
+ */
+public class StatsBinaryEncoderTest {
+    static final File FIXTURE = new File("../test/unit/fixtures/stats_report_v1.bin");
+
+    static RTCStatsReport goldenReport() {
+        Map<String, Object> qpByLayer = new LinkedHashMap<>();
+        qpByLayer.put("low", 20);
+        qpByLayer.put("high", 31);
+
+        Map<String, Object> inbound = new LinkedHashMap<>();
+        inbound.put("kind", "video");
+        inbound.put("ssrc", 1234L);
+        inbound.put("packetsLost", -3);
+        inbound.put("bytesReceived", new BigInteger("5000000000"));
+        inbound.put("jitter", 0.012);
+        inbound.put("active", true);
+        inbound.put("muted", false);
+        inbound.put("codecIds", new String[] {"RTCCodec_96", "RTCCodec_97"});
+        inbound.put("qpByLayer", qpByLayer);
+        inbound.put("decoderImplementation", "c2.exynos.h264.decoder (硬件)");
+
+        Map<String, RTCStats> stats = new LinkedHashMap<>();
+        stats.put("RTCInboundRTPVideoStream_1234", new RTCStats(1700000000000000L,
+                "inbound-rtp", "RTCInboundRTPVideoStream_1234", inbound));
+        stats.put("RTCTransport_0", new RTCStats(1700000000000001L,
+                "transport", "RTCTransport_0", new LinkedHashMap<>()));
+        return new RTCStatsReport(1700000000000001L, stats);
+    }
+
+    @Test
+    public void matchesGoldenFixture() throws IOException {
+        byte[] expected = Files.readAllBytes(FIXTURE.toPath());
+        byte[] actual = new StatsBinaryEncoder().encode(goldenReport());
+        assertArrayEquals("encoder output drifted from " + FIXTURE, expected, actual);
+    }
+
+    @Test
+    public void reusedEncoderIsDeterministic() {
+        StatsBinaryEncoder encoder = new StatsBinaryEncoder();
+        byte[] first = encoder.encode(goldenReport());
+        assertArrayEquals(first, encoder.encode(goldenReport()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Files.write(FIXTURE.toPath(), new StatsBinaryEncoder().encode(goldenReport()));
+    }
+}
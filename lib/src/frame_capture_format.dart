@@ -0,0 +1,33 @@
+import 'dart:typed_data';
+
+/// Image format of `MediaStreamTrack.captureFrame` (Android only; other
+/// platforms keep their own format).
+enum FrameCaptureFormat {
+  jpeg,
+  png,
+
+  /// Lossless at quality 100.
+  webp,
+}
+
+/// An encoded frame emitted by `MediaStreamTrackNative.sampleFrames`.
+class SampledFrame {
+  SampledFrame(this.data, this.width, this.height, this.timestamp);
+
+  factory SampledFrame.fromMap(Map<dynamic, dynamic> map) => SampledFrame(
+        map['data'] as Uint8List,
+        map['width'] as int,
+        map['height'] as int,
+        Duration(microseconds: map['timestampUs'] as int),
+      );
+
+  /// The frame encoded in the requested [FrameCaptureFormat].
+  final Uint8List data;
+
+  final int width;
+
+  final int height;
+
+  /// Capture time of the frame.
+  final Duration timestamp;
+}
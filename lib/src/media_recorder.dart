@@ -1,9 +1,12 @@
+import 'dart:ui' show Rect;
+
 import 'package:flutter/foundation.dart';
 
 import 'package:webrtc_interface/webrtc_interface.dart' as rtc;
 
 import '../stream_webrtc_flutter.dart';
 import 'native/media_recorder_impl.dart' show MediaRecorderNative;
+import 'recorder_options.dart';
 
 class MediaRecorder extends rtc.MediaRecorder {
   MediaRecorder({
@@ -20,7 +23,17 @@ class MediaRecorder extends rtc.MediaRecorder {
     MediaStreamTrack? videoTrack,
     RecorderAudioChannel? audioChannel,
     int rotationDegrees = 0,
+    RecorderOptions? options,
   }) {
+    final delegate = _delegate;
+    if (delegate is MediaRecorderNative) {
+      return delegate.start(
+        path,
+        videoTrack: videoTrack,
+        audioChannel: audioChannel,
+        options: options,
+      );
+    }
     return _delegate.start(
       path,
       videoTrack: videoTrack,
@@ -28,6 +41,73 @@ class MediaRecorder extends rtc.MediaRecorder {
     );
   }
 
+  /// Records several tracks into one file through a single encoder
+  /// (Android only): video tracks are tiled and audio tracks are mixed.
+  ///
+  /// [layout] holds one rectangle per video track, in fractions of the
+  /// output with a top-left origin; without it the tiles form a grid.
+  Future<void> startComposite(
+    String path, {
+    required List<MediaStreamTrack> videoTracks,
+    List<MediaStreamTrack> audioTracks = const [],
+    int width = 1280,
+    int height = 720,
+    List<Rect>? layout,
+    RecorderOptions? options,
+  }) {
+    final delegate = _delegate;
+    if (delegate is MediaRecorderNative) {
+      return delegate.startComposite(
+        path,
+        videoTracks: videoTracks,
+        audioTracks: audioTracks,
+        width: width,
+        height: height,
+        layout: layout,
+        options: options,
+      );
+    }
+    throw UnimplementedError('Composite recording is only supported on Android');
+  }
+
+  /// Files completed by a segmented recording (Android only), see
+  /// [RecorderOptions.segmentDuration].
+  Stream<RecorderSegment> get onSegmentCompleted {
+    final delegate = _delegate;
+    if (delegate is MediaRecorderNative) {
+      return delegate.onSegmentCompleted;
+    }
+    return const Stream.empty();
+  }
+
+  /// Stops writing without releasing the encoders (Android only); [resume]
+  /// continues in the same file with the paused interval cut out.
+  /// Pass-through recordings cannot be paused.
+  Future<void> pause() async {
+    final delegate = _delegate;
+    if (delegate is MediaRecorderNative) {
+      return delegate.pause();
+    }
+    throw UnimplementedError('pause is only supported on Android');
+  }
+
+  Future<void> resume() async {
+    final delegate = _delegate;
+    if (delegate is MediaRecorderNative) {
+      return delegate.resume();
+    }
+    throw UnimplementedError('resume is only supported on Android');
+  }
+
+  /// Encoder counters of the running recording (Android only).
+  Future<RecorderStats?> getStats() async {
+    final delegate = _delegate;
+    if (delegate is MediaRecorderNative) {
+      return delegate.getStats();
+    }
+    return null;
+  }
+
   @override
   Future stop() => _delegate.stop();
 
@@ -0,0 +1,77 @@
+import 'dart:async';
+
+import 'package:flutter/services.dart';
+
+import 'utils.dart';
+
+/// Level of one metered audio source over the last reporting interval.
+class AudioLevel {
+  AudioLevel({
+    required this.trackId,
+    required this.kind,
+    required this.rms,
+    required this.peak,
+  });
+
+  factory AudioLevel.fromMap(Map<dynamic, dynamic> map) => AudioLevel(
+        trackId: map['trackId'] as String,
+        kind: map['kind'] as String,
+        rms: (map['rms'] as num).toDouble(),
+        peak: (map['peak'] as num).toDouble(),
+      );
+
+  /// Track id, or `playout:<factoryId>` for a factory's mixed playout.
+  final String trackId;
+
+  /// `local`, `remote` or `playout`.
+  final String kind;
+
+  /// Root mean square level, normalized to 0..1.
+  final double rms;
+
+  /// Absolute peak sample, normalized to 0..1.
+  final double peak;
+}
+
+/// Native audio level metering (Android only).
+///
+/// Levels are computed on the audio threads and pushed at a fixed rate, so
+/// level meters do not need to poll `getStats`.
+class AudioLevelMonitor {
+  static Stream<List<AudioLevel>>? _levels;
+
+  /// Level reports for every metered source that produced audio during the
+  /// last interval.
+  static Stream<List<AudioLevel>> get levels =>
+      _levels ??= const EventChannel('FlutterWebRTC/audioLevels')
+          .receiveBroadcastStream()
+          .map((event) => (event['levels'] as List<dynamic>)
+              .map((e) => AudioLevel.fromMap(e as Map<dynamic, dynamic>))
+              .toList());
+
+  /// Replaces the set of metered sources.
+  ///
+  /// [trackIds] may contain local and remote audio track ids.
+  /// [playoutFactoryIds] meters the mixed playout of the given
+  /// `NativePeerConnectionFactory` ids. [intervalMs] is the reporting period.
+  static Future<void> setMonitoredTracks(
+    List<String> trackIds, {
+    List<String> playoutFactoryIds = const [],
+    int intervalMs = 100,
+  }) async {
+    if (!WebRTC.platformIsAndroid) {
+      throw Exception('AudioLevelMonitor is only supported on Android');
+    }
+    await WebRTC.invokeMethod(
+      'setAudioLevelMonitoring',
+      <String, dynamic>{
+        'trackIds': trackIds,
+        'playoutFactoryIds': playoutFactoryIds,
+        'intervalMs': intervalMs,
+      },
+    );
+  }
+
+  /// Stops all metering.
+  static Future<void> stop() => setMonitoredTracks(const []);
+}
@@ -1,8 +1,11 @@
 import 'dart:async';
 import 'dart:math';
+import 'dart:ui' show Rect;
 
 import 'package:webrtc_interface/webrtc_interface.dart';
 
+import '../recorder_options.dart';
+import 'event_channel.dart';
 import 'media_stream_track_impl.dart';
 import 'utils.dart';
 
@@ -20,6 +23,7 @@ class MediaRecorderNative extends MediaRecorder {
     String path, {
     MediaStreamTrack? videoTrack,
     RecorderAudioChannel? audioChannel,
+    RecorderOptions? options,
   }) async {
     if (audioChannel == null && videoTrack == null) {
       throw Exception('Neither audio nor video track were provided');
@@ -30,6 +34,7 @@ class MediaRecorderNative extends MediaRecorder {
       if (audioChannel != null) 'audioChannel': audioChannel.index,
       if (videoTrack != null) 'videoTrackId': videoTrack.id,
       'recorderId': _recorderId,
+      if (options != null) 'options': options.toMap(),
       'peerConnectionId': videoTrack is MediaStreamTrackNative
           ? videoTrack.peerConnectionId
           : null
@@ -37,6 +42,79 @@ class MediaRecorderNative extends MediaRecorder {
     _isStarted = true;
   }
 
+  /// Records several tracks into one file: video tracks are tiled into a
+  /// [width] x [height] frame and audio tracks are mixed.
+  ///
+  /// [layout] holds one rectangle per video track, in fractions of the
+  /// output with a top-left origin; without it the tiles form a grid.
+  Future<void> startComposite(
+    String path, {
+    required List<MediaStreamTrack> videoTracks,
+    List<MediaStreamTrack> audioTracks = const [],
+    int width = 1280,
+    int height = 720,
+    List<Rect>? layout,
+    RecorderOptions? options,
+  }) async {
+    if (videoTracks.isEmpty) {
+      throw Exception('At least one video track is required');
+    }
+    if (layout != null && layout.length != videoTracks.length) {
+      throw Exception('layout needs one rectangle per video track');
+    }
+    final peerConnectionId = [...videoTracks, ...audioTracks]
+        .whereType<MediaStreamTrackNative>()
+        .map((track) => track.peerConnectionId)
+        .firstWhere((id) => id.isNotEmpty, orElse: () => '');
+    await WebRTC.invokeMethod('startCompositeRecordToFile', {
+      'path': path,
+      'recorderId': _recorderId,
+      'videoTrackIds': videoTracks.map((track) => track.id).toList(),
+      'audioTrackIds': audioTracks.map((track) => track.id).toList(),
+      'width': width,
+      'height': height,
+      if (layout != null)
+        'rects': layout
+            .map((rect) => [rect.left, rect.top, rect.width, rect.height])
+            .toList(),
+      if (options != null) 'options': options.toMap(),
+      if (peerConnectionId.isNotEmpty) 'peerConnectionId': peerConnectionId,
+    });
+    _isStarted = true;
+  }
+
+  /// Files completed by a segmented recording, including the last one when
+  /// the recording stops.
+  Stream<RecorderSegment> get onSegmentCompleted =>
+      FlutterWebRTCEventChannel.instance.handleEvents.stream
+          .map((data) => data.values.first as Map<dynamic, dynamic>)
+          .where((map) =>
+              map['event'] == 'onRecorderSegmentCompleted' &&
+              map['recorderId'] == _recorderId)
+          .map(RecorderSegment.fromMap);
+
+  /// Stops writing without releasing the encoders; [resume] continues in
+  /// the same file with the paused interval cut out.
+  Future<void> pause() async {
+    await WebRTC.invokeMethod('pauseRecordToFile', {
+      'recorderId': _recorderId,
+    });
+  }
+
+  Future<void> resume() async {
+    await WebRTC.invokeMethod('resumeRecordToFile', {
+      'recorderId': _recorderId,
+    });
+  }
+
+  /// Encoder counters of the running recording.
+  Future<RecorderStats> getStats() async {
+    final response = await WebRTC.invokeMethod('getRecorderStats', {
+      'recorderId': _recorderId,
+    });
+    return RecorderStats.fromMap(response);
+  }
+
   @override
   void startWeb(MediaStream stream,
       {Function(dynamic blob, bool isLastOne)? onDataChunk,
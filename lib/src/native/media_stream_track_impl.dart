@@ -1,11 +1,14 @@
 import 'dart:async';
 import 'dart:io';
+import 'dart:math';
 import 'dart:typed_data';
 
 import 'package:path_provider/path_provider.dart';
 import 'package:webrtc_interface/webrtc_interface.dart';
 
+import '../frame_capture_format.dart';
 import '../helper.dart';
+import 'event_channel.dart';
 import 'utils.dart';
 
 class MediaStreamTrackNative extends MediaStreamTrack {
@@ -18,6 +21,7 @@ class MediaStreamTrackNative extends MediaStreamTrack {
     return MediaStreamTrackNative(map['id'], map['label'], map['kind'],
         map['enabled'], peerConnectionId, map['settings'] ?? {});
   }
+  static final _random = Random();
   final String _trackId;
   final String _label;
   final String _kind;
@@ -83,15 +87,28 @@ class MediaStreamTrackNative extends MediaStreamTrack {
     return Helper.setSpeakerphoneOn(enable);
   }
 
-  @override
-  Future<ByteBuffer> captureFrame() async {
+  /// Encoded image of the track's next frame.
+  ///
+  /// On Android the frame is encoded as [format] at [quality] (0-100),
+  /// scaled down to fit [maxWidth] x [maxHeight] when given.
+  @override
+  Future<ByteBuffer> captureFrame({
+    FrameCaptureFormat format = FrameCaptureFormat.jpeg,
+    int quality = 100,
+    int? maxWidth,
+    int? maxHeight,
+  }) async {
     var filePath = await getTemporaryDirectory();
     await WebRTC.invokeMethod(
       'captureFrame',
       <String, dynamic>{
         'trackId': _trackId,
         'peerConnectionId': _peerConnectionId,
-        'path': '${filePath.path}/captureFrame.png'
+        'path': '${filePath.path}/captureFrame.png',
+        'format': format.name,
+        'quality': quality,
+        if (maxWidth != null) 'maxWidth': maxWidth,
+        if (maxHeight != null) 'maxHeight': maxHeight,
       },
     );
     return File('${filePath.path}/captureFrame.png')
@@ -99,6 +116,56 @@ class MediaStreamTrackNative extends MediaStreamTrack {
         .then((value) => value.buffer);
   }
 
+  /// Encoded, downscaled frames of the track, one per [interval] (Android
+  /// only).
+  ///
+  /// A single sink stays attached to the track while the stream has a
+  /// listener, so sampling is cheap enough for periodic thumbnails of every
+  /// participant. Frames are scaled down to fit [maxWidth] x [maxHeight].
+  Stream<SampledFrame> sampleFrames({
+    Duration interval = const Duration(seconds: 1),
+    int maxWidth = 320,
+    int maxHeight = 320,
+    FrameCaptureFormat format = FrameCaptureFormat.jpeg,
+    int quality = 80,
+  }) {
+    final samplerId = '${_trackId}_${_random.nextInt(0x7FFFFFFF)}';
+    StreamSubscription<Map<String, dynamic>>? subscription;
+    late final StreamController<SampledFrame> controller;
+    controller = StreamController<SampledFrame>(
+      onListen: () async {
+        subscription = FlutterWebRTCEventChannel.instance.handleEvents.stream
+            .map((data) => data.values.first as Map<dynamic, dynamic>)
+            .where((map) =>
+                map['event'] == 'onFrameSampled' &&
+                map['samplerId'] == samplerId)
+            .map(SampledFrame.fromMap)
+            .listen(controller.add);
+        try {
+          await WebRTC.invokeMethod('startFrameSampling', <String, dynamic>{
+            'samplerId': samplerId,
+            'trackId': _trackId,
+            'peerConnectionId': _peerConnectionId,
+            'intervalMs': interval.inMilliseconds,
+            'maxWidth': maxWidth,
+            'maxHeight': maxHeight,
+            'format': format.name,
+            'quality': quality,
+          });
+        } catch (e, stackTrace) {
+          controller.addError(e, stackTrace);
+        }
+      },
+      onCancel: () async {
+        await subscription?.cancel();
+        await WebRTC.invokeMethod('stopFrameSampling', <String, dynamic>{
+          'samplerId': samplerId,
+        });
+      },
+    );
+    return controller.stream;
+  }
+
   @override
   Future<void> applyConstraints([Map<String, dynamic>? constraints]) {
     if (constraints == null) return Future.value();
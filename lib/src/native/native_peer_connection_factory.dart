@@ -24,7 +24,20 @@ class NativePeerConnectionFactory {
   /// Builds a fresh per-call factory. Initializes the WebRTC plugin if it
   /// hasn't been initialized yet.
   ///
-  /// [options] mirrors the [WebRTC.initialize] options map
+  /// [options] mirrors the [WebRTC.initialize] options map, plus:
+  ///
+  /// "speechActivity": (Android only) a map tuning the speaking-while-muted
+  /// detector behind `onSpeechActivityChanged`:
+  ///   "thresholdDb" (default -45), "hysteresisDb" (default 3),
+  ///   "windowMs" (default 600), "mode" (`energy` or `energyZcr`),
+  ///   "maxZeroCrossingRate" (default 0.25, `energyZcr` only) and
+  ///   "levelIntervalMs" (default 0). A non-zero "levelIntervalMs" also emits
+  ///   `onAudioLevel` events with the microphone RMS level in dBFS.
+  ///
+  /// "screenAudioClipMode": (Android only) how the microphone + screen-audio
+  /// mix is kept in range: `hardClip` (default, only touches samples that
+  /// overflow), `limiter` or `softClip` (also compresses loud peaks that
+  /// would not overflow).
   static Future<NativePeerConnectionFactory> create({
     Map<String, dynamic>? options,
   }) async {
@@ -203,6 +216,22 @@ class NativePeerConnectionFactory {
     }
   }
 
+  /// Returns per-consumer counters for this factory's audio sample callbacks
+  /// (Android only): invocation count, total and max callback time in
+  /// nanoseconds, and frames dropped by asynchronous consumers.
+  ///
+  /// The result has a `record` and a `playback` list, one entry per consumer.
+  Future<Map<String, dynamic>> getAudioCallbackStats() async {
+    _checkDisposed('getAudioCallbackStats');
+    final response = await WebRTC.invokeMethod(
+      'getAudioCallbackStats',
+      <String, dynamic>{
+        'factoryId': factoryId,
+      },
+    );
+    return Map<String, dynamic>.from(response as Map);
+  }
+
   /// Disposes the underlying native factory.
   Future<void> dispose() async {
     if (_disposed) {
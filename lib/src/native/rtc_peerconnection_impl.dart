@@ -11,6 +11,8 @@ import 'rtc_dtmf_sender_impl.dart';
 import 'rtc_rtp_receiver_impl.dart';
 import 'rtc_rtp_sender_impl.dart';
 import 'rtc_rtp_transceiver_impl.dart';
+import 'stats_codec.dart';
+import 'stats_sampling.dart';
 import 'utils.dart';
 
 /*
@@ -34,6 +36,7 @@ class RTCPeerConnectionNative extends RTCPeerConnection {
   RTCIceGatheringState? _iceGatheringState;
   RTCIceConnectionState? _iceConnectionState;
   RTCPeerConnectionState? _connectionState;
+  final _statsDeltaController = StreamController<StatsDelta>.broadcast();
 
   final Map<String, dynamic> defaultSdpConstraints = {
     'mandatory': {
@@ -259,6 +262,10 @@ class RTCPeerConnectionNative extends RTCPeerConnection {
             transceiver: transceiver));
         break;
 
+      case 'onStatsDelta':
+        _statsDeltaController.add(StatsDelta.fromMap(map));
+        break;
+
       /// Other
       case 'onSelectedCandidatePairChanged':
 
@@ -294,6 +301,7 @@ class RTCPeerConnectionNative extends RTCPeerConnection {
   @override
   Future<void> dispose() async {
     await _eventSubscription?.cancel();
+    await _statsDeltaController.close();
 
     await WebRTC.invokeMethod(
       'peerConnectionDispose',
@@ -450,27 +458,71 @@ class RTCPeerConnectionNative extends RTCPeerConnection {
   }
 
   @override
-  Future<List<StatsReport>> getStats([MediaStreamTrack? track]) async {
+  Future<List<StatsReport>> getStats([MediaStreamTrack? track]) =>
+      getStatsEncoded(track, StatsEncoding.map);
+
+  /// [getStats] with an explicit wire format; see [StatsEncoding].
+  Future<List<StatsReport>> getStatsEncoded(
+      MediaStreamTrack? track, StatsEncoding encoding) async {
     try {
       final response = await WebRTC.invokeMethod('getStats', <String, dynamic>{
         'peerConnectionId': _peerConnectionId,
-        'trackId': track?.id
+        'trackId': track?.id,
+        if (encoding == StatsEncoding.binary) 'encoding': 'binary',
       });
-
-      var stats = <StatsReport>[];
-      if (response != null) {
-        List<dynamic> reports = response['stats'];
-        for (var report in reports) {
-          stats.add(StatsReport(report['id'], report['type'],
-              (report['timestamp'] as num).toDouble(), report['values']));
-        }
-      }
-      return stats;
+      return decodeStatsResponse(response);
     } on PlatformException catch (e) {
       throw 'Unable to RTCPeerConnection::getStats: ${e.message}';
     }
   }
 
+  /// Deltas from the native stats sampler; see [setStatsSampling].
+  Stream<StatsDelta> get statsDeltas => _statsDeltaController.stream;
+
+  /// Starts native stats sampling every [intervalMs], restricted to [types]
+  /// when given. An interval of 0 stops sampling.
+  Future<void> setStatsSampling(int intervalMs, List<String>? types) async {
+    try {
+      await WebRTC.invokeMethod('setStatsSampling', <String, dynamic>{
+        'peerConnectionId': _peerConnectionId,
+        'intervalMs': intervalMs,
+        'types': types,
+      });
+    } on PlatformException catch (e) {
+      throw 'Unable to RTCPeerConnection::setStatsSampling: ${e.message}';
+    }
+  }
+
+  /// Enables native stats aggregation every [intervalMs], retaining
+  /// [capacity] samples per metric. An interval of 0 disables it.
+  Future<void> setStatsAggregation(int intervalMs, int capacity) async {
+    try {
+      await WebRTC.invokeMethod('setStatsAggregation', <String, dynamic>{
+        'peerConnectionId': _peerConnectionId,
+        'intervalMs': intervalMs,
+        'capacity': capacity,
+      });
+    } on PlatformException catch (e) {
+      throw 'Unable to RTCPeerConnection::setStatsAggregation: ${e.message}';
+    }
+  }
+
+  Future<List<StreamStatsAggregates>> getStatsAggregatesNative(
+      int windowMs) async {
+    try {
+      final response =
+          await WebRTC.invokeMethod('getStatsAggregates', <String, dynamic>{
+        'peerConnectionId': _peerConnectionId,
+        'windowMs': windowMs,
+      });
+      return (response['streams'] as List<dynamic>)
+          .map((e) => StreamStatsAggregates.fromMap(e))
+          .toList();
+    } on PlatformException catch (e) {
+      throw 'Unable to RTCPeerConnection::getStatsAggregates: ${e.message}';
+    }
+  }
+
   @override
   List<MediaStream> getLocalStreams() {
     return _localStreams;
@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'dart:ui' show Size;
 
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
@@ -7,11 +8,18 @@ import 'package:webrtc_interface/webrtc_interface.dart';
 
 import '../helper.dart';
 import '../video_renderer_extension.dart' show AudioControl;
+import '../video_renderer_stats.dart';
 import 'utils.dart';
 
 class RTCVideoRenderer extends ValueNotifier<RTCVideoValue>
     implements VideoRenderer, AudioControl {
-  RTCVideoRenderer() : super(RTCVideoValue.empty);
+  RTCVideoRenderer({this.pooled = false}) : super(RTCVideoValue.empty);
+
+  /// Draws on a small pool of render threads shared by all pooled renderers
+  /// instead of a thread and GL context per renderer (Android only). Keeps
+  /// thread count and memory flat in large galleries.
+  final bool pooled;
+
   Completer? _initializing;
   int? _textureId;
   bool _disposed = false;
@@ -25,7 +33,9 @@ class RTCVideoRenderer extends ValueNotifier<RTCVideoValue>
       return;
     }
     _initializing = Completer();
-    final response = await WebRTC.invokeMethod('createVideoRenderer', {});
+    final response = await WebRTC.invokeMethod('createVideoRenderer', {
+      if (pooled) 'pooled': true,
+    });
     _textureId = response['textureId'];
     _eventSubscription = EventChannel('FlutterWebRTC/Texture$textureId')
         .receiveBroadcastStream()
@@ -51,6 +61,53 @@ class RTCVideoRenderer extends ValueNotifier<RTCVideoValue>
   @override
   Function? onFirstFrameRendered;
 
+  /// Called when [renderSize] changes (Android only).
+  Function? onRenderSizeChanged;
+
+  Size? _layoutSize;
+  Size? _renderSize;
+
+  /// Resolution the frames are drawn at, in physical pixels: the video
+  /// resolution scaled down to the layout size set with [setLayoutSize].
+  /// Receiving video at a higher resolution than this is wasted, so it is a
+  /// good hint for picking a simulcast layer.
+  Size? get renderSize => _renderSize;
+
+  /// Last size passed to [setLayoutSize].
+  Size? get layoutSize => _layoutSize;
+
+  /// Size of the widget showing this renderer, in physical pixels (Android
+  /// only). Frames are then drawn into a surface scaled down to cover it
+  /// instead of at the video's full resolution. [Size.zero] restores full
+  /// resolution.
+  Future<void> setLayoutSize(Size size) async {
+    if (_disposed || _textureId == null || size == _layoutSize) return;
+    _layoutSize = size;
+    await WebRTC.invokeMethod('videoRendererSetLayoutSize', <String, dynamic>{
+      'textureId': _textureId,
+      'width': size.width.round(),
+      'height': size.height.round(),
+    });
+  }
+
+  /// Counters of the native renderer (Android only).
+  Future<VideoRendererStats> getStats() async {
+    final response = await WebRTC.invokeMethod(
+        'videoRendererGetStats', <String, dynamic>{'textureId': _textureId});
+    return VideoRendererStats.fromMap(response);
+  }
+
+  /// Caps the render frame rate, e.g. for thumbnails or off-screen tiles
+  /// (Android only). Null removes the cap.
+  Future<void> setMaxFrameRate(double? fps) async {
+    if (_disposed || _textureId == null) return;
+    await WebRTC.invokeMethod(
+        'videoRendererSetMaxFrameRate', <String, dynamic>{
+      'textureId': _textureId,
+      'fps': fps ?? 0.0,
+    });
+  }
+
   @override
   set srcObject(MediaStream? stream) {
     if (_disposed) {
@@ -129,6 +186,11 @@ class RTCVideoRenderer extends ValueNotifier<RTCVideoValue>
             renderVideo: renderVideo);
         onResize?.call();
         break;
+      case 'didTextureChangeRenderSize':
+        _renderSize = Size((map['width'] as int).toDouble(),
+            (map['height'] as int).toDouble());
+        onRenderSizeChanged?.call();
+        break;
       case 'didFirstFrameRendered':
         value = value.copyWith(renderVideo: renderVideo);
         onFirstFrameRendered?.call();
@@ -14,6 +14,7 @@ class RTCVideoView extends StatelessWidget {
     this.mirror = false,
     this.filterQuality = FilterQuality.low,
     this.placeholderBuilder,
+    this.adaptiveResolution = false,
   });
 
   final RTCVideoRenderer _renderer;
@@ -22,6 +23,11 @@ class RTCVideoView extends StatelessWidget {
   final FilterQuality filterQuality;
   final WidgetBuilder? placeholderBuilder;
 
+  /// Reports the view's size to the renderer so frames are drawn at the
+  /// resolution shown rather than the video's full resolution. Saves GPU
+  /// time and memory bandwidth for small tiles.
+  final bool adaptiveResolution;
+
   RTCVideoRenderer get videoRenderer => _renderer;
 
   @override
@@ -32,6 +38,18 @@ class RTCVideoView extends StatelessWidget {
   }
 
   Widget _buildVideoView(BuildContext context, BoxConstraints constraints) {
+    if (adaptiveResolution &&
+        constraints.hasBoundedWidth &&
+        constraints.hasBoundedHeight) {
+      final layoutSize =
+          constraints.biggest * MediaQuery.of(context).devicePixelRatio;
+      if (layoutSize != _renderer.layoutSize) {
+        // Report after layout rather than from build(), and only when the
+        // size changed.
+        WidgetsBinding.instance.addPostFrameCallback(
+            (_) => _renderer.setLayoutSize(layoutSize));
+      }
+    }
     return Center(
       child: Container(
         width: constraints.maxWidth,
@@ -0,0 +1,178 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:webrtc_interface/webrtc_interface.dart';
+
+import 'rtc_peerconnection_impl.dart';
+
+/// Wire format used by the native side to return `getStats` results.
+enum StatsEncoding {
+  /// One platform-channel map per report (the default).
+  map,
+
+  /// A single byte array with an interned string table and typed values.
+  /// Much cheaper to produce natively on calls with many reports (Android
+  /// only; other platforms fall back to [map]).
+  binary,
+}
+
+extension StatsEncodingGetStats on RTCPeerConnection {
+  /// Same as [RTCPeerConnection.getStats], with the wire format selectable
+  /// per request.
+  Future<List<StatsReport>> getStatsWithEncoding({
+    MediaStreamTrack? track,
+    StatsEncoding encoding = StatsEncoding.map,
+  }) {
+    final self = this;
+    if (self is RTCPeerConnectionNative) {
+      return self.getStatsEncoded(track, encoding);
+    }
+    return getStats(track);
+  }
+}
+
+/// Converts a native `getStats` response, in either encoding, to reports.
+List<StatsReport> decodeStatsResponse(dynamic response) {
+  if (response == null) {
+    return <StatsReport>[];
+  }
+  if (response is Uint8List) {
+    return decodeBinaryStats(response);
+  }
+  final stats = <StatsReport>[];
+  List<dynamic> reports = response['stats'];
+  for (var report in reports) {
+    stats.add(StatsReport(report['id'], report['type'],
+        (report['timestamp'] as num).toDouble(), report['values']));
+  }
+  return stats;
+}
+
+const int _kTagFalse = 0;
+const int _kTagTrue = 1;
+const int _kTagInt32 = 2;
+const int _kTagInt64 = 3;
+const int _kTagDouble = 4;
+const int _kTagString = 5;
+const int _kTagStringArray = 6;
+const int _kTagMap = 7;
+
+/// Decodes the layout written by the Android `StatsBinaryEncoder`.
+///
+/// Throws a [FormatException] on an unknown version or value tag and on
+/// truncated or otherwise inconsistent input.
+List<StatsReport> decodeBinaryStats(Uint8List bytes) {
+  try {
+    return _decodeBinaryStats(bytes);
+  } on RangeError catch (e) {
+    throw FormatException('Malformed stats payload: ${e.message}');
+  }
+}
+
+List<StatsReport> _decodeBinaryStats(Uint8List bytes) {
+  final reader = _StatsReader(bytes);
+  final version = reader.readByte();
+  if (version != 1) {
+    throw FormatException('Unsupported stats encoding version $version');
+  }
+  final stringCount = reader.readVarint();
+  final strings = List<String>.generate(stringCount, (_) {
+    final length = reader.readVarint();
+    return reader.readUtf8(length);
+  }, growable: false);
+
+  final reportCount = reader.readVarint();
+  final reports = <StatsReport>[];
+  for (var i = 0; i < reportCount; i++) {
+    final id = strings[reader.readVarint()];
+    final type = strings[reader.readVarint()];
+    final timestamp = reader.readFloat64();
+    reports.add(StatsReport(id, type, timestamp, reader.readMembers(strings)));
+  }
+  return reports;
+}
+
+class _StatsReader {
+  _StatsReader(this._bytes)
+      : _data = ByteData.view(
+            _bytes.buffer, _bytes.offsetInBytes, _bytes.lengthInBytes);
+
+  final Uint8List _bytes;
+  final ByteData _data;
+  int _offset = 0;
+
+  int readByte() => _bytes[_offset++];
+
+  int readVarint() {
+    var result = 0;
+    var shift = 0;
+    while (true) {
+      final b = _bytes[_offset++];
+      result |= (b & 0x7f) << shift;
+      if (b < 0x80) {
+        return result;
+      }
+      shift += 7;
+    }
+  }
+
+  String readUtf8(int length) {
+    final value = utf8.decode(
+        Uint8List.sublistView(_bytes, _offset, _offset + length));
+    _offset += length;
+    return value;
+  }
+
+  int readInt32() {
+    final value = _data.getInt32(_offset, Endian.little);
+    _offset += 4;
+    return value;
+  }
+
+  int readInt64() {
+    final value = _data.getInt64(_offset, Endian.little);
+    _offset += 8;
+    return value;
+  }
+
+  double readFloat64() {
+    final value = _data.getFloat64(_offset, Endian.little);
+    _offset += 8;
+    return value;
+  }
+
+  Map<String, dynamic> readMembers(List<String> strings) {
+    final count = readVarint();
+    final members = <String, dynamic>{};
+    for (var i = 0; i < count; i++) {
+      final key = strings[readVarint()];
+      members[key] = readValue(strings);
+    }
+    return members;
+  }
+
+  dynamic readValue(List<String> strings) {
+    final tag = readByte();
+    switch (tag) {
+      case _kTagFalse:
+        return false;
+      case _kTagTrue:
+        return true;
+      case _kTagInt32:
+        return readInt32();
+      case _kTagInt64:
+        return readInt64();
+      case _kTagDouble:
+        return readFloat64();
+      case _kTagString:
+        return strings[readVarint()];
+      case _kTagStringArray:
+        final count = readVarint();
+        return List<String>.generate(count, (_) => strings[readVarint()]);
+      case _kTagMap:
+        return readMembers(strings);
+      default:
+        throw FormatException('Unknown stats value tag $tag at ${_offset - 1}');
+    }
+  }
+}
@@ -0,0 +1,169 @@
+import 'package:webrtc_interface/webrtc_interface.dart';
+
+import 'rtc_peerconnection_impl.dart';
+
+/// Stats that changed between two native samples of a peer connection.
+class StatsDelta {
+  StatsDelta(this.timestamp, this.reports, this.removed,
+      [this.removedMembers = const {}]);
+
+  factory StatsDelta.fromMap(Map<dynamic, dynamic> map) {
+    final reports = map['reports'] as List<dynamic>;
+    return StatsDelta(
+      (map['timestamp'] as num).toDouble(),
+      reports
+          .map((r) => StatsReport(r['id'], r['type'],
+              (r['timestamp'] as num).toDouble(), r['values']))
+          .toList(),
+      (map['removed'] as List<dynamic>).cast<String>(),
+      {
+        for (final r in reports)
+          if (r['removedMembers'] != null)
+            r['id'] as String:
+                (r['removedMembers'] as List<dynamic>).cast<String>(),
+      },
+    );
+  }
+
+  /// Report timestamp in microseconds.
+  final double timestamp;
+
+  /// Reports that are new or changed. [StatsReport.values] holds only the
+  /// members that differ from the previous sample.
+  final List<StatsReport> reports;
+
+  /// Ids of reports that are no longer present.
+  final List<String> removed;
+
+  /// Names of members that reports in [reports] no longer have, keyed by
+  /// report id.
+  final Map<String, List<String>> removedMembers;
+
+  /// Merges this delta into [snapshot], keyed by report id, so the snapshot
+  /// always holds the full current value of every sampled report.
+  void applyTo(Map<String, StatsReport> snapshot) {
+    for (var report in reports) {
+      final previous = snapshot[report.id];
+      final values = {...?previous?.values, ...report.values};
+      removedMembers[report.id]?.forEach(values.remove);
+      snapshot[report.id] =
+          StatsReport(report.id, report.type, report.timestamp, values);
+    }
+    removed.forEach(snapshot.remove);
+  }
+}
+
+/// Summary of one derived metric over a window of samples.
+class StatsAggregate {
+  StatsAggregate(
+      this.mean, this.p95, this.min, this.max, this.latest, this.count);
+
+  factory StatsAggregate.fromMap(Map<dynamic, dynamic> map) => StatsAggregate(
+        (map['mean'] as num).toDouble(),
+        (map['p95'] as num).toDouble(),
+        (map['min'] as num).toDouble(),
+        (map['max'] as num).toDouble(),
+        (map['latest'] as num).toDouble(),
+        map['count'] as int,
+      );
+
+  final double mean;
+  final double p95;
+  final double min;
+  final double max;
+  final double latest;
+
+  /// Number of samples in the window.
+  final int count;
+}
+
+/// Derived metrics of one RTP stream, computed natively from successive
+/// stats reports.
+class StreamStatsAggregates {
+  StreamStatsAggregates(this.ssrc, this.kind, this.direction, this.metrics);
+
+  factory StreamStatsAggregates.fromMap(Map<dynamic, dynamic> map) =>
+      StreamStatsAggregates(
+        map['ssrc'] as int,
+        map['kind'] as String,
+        map['direction'] as String,
+        (map['metrics'] as Map<dynamic, dynamic>).map((key, value) =>
+            MapEntry(key as String, StatsAggregate.fromMap(value))),
+      );
+
+  final int ssrc;
+
+  /// `audio` or `video`.
+  final String kind;
+
+  /// `inbound` or `outbound`.
+  final String direction;
+
+  /// Keyed by `bitrate` (bits/s), `packetLoss` (%), `jitter` (ms) and `fps`.
+  /// Metrics without samples in the window are absent.
+  final Map<String, StatsAggregate> metrics;
+}
+
+extension StatsSampling on RTCPeerConnection {
+  /// Deltas pushed by the native sampler once [startStatsSampling] has been
+  /// called. Empty on platforms without native sampling.
+  Stream<StatsDelta> get onStatsDelta {
+    final self = this;
+    if (self is RTCPeerConnectionNative) {
+      return self.statsDeltas;
+    }
+    return const Stream.empty();
+  }
+
+  /// Polls stats natively every [intervalMs] and pushes only changed members
+  /// to [onStatsDelta]. [types] restricts sampling to the given stats types,
+  /// e.g. `['inbound-rtp', 'candidate-pair']` (Android only).
+  Future<void> startStatsSampling({
+    int intervalMs = 1000,
+    List<String>? types,
+  }) async {
+    final self = this;
+    if (self is RTCPeerConnectionNative) {
+      await self.setStatsSampling(intervalMs, types);
+    }
+  }
+
+  Future<void> stopStatsSampling() async {
+    final self = this;
+    if (self is RTCPeerConnectionNative) {
+      await self.setStatsSampling(0, null);
+    }
+  }
+
+  /// Starts deriving bitrate, packet loss, jitter and frame rate natively
+  /// from stats polled every [intervalMs]. [capacity] samples are kept per
+  /// metric and stream (Android only).
+  Future<void> enableStatsAggregation({
+    int intervalMs = 1000,
+    int capacity = 300,
+  }) async {
+    final self = this;
+    if (self is RTCPeerConnectionNative) {
+      await self.setStatsAggregation(intervalMs, capacity);
+    }
+  }
+
+  /// Stops aggregation and drops the collected series.
+  Future<void> disableStatsAggregation() async {
+    final self = this;
+    if (self is RTCPeerConnectionNative) {
+      await self.setStatsAggregation(0, 0);
+    }
+  }
+
+  /// Aggregates over the trailing [windowMs] of samples, or over every
+  /// retained sample when [windowMs] is 0.
+  Future<List<StreamStatsAggregates>> getStatsAggregates(
+      {int windowMs = 0}) async {
+    final self = this;
+    if (self is RTCPeerConnectionNative) {
+      return self.getStatsAggregatesNative(windowMs);
+    }
+    return <StreamStatsAggregates>[];
+  }
+}
@@ -0,0 +1,182 @@
+/// What the Android video encoder does when its in-flight frame budget is
+/// used up.
+enum RecorderDropPolicy {
+  /// Evict the oldest frame still waiting to be rendered.
+  dropOldest,
+
+  /// Discard the incoming frame.
+  dropNewest,
+
+  /// Discard incoming frames, except one due to start a new GOP, so drops
+  /// never stretch the keyframe interval.
+  keyframeCadence,
+}
+
+/// Video codec of a recording. HEVC falls back to H.264 on devices without
+/// an HEVC encoder.
+enum RecorderVideoCodec { h264, hevc }
+
+/// Rate control requested from the video encoder. Modes the encoder does not
+/// support fall back to [vbr].
+enum RecorderBitrateMode {
+  /// Variable bitrate around the target.
+  vbr,
+
+  /// Constant bitrate.
+  cbr,
+
+  /// Constant quality; the bitrate follows scene complexity. Needs Android 9.
+  cq,
+}
+
+/// Codec of audio-only recordings.
+enum RecorderAudioCodec {
+  /// AAC in MP4.
+  aac,
+
+  /// Opus in Ogg, or WebM when the path ends in `.webm`. Needs Android 10;
+  /// starting such a recording fails on older devices.
+  opus,
+}
+
+/// Encoder options for [MediaRecorder.start] (Android only).
+///
+/// The profile is resolved once against the device's encoder capabilities:
+/// values outside what the encoder supports are clamped rather than rejected.
+class RecorderOptions {
+  const RecorderOptions({
+    this.maxInFlightFrames = 4,
+    this.dropPolicy = RecorderDropPolicy.dropOldest,
+    this.videoCodec = RecorderVideoCodec.h264,
+    this.frameRate = 30,
+    this.keyFrameIntervalSec = 5,
+    this.bitrateMode = RecorderBitrateMode.vbr,
+    this.videoBitrate,
+    this.passthrough = false,
+    this.audioCodec = RecorderAudioCodec.aac,
+    this.audioBitrate,
+    this.audioBatch = const Duration(milliseconds: 100),
+    this.conversationAudio = false,
+    this.segmentDuration,
+    this.segmentMaxBytes,
+  });
+
+  /// Frames queued for rendering plus frames inside the encoder. Incoming
+  /// frames beyond this are handled by [dropPolicy].
+  final int maxInFlightFrames;
+
+  final RecorderDropPolicy dropPolicy;
+
+  final RecorderVideoCodec videoCodec;
+
+  final int frameRate;
+
+  /// Seconds between keyframes (GOP length).
+  final int keyFrameIntervalSec;
+
+  final RecorderBitrateMode bitrateMode;
+
+  /// Target bitrate in bits per second; derived from the resolution and
+  /// [frameRate] when null.
+  final int? videoBitrate;
+
+  /// Records the frames WebRTC already encodes for the video track (or
+  /// receives, for remote tracks) instead of encoding them a second time.
+  /// Costs almost no CPU or GPU, but the file gets the stream's codec,
+  /// resolution and bitrate; the video options above are ignored. Requires
+  /// a hardware-encoded (local) or hardware-decoded (remote) H.264, H.265,
+  /// VP8 or VP9 stream; VP8/VP9 are written as WebM without audio. Remote
+  /// streams decoded with a software fallback can't be tapped, and starting
+  /// such a recording fails.
+  final bool passthrough;
+
+  /// Codec of audio-only recordings; recordings with video use AAC.
+  final RecorderAudioCodec audioCodec;
+
+  /// Target audio bitrate in bits per second; a codec default when null.
+  final int? audioBitrate;
+
+  /// PCM collected before the audio-only encoder is fed. Longer batches
+  /// wake the encoder less often at the cost of memory.
+  final Duration audioBatch;
+
+  /// Records the microphone with the call's playback mixed in, so one
+  /// encoder captures both sides of the conversation. Applies whenever an
+  /// audio channel is requested, whichever channel it is.
+  final bool conversationAudio;
+
+  /// Splits the recording into consecutive files once a file holds this
+  /// much media. Each finished file is complete on its own and is reported
+  /// through [MediaRecorder.onSegmentCompleted]. Files are named
+  /// `<name>_0000.<ext>`, `<name>_0001.<ext>`, … next to the requested path.
+  final Duration? segmentDuration;
+
+  /// Same as [segmentDuration], rotating on the encoded size in bytes. When
+  /// both are set, whichever is reached first rotates.
+  final int? segmentMaxBytes;
+
+  Map<String, dynamic> toMap() => <String, dynamic>{
+        'maxInFlightFrames': maxInFlightFrames,
+        'dropPolicy': dropPolicy.name,
+        'videoCodec': videoCodec.name,
+        'frameRate': frameRate,
+        'keyFrameIntervalSec': keyFrameIntervalSec,
+        'bitrateMode': bitrateMode.name,
+        if (videoBitrate != null) 'videoBitrate': videoBitrate,
+        if (passthrough) 'passthrough': true,
+        'audioCodec': audioCodec.name,
+        if (audioBitrate != null) 'audioBitrate': audioBitrate,
+        'audioBatchMs': audioBatch.inMilliseconds,
+        if (conversationAudio) 'conversationAudio': true,
+        if (segmentDuration != null)
+          'segmentDurationMs': segmentDuration!.inMilliseconds,
+        if (segmentMaxBytes != null) 'segmentMaxBytes': segmentMaxBytes,
+      };
+}
+
+/// A finished file of a segmented recording.
+class RecorderSegment {
+  RecorderSegment(this.path, this.index, this.duration, this.sizeBytes);
+
+  factory RecorderSegment.fromMap(Map<dynamic, dynamic> map) =>
+      RecorderSegment(
+        map['path'] as String,
+        map['index'] as int,
+        Duration(milliseconds: map['durationMs'] as int),
+        map['sizeBytes'] as int,
+      );
+
+  final String path;
+
+  /// Position of the segment in the recording, starting at 0.
+  final int index;
+
+  final Duration duration;
+
+  /// Bytes of encoded samples in the segment, excluding container overhead.
+  final int sizeBytes;
+}
+
+/// Video encoder counters of a running recording.
+class RecorderStats {
+  RecorderStats(this.encodedFrames, this.droppedFrames, this.inFlightFrames,
+      [this.droppedAudioFrames = 0]);
+
+  factory RecorderStats.fromMap(Map<dynamic, dynamic> map) => RecorderStats(
+        map['encodedFrames'] as int,
+        map['droppedFrames'] as int,
+        map['inFlightFrames'] as int,
+        map['droppedAudioFrames'] as int? ?? 0,
+      );
+
+  final int encodedFrames;
+
+  /// Frames dropped because the in-flight budget was exhausted.
+  final int droppedFrames;
+
+  final int inFlightFrames;
+
+  /// Audio frames dropped because the encoder fell behind (pass-through
+  /// recordings only).
+  final int droppedAudioFrames;
+}
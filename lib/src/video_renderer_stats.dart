@@ -0,0 +1,64 @@
+/// Counters of an Android video renderer.
+///
+/// Frame counts are cumulative since the renderer was created; diff two
+/// snapshots to look at an interval.
+class VideoRendererStats {
+  VideoRendererStats(
+    this.surfaceRecreations,
+    this.framesReceived,
+    this.framesRendered,
+    this.framesDropped,
+    this.receiveFps,
+    this.renderFps,
+    this.latencyBucketsMs,
+    this.latencyHistogram,
+    this.averageLatency,
+    this.maxLatency,
+  );
+
+  factory VideoRendererStats.fromMap(Map<dynamic, dynamic> map) =>
+      VideoRendererStats(
+        map['surfaceRecreations'] as int,
+        map['framesReceived'] as int,
+        map['framesRendered'] as int,
+        map['framesDropped'] as int,
+        (map['receiveFps'] as num).toDouble(),
+        (map['renderFps'] as num).toDouble(),
+        List<int>.from(map['latencyBucketsMs'] as List<dynamic>),
+        List<int>.from(map['latencyHistogram'] as List<dynamic>),
+        Duration(microseconds: map['averageLatencyUs'] as int),
+        Duration(microseconds: map['maxLatencyUs'] as int),
+      );
+
+  /// Times the render surface was recreated for a new size. Surfaces grow and
+  /// follow rotations at once but shrink only after the video stayed smaller
+  /// for a while, so layer switches rarely add to this.
+  final int surfaceRecreations;
+
+  /// Frames delivered to the renderer by the track.
+  final int framesReceived;
+
+  /// Frames drawn into the texture.
+  final int framesRendered;
+
+  /// Frames received but never drawn: replaced by a newer frame, over the
+  /// frame rate cap or arriving while paused. For the default renderer this
+  /// may include one frame that is still about to be drawn.
+  final int framesDropped;
+
+  /// Frames per second over the last second; 0 once the video stalled.
+  final double receiveFps;
+
+  final double renderFps;
+
+  /// Upper bounds of the [latencyHistogram] buckets.
+  final List<int> latencyBucketsMs;
+
+  /// Rendered frames per capture-to-render latency bucket. Has one more entry
+  /// than [latencyBucketsMs], for frames above the last bound.
+  final List<int> latencyHistogram;
+
+  final Duration averageLatency;
+
+  final Duration maxLatency;
+}
@@ -39,10 +39,13 @@ const String _kDefaultErrorMessage =
 
 class RTCVideoRenderer extends ValueNotifier<RTCVideoValue>
     implements VideoRenderer, AudioControl {
-  RTCVideoRenderer()
+  RTCVideoRenderer({this.pooled = false})
       : _textureId = _textureCounter++,
         super(RTCVideoValue.empty);
 
+  /// Accepted for parity with the native renderer; has no effect on web.
+  final bool pooled;
+
   static const _elementIdForAudioManager = 'html_webrtc_audio_manager_list';
 
   web.HTMLAudioElement? _audioElement;
@@ -20,6 +20,7 @@ class RTCVideoView extends StatefulWidget {
     this.mirror = false,
     this.filterQuality = FilterQuality.low,
     this.placeholderBuilder,
+    this.adaptiveResolution = false,
   });
 
   final RTCVideoRenderer _renderer;
@@ -28,6 +29,9 @@ class RTCVideoView extends StatefulWidget {
   final FilterQuality filterQuality;
   final WidgetBuilder? placeholderBuilder;
 
+  /// Accepted for parity with the native view; has no effect on web.
+  final bool adaptiveResolution;
+
   @override
   RTCVideoViewState createState() => RTCVideoViewState();
 }
@@ -5,9 +5,12 @@ export 'package:webrtc_interface/webrtc_interface.dart'
 
 export 'src/helper.dart';
 export 'src/desktop_capturer.dart';
+export 'src/frame_capture_format.dart';
 export 'src/media_devices.dart';
 export 'src/media_recorder.dart';
+export 'src/recorder_options.dart';
 export 'src/video_renderer_extension.dart';
+export 'src/video_renderer_stats.dart';
 export 'src/native/factory_impl.dart'
     if (dart.library.js_interop) 'src/web/factory_impl.dart';
 export 'src/native/native_peer_connection_factory.dart'
@@ -21,6 +24,9 @@ export 'src/native/utils.dart'
 export 'src/native/adapter_type.dart';
 export 'src/native/camera_utils.dart';
 export 'src/native/audio_management.dart';
+export 'src/native/audio_level_monitor.dart';
+export 'src/native/stats_codec.dart' show StatsEncoding, StatsEncodingGetStats;
+export 'src/native/stats_sampling.dart';
 export 'src/native/android/audio_configuration.dart';
 export 'src/native/ios/audio_configuration.dart';
 export 'src/native/ios/audio_management.dart';
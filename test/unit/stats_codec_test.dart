@@ -0,0 +1,252 @@
+import 'dart:convert';
+import 'dart:io';
+import 'dart:typed_data';
+
+import 'package:flutter_test/flutter_test.dart';
+
+import 'package:stream_webrtc_flutter/src/native/stats_codec.dart';
+
+/// Bytes written by the Android `StatsBinaryEncoder`; regenerated by
+/// `StatsBinaryEncoderTest`, which also fails if the encoder drifts from it.
+final _golden =
+    File('test/unit/fixtures/stats_report_v1.bin').readAsBytesSync();
+
+/// Writes the layout of the Android `StatsBinaryEncoder`, for inputs the
+/// golden fixture does not cover.
+class _StatsWriter {
+  final _strings = <String>[];
+  final _body = BytesBuilder();
+
+  int _intern(String value) {
+    final index = _strings.indexOf(value);
+    if (index >= 0) {
+      return index;
+    }
+    _strings.add(value);
+    return _strings.length - 1;
+  }
+
+  static void _varint(BytesBuilder out, int value) {
+    while (value >= 0x80) {
+      out.addByte((value & 0x7f) | 0x80);
+      value >>= 7;
+    }
+    out.addByte(value);
+  }
+
+  /// The encoder patches member counts in as five-byte varints.
+  static void _paddedVarint(BytesBuilder out, int value) {
+    for (var i = 0; i < 4; i++) {
+      out.addByte((value & 0x7f) | 0x80);
+      value >>= 7;
+    }
+    out.addByte(value & 0x7f);
+  }
+
+  void _fixed(int length, void Function(ByteData data) write) {
+    final data = ByteData(length);
+    write(data);
+    _body.add(data.buffer.asUint8List());
+  }
+
+  void _members(Map<String, Object> members) {
+    _paddedVarint(_body, members.length);
+    members.forEach((key, value) {
+      _varint(_body, _intern(key));
+      _value(value);
+    });
+  }
+
+  void _value(Object value) {
+    if (value is bool) {
+      _body.addByte(value ? 1 : 0);
+    } else if (value is int && value.bitLength < 32) {
+      _body.addByte(2);
+      _fixed(4, (d) => d.setInt32(0, value, Endian.little));
+    } else if (value is int) {
+      _body.addByte(3);
+      _fixed(8, (d) => d.setInt64(0, value, Endian.little));
+    } else if (value is double) {
+      _body.addByte(4);
+      _fixed(8, (d) => d.setFloat64(0, value, Endian.little));
+    } else if (value is String) {
+      _body.addByte(5);
+      _varint(_body, _intern(value));
+    } else if (value is List<String>) {
+      _body.addByte(6);
+      _varint(_body, value.length);
+      for (final s in value) {
+        _varint(_body, _intern(s));
+      }
+    } else if (value is Map<String, Object>) {
+      _body.addByte(7);
+      _members(value);
+    } else {
+      throw ArgumentError.value(value);
+    }
+  }
+
+  Uint8List encode(List<(String, String, double, Map<String, Object>)> reports) {
+    _varint(_body, reports.length);
+    for (final (id, type, timestamp, members) in reports) {
+      _varint(_body, _intern(id));
+      _varint(_body, _intern(type));
+      _fixed(8, (d) => d.setFloat64(0, timestamp, Endian.little));
+      _members(members);
+    }
+    final out = BytesBuilder()..addByte(1);
+    _varint(out, _strings.length);
+    for (final s in _strings) {
+      final utf8Bytes = utf8.encode(s);
+      _varint(out, utf8Bytes.length);
+      out.add(utf8Bytes);
+    }
+    out.add(_body.takeBytes());
+    return out.takeBytes();
+  }
+}
+
+void main() {
+  test('decodes the Android encoder golden fixture', () {
+    final reports = decodeBinaryStats(_golden);
+
+    expect(reports, hasLength(2));
+    final inbound = reports[0];
+    expect(inbound.id, 'RTCInboundRTPVideoStream_1234');
+    expect(inbound.type, 'inbound-rtp');
+    expect(inbound.timestamp, 1700000000000000.0);
+    expect(inbound.values, {
+      'kind': 'video',
+      'ssrc': 1234,
+      'packetsLost': -3,
+      'bytesReceived': 5000000000,
+      'jitter': 0.012,
+      'active': true,
+      'muted': false,
+      'codecIds': ['RTCCodec_96', 'RTCCodec_97'],
+      'qpByLayer': {'low': 20, 'high': 31},
+      'decoderImplementation': 'c2.exynos.h264.decoder (硬件)',
+    });
+    expect(reports[1].id, 'RTCTransport_0');
+    expect(reports[1].type, 'transport');
+    expect(reports[1].timestamp, 1700000000000001.0);
+    expect(reports[1].values, isEmpty);
+  });
+
+  test('binary stats round-trip every value type', () {
+    final bytes = _StatsWriter().encode([
+      (
+        'RTCInboundRTPVideoStream_1234',
+        'inbound-rtp',
+        1700000000000000.0,
+        {
+          'kind': 'video',
+          'ssrc': 1234,
+          'bytesReceived': 5000000000,
+          'jitter': 0.012,
+          'active': true,
+          'muted': false,
+          'codecIds': ['RTCCodec_96', 'RTCCodec_97'],
+          'qpByLayer': {'low': 20, 'high': 31},
+          'decoderImplementation': 'c2.exynos.h264.decoder (硬件)',
+        },
+      ),
+      ('RTCTransport_0', 'transport', 1700000000000001.0, <String, Object>{}),
+    ]);
+
+    final reports = decodeBinaryStats(bytes);
+
+    expect(reports, hasLength(2));
+    final inbound = reports[0];
+    expect(inbound.id, 'RTCInboundRTPVideoStream_1234');
+    expect(inbound.type, 'inbound-rtp');
+    expect(inbound.timestamp, 1700000000000000.0);
+    expect(inbound.values, {
+      'kind': 'video',
+      'ssrc': 1234,
+      'bytesReceived': 5000000000,
+      'jitter': 0.012,
+      'active': true,
+      'muted': false,
+      'codecIds': ['RTCCodec_96', 'RTCCodec_97'],
+      'qpByLayer': {'low': 20, 'high': 31},
+      'decoderImplementation': 'c2.exynos.h264.decoder (硬件)',
+    });
+    expect(reports[1].id, 'RTCTransport_0');
+    expect(reports[1].values, isEmpty);
+  });
+
+  test('decodeStatsResponse accepts both encodings', () {
+    final binary = decodeStatsResponse(_StatsWriter().encode([
+      ('T01', 'transport', 1.0, {'bytesSent': 10}),
+    ]));
+    final map = decodeStatsResponse({
+      'stats': [
+        {
+          'id': 'T01',
+          'type': 'transport',
+          'timestamp': 1,
+          'values': {'bytesSent': 10},
+        },
+      ],
+    });
+
+    for (final reports in [binary, map]) {
+      expect(reports, hasLength(1));
+      expect(reports.single.id, 'T01');
+      expect(reports.single.timestamp, 1.0);
+      expect(reports.single.values, {'bytesSent': 10});
+    }
+    expect(decodeStatsResponse(null), isEmpty);
+  });
+
+  test('empty report list', () {
+    expect(decodeBinaryStats(_StatsWriter().encode([])), isEmpty);
+  });
+
+  group('malformed input', () {
+    final valid = _StatsWriter().encode([
+      ('T01', 'transport', 1.0, {'bytesSent': 10, 'state': 'connected'}),
+    ]);
+
+    test('rejects an unknown version', () {
+      final bytes = Uint8List.fromList(valid)..[0] = 2;
+      expect(() => decodeBinaryStats(bytes), throwsFormatException);
+    });
+
+    test('rejects empty input', () {
+      expect(() => decodeBinaryStats(Uint8List(0)), throwsFormatException);
+    });
+
+    test('rejects every truncation', () {
+      for (final bytes in [valid, _golden]) {
+        for (var length = 1; length < bytes.length; length++) {
+          expect(
+              () => decodeBinaryStats(Uint8List.sublistView(bytes, 0, length)),
+              throwsFormatException,
+              reason: 'truncated to $length bytes');
+        }
+      }
+    });
+
+    test('rejects an unknown value tag', () {
+      final bytes = _StatsWriter().encode([
+        ('T01', 'transport', 1.0, {'selected': true}),
+      ]);
+      // The only value is the last byte.
+      bytes[bytes.length - 1] = 42;
+      expect(() => decodeBinaryStats(bytes), throwsFormatException);
+    });
+
+    test('rejects a string index past the table', () {
+      final bytes = _StatsWriter().encode([
+        ('T01', 'transport', 1.0, <String, Object>{}),
+      ]);
+      // Layout: version, string count, 2 strings, report count, id index.
+      final idIndexAt = 1 + 1 + (1 + 3) + (1 + 9) + 1;
+      expect(bytes[idIndexAt], 0);
+      bytes[idIndexAt] = 9;
+      expect(() => decodeBinaryStats(bytes), throwsFormatException);
+    });
+  });
+}
@@ -0,0 +1,126 @@
+import 'package:flutter_test/flutter_test.dart';
+
+import 'package:webrtc_interface/webrtc_interface.dart';
+
+import 'package:stream_webrtc_flutter/src/native/stats_sampling.dart';
+
+void main() {
+  Map<String, StatsReport> snapshot() => {
+        'IT01V': StatsReport('IT01V', 'inbound-rtp', 1000.0, {
+          'ssrc': 1234,
+          'packetsReceived': 100,
+          'framesDecoded': 30,
+        }),
+        'T01': StatsReport('T01', 'transport', 1000.0, {'bytesSent': 500}),
+      };
+
+  test('adds new reports', () {
+    final reports = snapshot();
+    StatsDelta(2000.0, [
+      StatsReport('CP01', 'candidate-pair', 2000.0,
+          {'currentRoundTripTime': 0.05}),
+    ], []).applyTo(reports);
+
+    expect(reports.keys, unorderedEquals(['IT01V', 'T01', 'CP01']));
+    expect(reports['CP01']!.type, 'candidate-pair');
+    expect(reports['CP01']!.timestamp, 2000.0);
+    expect(reports['CP01']!.values, {'currentRoundTripTime': 0.05});
+  });
+
+  test('merges changed members into existing reports', () {
+    final reports = snapshot();
+    StatsDelta(2000.0, [
+      StatsReport('IT01V', 'inbound-rtp', 2000.0,
+          {'packetsReceived': 150, 'jitter': 0.01}),
+    ], []).applyTo(reports);
+
+    final inbound = reports['IT01V']!;
+    expect(inbound.timestamp, 2000.0);
+    expect(inbound.values, {
+      'ssrc': 1234,
+      'packetsReceived': 150,
+      'framesDecoded': 30,
+      'jitter': 0.01,
+    });
+    // Reports missing from the delta are unchanged.
+    expect(reports['T01']!.timestamp, 1000.0);
+    expect(reports['T01']!.values, {'bytesSent': 500});
+  });
+
+  test('does not alter the previous report', () {
+    final reports = snapshot();
+    final previous = reports['T01']!;
+    StatsDelta(2000.0, [
+      StatsReport('T01', 'transport', 2000.0, {'bytesSent': 900}),
+    ], []).applyTo(reports);
+
+    expect(previous.values, {'bytesSent': 500});
+    expect(reports['T01']!.values, {'bytesSent': 900});
+  });
+
+  test('drops members the report no longer has', () {
+    final reports = snapshot();
+    StatsDelta(2000.0, [
+      StatsReport('IT01V', 'inbound-rtp', 2000.0, {'packetsReceived': 150}),
+    ], [], {
+      'IT01V': ['framesDecoded'],
+    }).applyTo(reports);
+
+    expect(reports['IT01V']!.values, {'ssrc': 1234, 'packetsReceived': 150});
+  });
+
+  test('removes reports', () {
+    final reports = snapshot();
+    StatsDelta(2000.0, [], ['T01', 'unknown']).applyTo(reports);
+
+    expect(reports.keys, ['IT01V']);
+  });
+
+  test('applies changes and removals of one delta together', () {
+    final reports = snapshot();
+    StatsDelta(2000.0, [
+      StatsReport('IT01V', 'inbound-rtp', 2000.0, {'framesDecoded': 60}),
+      StatsReport('OT01A', 'outbound-rtp', 2000.0, {'packetsSent': 10}),
+    ], ['T01']).applyTo(reports);
+
+    expect(reports.keys, unorderedEquals(['IT01V', 'OT01A']));
+    expect(reports['IT01V']!.values['framesDecoded'], 60);
+    expect(reports['IT01V']!.values['packetsReceived'], 100);
+  });
+
+  test('fromMap reads the native delta', () {
+    final delta = StatsDelta.fromMap({
+      'timestamp': 2000,
+      'reports': [
+        {
+          'id': 'T01',
+          'type': 'transport',
+          'timestamp': 2000,
+          'values': {'bytesSent': 900},
+        },
+        {
+          'id': 'IT01V',
+          'type': 'inbound-rtp',
+          'timestamp': 2000,
+          'values': <String, dynamic>{},
+          'removedMembers': ['framesDecoded'],
+        },
+      ],
+      'removed': ['CP01'],
+    });
+
+    expect(delta.timestamp, 2000.0);
+    expect(delta.reports, hasLength(2));
+    expect(delta.reports.first.id, 'T01');
+    expect(delta.reports.first.timestamp, 2000.0);
+    expect(delta.reports.first.values, {'bytesSent': 900});
+    expect(delta.removed, ['CP01']);
+    expect(delta.removedMembers, {
+      'IT01V': ['framesDecoded'],
+    });
+
+    final reports = snapshot();
+    delta.applyTo(reports);
+    expect(reports['IT01V']!.values, {'ssrc': 1234, 'packetsReceived': 100});
+  });
+}